@@ -6,27 +6,17 @@ db = db.getSiblingDB('smart_clinic');
 db.createCollection('prescriptions');
 db.createCollection('medical_records');
 
-// Create indexes for better performance
-db.prescriptions.createIndex({ "patientId": 1 });
-db.prescriptions.createIndex({ "doctorId": 1 });
-db.prescriptions.createIndex({ "appointmentId": 1 });
-db.prescriptions.createIndex({ "prescriptionDate": -1 });
-db.prescriptions.createIndex({ "isActive": 1 });
-
-db.medical_records.createIndex({ "patientId": 1 });
-db.medical_records.createIndex({ "doctorId": 1 });
-db.medical_records.createIndex({ "visitDate": -1 });
-db.medical_records.createIndex({ "diagnosis": "text" });
-db.medical_records.createIndex({ "followUpRequired": 1 });
+// Indexes are declared on the Prescription and MedicalRecord models and created by the
+// application at startup (MongoIndexManager), so they always match the mapped field names
 
 // Insert sample prescriptions
 db.prescriptions.insertMany([
     {
-        "appointmentId": 1,
-        "patientId": 1,
-        "doctorId": 1,
-        "patientName": "Mehmet Demir",
-        "doctorName": "Dr. Ahmet Yılmaz",
+        "appointment_id": 1,
+        "patient_id": 1,
+        "doctor_id": 1,
+        "patient_name": "Mehmet Demir",
+        "doctor_name": "Dr. Ahmet Yılmaz",
         "diagnosis": "Hipertansiyon",
         "medications": [
             {
@@ -45,16 +35,16 @@ db.prescriptions.insertMany([
             }
         ],
         "instructions": "Tuz tüketimini azaltın. Düzenli egzersiz yapın. 1 ay sonra kontrole gelin.",
-        "prescriptionDate": new Date("2024-01-15"),
-        "isActive": true,
-        "createdAt": new Date()
+        "prescription_date": new Date("2024-01-15"),
+        "is_active": true,
+        "created_at": new Date()
     },
     {
-        "appointmentId": 2,
-        "patientId": 2,
-        "doctorId": 2,
-        "patientName": "Zeynep Şahin",
-        "doctorName": "Dr. Ayşe Kaya",
+        "appointment_id": 2,
+        "patient_id": 2,
+        "doctor_id": 2,
+        "patient_name": "Zeynep Şahin",
+        "doctor_name": "Dr. Ayşe Kaya",
         "diagnosis": "Tip 2 Diyabet",
         "medications": [
             {
@@ -66,24 +56,24 @@ db.prescriptions.insertMany([
             }
         ],
         "instructions": "Diyet programına uyun. Haftada 3 kez kan şekeri ölçümü yapın. 3 ay sonra kontrole gelin.",
-        "prescriptionDate": new Date("2024-01-10"),
-        "isActive": true,
-        "createdAt": new Date()
+        "prescription_date": new Date("2024-01-10"),
+        "is_active": true,
+        "created_at": new Date()
     }
 ]);
 
 // Insert sample medical records
 db.medical_records.insertMany([
     {
-        "patientId": 1,
-        "visitDate": new Date("2024-01-15"),
-        "doctorId": 1,
-        "doctorName": "Dr. Ahmet Yılmaz",
+        "patient_id": 1,
+        "visit_date": new Date("2024-01-15"),
+        "doctor_id": 1,
+        "doctor_name": "Dr. Ahmet Yılmaz",
         "diagnosis": "Hipertansiyon",
         "symptoms": ["Baş ağrısı", "Baş dönmesi", "Yorgunluk"],
         "treatment": "Antihipertansif ilaç tedavisi başlandı",
         "notes": "Hasta 150/95 mmHg kan basıncı ile başvurdu. Tuz kısıtlaması önerildi.",
-        "vitalSigns": {
+        "vital_signs": {
             "bloodPressureSystolic": 150,
             "bloodPressureDiastolic": 95,
             "heartRate": 78,
@@ -92,7 +82,7 @@ db.medical_records.insertMany([
             "weight": 85,
             "height": 178
         },
-        "labResults": [
+        "lab_results": [
             {
                 "testName": "Kan Şekeri",
                 "result": "98",
@@ -108,20 +98,20 @@ db.medical_records.insertMany([
                 "notes": "Hafif yüksek"
             }
         ],
-        "followUpRequired": true,
-        "followUpDate": new Date("2024-02-15"),
-        "createdAt": new Date()
+        "follow_up_required": true,
+        "follow_up_date": new Date("2024-02-15"),
+        "created_at": new Date()
     },
     {
-        "patientId": 2,
-        "visitDate": new Date("2024-01-10"),
-        "doctorId": 2,
-        "doctorName": "Dr. Ayşe Kaya",
+        "patient_id": 2,
+        "visit_date": new Date("2024-01-10"),
+        "doctor_id": 2,
+        "doctor_name": "Dr. Ayşe Kaya",
         "diagnosis": "Tip 2 Diyabet",
         "symptoms": ["Çok su içme", "Sık idrara çıkma", "Yorgunluk"],
         "treatment": "Oral antidiyabetik tedavi başlandı",
         "notes": "Hasta açlık kan şekeri 145 mg/dL ile başvurdu. Diyet ve egzersiz önerildi.",
-        "vitalSigns": {
+        "vital_signs": {
             "bloodPressureSystolic": 130,
             "bloodPressureDiastolic": 85,
             "heartRate": 72,
@@ -130,7 +120,7 @@ db.medical_records.insertMany([
             "weight": 68,
             "height": 165
         },
-        "labResults": [
+        "lab_results": [
             {
                 "testName": "Açlık Kan Şekeri",
                 "result": "145",
@@ -146,9 +136,9 @@ db.medical_records.insertMany([
                 "notes": "Yüksek"
             }
         ],
-        "followUpRequired": true,
-        "followUpDate": new Date("2024-04-10"),
-        "createdAt": new Date()
+        "follow_up_required": true,
+        "follow_up_date": new Date("2024-04-10"),
+        "created_at": new Date()
     }
 ]);
 
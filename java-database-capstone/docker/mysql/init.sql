@@ -13,6 +13,7 @@ CREATE TABLE IF NOT EXISTS users (
     last_name VARCHAR(100) NOT NULL,
     phone VARCHAR(20),
     role ENUM('ADMIN', 'DOCTOR', 'PATIENT') NOT NULL,
+    version BIGINT NOT NULL DEFAULT 0,
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
     updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP
 );
@@ -54,12 +55,54 @@ CREATE TABLE IF NOT EXISTS appointments (
     appointment_date TIMESTAMP NOT NULL,
     status ENUM('SCHEDULED', 'CONFIRMED', 'IN_PROGRESS', 'COMPLETED', 'CANCELLED', 'NO_SHOW') DEFAULT 'SCHEDULED',
     notes TEXT,
+    version BIGINT NOT NULL DEFAULT 0,
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
     updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
     FOREIGN KEY (patient_id) REFERENCES patients(id),
     FOREIGN KEY (doctor_id) REFERENCES doctors(id)
 );
 
+CREATE TABLE IF NOT EXISTS doctor_working_hours (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    doctor_id BIGINT NOT NULL,
+    day_of_week ENUM('MONDAY', 'TUESDAY', 'WEDNESDAY', 'THURSDAY', 'FRIDAY', 'SATURDAY', 'SUNDAY') NOT NULL,
+    start_time TIME NOT NULL,
+    end_time TIME NOT NULL,
+    FOREIGN KEY (doctor_id) REFERENCES doctors(id) ON DELETE CASCADE
+);
+
+-- Reminder ledger: one row per appointment and date, claimed before the email is sent
+CREATE TABLE IF NOT EXISTS appointment_reminders (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    appointment_id BIGINT NOT NULL,
+    appointment_date TIMESTAMP NOT NULL,
+    status ENUM('CLAIMED', 'SENT', 'FAILED') NOT NULL,
+    attempts INT NOT NULL DEFAULT 0,
+    claim_token VARCHAR(36),
+    claimed_at TIMESTAMP NULL,
+    sent_at TIMESTAMP NULL,
+    last_error VARCHAR(500),
+    CONSTRAINT uk_appointment_reminders_appointment UNIQUE (appointment_date, appointment_id)
+);
+
+-- Cold tier: finished appointments past the archive horizon, moved here with their original ids.
+-- A separate table rather than partitions, since partitioned InnoDB tables cannot have foreign keys
+CREATE TABLE IF NOT EXISTS appointments_archive (
+    id BIGINT PRIMARY KEY,
+    patient_id BIGINT NOT NULL,
+    doctor_id BIGINT NOT NULL,
+    appointment_date TIMESTAMP NOT NULL,
+    status ENUM('SCHEDULED', 'CONFIRMED', 'IN_PROGRESS', 'COMPLETED', 'CANCELLED', 'NO_SHOW') NOT NULL,
+    notes TEXT,
+    version BIGINT NOT NULL DEFAULT 0,
+    created_at TIMESTAMP NULL,
+    updated_at TIMESTAMP NULL,
+    -- Microseconds, so every archived chunk leaves a distinct MAX(archived_at)
+    archived_at DATETIME(6) NOT NULL,
+    FOREIGN KEY (patient_id) REFERENCES patients(id),
+    FOREIGN KEY (doctor_id) REFERENCES doctors(id)
+);
+
 -- Insert sample data
 INSERT IGNORE INTO users (username, email, password, first_name, last_name, phone, role) VALUES
 ('admin', 'admin@smartclinic.com', 'admin123', 'System', 'Administrator', '+90-555-123-4567', 'ADMIN'),
@@ -132,9 +175,20 @@ DELIMITER ;
 -- Create indexes for better performance
 CREATE INDEX IF NOT EXISTS idx_appointments_doctor_date ON appointments(doctor_id, appointment_date);
 CREATE INDEX IF NOT EXISTS idx_appointments_patient_date ON appointments(patient_id, appointment_date);
-CREATE INDEX IF NOT EXISTS idx_appointments_status ON appointments(status);
+CREATE INDEX IF NOT EXISTS idx_appointments_status ON appointments(status, appointment_date);
+-- Keyset pagination seeks on (appointment_date, id); InnoDB appends the primary key to secondary indexes
+CREATE INDEX IF NOT EXISTS idx_appointments_date ON appointments(appointment_date);
+-- Lets the periodic stats reconcile group by doctor and status from the index alone
+CREATE INDEX IF NOT EXISTS idx_appointments_doctor_status ON appointments(doctor_id, status);
+CREATE INDEX IF NOT EXISTS idx_appointment_reminders_claim ON appointment_reminders(claim_token);
+CREATE INDEX IF NOT EXISTS idx_appointments_archive_patient_date ON appointments_archive(patient_id, appointment_date);
+CREATE INDEX IF NOT EXISTS idx_appointments_archive_doctor_date ON appointments_archive(doctor_id, appointment_date);
+CREATE INDEX IF NOT EXISTS idx_appointments_archive_date ON appointments_archive(appointment_date);
+CREATE INDEX IF NOT EXISTS idx_appointments_archive_doctor_status ON appointments_archive(doctor_id, status);
+CREATE INDEX IF NOT EXISTS idx_appointments_archive_archived_at ON appointments_archive(archived_at);
 CREATE INDEX IF NOT EXISTS idx_users_role ON users(role);
 CREATE INDEX IF NOT EXISTS idx_doctors_specialization ON doctors(specialization);
+CREATE INDEX IF NOT EXISTS idx_working_hours_doctor ON doctor_working_hours(doctor_id, day_of_week);
 
 -- Create views for reporting
 CREATE OR REPLACE VIEW doctor_appointment_summary AS
@@ -0,0 +1,84 @@
+package com.smartclinic.config;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.smartclinic.repositories.RowCallback;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+/**
+ * Writes a streamed query to the response as it is read. Clients that accept
+ * {@code application/x-ndjson} get one JSON document per line; everyone else gets a single JSON
+ * array written element by element. Either way only the row being serialized is held in memory,
+ * and the first row is flushed straight away so a long export starts arriving immediately.
+ */
+@Component
+public class JsonStreamWriter {
+    
+    @FunctionalInterface
+    public interface RowSource {
+        void writeTo(RowCallback<Object> out) throws IOException;
+    }
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    public ResponseEntity<StreamingResponseBody> stream(String accept, RowSource source) {
+        boolean ndjson = acceptsNdjson(accept);
+        StreamingResponseBody body = output -> {
+            try (JsonGenerator generator = createGenerator(output)) {
+                if (!ndjson) {
+                    generator.writeStartArray();
+                }
+                boolean[] first = {true};
+                source.writeTo(row -> {
+                    generator.writeObject(row);
+                    if (ndjson) {
+                        generator.writeRaw('\n');
+                    }
+                    // Push the first row out at once; after that the buffers flush as they fill
+                    if (first[0]) {
+                        generator.flush();
+                        first[0] = false;
+                    }
+                });
+                if (!ndjson) {
+                    generator.writeEndArray();
+                }
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(ndjson ? MediaType.APPLICATION_NDJSON : MediaType.APPLICATION_JSON)
+                .body(body);
+    }
+    
+    private JsonGenerator createGenerator(OutputStream output) throws IOException {
+        JsonGenerator generator = objectMapper.createGenerator(output);
+        // The container owns the response stream
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        // NDJSON lines are separated by hand; the default root separator is a space
+        generator.setRootValueSeparator(null);
+        return generator;
+    }
+    
+    private static boolean acceptsNdjson(String accept) {
+        if (accept == null || accept.isEmpty()) {
+            return false;
+        }
+        List<MediaType> mediaTypes = MediaType.parseMediaTypes(accept);
+        for (MediaType mediaType : mediaTypes) {
+            if (!mediaType.isWildcardType() && !mediaType.isWildcardSubtype()
+                    && mediaType.isCompatibleWith(MediaType.APPLICATION_NDJSON)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
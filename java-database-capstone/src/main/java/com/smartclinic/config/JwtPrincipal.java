@@ -0,0 +1,34 @@
+package com.smartclinic.config;
+
+import java.security.Principal;
+
+/**
+ * Principal built from verified token claims when running in stateless mode.
+ */
+public class JwtPrincipal implements Principal {
+    
+    private final Long userId;
+    private final String username;
+    private final String role;
+    
+    public JwtPrincipal(Long userId, String username, String role) {
+        this.userId = userId;
+        this.username = username;
+        this.role = role;
+    }
+    
+    @Override
+    public String getName() {
+        return username;
+    }
+    
+    // Getters
+    public Long getUserId() { return userId; }
+    public String getUsername() { return username; }
+    public String getRole() { return role; }
+    
+    @Override
+    public String toString() {
+        return username;
+    }
+}
@@ -6,23 +6,123 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
 
+import javax.annotation.PostConstruct;
 import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
 
 @Component
 public class JwtUtil {
     
-    @Value("`${app.security.jwt.secret:default-secret-key-change-in-production}")
+    static final String TOKEN_TYPE_CLAIM = "typ";
+    static final String REFRESH_TOKEN_TYPE = "refresh";
+    static final String FAMILY_CLAIM = "fam";
+    static final String GENERATION_CLAIM = "gen";
+    
+    @Value("${app.security.jwt.secret:default-secret-key-change-in-production}")
     private String secret;
     
-    @Value("`${app.security.jwt.expiration:86400000}")
+    @Value("${app.security.jwt.expiration:900000}")
     private long expiration;
     
-    private SecretKey getSigningKey() {
-        return Keys.hmacShaKeyFor(secret.getBytes());
+    @Value("${app.security.jwt.refresh-expiration:604800000}")
+    private long refreshExpiration;
+    
+    @Value("${app.security.jwt.cache.max-size:10000}")
+    private int cacheMaxSize;
+    
+    private SecretKey signingKey;
+    
+    private JwtParser jwtParser;
+    
+    // Verified tokens keyed by SHA-256 digest, so raw bearer tokens are never retained on the heap
+    private final Map<String, VerifiedClaims> verifiedTokens = new ConcurrentHashMap<>();
+    
+    private static final ThreadLocal<MessageDigest> SHA_256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    });
+    
+    @PostConstruct
+    void init() {
+        this.signingKey = Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
+        this.jwtParser = Jwts.parserBuilder()
+                .setSigningKey(signingKey)
+                .build();
+    }
+    
+    /**
+     * Verifies the token once and returns its claims, or {@code null} if the token is
+     * malformed, badly signed or expired. Repeated tokens are served from the cache.
+     */
+    public VerifiedClaims verify(String token) {
+        if (token == null || token.isEmpty()) {
+            return null;
+        }
+        
+        long now = System.currentTimeMillis();
+        String digest = digest(token);
+        
+        VerifiedClaims cached = verifiedTokens.get(digest);
+        if (cached != null) {
+            if (!cached.isExpired(now)) {
+                return cached;
+            }
+            verifiedTokens.remove(digest, cached);
+            return null;
+        }
+        
+        VerifiedClaims claims;
+        try {
+            claims = VerifiedClaims.from(extractAllClaims(token));
+        } catch (JwtException | IllegalArgumentException e) {
+            return null;
+        }
+        
+        // Every token issued here names its user; a signed one without a subject identifies no one
+        if (claims.getSubject() == null || claims.isExpired(now)) {
+            return null;
+        }
+        cache(digest, claims, now);
+        return claims;
+    }
+    
+    private void cache(String digest, VerifiedClaims claims, long now) {
+        if (verifiedTokens.size() >= cacheMaxSize) {
+            evictExpired(now);
+        }
+        if (verifiedTokens.size() >= cacheMaxSize) {
+            // Still full of live tokens: drop an arbitrary slice rather than grow unbounded
+            Iterator<String> keys = verifiedTokens.keySet().iterator();
+            for (int i = 0; i < cacheMaxSize / 10 + 1 && keys.hasNext(); i++) {
+                keys.next();
+                keys.remove();
+            }
+        }
+        verifiedTokens.put(digest, claims);
+    }
+    
+    private void evictExpired(long now) {
+        verifiedTokens.values().removeIf(claims -> claims.isExpired(now));
+    }
+    
+    private static String digest(String token) {
+        MessageDigest sha256 = SHA_256.get();
+        sha256.reset();
+        byte[] hash = sha256.digest(token.getBytes(StandardCharsets.US_ASCII));
+        return Base64.getEncoder().encodeToString(hash);
     }
     
     public String extractUsername(String token) {
@@ -39,15 +139,7 @@ public class JwtUtil {
     }
     
     private Claims extractAllClaims(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
-    }
-    
-    private Boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
+        return jwtParser.parseClaimsJws(token).getBody();
     }
     
     public String generateToken(UserDetails userDetails) {
@@ -61,30 +153,62 @@ public class JwtUtil {
         return createToken(claims, username);
     }
     
+    public String generateToken(String username, String role, Long userId) {
+        Map<String, Object> claims = new HashMap<>();
+        claims.put("role", role);
+        claims.put("uid", userId);
+        return createToken(claims, username);
+    }
+    
+    // Refresh tokens are only accepted by /api/auth/refresh, never as bearer access tokens
+    public String generateRefreshToken(String username, String role, Long userId) {
+        return generateRefreshToken(username, role, userId, UUID.randomUUID().toString(), 0);
+    }
+    
+    // The token that replaces a consumed one: same family, next generation
+    public String generateRefreshToken(String username, String role, Long userId, VerifiedClaims consumed) {
+        return generateRefreshToken(username, role, userId, consumed.getFamilyId(), consumed.getGeneration() + 1);
+    }
+    
+    private String generateRefreshToken(String username, String role, Long userId, String familyId, int generation) {
+        Map<String, Object> claims = new HashMap<>();
+        claims.put(TOKEN_TYPE_CLAIM, REFRESH_TOKEN_TYPE);
+        claims.put(FAMILY_CLAIM, familyId);
+        claims.put(GENERATION_CLAIM, generation);
+        claims.put("role", role);
+        claims.put("uid", userId);
+        return createToken(claims, username, refreshExpiration);
+    }
+    
+    public long getExpiration() {
+        return expiration;
+    }
+    
+    public long getRefreshExpiration() {
+        return refreshExpiration;
+    }
+    
     private String createToken(Map<String, Object> claims, String subject) {
+        return createToken(claims, subject, expiration);
+    }
+    
+    private String createToken(Map<String, Object> claims, String subject, long validityMillis) {
         return Jwts.builder()
                 .setClaims(claims)
+                .setId(UUID.randomUUID().toString())
                 .setSubject(subject)
                 .setIssuedAt(new Date(System.currentTimeMillis()))
-                .setExpiration(new Date(System.currentTimeMillis() + expiration))
-                .signWith(getSigningKey(), SignatureAlgorithm.HS256)
+                .setExpiration(new Date(System.currentTimeMillis() + validityMillis))
+                .signWith(signingKey, SignatureAlgorithm.HS256)
                 .compact();
     }
     
     public Boolean validateToken(String token, UserDetails userDetails) {
-        final String username = extractUsername(token);
-        return (username.equals(userDetails.getUsername()) && !isTokenExpired(token));
+        VerifiedClaims claims = verify(token);
+        return claims != null && claims.getSubject().equals(userDetails.getUsername());
     }
     
     public Boolean validateToken(String token) {
-        try {
-            Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token);
-            return true;
-        } catch (JwtException | IllegalArgumentException e) {
-            return false;
-        }
+        return verify(token) != null;
     }
 }
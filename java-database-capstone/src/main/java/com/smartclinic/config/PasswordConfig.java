@@ -1,5 +1,8 @@
 package com.smartclinic.config;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
@@ -8,8 +11,57 @@ import org.springframework.security.crypto.password.PasswordEncoder;
 @Configuration
 public class PasswordConfig {
     
+    private static final Logger logger = LoggerFactory.getLogger(PasswordConfig.class);
+
+    private static final String CALIBRATION_PASSWORD = "calibration-Passw0rd!";
+
+    @Value("${app.security.password.target-hash-ms:250}")
+    private long targetHashMillis;
+
+    @Value("${app.security.password.min-strength:10}")
+    private int minStrength;
+
+    @Value("${app.security.password.max-strength:14}")
+    private int maxStrength;
+
     @Bean
     public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+        int strength = calibrateStrength();
+        logger.info("Using BCrypt strength {} (target {} ms per hash)", strength, targetHashMillis);
+        return new BCryptPasswordEncoder(strength);
+    }
+
+    /**
+     * Picks the highest BCrypt strength whose measured hash time stays within the target,
+     * never going below the configured minimum. Each step doubles the cost, so the loop
+     * stops as soon as one measurement overshoots.
+     */
+    int calibrateStrength() {
+        int floor = Math.max(4, minStrength);
+        int ceiling = Math.min(31, Math.max(floor, maxStrength));
+
+        // Warm up the JIT so the first measurement is not dominated by interpretation
+        new BCryptPasswordEncoder(4).encode(CALIBRATION_PASSWORD);
+
+        int chosen = floor;
+        for (int strength = floor; strength <= ceiling; strength++) {
+            long elapsedMillis = measureHashMillis(strength);
+            if (elapsedMillis > targetHashMillis) {
+                break;
+            }
+            chosen = strength;
+            // The next step takes roughly twice as long; skip it if that would overshoot
+            if (elapsedMillis * 2 > targetHashMillis) {
+                break;
+            }
+        }
+        return chosen;
+    }
+
+    private static long measureHashMillis(int strength) {
+        BCryptPasswordEncoder encoder = new BCryptPasswordEncoder(strength);
+        long start = System.nanoTime();
+        encoder.encode(CALIBRATION_PASSWORD);
+        return (System.nanoTime() - start) / 1_000_000;
     }
 }
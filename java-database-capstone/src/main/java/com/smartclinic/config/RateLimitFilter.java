@@ -0,0 +1,139 @@
+package com.smartclinic.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.smartclinic.dtos.ErrorResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.annotation.PostConstruct;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * Per-client rate limiting. Runs right after {@link JwtAuthenticationFilter}, so authenticated
+ * requests are limited per token subject and anonymous ones per client IP. Login attempts get a
+ * separate, much tighter per-IP bucket so a credential-stuffing flood is turned away before it
+ * reaches BCrypt.
+ */
+@Component
+public class RateLimitFilter extends OncePerRequestFilter {
+    
+    private static final String LOGIN_PATH = "/api/auth/login";
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    @Value("${app.rate-limiting.enabled:false}")
+    private boolean enabled;
+    
+    @Value("${app.rate-limiting.requests-per-minute:100}")
+    private int requestsPerMinute;
+    
+    @Value("${app.rate-limiting.burst:20}")
+    private int burst;
+    
+    @Value("${app.rate-limiting.login-requests-per-minute:10}")
+    private int loginRequestsPerMinute;
+    
+    @Value("${app.rate-limiting.login-burst:5}")
+    private int loginBurst;
+    
+    @Value("${app.rate-limiting.max-buckets:100000}")
+    private int maxBuckets;
+    
+    private RateLimiter clientLimiter;
+    private RateLimiter loginLimiter;
+    
+    private Counter clientRejections;
+    private Counter loginRejections;
+    
+    @PostConstruct
+    void init() {
+        clientLimiter = new RateLimiter(requestsPerMinute, burst, maxBuckets);
+        loginLimiter = new RateLimiter(loginRequestsPerMinute, loginBurst, maxBuckets);
+        
+        clientRejections = Counter.builder("smartclinic.rate.limit.rejected")
+                .tag("scope", "client")
+                .description("Requests rejected by the per-client rate limit")
+                .register(meterRegistry);
+        loginRejections = Counter.builder("smartclinic.rate.limit.rejected")
+                .tag("scope", "login")
+                .description("Login attempts rejected by the per-IP login rate limit")
+                .register(meterRegistry);
+        Gauge.builder("smartclinic.rate.limit.buckets", this, f -> f.clientLimiter.size() + f.loginLimiter.size())
+                .register(meterRegistry);
+    }
+    
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !enabled;
+    }
+    
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                  FilterChain filterChain) throws ServletException, IOException {
+        
+        long now = System.nanoTime();
+        String clientIp = request.getRemoteAddr();
+        
+        if (LOGIN_PATH.equals(request.getServletPath()) && "POST".equals(request.getMethod())) {
+            long waitNanos = loginLimiter.tryAcquire(clientIp, now);
+            if (waitNanos > 0) {
+                loginRejections.increment();
+                reject(request, response, waitNanos, "Too many login attempts, please retry later");
+                return;
+            }
+        }
+        
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        String key = authentication != null && authentication.isAuthenticated()
+                ? "user:" + authentication.getName()
+                : "ip:" + clientIp;
+        
+        long waitNanos = clientLimiter.tryAcquire(key, now);
+        if (waitNanos > 0) {
+            clientRejections.increment();
+            reject(request, response, waitNanos, "Rate limit exceeded, please retry later");
+            return;
+        }
+        
+        filterChain.doFilter(request, response);
+    }
+    
+    @Scheduled(fixedDelayString = "${app.rate-limiting.purge-interval-ms:60000}")
+    public void evictIdleBuckets() {
+        if (clientLimiter == null) {
+            return;
+        }
+        long now = System.nanoTime();
+        clientLimiter.evictIdle(now);
+        loginLimiter.evictIdle(now);
+    }
+    
+    private void reject(HttpServletRequest request, HttpServletResponse response, long waitNanos, String message)
+            throws IOException {
+        long retryAfterSeconds = Math.max(1, (waitNanos + 999_999_999L) / 1_000_000_000L);
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(),
+                ErrorResponse.tooManyRequests(message, "uri=" + request.getRequestURI()));
+    }
+}
@@ -0,0 +1,104 @@
+package com.smartclinic.config;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Lock-free token buckets keyed by client. Each bucket is a single "theoretical arrival time"
+ * (GCRA), so taking a permit is one map lookup and one compare-and-set; ConcurrentHashMap
+ * stripes contention across keys. Buckets whose arrival time has passed are full and can be
+ * dropped without changing behaviour, which is what {@link #evictIdle(long)} does. When the map
+ * is full a new key sweeps it at most once per {@link #MIN_EVICTION_INTERVAL_NANOS} and only if no
+ * other thread is sweeping; otherwise it shares the overflow bucket, so a key-spraying flood does
+ * not turn every request into a full scan.
+ */
+public class RateLimiter {
+    
+    static final String OVERFLOW_KEY = "__overflow__";
+    static final long MIN_EVICTION_INTERVAL_NANOS = 1_000_000_000L;
+    private static final long NEVER = Long.MIN_VALUE;
+    
+    private final long emissionIntervalNanos;
+    private final long burstNanos;
+    private final int maxBuckets;
+    private final ConcurrentHashMap<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+    private final ReentrantLock evictionLock = new ReentrantLock();
+    private volatile long lastEvictionNanos = NEVER;
+    
+    public RateLimiter(int permitsPerMinute, int burst, int maxBuckets) {
+        if (permitsPerMinute <= 0 || burst <= 0) {
+            throw new IllegalArgumentException("Rate limit permits and burst must be positive");
+        }
+        this.emissionIntervalNanos = 60_000_000_000L / permitsPerMinute;
+        this.burstNanos = emissionIntervalNanos * burst;
+        this.maxBuckets = maxBuckets;
+    }
+    
+    /**
+     * Takes one permit for the key.
+     *
+     * @return 0 if the request is allowed, otherwise the nanoseconds until a permit frees up
+     */
+    public long tryAcquire(String key, long nowNanos) {
+        AtomicLong arrival = buckets.get(key);
+        if (arrival == null) {
+            arrival = newBucket(key, nowNanos);
+        }
+        for (;;) {
+            long current = arrival.get();
+            long base = current - nowNanos > 0 ? current : nowNanos;
+            long next = base + emissionIntervalNanos;
+            long waitNanos = next - nowNanos - burstNanos;
+            if (waitNanos > 0) {
+                return waitNanos;
+            }
+            if (arrival.compareAndSet(current, next)) {
+                return 0;
+            }
+        }
+    }
+    
+    public void evictIdle(long nowNanos) {
+        evictionLock.lock();
+        try {
+            sweep(nowNanos);
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+    
+    public int size() {
+        return buckets.size();
+    }
+    
+    private AtomicLong newBucket(String key, long nowNanos) {
+        if (buckets.size() >= maxBuckets) {
+            if (evictionDue(nowNanos) && evictionLock.tryLock()) {
+                try {
+                    if (evictionDue(nowNanos)) {
+                        sweep(nowNanos);
+                    }
+                } finally {
+                    evictionLock.unlock();
+                }
+            }
+            // Still full, or swept too recently: share one bucket rather than grow without bound under a key-spraying flood
+            if (buckets.size() >= maxBuckets) {
+                key = OVERFLOW_KEY;
+            }
+        }
+        return buckets.computeIfAbsent(key, k -> new AtomicLong(nowNanos));
+    }
+    
+    private boolean evictionDue(long nowNanos) {
+        long last = lastEvictionNanos;
+        return last == NEVER || nowNanos - last >= MIN_EVICTION_INTERVAL_NANOS;
+    }
+    
+    // Caller holds evictionLock
+    private void sweep(long nowNanos) {
+        buckets.values().removeIf(arrival -> arrival.get() - nowNanos <= 0);
+        lastEvictionNanos = nowNanos;
+    }
+}
@@ -0,0 +1,118 @@
+package com.smartclinic.config;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Revoked token ids, kept until the token would have expired anyway. Lookups go through a
+ * Bloom filter first, so the common "not revoked" answer costs a few bit probes and never
+ * allocates; only possible hits consult the exact map. Writes are rare (logout, refresh
+ * rotation) and serialized, and the filter is rebuilt from the live entries on purge.
+ */
+public class RevokedTokenStore {
+    
+    private static final double FALSE_POSITIVE_RATE = 0.01;
+    
+    private final int expectedEntries;
+    
+    // token id -> expiry of the revoked token (epoch millis)
+    private final Map<String, Long> revoked = new ConcurrentHashMap<>();
+    
+    private volatile BloomFilter filter;
+    
+    public RevokedTokenStore(int expectedEntries) {
+        this.expectedEntries = Math.max(1024, expectedEntries);
+        this.filter = new BloomFilter(this.expectedEntries);
+    }
+    
+    /**
+     * Records the token id as revoked.
+     *
+     * @return {@code false} if it was already revoked
+     */
+    public synchronized boolean add(String tokenId, long expiresAtMillis) {
+        if (revoked.putIfAbsent(tokenId, expiresAtMillis) != null) {
+            return false;
+        }
+        // Map first, then bits: a reader that sees the bits always finds the entry
+        filter.put(tokenId);
+        return true;
+    }
+    
+    public boolean contains(String tokenId) {
+        return filter.mightContain(tokenId) && revoked.containsKey(tokenId);
+    }
+    
+    public synchronized void purgeExpired(long nowMillis) {
+        boolean removed = revoked.values().removeIf(expiresAt -> expiresAt <= nowMillis);
+        // Bloom filters cannot delete, and one grown past its sizing loses precision: rebuild in both cases
+        if (removed || revoked.size() > filter.capacity) {
+            BloomFilter rebuilt = new BloomFilter(Math.max(expectedEntries, revoked.size() * 2));
+            revoked.keySet().forEach(rebuilt::put);
+            filter = rebuilt;
+        }
+    }
+    
+    public int size() {
+        return revoked.size();
+    }
+    
+    private static final class BloomFilter {
+        private final int capacity;
+        private final AtomicLongArray bits;
+        private final long bitCount;
+        private final int hashCount;
+        
+        BloomFilter(int capacity) {
+            this.capacity = capacity;
+            long optimalBits = (long) Math.ceil(-capacity * Math.log(FALSE_POSITIVE_RATE) / (Math.log(2) * Math.log(2)));
+            int words = (int) Math.max(1, (optimalBits + 63) / 64);
+            this.bits = new AtomicLongArray(words);
+            this.bitCount = words * 64L;
+            this.hashCount = Math.max(1, (int) Math.round((double) bitCount / capacity * Math.log(2)));
+        }
+        
+        void put(String key) {
+            long h1 = fnv1a64(key);
+            long h2 = mix64(h1) | 1;
+            for (int i = 0; i < hashCount; i++) {
+                long bit = Long.remainderUnsigned(h1 + i * h2, bitCount);
+                int word = (int) (bit >>> 6);
+                long mask = 1L << bit;
+                long current;
+                do {
+                    current = bits.get(word);
+                } while ((current & mask) == 0 && !bits.compareAndSet(word, current, current | mask));
+            }
+        }
+        
+        boolean mightContain(String key) {
+            long h1 = fnv1a64(key);
+            long h2 = mix64(h1) | 1;
+            for (int i = 0; i < hashCount; i++) {
+                long bit = Long.remainderUnsigned(h1 + i * h2, bitCount);
+                if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        
+        // Hashes the chars directly so a lookup does not encode the key into a byte array
+        private static long fnv1a64(String key) {
+            long hash = 0xcbf29ce484222325L;
+            for (int i = 0; i < key.length(); i++) {
+                hash ^= key.charAt(i);
+                hash *= 0x100000001b3L;
+            }
+            return hash;
+        }
+        
+        private static long mix64(long z) {
+            z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+            z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+            return z ^ (z >>> 33);
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.smartclinic.config;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory token revocation: a denylist of individual token ids plus a per-user
+ * "tokens issued before" watermark. Entries are only kept as long as a token issued
+ * before them could still be valid, so memory stays proportional to recent revocations.
+ * Refresh tokens are tracked per family (one login and its rotations) by the generation
+ * the family expects next, so rotation costs one entry per family rather than one per token.
+ */
+@Component
+public class TokenRevocationRegistry {
+    
+    @Autowired
+    private JwtUtil jwtUtil;
+    
+    @Value("${app.security.jwt.revocation.expected-entries:100000}")
+    private int expectedEntries;
+    
+    private RevokedTokenStore revokedTokens;
+    
+    // username -> tokens issued before this instant (epoch millis) are rejected
+    private final Map<String, Long> issuedBeforeWatermarks = new ConcurrentHashMap<>();
+    
+    // refresh token family id -> rotation state, until the newest token of the family expires
+    private final Map<String, RefreshFamily> refreshFamilies = new ConcurrentHashMap<>();
+    
+    @PostConstruct
+    void init() {
+        revokedTokens = new RevokedTokenStore(expectedEntries);
+    }
+    
+    public void revoke(VerifiedClaims claims) {
+        if (claims.isRefreshToken() && claims.getFamilyId() != null) {
+            refreshFamilies.merge(claims.getFamilyId(), RefreshFamily.revoked(claims.getExpiresAtMillis()),
+                    (current, revoked) -> RefreshFamily.revoked(Math.max(current.expiresAtMillis, revoked.expiresAtMillis)));
+        } else if (claims.getTokenId() != null) {
+            revokedTokens.add(claims.getTokenId(), claims.getExpiresAtMillis());
+        } else {
+            // Tokens issued before token ids were added can only be revoked per user
+            revokeAllFor(claims.getSubject());
+        }
+    }
+    
+    public void revokeAllFor(String username) {
+        issuedBeforeWatermarks.merge(username, System.currentTimeMillis(), Math::max);
+    }
+    
+    /**
+     * Uses up a refresh token so it can be exchanged exactly once, for the next generation of
+     * its family. Presenting an older generation means a token was stolen or replayed, so the
+     * family and every token of that user are revoked. A family with no state yet (never rotated,
+     * or rotated before a restart) accepts the token it is shown.
+     *
+     * @return {@code true} if the caller may issue a new token pair
+     */
+    public boolean consumeRefreshToken(VerifiedClaims claims) {
+        if (claims.getFamilyId() == null || isRevokedByWatermark(claims)) {
+            return false;
+        }
+        // The replacement token outlives the one presented, and the family lives as long as it does
+        long familyExpiresAt = Math.max(claims.getExpiresAtMillis(),
+                System.currentTimeMillis() + jwtUtil.getRefreshExpiration());
+        RefreshFamily family = refreshFamilies.compute(claims.getFamilyId(), (familyId, current) -> {
+            if (current == null || (!current.revoked && current.nextGeneration == claims.getGeneration())) {
+                return new RefreshFamily(claims.getGeneration() + 1, false, familyExpiresAt);
+            }
+            return RefreshFamily.revoked(current.expiresAtMillis);
+        });
+        if (family.revoked) {
+            revokeAllFor(claims.getSubject());
+            return false;
+        }
+        return true;
+    }
+    
+    public boolean isRevoked(VerifiedClaims claims) {
+        if (claims.getTokenId() != null && revokedTokens.contains(claims.getTokenId())) {
+            return true;
+        }
+        return isRevokedByWatermark(claims);
+    }
+    
+    private boolean isRevokedByWatermark(VerifiedClaims claims) {
+        Long watermark = issuedBeforeWatermarks.get(claims.getSubject());
+        // JWT iat has second precision, so a token from the same second as the watermark is rejected too
+        return watermark != null && claims.getIssuedAtMillis() < watermark;
+    }
+    
+    @Scheduled(fixedDelayString = "${app.security.jwt.revocation.purge-interval-ms:60000}")
+    public void purgeExpired() {
+        long now = System.currentTimeMillis();
+        revokedTokens.purgeExpired(now);
+        refreshFamilies.values().removeIf(family -> family.expiresAtMillis <= now);
+        
+        // Refresh tokens live longest, so a watermark can go once no token issued before it is still valid
+        long oldestLiveIssue = now - Math.max(jwtUtil.getExpiration(), jwtUtil.getRefreshExpiration());
+        issuedBeforeWatermarks.values().removeIf(watermark -> watermark <= oldestLiveIssue);
+    }
+    
+    int refreshFamilyCount() {
+        return refreshFamilies.size();
+    }
+    
+    private static final class RefreshFamily {
+        private final int nextGeneration;
+        private final boolean revoked;
+        private final long expiresAtMillis;
+        
+        RefreshFamily(int nextGeneration, boolean revoked, long expiresAtMillis) {
+            this.nextGeneration = nextGeneration;
+            this.revoked = revoked;
+            this.expiresAtMillis = expiresAtMillis;
+        }
+        
+        static RefreshFamily revoked(long expiresAtMillis) {
+            return new RefreshFamily(-1, true, expiresAtMillis);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.smartclinic.config;
+
+import io.jsonwebtoken.Claims;
+
+import java.util.Date;
+
+/**
+ * Immutable snapshot of the claims of a token whose signature has already been verified.
+ */
+public final class VerifiedClaims {
+    
+    private final String tokenId;
+    private final String tokenType;
+    private final String subject;
+    private final String role;
+    private final Long userId;
+    // Refresh tokens only: the login they descend from and how many rotations ago
+    private final String familyId;
+    private final int generation;
+    private final long issuedAtMillis;
+    private final long expiresAtMillis;
+    
+    private VerifiedClaims(String tokenId, String tokenType, String subject, String role, Long userId,
+                           String familyId, int generation, long issuedAtMillis, long expiresAtMillis) {
+        this.tokenId = tokenId;
+        this.tokenType = tokenType;
+        this.subject = subject;
+        this.role = role;
+        this.userId = userId;
+        this.familyId = familyId;
+        this.generation = generation;
+        this.issuedAtMillis = issuedAtMillis;
+        this.expiresAtMillis = expiresAtMillis;
+    }
+    
+    static VerifiedClaims from(Claims claims) {
+        Date issuedAt = claims.getIssuedAt();
+        Date expiration = claims.getExpiration();
+        Number userId = claims.get("uid", Number.class);
+        String tokenType = claims.get(JwtUtil.TOKEN_TYPE_CLAIM, String.class);
+        String familyId = claims.get(JwtUtil.FAMILY_CLAIM, String.class);
+        if (familyId == null && JwtUtil.REFRESH_TOKEN_TYPE.equals(tokenType)) {
+            // Refresh tokens issued before families existed each start their own
+            familyId = claims.getId();
+        }
+        Number generation = claims.get(JwtUtil.GENERATION_CLAIM, Number.class);
+        return new VerifiedClaims(
+                claims.getId(),
+                tokenType,
+                claims.getSubject(),
+                claims.get("role", String.class),
+                userId != null ? userId.longValue() : null,
+                familyId,
+                generation != null ? generation.intValue() : 0,
+                issuedAt != null ? issuedAt.getTime() : 0L,
+                expiration != null ? expiration.getTime() : Long.MAX_VALUE
+        );
+    }
+    
+    public boolean isExpired(long nowMillis) {
+        return expiresAtMillis <= nowMillis;
+    }
+    
+    public boolean isRefreshToken() {
+        return JwtUtil.REFRESH_TOKEN_TYPE.equals(tokenType);
+    }
+    
+    // Getters
+    public String getTokenId() { return tokenId; }
+    public String getSubject() { return subject; }
+    public String getRole() { return role; }
+    public Long getUserId() { return userId; }
+    public String getFamilyId() { return familyId; }
+    public int getGeneration() { return generation; }
+    public long getIssuedAtMillis() { return issuedAtMillis; }
+    public long getExpiresAtMillis() { return expiresAtMillis; }
+}
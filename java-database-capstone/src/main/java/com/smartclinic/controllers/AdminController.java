@@ -0,0 +1,24 @@
+package com.smartclinic.controllers;
+
+import com.smartclinic.dtos.MongoQueryPlan;
+import com.smartclinic.repositories.mongo.MongoIndexManager;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/admin")
+@CrossOrigin(origins = "http://localhost:3000")
+public class AdminController {
+    
+    @Autowired
+    private MongoIndexManager mongoIndexManager;
+    
+    // explain() of every Mongo repository query method against the current indexes
+    @GetMapping("/mongo/query-plans")
+    public ResponseEntity<List<MongoQueryPlan>> getMongoQueryPlans() {
+        return ResponseEntity.ok(mongoIndexManager.explainQueryMethods());
+    }
+}
@@ -0,0 +1,56 @@
+package com.smartclinic.controllers;
+
+import com.smartclinic.dtos.DoctorMonthlyPrescriptions;
+import com.smartclinic.dtos.FollowUpRate;
+import com.smartclinic.dtos.MedicationUsage;
+import com.smartclinic.dtos.SpecializationDiagnoses;
+import com.smartclinic.services.analytics.AnalyticsService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/analytics")
+@CrossOrigin(origins = "http://localhost:3000")
+public class AnalyticsController {
+    
+    @Autowired
+    private AnalyticsService analyticsService;
+    
+    @GetMapping("/prescriptions/per-doctor-month")
+    public ResponseEntity<List<DoctorMonthlyPrescriptions>> getPrescriptionsPerDoctorPerMonth(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) Long doctorId) {
+        return ResponseEntity.ok(analyticsService.getPrescriptionsPerDoctorPerMonth(from, to, doctorId));
+    }
+    
+    @GetMapping("/medications/top")
+    public ResponseEntity<List<MedicationUsage>> getTopMedications(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) Integer limit) {
+        return ResponseEntity.ok(analyticsService.getTopMedications(from, to, limit));
+    }
+    
+    @GetMapping("/medical-records/follow-up-rates")
+    public ResponseEntity<List<FollowUpRate>> getFollowUpRates(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) Long doctorId) {
+        return ResponseEntity.ok(analyticsService.getFollowUpRates(from, to, doctorId));
+    }
+    
+    // limit applies to the diagnoses listed per specialization
+    @GetMapping("/medical-records/diagnoses-per-specialization")
+    public ResponseEntity<List<SpecializationDiagnoses>> getDiagnosesPerSpecialization(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) Integer limit) {
+        return ResponseEntity.ok(analyticsService.getDiagnosesPerSpecialization(from, to, limit));
+    }
+}
@@ -1,12 +1,29 @@
 package com.smartclinic.controllers;
 
+import com.smartclinic.config.JsonStreamWriter;
+import com.smartclinic.dtos.AppointmentResponse;
+import com.smartclinic.dtos.AvailableSlot;
+import com.smartclinic.dtos.BatchAppointmentRequest;
+import com.smartclinic.dtos.BatchAppointmentResponse;
+import com.smartclinic.dtos.BulkStatusUpdateRequest;
+import com.smartclinic.dtos.BulkStatusUpdateResponse;
+import com.smartclinic.dtos.CursorPage;
+import com.smartclinic.dtos.CursorRequest;
+import com.smartclinic.dtos.DoctorAppointmentStats;
+import com.smartclinic.exceptions.BusinessException;
+import com.smartclinic.exceptions.ConflictException;
+import com.smartclinic.exceptions.StaleVersionException;
 import com.smartclinic.models.mysql.Appointment;
 import com.smartclinic.models.mysql.AppointmentStatus;
+import com.smartclinic.services.AppointmentBatchService;
 import com.smartclinic.services.AppointmentService;
+import com.smartclinic.services.DoctorAvailabilityService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -20,77 +37,127 @@ public class AppointmentController {
     @Autowired
     private AppointmentService appointmentService;
     
+    @Autowired
+    private DoctorAvailabilityService availabilityService;
+    
+    @Autowired
+    private AppointmentBatchService batchService;
+    
+    @Autowired
+    private JsonStreamWriter jsonStreamWriter;
+    
     @GetMapping
-    public ResponseEntity<List<Appointment>> getAllAppointments() {
-        List<Appointment> appointments = appointmentService.getAllAppointments();
+    public ResponseEntity<CursorPage<AppointmentResponse>> getAllAppointments(CursorRequest page) {
+        CursorPage<AppointmentResponse> appointments = appointmentService.getAllAppointments(page);
         return ResponseEntity.ok(appointments);
     }
     
+    @GetMapping(params = "stream=true")
+    public ResponseEntity<StreamingResponseBody> streamAllAppointments(
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        return jsonStreamWriter.stream(accept, appointmentService::streamAllAppointments);
+    }
+    
     @GetMapping("/{id}")
-    public ResponseEntity<Appointment> getAppointmentById(@PathVariable Long id) {
-        Optional<Appointment> appointment = appointmentService.getAppointmentById(id);
-        return appointment.map(ResponseEntity::ok)
+    public ResponseEntity<AppointmentResponse> getAppointmentById(@PathVariable Long id) {
+        Optional<AppointmentResponse> appointment = appointmentService.getAppointmentById(id);
+        return appointment.map(found -> ResponseEntity.ok().eTag(EntityTags.of(found.getVersion())).body(found))
                         .orElse(ResponseEntity.notFound().build());
     }
     
     @GetMapping("/patient/{patientId}")
-    public ResponseEntity<List<Appointment>> getAppointmentsByPatientId(@PathVariable Long patientId) {
-        List<Appointment> appointments = appointmentService.getAppointmentsByPatientId(patientId);
+    public ResponseEntity<CursorPage<AppointmentResponse>> getAppointmentsByPatientId(@PathVariable Long patientId, CursorRequest page) {
+        CursorPage<AppointmentResponse> appointments = appointmentService.getAppointmentsByPatientId(patientId, page);
         return ResponseEntity.ok(appointments);
     }
     
     @GetMapping("/doctor/{doctorId}")
-    public ResponseEntity<List<Appointment>> getAppointmentsByDoctorId(@PathVariable Long doctorId) {
-        List<Appointment> appointments = appointmentService.getAppointmentsByDoctorId(doctorId);
+    public ResponseEntity<CursorPage<AppointmentResponse>> getAppointmentsByDoctorId(@PathVariable Long doctorId, CursorRequest page) {
+        CursorPage<AppointmentResponse> appointments = appointmentService.getAppointmentsByDoctorId(doctorId, page);
         return ResponseEntity.ok(appointments);
     }
     
     @GetMapping("/status/{status}")
-    public ResponseEntity<List<Appointment>> getAppointmentsByStatus(@PathVariable AppointmentStatus status) {
-        List<Appointment> appointments = appointmentService.getAppointmentsByStatus(status);
+    public ResponseEntity<CursorPage<AppointmentResponse>> getAppointmentsByStatus(@PathVariable AppointmentStatus status, CursorRequest page) {
+        CursorPage<AppointmentResponse> appointments = appointmentService.getAppointmentsByStatus(status, page);
         return ResponseEntity.ok(appointments);
     }
     
     @GetMapping("/date-range")
-    public ResponseEntity<List<Appointment>> getAppointmentsInDateRange(
+    public ResponseEntity<CursorPage<AppointmentResponse>> getAppointmentsInDateRange(
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
-            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate) {
-        List<Appointment> appointments = appointmentService.getAppointmentsInDateRange(startDate, endDate);
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate,
+            CursorRequest page) {
+        CursorPage<AppointmentResponse> appointments = appointmentService.getAppointmentsInDateRange(startDate, endDate, page);
         return ResponseEntity.ok(appointments);
     }
     
+    @GetMapping(value = "/date-range", params = "stream=true")
+    public ResponseEntity<StreamingResponseBody> streamAppointmentsInDateRange(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        return jsonStreamWriter.stream(accept,
+                out -> appointmentService.streamAppointmentsInDateRange(startDate, endDate, out));
+    }
+    
     @GetMapping("/doctor/{doctorId}/date-range")
-    public ResponseEntity<List<Appointment>> getDoctorAppointmentsInDateRange(
+    public ResponseEntity<CursorPage<AppointmentResponse>> getDoctorAppointmentsInDateRange(
             @PathVariable Long doctorId,
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
-            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate) {
-        List<Appointment> appointments = appointmentService.getDoctorAppointmentsInDateRange(doctorId, startDate, endDate);
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate,
+            CursorRequest page) {
+        CursorPage<AppointmentResponse> appointments = appointmentService.getDoctorAppointmentsInDateRange(doctorId, startDate, endDate, page);
         return ResponseEntity.ok(appointments);
     }
     
     @GetMapping("/patient/{patientId}/status/{status}")
-    public ResponseEntity<List<Appointment>> getPatientAppointmentsByStatus(
+    public ResponseEntity<CursorPage<AppointmentResponse>> getPatientAppointmentsByStatus(
             @PathVariable Long patientId,
-            @PathVariable AppointmentStatus status) {
-        List<Appointment> appointments = appointmentService.getPatientAppointmentsByStatus(patientId, status);
+            @PathVariable AppointmentStatus status,
+            CursorRequest page) {
+        CursorPage<AppointmentResponse> appointments = appointmentService.getPatientAppointmentsByStatus(patientId, status, page);
         return ResponseEntity.ok(appointments);
     }
     
+    @GetMapping("/availability")
+    public ResponseEntity<List<AvailableSlot>> getAvailableSlots(
+            @RequestParam(required = false) Long doctorId,
+            @RequestParam(required = false) String specialization,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(defaultValue = "10") int limit) {
+        List<AvailableSlot> slots = availabilityService.findAvailableSlots(doctorId, specialization, from, to, limit);
+        return ResponseEntity.ok(slots);
+    }
+    
     @PostMapping
-    public ResponseEntity<Appointment> createAppointment(@RequestBody Appointment appointment) {
-        try {
-            Appointment createdAppointment = appointmentService.createAppointment(appointment);
-            return ResponseEntity.ok(createdAppointment);
-        } catch (RuntimeException e) {
-            return ResponseEntity.badRequest().body(null);
-        }
+    public ResponseEntity<AppointmentResponse> createAppointment(@RequestBody Appointment appointment) {
+        // Conflicts and invalid requests are rendered with their message by GlobalExceptionHandler
+        Appointment createdAppointment = appointmentService.createAppointment(appointment);
+        return ResponseEntity.ok(AppointmentResponse.from(createdAppointment));
+    }
+    
+    @PostMapping("/batch")
+    public ResponseEntity<BatchAppointmentResponse> importAppointments(@RequestBody List<BatchAppointmentRequest> appointments) {
+        BatchAppointmentResponse response = batchService.importAppointments(appointments);
+        return ResponseEntity.ok(response);
     }
     
     @PutMapping("/{id}")
-    public ResponseEntity<Appointment> updateAppointment(@PathVariable Long id, @RequestBody Appointment appointmentDetails) {
+    public ResponseEntity<AppointmentResponse> updateAppointment(
+            @PathVariable Long id,
+            @RequestBody Appointment appointmentDetails,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
         try {
-            Appointment updatedAppointment = appointmentService.updateAppointment(id, appointmentDetails);
-            return ResponseEntity.ok(updatedAppointment);
+            Appointment updatedAppointment = appointmentService.updateAppointment(id, appointmentDetails,
+                    EntityTags.expectedVersion(ifMatch));
+            return ResponseEntity.ok().eTag(EntityTags.of(updatedAppointment.getVersion()))
+                    .body(AppointmentResponse.from(updatedAppointment));
+        } catch (StaleVersionException e) {
+            return EntityTags.conflict(e);
+        } catch (ConflictException e) {
+            throw e;
         } catch (RuntimeException e) {
             return ResponseEntity.notFound().build();
         }
@@ -103,11 +170,22 @@ public class AppointmentController {
         try {
             appointmentService.updateAppointmentStatus(id, status);
             return ResponseEntity.ok().build();
+        } catch (ConflictException e) {
+            throw e;
+        } catch (BusinessException e) {
+            return ResponseEntity.badRequest().build();
         } catch (RuntimeException e) {
             return ResponseEntity.notFound().build();
         }
     }
     
+    @PatchMapping("/status")
+    public ResponseEntity<BulkStatusUpdateResponse> updateAppointmentStatuses(@RequestBody BulkStatusUpdateRequest request) {
+        BulkStatusUpdateResponse response = appointmentService.updateAppointmentStatuses(
+                request.getAppointmentIds(), request.getStatus());
+        return ResponseEntity.ok(response);
+    }
+    
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteAppointment(@PathVariable Long id) {
         try {
@@ -125,8 +203,8 @@ public class AppointmentController {
     }
     
     @GetMapping("/doctor/{doctorId}/stats")
-    public ResponseEntity<List<Object[]>> getDoctorAppointmentStats(@PathVariable Long doctorId) {
-        List<Object[]> stats = appointmentService.getDoctorAppointmentStats(doctorId);
+    public ResponseEntity<DoctorAppointmentStats> getDoctorAppointmentStats(@PathVariable Long doctorId) {
+        DoctorAppointmentStats stats = appointmentService.getDoctorAppointmentStats(doctorId);
         return ResponseEntity.ok(stats);
     }
 }
\ No newline at end of file
@@ -1,15 +1,15 @@
 package com.smartclinic.controllers;
 
 import com.smartclinic.config.JwtUtil;
+import com.smartclinic.config.TokenRevocationRegistry;
+import com.smartclinic.config.VerifiedClaims;
+import com.smartclinic.exceptions.ConflictException;
 import com.smartclinic.models.mysql.User;
+import com.smartclinic.services.PasswordHashingService;
 import com.smartclinic.services.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.authentication.AuthenticationManager;
-import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.web.bind.annotation.*;
 
@@ -17,15 +17,13 @@ import javax.validation.Valid;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/api/auth")
 @CrossOrigin(origins = "*")
 public class AuthController {
     
-    @Autowired
-    private AuthenticationManager authenticationManager;
-    
     @Autowired
     private UserService userService;
     
@@ -35,26 +33,38 @@ public class AuthController {
     @Autowired
     private PasswordEncoder passwordEncoder;
     
+    @Autowired
+    private TokenRevocationRegistry tokenRevocationRegistry;
+    
+    @Autowired
+    private PasswordHashingService passwordHashingService;
+    
+    // BCrypt runs on the dedicated hashing pool; the request thread is released while it waits
     @PostMapping("/login")
-    public ResponseEntity<?> login(@Valid @RequestBody LoginRequest loginRequest) {
+    public CompletableFuture<ResponseEntity<?>> login(@Valid @RequestBody LoginRequest loginRequest) {
+        return passwordHashingService.submit(() -> authenticate(loginRequest));
+    }
+    
+    @PostMapping("/register")
+    public CompletableFuture<ResponseEntity<?>> register(@Valid @RequestBody RegisterRequest registerRequest) {
+        return passwordHashingService.submit(() -> registerUser(registerRequest));
+    }
+    
+    private ResponseEntity<?> authenticate(LoginRequest loginRequest) {
         try {
-            Authentication authentication = authenticationManager.authenticate(
-                new UsernamePasswordAuthenticationToken(loginRequest.getUsername(), loginRequest.getPassword())
-            );
-            
-            SecurityContextHolder.getContext().setAuthentication(authentication);
-            
-            UserDetails userDetails = (UserDetails) authentication.getPrincipal();
-            Optional<User> user = userService.getUserByUsername(userDetails.getUsername());
+            // One lookup: the row that verified the password also builds the response
+            Optional<User> user = userService.authenticate(loginRequest.getUsername(), loginRequest.getPassword());
             
             if (user.isEmpty()) {
-                return ResponseEntity.badRequest().body("User not found");
+                return ResponseEntity.badRequest().body("Invalid username or password");
             }
             
-            String jwt = jwtUtil.generateToken(userDetails.getUsername(), user.get().getRole().name());
+            String jwt = jwtUtil.generateToken(user.get().getUsername(), user.get().getRole().name(), user.get().getId());
             
             Map<String, Object> response = new HashMap<>();
             response.put("token", jwt);
+            response.put("refreshToken", jwtUtil.generateRefreshToken(
+                    user.get().getUsername(), user.get().getRole().name(), user.get().getId()));
             response.put("username", user.get().getUsername());
             response.put("email", user.get().getEmail());
             response.put("role", user.get().getRole());
@@ -69,17 +79,8 @@ public class AuthController {
         }
     }
     
-    @PostMapping("/register")
-    public ResponseEntity<?> register(@Valid @RequestBody RegisterRequest registerRequest) {
+    private ResponseEntity<?> registerUser(RegisterRequest registerRequest) {
         try {
-            if (userService.getUserByUsername(registerRequest.getUsername()).isPresent()) {
-                return ResponseEntity.badRequest().body("Username already exists");
-            }
-            
-            if (userService.getUserByEmail(registerRequest.getEmail()).isPresent()) {
-                return ResponseEntity.badRequest().body("Email already exists");
-            }
-            
             User user = new User();
             user.setUsername(registerRequest.getUsername());
             user.setEmail(registerRequest.getEmail());
@@ -91,10 +92,12 @@ public class AuthController {
             
             User savedUser = userService.createUser(user);
             
-            String jwt = jwtUtil.generateToken(savedUser.getUsername(), savedUser.getRole().name());
+            String jwt = jwtUtil.generateToken(savedUser.getUsername(), savedUser.getRole().name(), savedUser.getId());
             
             Map<String, Object> response = new HashMap<>();
             response.put("token", jwt);
+            response.put("refreshToken", jwtUtil.generateRefreshToken(
+                    savedUser.getUsername(), savedUser.getRole().name(), savedUser.getId()));
             response.put("username", savedUser.getUsername());
             response.put("email", savedUser.getEmail());
             response.put("role", savedUser.getRole());
@@ -105,6 +108,8 @@ public class AuthController {
             
             return ResponseEntity.ok(response);
             
+        } catch (ConflictException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
         } catch (Exception e) {
             return ResponseEntity.badRequest().body("Registration failed: " + e.getMessage());
         }
@@ -117,10 +122,9 @@ public class AuthController {
                 return ResponseEntity.badRequest().body("Invalid authorization header");
             }
             
-            String token = authHeader.substring(7);
-            if (jwtUtil.validateToken(token)) {
-                String username = jwtUtil.extractUsername(token);
-                Optional<User> user = userService.getUserByUsername(username);
+            VerifiedClaims claims = jwtUtil.verify(authHeader.substring(7));
+            if (claims != null && !claims.isRefreshToken() && !tokenRevocationRegistry.isRevoked(claims)) {
+                Optional<User> user = userService.getUserByUsername(claims.getSubject());
                 
                 if (user.isPresent()) {
                     Map<String, Object> response = new HashMap<>();
@@ -139,6 +143,51 @@ public class AuthController {
         }
     }
     
+    // Exchanges a refresh token for a new access/refresh pair; each refresh token works exactly once
+    @PostMapping("/refresh")
+    public ResponseEntity<?> refresh(@RequestBody RefreshRequest refreshRequest) {
+        VerifiedClaims claims = jwtUtil.verify(refreshRequest.getRefreshToken());
+        if (claims == null || !claims.isRefreshToken() || !tokenRevocationRegistry.consumeRefreshToken(claims)) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Invalid refresh token");
+        }
+        
+        // Re-read the user so a changed role or a deleted account is not carried into the new tokens
+        Optional<User> user = userService.getUserByUsername(claims.getSubject());
+        if (user.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Invalid refresh token");
+        }
+        
+        String role = user.get().getRole().name();
+        Map<String, Object> response = new HashMap<>();
+        response.put("token", jwtUtil.generateToken(user.get().getUsername(), role, user.get().getId()));
+        response.put("refreshToken", jwtUtil.generateRefreshToken(user.get().getUsername(), role, user.get().getId(), claims));
+        return ResponseEntity.ok(response);
+    }
+    
+    @PostMapping("/logout")
+    public ResponseEntity<?> logout(@RequestHeader("Authorization") String authHeader,
+                                    @RequestBody(required = false) RefreshRequest refreshRequest) {
+        if (authHeader == null || !authHeader.startsWith("Bearer ")) {
+            return ResponseEntity.badRequest().body("Invalid authorization header");
+        }
+        
+        VerifiedClaims claims = jwtUtil.verify(authHeader.substring(7));
+        if (claims == null) {
+            return ResponseEntity.badRequest().body("Invalid token");
+        }
+        
+        tokenRevocationRegistry.revoke(claims);
+        
+        if (refreshRequest != null) {
+            VerifiedClaims refreshClaims = jwtUtil.verify(refreshRequest.getRefreshToken());
+            if (refreshClaims != null && refreshClaims.isRefreshToken()
+                    && refreshClaims.getSubject().equals(claims.getSubject())) {
+                tokenRevocationRegistry.revoke(refreshClaims);
+            }
+        }
+        return ResponseEntity.ok().build();
+    }
+    
     public static class LoginRequest {
         private String username;
         private String password;
@@ -149,6 +198,13 @@ public class AuthController {
         public void setPassword(String password) { this.password = password; }
     }
     
+    public static class RefreshRequest {
+        private String refreshToken;
+        
+        public String getRefreshToken() { return refreshToken; }
+        public void setRefreshToken(String refreshToken) { this.refreshToken = refreshToken; }
+    }
+    
     public static class RegisterRequest {
         private String username;
         private String email;
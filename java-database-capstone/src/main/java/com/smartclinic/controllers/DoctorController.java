@@ -1,8 +1,16 @@
 package com.smartclinic.controllers;
 
+import com.smartclinic.dtos.CursorPage;
+import com.smartclinic.dtos.CursorRequest;
+import com.smartclinic.dtos.DoctorResponse;
+import com.smartclinic.exceptions.BusinessException;
+import com.smartclinic.exceptions.StaleVersionException;
 import com.smartclinic.models.mysql.Doctor;
+import com.smartclinic.models.mysql.DoctorWorkingHours;
+import com.smartclinic.services.DoctorAvailabilityService;
 import com.smartclinic.services.DoctorService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -17,61 +25,90 @@ public class DoctorController {
     @Autowired
     private DoctorService doctorService;
     
+    @Autowired
+    private DoctorAvailabilityService availabilityService;
+    
     @GetMapping
-    public ResponseEntity<List<Doctor>> getAllDoctors() {
-        List<Doctor> doctors = doctorService.getAllDoctors();
+    public ResponseEntity<CursorPage<DoctorResponse>> getAllDoctors(CursorRequest page) {
+        CursorPage<DoctorResponse> doctors = doctorService.getAllDoctors(page);
         return ResponseEntity.ok(doctors);
     }
     
     @GetMapping("/{id}")
-    public ResponseEntity<Doctor> getDoctorById(@PathVariable Long id) {
-        Optional<Doctor> doctor = doctorService.getDoctorById(id);
-        return doctor.map(ResponseEntity::ok)
+    public ResponseEntity<DoctorResponse> getDoctorById(@PathVariable Long id) {
+        Optional<DoctorResponse> doctor = doctorService.getDoctorById(id);
+        return doctor.map(found -> ResponseEntity.ok().eTag(EntityTags.of(found.getVersion())).body(found))
                     .orElse(ResponseEntity.notFound().build());
     }
     
     @GetMapping("/license/{licenseNumber}")
-    public ResponseEntity<Doctor> getDoctorByLicenseNumber(@PathVariable String licenseNumber) {
-        Optional<Doctor> doctor = doctorService.getDoctorByLicenseNumber(licenseNumber);
+    public ResponseEntity<DoctorResponse> getDoctorByLicenseNumber(@PathVariable String licenseNumber) {
+        Optional<DoctorResponse> doctor = doctorService.getDoctorByLicenseNumber(licenseNumber);
         return doctor.map(ResponseEntity::ok)
                     .orElse(ResponseEntity.notFound().build());
     }
     
     @GetMapping("/specialization/{specialization}")
-    public ResponseEntity<List<Doctor>> getDoctorsBySpecialization(@PathVariable String specialization) {
-        List<Doctor> doctors = doctorService.getDoctorsBySpecialization(specialization);
+    public ResponseEntity<CursorPage<DoctorResponse>> getDoctorsBySpecialization(@PathVariable String specialization, CursorRequest page) {
+        CursorPage<DoctorResponse> doctors = doctorService.getDoctorsBySpecialization(specialization, page);
         return ResponseEntity.ok(doctors);
     }
     
     @GetMapping("/experience/{minYears}")
-    public ResponseEntity<List<Doctor>> getDoctorsByExperience(@PathVariable Integer minYears) {
-        List<Doctor> doctors = doctorService.getDoctorsByExperience(minYears);
+    public ResponseEntity<CursorPage<DoctorResponse>> getDoctorsByExperience(@PathVariable Integer minYears, CursorRequest page) {
+        CursorPage<DoctorResponse> doctors = doctorService.getDoctorsByExperience(minYears, page);
         return ResponseEntity.ok(doctors);
     }
     
     @GetMapping("/specialization/{specialization}/experience/{minExperience}")
-    public ResponseEntity<List<Doctor>> getDoctorsBySpecializationAndExperience(
+    public ResponseEntity<CursorPage<DoctorResponse>> getDoctorsBySpecializationAndExperience(
             @PathVariable String specialization, 
-            @PathVariable Integer minExperience) {
-        List<Doctor> doctors = doctorService.getDoctorsBySpecializationAndExperience(specialization, minExperience);
+            @PathVariable Integer minExperience,
+            CursorRequest page) {
+        CursorPage<DoctorResponse> doctors = doctorService.getDoctorsBySpecializationAndExperience(specialization, minExperience, page);
         return ResponseEntity.ok(doctors);
     }
     
     @PostMapping
-    public ResponseEntity<Doctor> createDoctor(@RequestBody Doctor doctor) {
+    public ResponseEntity<DoctorResponse> createDoctor(@RequestBody Doctor doctor) {
         try {
             Doctor createdDoctor = doctorService.createDoctor(doctor);
-            return ResponseEntity.ok(createdDoctor);
+            return ResponseEntity.ok(DoctorResponse.from(createdDoctor));
         } catch (RuntimeException e) {
             return ResponseEntity.badRequest().body(null);
         }
     }
     
     @PutMapping("/{id}")
-    public ResponseEntity<Doctor> updateDoctor(@PathVariable Long id, @RequestBody Doctor doctorDetails) {
+    public ResponseEntity<DoctorResponse> updateDoctor(
+            @PathVariable Long id,
+            @RequestBody Doctor doctorDetails,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        try {
+            Doctor updatedDoctor = doctorService.updateDoctor(id, doctorDetails, EntityTags.expectedVersion(ifMatch));
+            return ResponseEntity.ok().eTag(EntityTags.of(updatedDoctor.getVersion()))
+                    .body(DoctorResponse.from(updatedDoctor));
+        } catch (StaleVersionException e) {
+            return EntityTags.conflict(e);
+        } catch (RuntimeException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+    
+    @GetMapping("/{id}/working-hours")
+    public ResponseEntity<List<DoctorWorkingHours>> getWorkingHours(@PathVariable Long id) {
+        List<DoctorWorkingHours> hours = availabilityService.getWorkingHours(id);
+        return ResponseEntity.ok(hours);
+    }
+    
+    @PutMapping("/{id}/working-hours")
+    public ResponseEntity<List<DoctorWorkingHours>> setWorkingHours(@PathVariable Long id,
+                                                                    @RequestBody List<DoctorWorkingHours> hours) {
         try {
-            Doctor updatedDoctor = doctorService.updateDoctor(id, doctorDetails);
-            return ResponseEntity.ok(updatedDoctor);
+            List<DoctorWorkingHours> saved = availabilityService.setWorkingHours(id, hours);
+            return ResponseEntity.ok(saved);
+        } catch (BusinessException e) {
+            return ResponseEntity.badRequest().body(null);
         } catch (RuntimeException e) {
             return ResponseEntity.notFound().build();
         }
@@ -0,0 +1,52 @@
+package com.smartclinic.controllers;
+
+import com.smartclinic.exceptions.StaleVersionException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+/**
+ * Maps entity versions to strong ETags and back from If-Match, so clients can make their
+ * updates conditional on the version they last read.
+ */
+final class EntityTags {
+    
+    // Parses to no version at all, so an unrecognised If-Match never matches
+    private static final long UNMATCHABLE = -1;
+    
+    private EntityTags() {
+    }
+    
+    static String of(Long version) {
+        return "\"" + (version != null ? version : 0) + "\"";
+    }
+    
+    /**
+     * @return the version the client expects, or {@code null} for a missing or {@code *} If-Match,
+     *         in which case the update is only guarded against writes racing with it
+     */
+    static Long expectedVersion(String ifMatch) {
+        if (ifMatch == null || ifMatch.trim().isEmpty() || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        String tag = ifMatch.split(",")[0].trim();
+        if (tag.startsWith("W/")) {
+            tag = tag.substring(2);
+        }
+        if (tag.length() >= 2 && tag.startsWith("\"") && tag.endsWith("\"")) {
+            tag = tag.substring(1, tag.length() - 1);
+        }
+        try {
+            return Long.parseLong(tag);
+        } catch (NumberFormatException e) {
+            return UNMATCHABLE;
+        }
+    }
+    
+    static <T> ResponseEntity<T> conflict(StaleVersionException e) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.status(HttpStatus.CONFLICT);
+        if (e.getCurrentVersion() != null) {
+            response.eTag(of(e.getCurrentVersion()));
+        }
+        return response.build();
+    }
+}
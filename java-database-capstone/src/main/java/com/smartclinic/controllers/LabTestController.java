@@ -0,0 +1,42 @@
+package com.smartclinic.controllers;
+
+import com.smartclinic.dtos.CursorPage;
+import com.smartclinic.dtos.CursorRequest;
+import com.smartclinic.dtos.LabTest;
+import com.smartclinic.models.mongo.MedicalRecord;
+import com.smartclinic.services.labs.LabResultService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/lab-tests")
+@CrossOrigin(origins = "http://localhost:3000")
+public class LabTestController {
+    
+    @Autowired
+    private LabResultService labResultService;
+    
+    @GetMapping
+    public ResponseEntity<List<LabTest>> getCatalog() {
+        return ResponseEntity.ok(labResultService.getCatalog());
+    }
+    
+    // {test} is a catalog code, name or synonym, e.g. /api/lab-tests/HbA1c/records?abnormal=true
+    @GetMapping("/{test}/records")
+    public ResponseEntity<CursorPage<MedicalRecord>> getRecordsWithResult(
+            @PathVariable String test,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) Boolean abnormal,
+            @RequestParam(required = false) Double minValue,
+            @RequestParam(required = false) Double maxValue,
+            CursorRequest page) {
+        CursorPage<MedicalRecord> records = labResultService.findRecordsWithResult(test, from, to, abnormal, minValue, maxValue, page);
+        return ResponseEntity.ok(records);
+    }
+}
@@ -0,0 +1,119 @@
+package com.smartclinic.controllers;
+
+import com.smartclinic.dtos.CursorPage;
+import com.smartclinic.dtos.CursorRequest;
+import com.smartclinic.exceptions.StaleVersionException;
+import com.smartclinic.models.mongo.MedicalRecord;
+import com.smartclinic.services.MedicalRecordService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+@RestController
+@RequestMapping("/api/medical-records")
+@CrossOrigin(origins = "http://localhost:3000")
+public class MedicalRecordController {
+    
+    @Autowired
+    private MedicalRecordService medicalRecordService;
+    
+    @GetMapping
+    public ResponseEntity<CursorPage<MedicalRecord>> getAllMedicalRecords(CursorRequest page) {
+        CursorPage<MedicalRecord> records = medicalRecordService.getAllMedicalRecords(page);
+        return ResponseEntity.ok(records);
+    }
+    
+    @GetMapping("/{id}")
+    public ResponseEntity<MedicalRecord> getMedicalRecordById(@PathVariable String id) {
+        Optional<MedicalRecord> record = medicalRecordService.getMedicalRecordById(id);
+        return record.map(found -> ResponseEntity.ok().eTag(EntityTags.of(found.getVersion())).body(found))
+                     .orElse(ResponseEntity.notFound().build());
+    }
+    
+    @GetMapping("/patient/{patientId}")
+    public ResponseEntity<CursorPage<MedicalRecord>> getMedicalRecordsByPatientId(@PathVariable Long patientId, CursorRequest page) {
+        CursorPage<MedicalRecord> records = medicalRecordService.getMedicalRecordsByPatientId(patientId, page);
+        return ResponseEntity.ok(records);
+    }
+    
+    @GetMapping("/doctor/{doctorId}")
+    public ResponseEntity<CursorPage<MedicalRecord>> getMedicalRecordsByDoctorId(@PathVariable Long doctorId, CursorRequest page) {
+        CursorPage<MedicalRecord> records = medicalRecordService.getMedicalRecordsByDoctorId(doctorId, page);
+        return ResponseEntity.ok(records);
+    }
+    
+    @GetMapping("/follow-up")
+    public ResponseEntity<CursorPage<MedicalRecord>> getRecordsRequiringFollowUp(CursorRequest page) {
+        CursorPage<MedicalRecord> records = medicalRecordService.getRecordsRequiringFollowUp(page);
+        return ResponseEntity.ok(records);
+    }
+    
+    @GetMapping("/patient/{patientId}/date-range")
+    public ResponseEntity<CursorPage<MedicalRecord>> getPatientRecordsInDateRange(
+            @PathVariable Long patientId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate,
+            CursorRequest page) {
+        CursorPage<MedicalRecord> records = medicalRecordService.getPatientRecordsInDateRange(patientId, startDate, endDate, page);
+        return ResponseEntity.ok(records);
+    }
+    
+    @GetMapping("/patient/{patientId}/latest")
+    public ResponseEntity<CursorPage<MedicalRecord>> getLatestRecordsByPatientId(@PathVariable Long patientId, CursorRequest page) {
+        CursorPage<MedicalRecord> records = medicalRecordService.getLatestRecordsByPatientId(patientId, page);
+        return ResponseEntity.ok(records);
+    }
+    
+    @PostMapping
+    public ResponseEntity<MedicalRecord> createMedicalRecord(@RequestBody MedicalRecord record) {
+        try {
+            MedicalRecord createdRecord = medicalRecordService.createMedicalRecord(record);
+            return ResponseEntity.ok(createdRecord);
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(null);
+        }
+    }
+    
+    @PutMapping("/{id}")
+    public ResponseEntity<MedicalRecord> updateMedicalRecord(
+            @PathVariable String id,
+            @RequestBody MedicalRecord recordDetails,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        try {
+            MedicalRecord updatedRecord = medicalRecordService.updateMedicalRecord(id, recordDetails,
+                    EntityTags.expectedVersion(ifMatch));
+            return ResponseEntity.ok().eTag(EntityTags.of(updatedRecord.getVersion())).body(updatedRecord);
+        } catch (StaleVersionException e) {
+            return EntityTags.conflict(e);
+        } catch (RuntimeException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+    
+    @DeleteMapping("/{id}")
+    public ResponseEntity<Void> deleteMedicalRecord(@PathVariable String id) {
+        try {
+            medicalRecordService.deleteMedicalRecord(id);
+            return ResponseEntity.ok().build();
+        } catch (RuntimeException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+    
+    @GetMapping("/patient/{patientId}/count")
+    public ResponseEntity<Long> getMedicalRecordCountByPatient(@PathVariable Long patientId) {
+        Long count = medicalRecordService.getMedicalRecordCountByPatient(patientId);
+        return ResponseEntity.ok(count);
+    }
+    
+    @GetMapping("/follow-up/count")
+    public ResponseEntity<Long> getFollowUpCount() {
+        Long count = medicalRecordService.getFollowUpCount();
+        return ResponseEntity.ok(count);
+    }
+}
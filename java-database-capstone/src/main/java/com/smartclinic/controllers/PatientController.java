@@ -1,12 +1,18 @@
 package com.smartclinic.controllers;
 
+import com.smartclinic.dtos.CursorPage;
+import com.smartclinic.dtos.CursorRequest;
+import com.smartclinic.dtos.PatientResponse;
+import com.smartclinic.dtos.TimelineEntry;
+import com.smartclinic.exceptions.StaleVersionException;
 import com.smartclinic.models.mysql.Patient;
 import com.smartclinic.services.PatientService;
+import com.smartclinic.services.timeline.PatientTimelineService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.List;
 import java.util.Optional;
 
 @RestController
@@ -17,53 +23,62 @@ public class PatientController {
     @Autowired
     private PatientService patientService;
     
+    @Autowired
+    private PatientTimelineService patientTimelineService;
+    
     @GetMapping
-    public ResponseEntity<List<Patient>> getAllPatients() {
-        List<Patient> patients = patientService.getAllPatients();
+    public ResponseEntity<CursorPage<PatientResponse>> getAllPatients(CursorRequest page) {
+        CursorPage<PatientResponse> patients = patientService.getAllPatients(page);
         return ResponseEntity.ok(patients);
     }
     
     @GetMapping("/{id}")
-    public ResponseEntity<Patient> getPatientById(@PathVariable Long id) {
-        Optional<Patient> patient = patientService.getPatientById(id);
-        return patient.map(ResponseEntity::ok)
+    public ResponseEntity<PatientResponse> getPatientById(@PathVariable Long id) {
+        Optional<PatientResponse> patient = patientService.getPatientById(id);
+        return patient.map(found -> ResponseEntity.ok().eTag(EntityTags.of(found.getVersion())).body(found))
                      .orElse(ResponseEntity.notFound().build());
     }
     
     @GetMapping("/email/{email}")
-    public ResponseEntity<Patient> getPatientByEmail(@PathVariable String email) {
-        Optional<Patient> patient = patientService.getPatientByEmail(email);
+    public ResponseEntity<PatientResponse> getPatientByEmail(@PathVariable String email) {
+        Optional<PatientResponse> patient = patientService.getPatientByEmail(email);
         return patient.map(ResponseEntity::ok)
                      .orElse(ResponseEntity.notFound().build());
     }
     
     @GetMapping("/search/name")
-    public ResponseEntity<List<Patient>> searchPatientsByName(@RequestParam String name) {
-        List<Patient> patients = patientService.searchPatientsByName(name);
+    public ResponseEntity<CursorPage<PatientResponse>> searchPatientsByName(@RequestParam String name, CursorRequest page) {
+        CursorPage<PatientResponse> patients = patientService.searchPatientsByName(name, page);
         return ResponseEntity.ok(patients);
     }
     
     @GetMapping("/search/lastname")
-    public ResponseEntity<List<Patient>> searchPatientsByLastName(@RequestParam String lastName) {
-        List<Patient> patients = patientService.searchPatientsByLastName(lastName);
+    public ResponseEntity<CursorPage<PatientResponse>> searchPatientsByLastName(@RequestParam String lastName, CursorRequest page) {
+        CursorPage<PatientResponse> patients = patientService.searchPatientsByLastName(lastName, page);
         return ResponseEntity.ok(patients);
     }
     
     @PostMapping
-    public ResponseEntity<Patient> createPatient(@RequestBody Patient patient) {
+    public ResponseEntity<PatientResponse> createPatient(@RequestBody Patient patient) {
         try {
             Patient createdPatient = patientService.createPatient(patient);
-            return ResponseEntity.ok(createdPatient);
+            return ResponseEntity.ok(PatientResponse.from(createdPatient));
         } catch (RuntimeException e) {
             return ResponseEntity.badRequest().body(null);
         }
     }
     
     @PutMapping("/{id}")
-    public ResponseEntity<Patient> updatePatient(@PathVariable Long id, @RequestBody Patient patientDetails) {
+    public ResponseEntity<PatientResponse> updatePatient(
+            @PathVariable Long id,
+            @RequestBody Patient patientDetails,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
         try {
-            Patient updatedPatient = patientService.updatePatient(id, patientDetails);
-            return ResponseEntity.ok(updatedPatient);
+            Patient updatedPatient = patientService.updatePatient(id, patientDetails, EntityTags.expectedVersion(ifMatch));
+            return ResponseEntity.ok().eTag(EntityTags.of(updatedPatient.getVersion()))
+                    .body(PatientResponse.from(updatedPatient));
+        } catch (StaleVersionException e) {
+            return EntityTags.conflict(e);
         } catch (RuntimeException e) {
             return ResponseEntity.notFound().build();
         }
@@ -86,8 +101,15 @@ public class PatientController {
     }
     
     @GetMapping("/emergency-contacts")
-    public ResponseEntity<List<Patient>> getPatientsWithEmergencyContact() {
-        List<Patient> patients = patientService.getPatientsWithEmergencyContact();
+    public ResponseEntity<CursorPage<PatientResponse>> getPatientsWithEmergencyContact(CursorRequest page) {
+        CursorPage<PatientResponse> patients = patientService.getPatientsWithEmergencyContact(page);
         return ResponseEntity.ok(patients);
     }
+    
+    // Appointments, medical records and prescriptions, oldest first
+    @GetMapping("/{id}/timeline")
+    public ResponseEntity<CursorPage<TimelineEntry>> getPatientTimeline(@PathVariable Long id, CursorRequest page) {
+        CursorPage<TimelineEntry> timeline = patientTimelineService.getTimeline(id, page);
+        return ResponseEntity.ok(timeline);
+    }
 }
\ No newline at end of file
@@ -1,14 +1,19 @@
 package com.smartclinic.controllers;
 
+import com.smartclinic.config.JsonStreamWriter;
+import com.smartclinic.dtos.CursorPage;
+import com.smartclinic.dtos.CursorRequest;
+import com.smartclinic.exceptions.StaleVersionException;
 import com.smartclinic.models.mongo.Prescription;
 import com.smartclinic.services.PrescriptionService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.time.LocalDateTime;
-import java.util.List;
 import java.util.Optional;
 
 @RestController
@@ -19,63 +24,74 @@ public class PrescriptionController {
     @Autowired
     private PrescriptionService prescriptionService;
     
+    @Autowired
+    private JsonStreamWriter jsonStreamWriter;
+    
     @GetMapping
-    public ResponseEntity<List<Prescription>> getAllPrescriptions() {
-        List<Prescription> prescriptions = prescriptionService.getAllPrescriptions();
+    public ResponseEntity<CursorPage<Prescription>> getAllPrescriptions(CursorRequest page) {
+        CursorPage<Prescription> prescriptions = prescriptionService.getAllPrescriptions(page);
         return ResponseEntity.ok(prescriptions);
     }
     
+    @GetMapping(params = "stream=true")
+    public ResponseEntity<StreamingResponseBody> streamAllPrescriptions(
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        return jsonStreamWriter.stream(accept, prescriptionService::streamAllPrescriptions);
+    }
+    
     @GetMapping("/{id}")
     public ResponseEntity<Prescription> getPrescriptionById(@PathVariable String id) {
         Optional<Prescription> prescription = prescriptionService.getPrescriptionById(id);
-        return prescription.map(ResponseEntity::ok)
+        return prescription.map(found -> ResponseEntity.ok().eTag(EntityTags.of(found.getVersion())).body(found))
                           .orElse(ResponseEntity.notFound().build());
     }
     
     @GetMapping("/patient/{patientId}")
-    public ResponseEntity<List<Prescription>> getPrescriptionsByPatientId(@PathVariable Long patientId) {
-        List<Prescription> prescriptions = prescriptionService.getPrescriptionsByPatientId(patientId);
+    public ResponseEntity<CursorPage<Prescription>> getPrescriptionsByPatientId(@PathVariable Long patientId, CursorRequest page) {
+        CursorPage<Prescription> prescriptions = prescriptionService.getPrescriptionsByPatientId(patientId, page);
         return ResponseEntity.ok(prescriptions);
     }
     
     @GetMapping("/doctor/{doctorId}")
-    public ResponseEntity<List<Prescription>> getPrescriptionsByDoctorId(@PathVariable Long doctorId) {
-        List<Prescription> prescriptions = prescriptionService.getPrescriptionsByDoctorId(doctorId);
+    public ResponseEntity<CursorPage<Prescription>> getPrescriptionsByDoctorId(@PathVariable Long doctorId, CursorRequest page) {
+        CursorPage<Prescription> prescriptions = prescriptionService.getPrescriptionsByDoctorId(doctorId, page);
         return ResponseEntity.ok(prescriptions);
     }
     
     @GetMapping("/appointment/{appointmentId}")
-    public ResponseEntity<List<Prescription>> getPrescriptionsByAppointmentId(@PathVariable Long appointmentId) {
-        List<Prescription> prescriptions = prescriptionService.getPrescriptionsByAppointmentId(appointmentId);
+    public ResponseEntity<CursorPage<Prescription>> getPrescriptionsByAppointmentId(@PathVariable Long appointmentId, CursorRequest page) {
+        CursorPage<Prescription> prescriptions = prescriptionService.getPrescriptionsByAppointmentId(appointmentId, page);
         return ResponseEntity.ok(prescriptions);
     }
     
     @GetMapping("/active")
-    public ResponseEntity<List<Prescription>> getActivePrescriptions() {
-        List<Prescription> prescriptions = prescriptionService.getActivePrescriptions();
+    public ResponseEntity<CursorPage<Prescription>> getActivePrescriptions(CursorRequest page) {
+        CursorPage<Prescription> prescriptions = prescriptionService.getActivePrescriptions(page);
         return ResponseEntity.ok(prescriptions);
     }
     
     @GetMapping("/patient/{patientId}/date-range")
-    public ResponseEntity<List<Prescription>> getPatientPrescriptionsInDateRange(
+    public ResponseEntity<CursorPage<Prescription>> getPatientPrescriptionsInDateRange(
             @PathVariable Long patientId,
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
-            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate) {
-        List<Prescription> prescriptions = prescriptionService.getPatientPrescriptionsInDateRange(patientId, startDate, endDate);
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate,
+            CursorRequest page) {
+        CursorPage<Prescription> prescriptions = prescriptionService.getPatientPrescriptionsInDateRange(patientId, startDate, endDate, page);
         return ResponseEntity.ok(prescriptions);
     }
     
     @GetMapping("/doctor/{doctorId}/diagnosis")
-    public ResponseEntity<List<Prescription>> getDoctorPrescriptionsByDiagnosis(
+    public ResponseEntity<CursorPage<Prescription>> getDoctorPrescriptionsByDiagnosis(
             @PathVariable Long doctorId,
-            @RequestParam String diagnosis) {
-        List<Prescription> prescriptions = prescriptionService.getDoctorPrescriptionsByDiagnosis(doctorId, diagnosis);
+            @RequestParam String diagnosis,
+            CursorRequest page) {
+        CursorPage<Prescription> prescriptions = prescriptionService.getDoctorPrescriptionsByDiagnosis(doctorId, diagnosis, page);
         return ResponseEntity.ok(prescriptions);
     }
     
     @GetMapping("/patient/{patientId}/latest")
-    public ResponseEntity<List<Prescription>> getLatestPrescriptionsByPatientId(@PathVariable Long patientId) {
-        List<Prescription> prescriptions = prescriptionService.getLatestPrescriptionsByPatientId(patientId);
+    public ResponseEntity<CursorPage<Prescription>> getLatestPrescriptionsByPatientId(@PathVariable Long patientId, CursorRequest page) {
+        CursorPage<Prescription> prescriptions = prescriptionService.getLatestPrescriptionsByPatientId(patientId, page);
         return ResponseEntity.ok(prescriptions);
     }
     
@@ -90,10 +106,17 @@ public class PrescriptionController {
     }
     
     @PutMapping("/{id}")
-    public ResponseEntity<Prescription> updatePrescription(@PathVariable String id, @RequestBody Prescription prescriptionDetails) {
+    public ResponseEntity<Prescription> updatePrescription(
+            @PathVariable String id,
+            @RequestBody Prescription prescriptionDetails,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
         try {
-            Prescription updatedPrescription = prescriptionService.updatePrescription(id, prescriptionDetails);
-            return ResponseEntity.ok(updatedPrescription);
+            Prescription updatedPrescription = prescriptionService.updatePrescription(id, prescriptionDetails,
+                    EntityTags.expectedVersion(ifMatch));
+            return ResponseEntity.ok().eTag(EntityTags.of(updatedPrescription.getVersion()))
+                    .body(updatedPrescription);
+        } catch (StaleVersionException e) {
+            return EntityTags.conflict(e);
         } catch (RuntimeException e) {
             return ResponseEntity.notFound().build();
         }
@@ -114,6 +137,8 @@ public class PrescriptionController {
         try {
             prescriptionService.deactivatePrescription(id);
             return ResponseEntity.ok().build();
+        } catch (StaleVersionException e) {
+            return EntityTags.conflict(e);
         } catch (RuntimeException e) {
             return ResponseEntity.notFound().build();
         }
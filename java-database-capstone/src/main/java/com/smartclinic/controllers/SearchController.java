@@ -0,0 +1,38 @@
+package com.smartclinic.controllers;
+
+import com.smartclinic.models.mongo.MedicalRecord;
+import com.smartclinic.models.mongo.Prescription;
+import com.smartclinic.services.search.DiagnosisSearchService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/search")
+@CrossOrigin(origins = "http://localhost:3000")
+public class SearchController {
+    
+    @Autowired
+    private DiagnosisSearchService diagnosisSearchService;
+    
+    // Best matches first; see DiagnosisQuery for how a term matches
+    @GetMapping("/medical-records")
+    public ResponseEntity<List<MedicalRecord>> searchMedicalRecords(
+            @RequestParam String diagnosis,
+            @RequestParam(required = false) Long patientId,
+            @RequestParam(required = false) Integer limit) {
+        List<MedicalRecord> records = diagnosisSearchService.searchMedicalRecords(diagnosis, patientId, limit);
+        return ResponseEntity.ok(records);
+    }
+    
+    @GetMapping("/prescriptions")
+    public ResponseEntity<List<Prescription>> searchPrescriptions(
+            @RequestParam String diagnosis,
+            @RequestParam(required = false) Long doctorId,
+            @RequestParam(required = false) Integer limit) {
+        List<Prescription> prescriptions = diagnosisSearchService.searchPrescriptions(diagnosis, doctorId, limit);
+        return ResponseEntity.ok(prescriptions);
+    }
+}
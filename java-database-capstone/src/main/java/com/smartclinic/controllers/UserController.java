@@ -1,6 +1,10 @@
 package com.smartclinic.controllers;
 
 import com.smartclinic.dtos.ApiResponse;
+import com.smartclinic.dtos.CursorPage;
+import com.smartclinic.dtos.CursorRequest;
+import com.smartclinic.exceptions.BusinessException;
+import com.smartclinic.exceptions.ConflictException;
 import com.smartclinic.models.mysql.User;
 import com.smartclinic.services.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -8,6 +12,7 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -23,18 +28,29 @@ public class UserController {
     private UserService userService;
     
     @GetMapping
-    public ResponseEntity<ApiResponse<Page<User>>> getAllUsers(
-            @RequestParam(defaultValue = "0") int page,
+    public ResponseEntity<ApiResponse<?>> getAllUsers(
+            @RequestParam(required = false) Integer page,
             @RequestParam(defaultValue = "10") int size,
             @RequestParam(defaultValue = "firstName") String sortBy,
-            @RequestParam(defaultValue = "asc") String direction) {
+            @RequestParam(defaultValue = "asc") String direction,
+            CursorRequest cursorRequest) {
         
-        Sort sort = direction.equalsIgnoreCase("desc") ? 
-            Sort.by(sortBy).descending() : Sort.by(sortBy).ascending();
-        Pageable pageable = PageRequest.of(page, size, sort);
+        // Offset paging is kept for clients that still send a page number; it counts the table on every call
+        if (page != null) {
+            Sort sort = direction.equalsIgnoreCase("desc") ? 
+                Sort.by(sortBy).descending() : Sort.by(sortBy).ascending();
+            Pageable pageable = PageRequest.of(page, size, sort);
         
-        Page<User> users = userService.getAllUsers(pageable);
-        return ResponseEntity.ok(ApiResponse.success("Users retrieved successfully", users));
+            Page<User> users = userService.getAllUsers(pageable);
+            return ResponseEntity.ok(ApiResponse.success("Users retrieved successfully", users));
+        }
+        
+        try {
+            CursorPage<User> users = userService.getUsers(sortBy, direction.equalsIgnoreCase("desc"), cursorRequest);
+            return ResponseEntity.ok(ApiResponse.success("Users retrieved successfully", users));
+        } catch (BusinessException e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+        }
     }
     
     @GetMapping("/{id}")
@@ -52,6 +68,8 @@ public class UserController {
         try {
             User createdUser = userService.createUser(user);
             return ResponseEntity.ok(ApiResponse.success("User created successfully", createdUser));
+        } catch (ConflictException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(ApiResponse.error(e.getMessage()));
         } catch (RuntimeException e) {
             return ResponseEntity.badRequest().body(ApiResponse.error("Failed to create user: " + e.getMessage()));
         }
@@ -0,0 +1,31 @@
+package com.smartclinic.controllers;
+
+import com.smartclinic.dtos.VitalSignsTrend;
+import com.smartclinic.services.vitals.VitalSignsSeriesService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/vital-signs")
+@CrossOrigin(origins = "http://localhost:3000")
+public class VitalSignsController {
+    
+    @Autowired
+    private VitalSignsSeriesService vitalSignsSeriesService;
+    
+    // window is an ISO-8601 period or duration (P1M, P7D, PT6H); measures are VitalSigns property names
+    @GetMapping("/patient/{patientId}/trend")
+    public ResponseEntity<VitalSignsTrend> getTrend(
+            @PathVariable Long patientId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) String window,
+            @RequestParam(required = false) List<String> measures) {
+        return ResponseEntity.ok(vitalSignsSeriesService.getTrend(patientId, from, to, window, measures));
+    }
+}
@@ -0,0 +1,92 @@
+package com.smartclinic.dtos;
+
+import com.smartclinic.models.mysql.Appointment;
+import com.smartclinic.models.mysql.AppointmentStatus;
+import com.smartclinic.models.mysql.ArchivedAppointment;
+import com.smartclinic.models.mysql.Doctor;
+import com.smartclinic.models.mysql.Patient;
+import org.hibernate.Hibernate;
+
+import java.time.LocalDateTime;
+
+/**
+ * Read model of an appointment with just the names of its patient and doctor, instead of the
+ * full entities. Names are only filled from associations that are already loaded, so mapping
+ * never triggers a query of its own. Archived appointments map to the same shape, flagged as
+ * {@code archived}.
+ */
+public class AppointmentResponse {
+    
+    private Long id;
+    private Long patientId;
+    private String patientName;
+    private Long doctorId;
+    private String doctorName;
+    private String doctorSpecialization;
+    private LocalDateTime appointmentDate;
+    private AppointmentStatus status;
+    private String notes;
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+    private long version;
+    private boolean archived;
+    
+    public static AppointmentResponse from(Appointment appointment) {
+        AppointmentResponse response = new AppointmentResponse();
+        response.id = appointment.getId();
+        response.appointmentDate = appointment.getAppointmentDate();
+        response.status = appointment.getStatus();
+        response.notes = appointment.getNotes();
+        response.createdAt = appointment.getCreatedAt();
+        response.updatedAt = appointment.getUpdatedAt();
+        response.version = appointment.getVersion();
+        response.setParties(appointment.getPatient(), appointment.getDoctor());
+        return response;
+    }
+        
+    public static AppointmentResponse from(ArchivedAppointment appointment) {
+        AppointmentResponse response = new AppointmentResponse();
+        response.id = appointment.getId();
+        response.appointmentDate = appointment.getAppointmentDate();
+        response.status = appointment.getStatus();
+        response.notes = appointment.getNotes();
+        response.createdAt = appointment.getCreatedAt();
+        response.updatedAt = appointment.getUpdatedAt();
+        response.version = appointment.getVersion();
+        response.archived = true;
+        response.setParties(appointment.getPatient(), appointment.getDoctor());
+        return response;
+    }
+    
+    // getId() on an uninitialized proxy answers from the proxy itself
+    private void setParties(Patient patient, Doctor doctor) {
+        if (patient != null) {
+            patientId = patient.getId();
+            if (Hibernate.isInitialized(patient)) {
+                patientName = patient.getFullName();
+            }
+        }
+        if (doctor != null) {
+            doctorId = doctor.getId();
+            if (Hibernate.isInitialized(doctor)) {
+                doctorName = doctor.getFullName();
+                doctorSpecialization = doctor.getSpecialization();
+            }
+        }
+    }
+    
+    // Getters
+    public Long getId() { return id; }
+    public Long getPatientId() { return patientId; }
+    public String getPatientName() { return patientName; }
+    public Long getDoctorId() { return doctorId; }
+    public String getDoctorName() { return doctorName; }
+    public String getDoctorSpecialization() { return doctorSpecialization; }
+    public LocalDateTime getAppointmentDate() { return appointmentDate; }
+    public AppointmentStatus getStatus() { return status; }
+    public String getNotes() { return notes; }
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public long getVersion() { return version; }
+    public boolean isArchived() { return archived; }
+}
@@ -0,0 +1,27 @@
+package com.smartclinic.dtos;
+
+import java.time.LocalDateTime;
+
+public class AvailableSlot {
+    
+    private Long doctorId;
+    private String doctorName;
+    private String specialization;
+    private LocalDateTime start;
+    private LocalDateTime end;
+    
+    public AvailableSlot(Long doctorId, String doctorName, String specialization, LocalDateTime start, LocalDateTime end) {
+        this.doctorId = doctorId;
+        this.doctorName = doctorName;
+        this.specialization = specialization;
+        this.start = start;
+        this.end = end;
+    }
+    
+    // Getters
+    public Long getDoctorId() { return doctorId; }
+    public String getDoctorName() { return doctorName; }
+    public String getSpecialization() { return specialization; }
+    public LocalDateTime getStart() { return start; }
+    public LocalDateTime getEnd() { return end; }
+}
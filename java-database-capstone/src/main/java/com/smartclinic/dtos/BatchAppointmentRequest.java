@@ -0,0 +1,26 @@
+package com.smartclinic.dtos;
+
+import com.smartclinic.models.mysql.AppointmentStatus;
+
+import java.time.LocalDateTime;
+
+public class BatchAppointmentRequest {
+    
+    private Long doctorId;
+    private Long patientId;
+    private LocalDateTime appointmentDate;
+    private AppointmentStatus status;
+    private String notes;
+    
+    // Getters and Setters
+    public Long getDoctorId() { return doctorId; }
+    public void setDoctorId(Long doctorId) { this.doctorId = doctorId; }
+    public Long getPatientId() { return patientId; }
+    public void setPatientId(Long patientId) { this.patientId = patientId; }
+    public LocalDateTime getAppointmentDate() { return appointmentDate; }
+    public void setAppointmentDate(LocalDateTime appointmentDate) { this.appointmentDate = appointmentDate; }
+    public AppointmentStatus getStatus() { return status; }
+    public void setStatus(AppointmentStatus status) { this.status = status; }
+    public String getNotes() { return notes; }
+    public void setNotes(String notes) { this.notes = notes; }
+}
@@ -0,0 +1,34 @@
+package com.smartclinic.dtos;
+
+import java.util.List;
+
+public class BatchAppointmentResponse {
+    
+    private int created;
+    private int conflicts;
+    private int invalid;
+    private int failed;
+    private long elapsedMillis;
+    private List<BatchAppointmentResult> results;
+    
+    public BatchAppointmentResponse(List<BatchAppointmentResult> results, long elapsedMillis) {
+        this.results = results;
+        this.elapsedMillis = elapsedMillis;
+        for (BatchAppointmentResult result : results) {
+            switch (result.getOutcome()) {
+                case CREATED: created++; break;
+                case CONFLICT: conflicts++; break;
+                case INVALID: invalid++; break;
+                default: failed++;
+            }
+        }
+    }
+    
+    // Getters
+    public int getCreated() { return created; }
+    public int getConflicts() { return conflicts; }
+    public int getInvalid() { return invalid; }
+    public int getFailed() { return failed; }
+    public long getElapsedMillis() { return elapsedMillis; }
+    public List<BatchAppointmentResult> getResults() { return results; }
+}
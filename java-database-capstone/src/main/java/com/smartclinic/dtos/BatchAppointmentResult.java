@@ -0,0 +1,34 @@
+package com.smartclinic.dtos;
+
+public class BatchAppointmentResult {
+    
+    public enum Outcome {
+        CREATED, CONFLICT, INVALID, FAILED
+    }
+    
+    private int index;
+    private Outcome outcome;
+    private Long appointmentId;
+    private String message;
+    
+    public BatchAppointmentResult(int index, Outcome outcome, Long appointmentId, String message) {
+        this.index = index;
+        this.outcome = outcome;
+        this.appointmentId = appointmentId;
+        this.message = message;
+    }
+    
+    public static BatchAppointmentResult created(int index, Long appointmentId) {
+        return new BatchAppointmentResult(index, Outcome.CREATED, appointmentId, null);
+    }
+    
+    public static BatchAppointmentResult rejected(int index, Outcome outcome, String message) {
+        return new BatchAppointmentResult(index, outcome, null, message);
+    }
+    
+    // Getters
+    public int getIndex() { return index; }
+    public Outcome getOutcome() { return outcome; }
+    public Long getAppointmentId() { return appointmentId; }
+    public String getMessage() { return message; }
+}
@@ -0,0 +1,17 @@
+package com.smartclinic.dtos;
+
+import com.smartclinic.models.mysql.AppointmentStatus;
+
+import java.util.List;
+
+public class BulkStatusUpdateRequest {
+    
+    private List<Long> appointmentIds;
+    private AppointmentStatus status;
+    
+    // Getters and Setters
+    public List<Long> getAppointmentIds() { return appointmentIds; }
+    public void setAppointmentIds(List<Long> appointmentIds) { this.appointmentIds = appointmentIds; }
+    public AppointmentStatus getStatus() { return status; }
+    public void setStatus(AppointmentStatus status) { this.status = status; }
+}
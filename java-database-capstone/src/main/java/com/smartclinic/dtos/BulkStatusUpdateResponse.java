@@ -0,0 +1,34 @@
+package com.smartclinic.dtos;
+
+import java.util.List;
+
+public class BulkStatusUpdateResponse {
+    
+    private int updated;
+    private int unchanged;
+    private int notFound;
+    private int invalid;
+    private long elapsedMillis;
+    private List<BulkStatusUpdateResult> results;
+    
+    public BulkStatusUpdateResponse(List<BulkStatusUpdateResult> results, long elapsedMillis) {
+        this.results = results;
+        this.elapsedMillis = elapsedMillis;
+        for (BulkStatusUpdateResult result : results) {
+            switch (result.getOutcome()) {
+                case UPDATED: updated++; break;
+                case UNCHANGED: unchanged++; break;
+                case NOT_FOUND: notFound++; break;
+                default: invalid++;
+            }
+        }
+    }
+    
+    // Getters
+    public int getUpdated() { return updated; }
+    public int getUnchanged() { return unchanged; }
+    public int getNotFound() { return notFound; }
+    public int getInvalid() { return invalid; }
+    public long getElapsedMillis() { return elapsedMillis; }
+    public List<BulkStatusUpdateResult> getResults() { return results; }
+}
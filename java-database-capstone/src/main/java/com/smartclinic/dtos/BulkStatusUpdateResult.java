@@ -0,0 +1,37 @@
+package com.smartclinic.dtos;
+
+import com.smartclinic.models.mysql.AppointmentStatus;
+
+public class BulkStatusUpdateResult {
+    
+    public enum Outcome {
+        UPDATED, UNCHANGED, NOT_FOUND, INVALID_TRANSITION
+    }
+    
+    private Long appointmentId;
+    private Outcome outcome;
+    private AppointmentStatus previousStatus;
+    private String message;
+    
+    public BulkStatusUpdateResult(Long appointmentId, Outcome outcome, AppointmentStatus previousStatus, String message) {
+        this.appointmentId = appointmentId;
+        this.outcome = outcome;
+        this.previousStatus = previousStatus;
+        this.message = message;
+    }
+    
+    public static BulkStatusUpdateResult of(Long appointmentId, Outcome outcome, AppointmentStatus previousStatus) {
+        return new BulkStatusUpdateResult(appointmentId, outcome, previousStatus, null);
+    }
+    
+    public static BulkStatusUpdateResult rejected(Long appointmentId, Outcome outcome, AppointmentStatus previousStatus,
+                                                  String message) {
+        return new BulkStatusUpdateResult(appointmentId, outcome, previousStatus, message);
+    }
+    
+    // Getters
+    public Long getAppointmentId() { return appointmentId; }
+    public Outcome getOutcome() { return outcome; }
+    public AppointmentStatus getPreviousStatus() { return previousStatus; }
+    public String getMessage() { return message; }
+}
@@ -0,0 +1,62 @@
+package com.smartclinic.dtos;
+
+import com.smartclinic.exceptions.BusinessException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+/**
+ * Position in a keyset-paginated list: the sort key and id of the last item returned. Clients
+ * get it as an opaque URL-safe token and must not build or edit it.
+ */
+public final class Cursor {
+    
+    private final String key;
+    private final String id;
+    
+    private Cursor(String key, String id) {
+        this.key = key;
+        this.id = id;
+    }
+    
+    public static String encode(Object key, Object id) {
+        String keyText = String.valueOf(key);
+        // Length-prefixed, so the key may contain any character
+        String raw = keyText.length() + ":" + keyText + String.valueOf(id);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+    
+    public static Cursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int colon = raw.indexOf(':');
+            int keyLength = Integer.parseInt(raw.substring(0, colon));
+            int keyEnd = colon + 1 + keyLength;
+            return new Cursor(raw.substring(colon + 1, keyEnd), raw.substring(keyEnd));
+        } catch (RuntimeException e) {
+            throw new BusinessException("Invalid cursor");
+        }
+    }
+    
+    public String getKey() { return key; }
+    public String getId() { return id; }
+    
+    // Converts the stored key text back to the type of the sort attribute
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public static Object convert(String value, Class<?> type) {
+        try {
+            if (type == String.class) return value;
+            if (type == Long.class || type == long.class) return Long.valueOf(value);
+            if (type == Integer.class || type == int.class) return Integer.valueOf(value);
+            if (type == Double.class || type == double.class) return Double.valueOf(value);
+            if (type == LocalDateTime.class) return LocalDateTime.parse(value);
+            if (type == LocalDate.class) return LocalDate.parse(value);
+            if (type.isEnum()) return Enum.valueOf((Class<? extends Enum>) type, value);
+        } catch (RuntimeException e) {
+            throw new BusinessException("Invalid cursor");
+        }
+        throw new IllegalArgumentException("Unsupported keyset sort type: " + type.getName());
+    }
+}
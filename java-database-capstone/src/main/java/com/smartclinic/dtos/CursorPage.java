@@ -0,0 +1,42 @@
+package com.smartclinic.dtos;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * One page of a keyset-paginated list. {@code nextCursor} is absent on the last page;
+ * {@code total} is only present when requested, with {@code totalEstimated} telling whether
+ * it came from table statistics rather than a count.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class CursorPage<T> {
+    
+    private final List<T> items;
+    private final String nextCursor;
+    private final Long total;
+    private final Boolean totalEstimated;
+    
+    public CursorPage(List<T> items, String nextCursor, Long total, Boolean totalEstimated) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+        this.total = total;
+        this.totalEstimated = totalEstimated;
+    }
+    
+    public <R> CursorPage<R> map(Function<? super T, ? extends R> mapper) {
+        List<R> mapped = new ArrayList<>(items.size());
+        for (T item : items) {
+            mapped.add(mapper.apply(item));
+        }
+        return new CursorPage<>(mapped, nextCursor, total, totalEstimated);
+    }
+    
+    // Getters
+    public List<T> getItems() { return items; }
+    public String getNextCursor() { return nextCursor; }
+    public Long getTotal() { return total; }
+    public Boolean getTotalEstimated() { return totalEstimated; }
+}
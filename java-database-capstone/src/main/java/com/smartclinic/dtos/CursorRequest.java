@@ -0,0 +1,67 @@
+package com.smartclinic.dtos;
+
+import com.smartclinic.exceptions.BusinessException;
+
+/**
+ * Paging parameters of list endpoints, bound from the {@code cursor}, {@code limit} and
+ * {@code total} query parameters. {@code total} is {@code none} (default), {@code exact} or
+ * {@code estimated}; counting is skipped unless asked for.
+ */
+public class CursorRequest {
+    
+    public static final int DEFAULT_LIMIT = 50;
+    public static final int MAX_LIMIT = 500;
+    
+    public enum TotalMode {
+        NONE, EXACT, ESTIMATED
+    }
+    
+    private String cursor;
+    private Integer limit;
+    private String total;
+    
+    public CursorRequest() {}
+    
+    public CursorRequest(String cursor, Integer limit, String total) {
+        this.cursor = cursor;
+        this.limit = limit;
+        this.total = total;
+    }
+    
+    public static CursorRequest firstPage(int limit) {
+        return new CursorRequest(null, limit, null);
+    }
+    
+    public Cursor getDecodedCursor() {
+        return cursor == null || cursor.isEmpty() ? null : Cursor.decode(cursor);
+    }
+    
+    public int getEffectiveLimit() {
+        if (limit == null) {
+            return DEFAULT_LIMIT;
+        }
+        if (limit <= 0) {
+            throw new BusinessException("Limit must be positive");
+        }
+        return Math.min(limit, MAX_LIMIT);
+    }
+    
+    public TotalMode getTotalMode() {
+        if (total == null || total.isEmpty()) {
+            return TotalMode.NONE;
+        }
+        try {
+            return TotalMode.valueOf(total.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new BusinessException("Total must be one of none, exact or estimated");
+        }
+    }
+    
+    // Getters and Setters
+    public String getCursor() { return cursor; }
+    public void setCursor(String cursor) { this.cursor = cursor; }
+    public Integer getLimit() { return limit; }
+    public void setLimit(Integer limit) { this.limit = limit; }
+    public String getTotal() { return total; }
+    public void setTotal(String total) { this.total = total; }
+}
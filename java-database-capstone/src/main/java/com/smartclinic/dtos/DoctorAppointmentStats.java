@@ -0,0 +1,23 @@
+package com.smartclinic.dtos;
+
+import com.smartclinic.models.mysql.AppointmentStatus;
+
+import java.util.Map;
+
+public class DoctorAppointmentStats {
+    
+    private Long doctorId;
+    private Map<AppointmentStatus, Long> byStatus;
+    private long total;
+    
+    public DoctorAppointmentStats(Long doctorId, Map<AppointmentStatus, Long> byStatus) {
+        this.doctorId = doctorId;
+        this.byStatus = byStatus;
+        this.total = byStatus.values().stream().mapToLong(Long::longValue).sum();
+    }
+    
+    // Getters
+    public Long getDoctorId() { return doctorId; }
+    public Map<AppointmentStatus, Long> getByStatus() { return byStatus; }
+    public long getTotal() { return total; }
+}
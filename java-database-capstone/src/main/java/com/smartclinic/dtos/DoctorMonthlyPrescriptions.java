@@ -0,0 +1,25 @@
+package com.smartclinic.dtos;
+
+public class DoctorMonthlyPrescriptions {
+    
+    private Long doctorId;
+    private String doctorName;
+    private int year;
+    private int month;
+    private long prescriptions;
+    
+    public DoctorMonthlyPrescriptions(Long doctorId, String doctorName, int year, int month, long prescriptions) {
+        this.doctorId = doctorId;
+        this.doctorName = doctorName;
+        this.year = year;
+        this.month = month;
+        this.prescriptions = prescriptions;
+    }
+    
+    // Getters
+    public Long getDoctorId() { return doctorId; }
+    public String getDoctorName() { return doctorName; }
+    public int getYear() { return year; }
+    public int getMonth() { return month; }
+    public long getPrescriptions() { return prescriptions; }
+}
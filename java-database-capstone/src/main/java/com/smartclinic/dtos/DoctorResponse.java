@@ -0,0 +1,62 @@
+package com.smartclinic.dtos;
+
+import com.smartclinic.models.mysql.Doctor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Read model of a doctor: profile columns only, without the password hash or the
+ * appointments collection.
+ */
+public class DoctorResponse {
+    
+    private Long id;
+    private String username;
+    private String email;
+    private String firstName;
+    private String lastName;
+    private String phone;
+    private String specialization;
+    private String licenseNumber;
+    private Integer yearsOfExperience;
+    private String qualification;
+    private Double consultationFee;
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+    private long version;
+    
+    public static DoctorResponse from(Doctor doctor) {
+        DoctorResponse response = new DoctorResponse();
+        response.id = doctor.getId();
+        response.username = doctor.getUsername();
+        response.email = doctor.getEmail();
+        response.firstName = doctor.getFirstName();
+        response.lastName = doctor.getLastName();
+        response.phone = doctor.getPhone();
+        response.specialization = doctor.getSpecialization();
+        response.licenseNumber = doctor.getLicenseNumber();
+        response.yearsOfExperience = doctor.getYearsOfExperience();
+        response.qualification = doctor.getQualification();
+        response.consultationFee = doctor.getConsultationFee();
+        response.createdAt = doctor.getCreatedAt();
+        response.updatedAt = doctor.getUpdatedAt();
+        response.version = doctor.getVersion();
+        return response;
+    }
+    
+    // Getters
+    public Long getId() { return id; }
+    public String getUsername() { return username; }
+    public String getEmail() { return email; }
+    public String getFirstName() { return firstName; }
+    public String getLastName() { return lastName; }
+    public String getPhone() { return phone; }
+    public String getSpecialization() { return specialization; }
+    public String getLicenseNumber() { return licenseNumber; }
+    public Integer getYearsOfExperience() { return yearsOfExperience; }
+    public String getQualification() { return qualification; }
+    public Double getConsultationFee() { return consultationFee; }
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public long getVersion() { return version; }
+}
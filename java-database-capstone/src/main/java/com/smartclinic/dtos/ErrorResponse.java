@@ -71,6 +71,18 @@ public class ErrorResponse {
         return new ErrorResponse(500, "Internal Server Error", message, LocalDateTime.now(), path, null);
     }
     
+    public static ErrorResponse conflict(String message, String path) {
+        return new ErrorResponse(409, "Conflict", message, LocalDateTime.now(), path, null);
+    }
+    
+    public static ErrorResponse tooManyRequests(String message, String path) {
+        return new ErrorResponse(429, "Too Many Requests", message, LocalDateTime.now(), path, null);
+    }
+    
+    public static ErrorResponse serviceUnavailable(String message, String path) {
+        return new ErrorResponse(503, "Service Unavailable", message, LocalDateTime.now(), path, null);
+    }
+    
     public static ErrorResponse validationError(String message, String path, List<ValidationError> validationErrors) {
         return new ErrorResponse(400, "Validation Error", message, LocalDateTime.now(), path, validationErrors);
     }
@@ -0,0 +1,25 @@
+package com.smartclinic.dtos;
+
+public class FollowUpRate {
+    
+    private Long doctorId;
+    private String doctorName;
+    private long records;
+    private long followUps;
+    private double rate;
+    
+    public FollowUpRate(Long doctorId, String doctorName, long records, long followUps) {
+        this.doctorId = doctorId;
+        this.doctorName = doctorName;
+        this.records = records;
+        this.followUps = followUps;
+        this.rate = records == 0 ? 0 : (double) followUps / records;
+    }
+    
+    // Getters
+    public Long getDoctorId() { return doctorId; }
+    public String getDoctorName() { return doctorName; }
+    public long getRecords() { return records; }
+    public long getFollowUps() { return followUps; }
+    public double getRate() { return rate; }
+}
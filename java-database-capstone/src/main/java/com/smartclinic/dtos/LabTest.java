@@ -0,0 +1,40 @@
+package com.smartclinic.dtos;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Entry of the lab test catalog: the canonical code and name of a test, the names it is also
+ * recorded under, and the reference range used for results recorded without one.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class LabTest {
+    
+    private String code;
+    private String name;
+    private String unit;
+    private List<String> synonyms = new ArrayList<>();
+    private Double referenceLow;
+    private Double referenceHigh;
+    
+    // Getters and Setters
+    public String getCode() { return code; }
+    public void setCode(String code) { this.code = code; }
+    
+    public String getName() { return name; }
+    public void setName(String name) { this.name = name; }
+    
+    public String getUnit() { return unit; }
+    public void setUnit(String unit) { this.unit = unit; }
+    
+    public List<String> getSynonyms() { return synonyms; }
+    public void setSynonyms(List<String> synonyms) { this.synonyms = synonyms; }
+    
+    public Double getReferenceLow() { return referenceLow; }
+    public void setReferenceLow(Double referenceLow) { this.referenceLow = referenceLow; }
+    
+    public Double getReferenceHigh() { return referenceHigh; }
+    public void setReferenceHigh(Double referenceHigh) { this.referenceHigh = referenceHigh; }
+}
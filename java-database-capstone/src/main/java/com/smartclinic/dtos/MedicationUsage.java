@@ -0,0 +1,16 @@
+package com.smartclinic.dtos;
+
+public class MedicationUsage {
+    
+    private String name;
+    private long prescriptions;
+    
+    public MedicationUsage(String name, long prescriptions) {
+        this.name = name;
+        this.prescriptions = prescriptions;
+    }
+    
+    // Getters
+    public String getName() { return name; }
+    public long getPrescriptions() { return prescriptions; }
+}
@@ -0,0 +1,52 @@
+package com.smartclinic.dtos;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.List;
+
+/**
+ * How MongoDB would run one repository query method, from the winning plan of its
+ * {@code explain()}. {@code indexed} is false when the plan scans the whole collection;
+ * {@code inMemorySort} when no index provides the requested order.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class MongoQueryPlan {
+    
+    private final String repository;
+    private final String method;
+    private final String collection;
+    private final Boolean indexed;
+    private final List<String> indexes;
+    private final Boolean inMemorySort;
+    // Set instead of the plan fields when the method could not be explained
+    private final String error;
+    
+    private MongoQueryPlan(String repository, String method, String collection, Boolean indexed, List<String> indexes,
+                           Boolean inMemorySort, String error) {
+        this.repository = repository;
+        this.method = method;
+        this.collection = collection;
+        this.indexed = indexed;
+        this.indexes = indexes;
+        this.inMemorySort = inMemorySort;
+        this.error = error;
+    }
+    
+    public static MongoQueryPlan of(String repository, String method, String collection, boolean indexed,
+                                    List<String> indexes, boolean inMemorySort) {
+        return new MongoQueryPlan(repository, method, collection, indexed, indexes, inMemorySort, null);
+    }
+    
+    public static MongoQueryPlan failed(String repository, String method, String collection, String error) {
+        return new MongoQueryPlan(repository, method, collection, null, null, null, error);
+    }
+    
+    // Getters
+    public String getRepository() { return repository; }
+    public String getMethod() { return method; }
+    public String getCollection() { return collection; }
+    public Boolean getIndexed() { return indexed; }
+    public List<String> getIndexes() { return indexes; }
+    public Boolean getInMemorySort() { return inMemorySort; }
+    public String getError() { return error; }
+}
@@ -0,0 +1,63 @@
+package com.smartclinic.dtos;
+
+import com.smartclinic.models.mysql.Patient;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Read model of a patient: profile columns only, without the password hash or the
+ * appointments collection.
+ */
+public class PatientResponse {
+    
+    private Long id;
+    private String username;
+    private String email;
+    private String firstName;
+    private String lastName;
+    private String phone;
+    private LocalDate dateOfBirth;
+    private String bloodType;
+    private String emergencyContact;
+    private String insuranceInfo;
+    private String address;
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+    private long version;
+    
+    public static PatientResponse from(Patient patient) {
+        PatientResponse response = new PatientResponse();
+        response.id = patient.getId();
+        response.username = patient.getUsername();
+        response.email = patient.getEmail();
+        response.firstName = patient.getFirstName();
+        response.lastName = patient.getLastName();
+        response.phone = patient.getPhone();
+        response.dateOfBirth = patient.getDateOfBirth();
+        response.bloodType = patient.getBloodType();
+        response.emergencyContact = patient.getEmergencyContact();
+        response.insuranceInfo = patient.getInsuranceInfo();
+        response.address = patient.getAddress();
+        response.createdAt = patient.getCreatedAt();
+        response.updatedAt = patient.getUpdatedAt();
+        response.version = patient.getVersion();
+        return response;
+    }
+    
+    // Getters
+    public Long getId() { return id; }
+    public String getUsername() { return username; }
+    public String getEmail() { return email; }
+    public String getFirstName() { return firstName; }
+    public String getLastName() { return lastName; }
+    public String getPhone() { return phone; }
+    public LocalDate getDateOfBirth() { return dateOfBirth; }
+    public String getBloodType() { return bloodType; }
+    public String getEmergencyContact() { return emergencyContact; }
+    public String getInsuranceInfo() { return insuranceInfo; }
+    public String getAddress() { return address; }
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public long getVersion() { return version; }
+}
@@ -0,0 +1,35 @@
+package com.smartclinic.dtos;
+
+import java.util.List;
+
+public class SpecializationDiagnoses {
+    
+    private String specialization;
+    private long records;
+    private List<DiagnosisCount> diagnoses;
+    
+    public SpecializationDiagnoses(String specialization, long records, List<DiagnosisCount> diagnoses) {
+        this.specialization = specialization;
+        this.records = records;
+        this.diagnoses = diagnoses;
+    }
+    
+    // Getters
+    public String getSpecialization() { return specialization; }
+    public long getRecords() { return records; }
+    public List<DiagnosisCount> getDiagnoses() { return diagnoses; }
+    
+    public static class DiagnosisCount {
+        
+        private final String diagnosis;
+        private final long records;
+        
+        public DiagnosisCount(String diagnosis, long records) {
+            this.diagnosis = diagnosis;
+            this.records = records;
+        }
+        
+        public String getDiagnosis() { return diagnosis; }
+        public long getRecords() { return records; }
+    }
+}
@@ -0,0 +1,49 @@
+package com.smartclinic.dtos;
+
+import com.smartclinic.models.mongo.MedicalRecord;
+import com.smartclinic.models.mongo.Prescription;
+
+import java.time.LocalDateTime;
+
+/**
+ * One event of a patient's timeline. {@code detail} is the appointment, medical record or
+ * prescription itself, as its own endpoints return it.
+ */
+public class TimelineEntry {
+    
+    // Declared in the order entries of the same date are listed
+    public enum Type {
+        APPOINTMENT, MEDICAL_RECORD, PRESCRIPTION
+    }
+    
+    private final Type type;
+    private final String id;
+    private final LocalDateTime date;
+    private final Object detail;
+    
+    public TimelineEntry(Type type, String id, LocalDateTime date, Object detail) {
+        this.type = type;
+        this.id = id;
+        this.date = date;
+        this.detail = detail;
+    }
+    
+    public static TimelineEntry appointment(AppointmentResponse appointment) {
+        return new TimelineEntry(Type.APPOINTMENT, String.valueOf(appointment.getId()),
+                appointment.getAppointmentDate(), appointment);
+    }
+    
+    public static TimelineEntry medicalRecord(MedicalRecord record) {
+        return new TimelineEntry(Type.MEDICAL_RECORD, record.getId(), record.getVisitDate(), record);
+    }
+    
+    public static TimelineEntry prescription(Prescription prescription) {
+        return new TimelineEntry(Type.PRESCRIPTION, prescription.getId(), prescription.getPrescriptionDate(), prescription);
+    }
+    
+    // Getters
+    public Type getType() { return type; }
+    public String getId() { return id; }
+    public LocalDateTime getDate() { return date; }
+    public Object getDetail() { return detail; }
+}
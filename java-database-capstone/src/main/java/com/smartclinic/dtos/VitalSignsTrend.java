@@ -0,0 +1,73 @@
+package com.smartclinic.dtos;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A patient's vital signs over [from, to), downsampled to windows of {@code window} (an ISO-8601
+ * period or duration) starting at {@code from}. Windows without a sample are left out.
+ */
+public class VitalSignsTrend {
+    
+    private final Long patientId;
+    private final LocalDateTime from;
+    private final LocalDateTime to;
+    private final String window;
+    private final List<Window> windows;
+    
+    public VitalSignsTrend(Long patientId, LocalDateTime from, LocalDateTime to, String window, List<Window> windows) {
+        this.patientId = patientId;
+        this.from = from;
+        this.to = to;
+        this.window = window;
+        this.windows = windows;
+    }
+    
+    // Getters
+    public Long getPatientId() { return patientId; }
+    public LocalDateTime getFrom() { return from; }
+    public LocalDateTime getTo() { return to; }
+    public String getWindow() { return window; }
+    public List<Window> getWindows() { return windows; }
+    
+    public static class Window {
+        
+        private final LocalDateTime start;
+        private final int samples;
+        // Measure name (as in VitalSigns) -> statistics of the samples that measured it
+        private final Map<String, Stats> measures;
+        
+        public Window(LocalDateTime start, int samples, Map<String, Stats> measures) {
+            this.start = start;
+            this.samples = samples;
+            this.measures = measures;
+        }
+        
+        // Getters
+        public LocalDateTime getStart() { return start; }
+        public int getSamples() { return samples; }
+        public Map<String, Stats> getMeasures() { return measures; }
+    }
+    
+    public static class Stats {
+        
+        private final double min;
+        private final double max;
+        private final double avg;
+        private final int count;
+        
+        public Stats(double min, double max, double avg, int count) {
+            this.min = min;
+            this.max = max;
+            this.avg = avg;
+            this.count = count;
+        }
+        
+        // Getters
+        public double getMin() { return min; }
+        public double getMax() { return max; }
+        public double getAvg() { return avg; }
+        public int getCount() { return count; }
+    }
+}
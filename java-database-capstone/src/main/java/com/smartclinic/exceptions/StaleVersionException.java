@@ -0,0 +1,34 @@
+package com.smartclinic.exceptions;
+
+/**
+ * An update was made against a version of the resource that is no longer current. Carries the
+ * current version when it is known, so the 409 response can tell the client what to re-read.
+ */
+public class StaleVersionException extends ConflictException {
+    
+    private final Long currentVersion;
+    
+    public StaleVersionException(String message, Long currentVersion) {
+        super(message);
+        this.currentVersion = currentVersion;
+    }
+    
+    public StaleVersionException(String message, Throwable cause) {
+        super(message, cause);
+        this.currentVersion = null;
+    }
+    
+    // expectedVersion is null when the client did not ask for a conditional update
+    public static void check(String resource, Object id, Long expectedVersion, long currentVersion) {
+        if (expectedVersion != null && expectedVersion != currentVersion) {
+            throw new StaleVersionException(resource + " " + id + " is at version " + currentVersion
+                    + ", not " + expectedVersion, currentVersion);
+        }
+    }
+    
+    public static StaleVersionException concurrent(String resource, Object id, Throwable cause) {
+        return new StaleVersionException(resource + " " + id + " was changed concurrently", cause);
+    }
+    
+    public Long getCurrentVersion() { return currentVersion; }
+}
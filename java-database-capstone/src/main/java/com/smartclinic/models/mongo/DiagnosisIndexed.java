@@ -0,0 +1,16 @@
+package com.smartclinic.models.mongo;
+
+import java.util.List;
+
+/**
+ * A document whose diagnosis is searchable. The search fields are derived from the diagnosis
+ * on every write and are never set by clients.
+ */
+public interface DiagnosisIndexed {
+    
+    String getDiagnosis();
+    
+    void setDiagnosisTerms(String diagnosisTerms);
+    
+    void setDiagnosisGrams(List<String> diagnosisGrams);
+}
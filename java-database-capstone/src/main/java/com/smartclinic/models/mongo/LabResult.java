@@ -0,0 +1,49 @@
+package com.smartclinic.models.mongo;
+
+public class LabResult {
+    
+    private String testName;
+    private String result;
+    private String unit;
+    private String normalRange;
+    private String notes;
+    
+    // Derived from the fields above on every write, using the lab test catalog; null when the test
+    // is not in the catalog or the result/range is not numeric
+    private String testCode;
+    private Double numericValue;
+    private Double rangeLow;
+    private Double rangeHigh;
+    private Boolean abnormal;
+    
+    // Getters and Setters
+    public String getTestName() { return testName; }
+    public void setTestName(String testName) { this.testName = testName; }
+    
+    public String getResult() { return result; }
+    public void setResult(String result) { this.result = result; }
+    
+    public String getUnit() { return unit; }
+    public void setUnit(String unit) { this.unit = unit; }
+    
+    public String getNormalRange() { return normalRange; }
+    public void setNormalRange(String normalRange) { this.normalRange = normalRange; }
+    
+    public String getNotes() { return notes; }
+    public void setNotes(String notes) { this.notes = notes; }
+    
+    public String getTestCode() { return testCode; }
+    public void setTestCode(String testCode) { this.testCode = testCode; }
+    
+    public Double getNumericValue() { return numericValue; }
+    public void setNumericValue(Double numericValue) { this.numericValue = numericValue; }
+    
+    public Double getRangeLow() { return rangeLow; }
+    public void setRangeLow(Double rangeLow) { this.rangeLow = rangeLow; }
+    
+    public Double getRangeHigh() { return rangeHigh; }
+    public void setRangeHigh(Double rangeHigh) { this.rangeHigh = rangeHigh; }
+    
+    public Boolean getAbnormal() { return abnormal; }
+    public void setAbnormal(Boolean abnormal) { this.abnormal = abnormal; }
+}
@@ -1,6 +1,11 @@
 package com.smartclinic.models.mongo;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 import org.springframework.data.mongodb.core.mapping.Field;
 
@@ -9,7 +14,23 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Document(collection = "medical_records")
-public class MedicalRecord {
+// Created at startup by MongoIndexManager
+@CompoundIndexes({
+    // Keyset pages of a patient's records by visit date, walked backwards for the latest ones
+    @CompoundIndex(name = "patient_visit_date_seek", def = "{'patient_id': 1, 'visit_date': 1, '_id': 1}"),
+    @CompoundIndex(name = "doctor_id_seek", def = "{'doctor_id': 1, '_id': 1}"),
+    @CompoundIndex(name = "follow_up_required_seek", def = "{'follow_up_required': 1, '_id': 1}"),
+    @CompoundIndex(name = "doctor_diagnosis", def = "{'doctor_id': 1, 'diagnosis': 1}"),
+    @CompoundIndex(name = "patient_diagnosis_grams", def = "{'patient_id': 1, 'diagnosis_grams': 1}"),
+    // Multikey over the lab results: catalog code with abnormal flag and visit date, or with the numeric value
+    @CompoundIndex(name = "lab_code_abnormal_visit_date", def = "{'lab_results.testCode': 1, 'lab_results.abnormal': 1, 'visit_date': 1}"),
+    @CompoundIndex(name = "lab_code_value", def = "{'lab_results.testCode': 1, 'lab_results.numericValue': 1}"),
+    // Date range first, for the analytics pipelines
+    @CompoundIndex(name = "visit_date_doctor", def = "{'visit_date': 1, 'doctor_id': 1}")
+})
+// Replaced by patient_visit_date_seek and follow_up_required_seek
+@RetiredIndexes({"patient_visit_date", "follow_up_required"})
+public class MedicalRecord implements DiagnosisIndexed {
     
     @Id
     private String id;
@@ -28,6 +49,16 @@ public class MedicalRecord {
     
     private String diagnosis;
     
+    // Derived from the diagnosis on every write; see DiagnosisTerms
+    @JsonIgnore
+    @Field("diagnosis_terms")
+    private String diagnosisTerms;
+    
+    @JsonIgnore
+    @Indexed(name = "diagnosis_grams")
+    @Field("diagnosis_grams")
+    private List<String> diagnosisGrams;
+    
     private List<String> symptoms = new ArrayList<>();
     
     private String treatment;
@@ -40,6 +71,18 @@ public class MedicalRecord {
     @Field("lab_results")
     private List<LabResult> labResults = new ArrayList<>();
     
+    // Catalog version the lab results were normalized with; older ones are normalized again at startup
+    @JsonIgnore
+    @Indexed(name = "lab_catalog_version")
+    @Field("lab_catalog_version")
+    private Integer labCatalogVersion;
+    
+    // Set once the vital signs are in the patient's series; cleared by every save until then
+    @JsonIgnore
+    @Indexed(name = "vital_signs_series")
+    @Field("vital_signs_series")
+    private Boolean inVitalSignsSeries;
+    
     @Field("follow_up_required")
     private Boolean followUpRequired = false;
     
@@ -49,6 +92,10 @@ public class MedicalRecord {
     @Field("created_at")
     private LocalDateTime createdAt;
     
+    // Null on records saved before versioning; their first update starts them at 0
+    @Version
+    private Long version;
+    
     // Constructors
     public MedicalRecord() {
         this.createdAt = LocalDateTime.now();
@@ -81,6 +128,12 @@ public class MedicalRecord {
     public String getDiagnosis() { return diagnosis; }
     public void setDiagnosis(String diagnosis) { this.diagnosis = diagnosis; }
     
+    public String getDiagnosisTerms() { return diagnosisTerms; }
+    public void setDiagnosisTerms(String diagnosisTerms) { this.diagnosisTerms = diagnosisTerms; }
+    
+    public List<String> getDiagnosisGrams() { return diagnosisGrams; }
+    public void setDiagnosisGrams(List<String> diagnosisGrams) { this.diagnosisGrams = diagnosisGrams; }
+    
     public List<String> getSymptoms() { return symptoms; }
     public void setSymptoms(List<String> symptoms) { this.symptoms = symptoms; }
     
@@ -96,6 +149,12 @@ public class MedicalRecord {
     public List<LabResult> getLabResults() { return labResults; }
     public void setLabResults(List<LabResult> labResults) { this.labResults = labResults; }
     
+    public Integer getLabCatalogVersion() { return labCatalogVersion; }
+    public void setLabCatalogVersion(Integer labCatalogVersion) { this.labCatalogVersion = labCatalogVersion; }
+    
+    public Boolean getInVitalSignsSeries() { return inVitalSignsSeries; }
+    public void setInVitalSignsSeries(Boolean inVitalSignsSeries) { this.inVitalSignsSeries = inVitalSignsSeries; }
+    
     public Boolean getFollowUpRequired() { return followUpRequired; }
     public void setFollowUpRequired(Boolean followUpRequired) { this.followUpRequired = followUpRequired; }
     
@@ -104,60 +163,7 @@ public class MedicalRecord {
     
     public LocalDateTime getCreatedAt() { return createdAt; }
     public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
-}
-
-class VitalSigns {
-    private Double bloodPressureSystolic;
-    private Double bloodPressureDiastolic;
-    private Double heartRate;
-    private Double temperature;
-    private Double respiratoryRate;
-    private Double weight;
-    private Double height;
-    
-    // Getters and Setters
-    public Double getBloodPressureSystolic() { return bloodPressureSystolic; }
-    public void setBloodPressureSystolic(Double bloodPressureSystolic) { this.bloodPressureSystolic = bloodPressureSystolic; }
-    
-    public Double getBloodPressureDiastolic() { return bloodPressureDiastolic; }
-    public void setBloodPressureDiastolic(Double bloodPressureDiastolic) { this.bloodPressureDiastolic = bloodPressureDiastolic; }
-    
-    public Double getHeartRate() { return heartRate; }
-    public void setHeartRate(Double heartRate) { this.heartRate = heartRate; }
     
-    public Double getTemperature() { return temperature; }
-    public void setTemperature(Double temperature) { this.temperature = temperature; }
-    
-    public Double getRespiratoryRate() { return respiratoryRate; }
-    public void setRespiratoryRate(Double respiratoryRate) { this.respiratoryRate = respiratoryRate; }
-    
-    public Double getWeight() { return weight; }
-    public void setWeight(Double weight) { this.weight = weight; }
-    
-    public Double getHeight() { return height; }
-    public void setHeight(Double height) { this.height = height; }
-}
-
-class LabResult {
-    private String testName;
-    private String result;
-    private String unit;
-    private String normalRange;
-    private String notes;
-    
-    // Getters and Setters
-    public String getTestName() { return testName; }
-    public void setTestName(String testName) { this.testName = testName; }
-    
-    public String getResult() { return result; }
-    public void setResult(String result) { this.result = result; }
-    
-    public String getUnit() { return unit; }
-    public void setUnit(String unit) { this.unit = unit; }
-    
-    public String getNormalRange() { return normalRange; }
-    public void setNormalRange(String normalRange) { this.normalRange = normalRange; }
-    
-    public String getNotes() { return notes; }
-    public void setNotes(String notes) { this.notes = notes; }
+    public Long getVersion() { return version; }
+    public void setVersion(Long version) { this.version = version; }
 }
\ No newline at end of file
@@ -1,6 +1,11 @@
 package com.smartclinic.models.mongo;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 import org.springframework.data.mongodb.core.mapping.Field;
 
@@ -9,7 +14,21 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Document(collection = "prescriptions")
-public class Prescription {
+// Serve the keyset-paginated lists: equality filter first, then the sort key and _id. Created at
+// startup by MongoIndexManager; patient_date_seek also serves newest-first reads, walked backwards
+@CompoundIndexes({
+    @CompoundIndex(name = "patient_id_seek", def = "{'patient_id': 1, '_id': 1}"),
+    @CompoundIndex(name = "doctor_id_seek", def = "{'doctor_id': 1, '_id': 1}"),
+    @CompoundIndex(name = "appointment_id_seek", def = "{'appointment_id': 1, '_id': 1}"),
+    @CompoundIndex(name = "is_active_seek", def = "{'is_active': 1, '_id': 1}"),
+    @CompoundIndex(name = "patient_date_seek", def = "{'patient_id': 1, 'prescription_date': 1, '_id': 1}"),
+    @CompoundIndex(name = "doctor_diagnosis_grams", def = "{'doctor_id': 1, 'diagnosis_grams': 1}"),
+    // Date range first, for the analytics pipelines
+    @CompoundIndex(name = "date_doctor", def = "{'prescription_date': 1, 'doctor_id': 1}")
+})
+// Replaced by doctor_diagnosis_grams
+@RetiredIndexes({"doctor_diagnosis"})
+public class Prescription implements DiagnosisIndexed {
     
     @Id
     private String id;
@@ -31,6 +50,16 @@ public class Prescription {
     
     private String diagnosis;
     
+    // Derived from the diagnosis on every write; see DiagnosisTerms
+    @JsonIgnore
+    @Field("diagnosis_terms")
+    private String diagnosisTerms;
+    
+    @JsonIgnore
+    @Indexed(name = "diagnosis_grams")
+    @Field("diagnosis_grams")
+    private List<String> diagnosisGrams;
+    
     private List<Medication> medications = new ArrayList<>();
     
     private String instructions;
@@ -44,6 +73,10 @@ public class Prescription {
     @Field("created_at")
     private LocalDateTime createdAt;
     
+    // Documents written before versioning have no version field; they count as version 0
+    @Version
+    private Long version;
+    
     // Constructors
     public Prescription() {
         this.createdAt = LocalDateTime.now();
@@ -80,6 +113,12 @@ public class Prescription {
     public String getDiagnosis() { return diagnosis; }
     public void setDiagnosis(String diagnosis) { this.diagnosis = diagnosis; }
     
+    public String getDiagnosisTerms() { return diagnosisTerms; }
+    public void setDiagnosisTerms(String diagnosisTerms) { this.diagnosisTerms = diagnosisTerms; }
+    
+    public List<String> getDiagnosisGrams() { return diagnosisGrams; }
+    public void setDiagnosisGrams(List<String> diagnosisGrams) { this.diagnosisGrams = diagnosisGrams; }
+    
     public List<Medication> getMedications() { return medications; }
     public void setMedications(List<Medication> medications) { this.medications = medications; }
     
@@ -94,6 +133,9 @@ public class Prescription {
     
     public LocalDateTime getCreatedAt() { return createdAt; }
     public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+    
+    public Long getVersion() { return version; }
+    public void setVersion(Long version) { this.version = version; }
 }
 
 class Medication {
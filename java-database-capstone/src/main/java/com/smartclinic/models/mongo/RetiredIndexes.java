@@ -0,0 +1,20 @@
+package com.smartclinic.models.mongo;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Names of indexes a {@code @Document} model used to declare and has since replaced. They are
+ * dropped at startup by {@code MongoIndexManager}, after the declared indexes exist, so queries
+ * always have an index to use. Indexes not listed here are never dropped.
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface RetiredIndexes {
+    
+    String[] value();
+}
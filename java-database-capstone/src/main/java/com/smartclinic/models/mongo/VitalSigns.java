@@ -0,0 +1,33 @@
+package com.smartclinic.models.mongo;
+
+public class VitalSigns {
+    private Double bloodPressureSystolic;
+    private Double bloodPressureDiastolic;
+    private Double heartRate;
+    private Double temperature;
+    private Double respiratoryRate;
+    private Double weight;
+    private Double height;
+    
+    // Getters and Setters
+    public Double getBloodPressureSystolic() { return bloodPressureSystolic; }
+    public void setBloodPressureSystolic(Double bloodPressureSystolic) { this.bloodPressureSystolic = bloodPressureSystolic; }
+    
+    public Double getBloodPressureDiastolic() { return bloodPressureDiastolic; }
+    public void setBloodPressureDiastolic(Double bloodPressureDiastolic) { this.bloodPressureDiastolic = bloodPressureDiastolic; }
+    
+    public Double getHeartRate() { return heartRate; }
+    public void setHeartRate(Double heartRate) { this.heartRate = heartRate; }
+    
+    public Double getTemperature() { return temperature; }
+    public void setTemperature(Double temperature) { this.temperature = temperature; }
+    
+    public Double getRespiratoryRate() { return respiratoryRate; }
+    public void setRespiratoryRate(Double respiratoryRate) { this.respiratoryRate = respiratoryRate; }
+    
+    public Double getWeight() { return weight; }
+    public void setWeight(Double weight) { this.weight = weight; }
+    
+    public Double getHeight() { return height; }
+    public void setHeight(Double height) { this.height = height; }
+}
@@ -0,0 +1,128 @@
+package com.smartclinic.models.mongo;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * One calendar year of a patient's vital signs, stored column-wise: the visit times and, per
+ * measure, an array of values in the same order, NaN where a visit did not measure it. Samples
+ * are kept in write order. Written by {@code VitalSignsSeriesService} from the medical records.
+ */
+@Document(collection = "vital_signs_series")
+// Created at startup by MongoIndexManager
+@CompoundIndexes({
+    @CompoundIndex(name = "patient_start", def = "{'patient_id': 1, 'start': 1}", unique = true)
+})
+public class VitalSignsBucket {
+    
+    @Id
+    private String id;
+    
+    @Field("patient_id")
+    private Long patientId;
+    
+    // First day of the year the bucket covers
+    private LocalDateTime start;
+    
+    // Medical record of every sample, to replace or drop it when the record changes
+    @Indexed(name = "record_ids")
+    @Field("record_ids")
+    private List<String> recordIds = new ArrayList<>();
+    
+    // Epoch milliseconds
+    private long[] times = new long[0];
+    
+    // Measure name -> one value per time
+    private Map<String, double[]> values = new HashMap<>();
+    
+    @Version
+    private Long version;
+    
+    public VitalSignsBucket() {}
+    
+    public VitalSignsBucket(Long patientId, LocalDateTime start) {
+        this.patientId = patientId;
+        this.start = start;
+    }
+    
+    public void add(String recordId, long time, Map<String, Double> measured) {
+        int size = times.length;
+        times = Arrays.copyOf(times, size + 1);
+        times[size] = time;
+        recordIds.add(recordId);
+        Set<String> measures = new HashSet<>(values.keySet());
+        measures.addAll(measured.keySet());
+        for (String measure : measures) {
+            double[] column = values.get(measure);
+            if (column == null) {
+                column = new double[size];
+                Arrays.fill(column, Double.NaN);
+            }
+            column = Arrays.copyOf(column, size + 1);
+            Double value = measured.get(measure);
+            column[size] = value != null ? value : Double.NaN;
+            values.put(measure, column);
+        }
+    }
+    
+    public boolean remove(String recordId) {
+        int index = recordIds.indexOf(recordId);
+        if (index < 0) {
+            return false;
+        }
+        recordIds.remove(index);
+        times = without(times, index);
+        values.replaceAll((measure, column) -> without(column, index));
+        return true;
+    }
+    
+    private static long[] without(long[] array, int index) {
+        long[] result = new long[array.length - 1];
+        System.arraycopy(array, 0, result, 0, index);
+        System.arraycopy(array, index + 1, result, index, result.length - index);
+        return result;
+    }
+    
+    private static double[] without(double[] array, int index) {
+        double[] result = new double[array.length - 1];
+        System.arraycopy(array, 0, result, 0, index);
+        System.arraycopy(array, index + 1, result, index, result.length - index);
+        return result;
+    }
+    
+    // Getters and Setters
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+    
+    public Long getPatientId() { return patientId; }
+    public void setPatientId(Long patientId) { this.patientId = patientId; }
+    
+    public LocalDateTime getStart() { return start; }
+    public void setStart(LocalDateTime start) { this.start = start; }
+    
+    public List<String> getRecordIds() { return recordIds; }
+    public void setRecordIds(List<String> recordIds) { this.recordIds = recordIds; }
+    
+    public long[] getTimes() { return times; }
+    public void setTimes(long[] times) { this.times = times; }
+    
+    public Map<String, double[]> getValues() { return values; }
+    public void setValues(Map<String, double[]> values) { this.values = values; }
+    
+    public Long getVersion() { return version; }
+    public void setVersion(Long version) { this.version = version; }
+}
@@ -6,8 +6,15 @@ import java.time.LocalDateTime;
 
 @Entity
 @Table(name = "appointments")
+@NamedEntityGraph(name = Appointment.WITH_PARTIES, attributeNodes = {
+        @NamedAttributeNode("patient"),
+        @NamedAttributeNode("doctor")
+})
 public class Appointment {
     
+    // Loads patient and doctor in the same statement as the appointment
+    public static final String WITH_PARTIES = "Appointment.withParties";
+    
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
@@ -38,6 +45,11 @@ public class Appointment {
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
     
+    // Optimistic lock; the status compare-and-set queries bump it as well
+    @Version
+    @Column(nullable = false)
+    private long version;
+    
     // Constructors
     public Appointment() {
         this.createdAt = LocalDateTime.now();
@@ -76,6 +88,9 @@ public class Appointment {
     public LocalDateTime getUpdatedAt() { return updatedAt; }
     public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
     
+    public long getVersion() { return version; }
+    public void setVersion(long version) { this.version = version; }
+    
     @PreUpdate
     public void setUpdatedAt() {
         this.updatedAt = LocalDateTime.now();
@@ -83,5 +98,21 @@ public class Appointment {
 }
 
 public enum AppointmentStatus {
-    SCHEDULED, CONFIRMED, IN_PROGRESS, COMPLETED, CANCELLED, NO_SHOW
+    SCHEDULED, CONFIRMED, IN_PROGRESS, COMPLETED, CANCELLED, NO_SHOW;
+    
+    // COMPLETED and NO_SHOW are final; a cancelled appointment can only be booked again
+    public boolean canMoveTo(AppointmentStatus next) {
+        switch (this) {
+            case SCHEDULED:
+                return next != SCHEDULED;
+            case CONFIRMED:
+                return next != SCHEDULED && next != CONFIRMED;
+            case IN_PROGRESS:
+                return next == COMPLETED || next == CANCELLED;
+            case CANCELLED:
+                return next == SCHEDULED || next == CONFIRMED;
+            default:
+                return false;
+        }
+    }
 }
@@ -0,0 +1,78 @@
+package com.smartclinic.models.mysql;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Ledger entry for the reminder of one appointment at one date. Written by
+ * {@code ReminderLedger} with plain JDBC; mapped here so the table is part of the schema.
+ */
+@Entity
+@Table(name = "appointment_reminders",
+       uniqueConstraints = @UniqueConstraint(name = "uk_appointment_reminders_appointment",
+                                             columnNames = {"appointment_date", "appointment_id"}),
+       indexes = @Index(name = "idx_appointment_reminders_claim", columnList = "claim_token"))
+public class AppointmentReminder {
+    
+    public enum Status {
+        CLAIMED, SENT, FAILED
+    }
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(name = "appointment_id", nullable = false)
+    private Long appointmentId;
+    
+    // Part of the key so a rescheduled appointment is reminded again for its new date
+    @Column(name = "appointment_date", nullable = false)
+    private LocalDateTime appointmentDate;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private Status status;
+    
+    @Column(nullable = false)
+    private int attempts;
+    
+    @Column(name = "claim_token", length = 36)
+    private String claimToken;
+    
+    @Column(name = "claimed_at")
+    private LocalDateTime claimedAt;
+    
+    @Column(name = "sent_at")
+    private LocalDateTime sentAt;
+    
+    @Column(name = "last_error", length = 500)
+    private String lastError;
+    
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+    
+    public Long getAppointmentId() { return appointmentId; }
+    public void setAppointmentId(Long appointmentId) { this.appointmentId = appointmentId; }
+    
+    public LocalDateTime getAppointmentDate() { return appointmentDate; }
+    public void setAppointmentDate(LocalDateTime appointmentDate) { this.appointmentDate = appointmentDate; }
+    
+    public Status getStatus() { return status; }
+    public void setStatus(Status status) { this.status = status; }
+    
+    public int getAttempts() { return attempts; }
+    public void setAttempts(int attempts) { this.attempts = attempts; }
+    
+    public String getClaimToken() { return claimToken; }
+    public void setClaimToken(String claimToken) { this.claimToken = claimToken; }
+    
+    public LocalDateTime getClaimedAt() { return claimedAt; }
+    public void setClaimedAt(LocalDateTime claimedAt) { this.claimedAt = claimedAt; }
+    
+    public LocalDateTime getSentAt() { return sentAt; }
+    public void setSentAt(LocalDateTime sentAt) { this.sentAt = sentAt; }
+    
+    public String getLastError() { return lastError; }
+    public void setLastError(String lastError) { this.lastError = lastError; }
+}
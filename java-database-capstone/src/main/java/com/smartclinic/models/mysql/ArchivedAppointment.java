@@ -0,0 +1,74 @@
+package com.smartclinic.models.mysql;
+
+import org.hibernate.annotations.Immutable;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * A finished appointment moved out of {@code appointments} by {@code AppointmentArchiver}. Keeps
+ * the id, columns and version it had in the hot table; rows are written with plain JDBC and never
+ * changed afterwards.
+ */
+@Entity
+@Immutable
+@Table(name = "appointments_archive",
+       indexes = {
+               @Index(name = "idx_appointments_archive_patient_date", columnList = "patient_id, appointment_date"),
+               @Index(name = "idx_appointments_archive_doctor_date", columnList = "doctor_id, appointment_date"),
+               @Index(name = "idx_appointments_archive_date", columnList = "appointment_date"),
+               @Index(name = "idx_appointments_archive_doctor_status", columnList = "doctor_id, status"),
+               @Index(name = "idx_appointments_archive_archived_at", columnList = "archived_at")
+       })
+@NamedEntityGraph(name = ArchivedAppointment.WITH_PARTIES, attributeNodes = {
+        @NamedAttributeNode("patient"),
+        @NamedAttributeNode("doctor")
+})
+public class ArchivedAppointment {
+    
+    public static final String WITH_PARTIES = "ArchivedAppointment.withParties";
+    
+    @Id
+    private Long id;
+    
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "patient_id", nullable = false)
+    private Patient patient;
+    
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "doctor_id", nullable = false)
+    private Doctor doctor;
+    
+    @Column(name = "appointment_date", nullable = false)
+    private LocalDateTime appointmentDate;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private AppointmentStatus status;
+    
+    private String notes;
+    
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+    
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+    
+    @Column(nullable = false)
+    private long version;
+    
+    @Column(name = "archived_at", nullable = false)
+    private LocalDateTime archivedAt;
+    
+    // Getters
+    public Long getId() { return id; }
+    public Patient getPatient() { return patient; }
+    public Doctor getDoctor() { return doctor; }
+    public LocalDateTime getAppointmentDate() { return appointmentDate; }
+    public AppointmentStatus getStatus() { return status; }
+    public String getNotes() { return notes; }
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public long getVersion() { return version; }
+    public LocalDateTime getArchivedAt() { return archivedAt; }
+}
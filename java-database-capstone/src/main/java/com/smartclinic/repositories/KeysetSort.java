@@ -0,0 +1,46 @@
+package com.smartclinic.repositories;
+
+import com.smartclinic.dtos.Cursor;
+
+import java.util.function.Function;
+
+/**
+ * Sort order of a keyset-paginated query: one attribute, with the id as tie-breaker so the order
+ * is total and a cursor always points at exactly one position. The attribute must not be null.
+ */
+public final class KeysetSort<T> {
+    
+    public static final String ID = "id";
+    
+    private final String attribute;
+    private final boolean descending;
+    private final Function<T, ?> keyOf;
+    private final Function<T, ?> idOf;
+    
+    private KeysetSort(String attribute, boolean descending, Function<T, ?> keyOf, Function<T, ?> idOf) {
+        this.attribute = attribute;
+        this.descending = descending;
+        this.keyOf = keyOf;
+        this.idOf = idOf;
+    }
+    
+    public static <T> KeysetSort<T> ascending(String attribute, Function<T, ?> keyOf, Function<T, ?> idOf) {
+        return new KeysetSort<>(attribute, false, keyOf, idOf);
+    }
+    
+    public static <T> KeysetSort<T> descending(String attribute, Function<T, ?> keyOf, Function<T, ?> idOf) {
+        return new KeysetSort<>(attribute, true, keyOf, idOf);
+    }
+    
+    public static <T> KeysetSort<T> byId(Function<T, ?> idOf) {
+        return new KeysetSort<>(ID, false, idOf, idOf);
+    }
+    
+    public String getAttribute() { return attribute; }
+    public boolean isDescending() { return descending; }
+    public boolean isById() { return ID.equals(attribute); }
+    
+    public String cursorAfter(T last) {
+        return Cursor.encode(keyOf.apply(last), idOf.apply(last));
+    }
+}
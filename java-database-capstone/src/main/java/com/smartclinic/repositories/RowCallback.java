@@ -0,0 +1,13 @@
+package com.smartclinic.repositories;
+
+import java.io.IOException;
+
+/**
+ * Receives the rows of a streamed query one at a time, typically writing each straight to a
+ * response, so a result set never has to fit in memory.
+ */
+@FunctionalInterface
+public interface RowCallback<T> {
+    
+    void accept(T row) throws IOException;
+}
@@ -15,8 +15,6 @@ public interface MedicalRecordRepository extends MongoRepository<MedicalRecord,
     
     List<MedicalRecord> findByDoctorId(Long doctorId);
     
-    List<MedicalRecord> findByDiagnosisContainingIgnoreCase(String diagnosis);
-    
     List<MedicalRecord> findByFollowUpRequired(Boolean followUpRequired);
     
     @Query("{ 'patientId': ?0, 'visitDate': { $gte: ?1, $lte: ?2 } }")
@@ -26,14 +24,11 @@ public interface MedicalRecordRepository extends MongoRepository<MedicalRecord,
         LocalDateTime endDate
     );
     
-    @Query("{ 'patientId': ?0, 'diagnosis': { $regex: ?1, $options: 'i' } }")
-    List<MedicalRecord> findByPatientIdAndDiagnosisContaining(Long patientId, String diagnosis);
-    
     @Query(value = "{ 'patientId': ?0 }", sort = "{ 'visitDate': -1 }")
     List<MedicalRecord> findLatestRecordsByPatientId(Long patientId);
     
-    @Query("{ 'labResults.testName': { $regex: ?0, $options: 'i' } }")
-    List<MedicalRecord> findByLabTestNameContaining(String testName);
+    // Catalog code, as normalized on write; see LabTestCatalog
+    List<MedicalRecord> findByLabResultsTestCode(String testCode);
     
     Long countByPatientId(Long patientId);
     
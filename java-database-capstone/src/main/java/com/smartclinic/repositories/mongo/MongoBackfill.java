@@ -0,0 +1,142 @@
+package com.smartclinic.repositories.mongo;
+
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * Batched backfill of the documents of one collection that match a filter. Documents are read
+ * {@code batchSize} at a time in {@code _id} order, as plain documents so a malformed one only
+ * fails itself, and each batch is written in one unordered bulk update.
+ *
+ * A document whose update cannot be built, or whose write fails, is logged and still matches the
+ * filter, so the next run tries it again; walking by {@code _id} keeps this run from reading it
+ * twice. Bulk updates leave {@code @Version} fields alone, so a backfill never makes a client's
+ * copy of a document stale.
+ */
+@Repository
+public class MongoBackfill {
+    
+    private static final Logger logger = LoggerFactory.getLogger(MongoBackfill.class);
+    
+    private static final String ID_FIELD = "_id";
+    
+    /**
+     * The update of one document, applied only while the document is still as it was read when
+     * {@link #onlyIf} is given.
+     */
+    public static final class Write {
+        
+        private final Update update;
+        
+        private Criteria condition;
+        
+        private Write(Update update) {
+            this.update = update;
+        }
+        
+        public static Write of(Update update) {
+            return new Write(update);
+        }
+        
+        public Write onlyIf(Criteria condition) {
+            this.condition = condition;
+            return this;
+        }
+    }
+    
+    @FunctionalInterface
+    public interface Step {
+        
+        // Throws to leave the document for the next run
+        Write apply(Document document);
+    }
+    
+    @Autowired
+    private MongoTemplate mongoTemplate;
+    
+    /**
+     * Updates every document of {@code type} matching {@code pending}.
+     *
+     * @param fields the fields the step reads, or none for the whole document
+     * @param task   what the step does, for the log ("normalize the lab results")
+     * @return the number of documents updated
+     */
+    public long run(Class<?> type, Criteria pending, int batchSize, String task, Step step, String... fields) {
+        String collection = mongoTemplate.getCollectionName(type);
+        long updated = 0;
+        Object lastId = null;
+        List<Document> batch;
+        do {
+            Criteria filter = lastId != null
+                    ? new Criteria().andOperator(pending, Criteria.where(ID_FIELD).gt(lastId))
+                    : pending;
+            Query query = Query.query(filter).with(Sort.by(ID_FIELD)).limit(batchSize);
+            for (String field : fields) {
+                query.fields().include(field);
+            }
+            batch = mongoTemplate.find(query, Document.class, collection);
+            if (batch.isEmpty()) {
+                break;
+            }
+            lastId = batch.get(batch.size() - 1).get(ID_FIELD);
+            
+            BulkOperations operations = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, type, collection);
+            int queued = 0;
+            for (Document document : batch) {
+                try {
+                    Write write = step.apply(document);
+                    Criteria target = Criteria.where(ID_FIELD).is(document.get(ID_FIELD));
+                    if (write.condition != null) {
+                        target = target.andOperator(write.condition);
+                    }
+                    operations.updateOne(Query.query(target), write.update);
+                    queued++;
+                } catch (RuntimeException e) {
+                    logger.warn("Could not {} of {} {}, it is left for the next backfill",
+                            task, collection, document.get(ID_FIELD), e);
+                }
+            }
+            updated += execute(operations, queued, task, collection);
+        } while (batch.size() == batchSize);
+        return updated;
+    }
+    
+    /**
+     * Runs a startup backfill; one that stops early is logged and picked up again on the next
+     * start instead of failing this one.
+     */
+    public static void runOnStartup(String name, Runnable backfill) {
+        try {
+            backfill.run();
+        } catch (RuntimeException e) {
+            logger.error("{} backfill stopped, the rest is left for the next start", name, e);
+        }
+    }
+    
+    // Unordered, so a failed write only leaves its own document behind
+    private int execute(BulkOperations operations, int queued, String task, String collection) {
+        if (queued == 0) {
+            return 0;
+        }
+        try {
+            operations.execute();
+            return queued;
+        } catch (BulkOperationException e) {
+            logger.warn("{} of {} updates to {} of {} failed, they are left for the next backfill",
+                    e.getErrors().size(), queued, task, collection);
+            return queued - e.getErrors().size();
+        }
+    }
+}
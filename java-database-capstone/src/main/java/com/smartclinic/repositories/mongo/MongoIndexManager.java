@@ -0,0 +1,271 @@
+package com.smartclinic.repositories.mongo;
+
+import com.smartclinic.dtos.MongoQueryPlan;
+import com.smartclinic.models.mongo.RetiredIndexes;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mapping.context.MappingContext;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.convert.QueryMapper;
+import org.springframework.data.mongodb.core.index.IndexDefinition;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.IndexResolver;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentProperty;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.repository.query.ConvertingParameterAccessor;
+import org.springframework.data.mongodb.repository.query.MongoParametersParameterAccessor;
+import org.springframework.data.mongodb.repository.query.MongoQueryMethod;
+import org.springframework.data.mongodb.repository.query.PartTreeMongoQuery;
+import org.springframework.data.mongodb.repository.query.StringBasedMongoQuery;
+import org.springframework.data.projection.ProjectionFactory;
+import org.springframework.data.projection.SpelAwareProxyProjectionFactory;
+import org.springframework.data.repository.core.RepositoryInformation;
+import org.springframework.data.repository.query.QueryMethodEvaluationContextProvider;
+import org.springframework.data.repository.support.Repositories;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.lang.reflect.Method;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Creates the indexes declared on the {@code @Document} models ({@code @CompoundIndex},
+ * {@code @Indexed}) and reports how every Mongo repository query method would be executed.
+ *
+ * Indexes are created at startup. Creating one that already exists with the same keys and
+ * options is a no-op, so this is safe on every start; one that conflicts with an existing index
+ * of the same name is logged and left alone. The only indexes ever dropped are those a model
+ * lists in {@link RetiredIndexes}, once its declared indexes exist. Spring Data's own
+ * {@code auto-index-creation} stays off so the models are the single source of indexes.
+ *
+ * The report builds each query method's query the way its repository would, with placeholder
+ * arguments (plans depend on the shape of a query, not its values), and reads the winning plan
+ * of {@code explain()}.
+ */
+@Component
+public class MongoIndexManager {
+    
+    private static final Logger logger = LoggerFactory.getLogger(MongoIndexManager.class);
+    
+    @Autowired
+    private MongoTemplate mongoTemplate;
+    
+    @Autowired
+    private ApplicationContext applicationContext;
+    
+    @Value("${app.mongo.indexes.create-on-startup:true}")
+    private boolean createOnStartup;
+    
+    @Value("${app.mongo.indexes.report-on-startup:true}")
+    private boolean reportOnStartup;
+    
+    @PostConstruct
+    void createIndexes() {
+        if (!createOnStartup) {
+            return;
+        }
+        MappingContext<? extends MongoPersistentEntity<?>, MongoPersistentProperty> mappingContext =
+                mongoTemplate.getConverter().getMappingContext();
+        IndexResolver resolver = IndexResolver.create(mappingContext);
+        int declared = 0;
+        for (MongoPersistentEntity<?> entity : mappingContext.getPersistentEntities()) {
+            if (!entity.isAnnotationPresent(org.springframework.data.mongodb.core.mapping.Document.class)) {
+                continue;
+            }
+            IndexOperations indexOperations = mongoTemplate.indexOps(entity.getType());
+            for (IndexDefinition index : resolver.resolveIndexFor(entity.getTypeInformation())) {
+                declared++;
+                try {
+                    indexOperations.ensureIndex(index);
+                } catch (DataAccessException e) {
+                    logger.warn("Index {} on {} not created: {}",
+                            index.getIndexOptions().get("name"), entity.getCollection(), e.getMessage());
+                }
+            }
+            RetiredIndexes retired = entity.findAnnotation(RetiredIndexes.class);
+            if (retired != null) {
+                dropRetired(indexOperations, entity.getCollection(), retired.value());
+            }
+        }
+        logger.info("Checked {} declared Mongo indexes", declared);
+    }
+    
+    private void dropRetired(IndexOperations indexOperations, String collection, String[] names) {
+        try {
+            Set<String> existing = new LinkedHashSet<>();
+            for (IndexInfo index : indexOperations.getIndexInfo()) {
+                existing.add(index.getName());
+            }
+            for (String name : names) {
+                if (existing.contains(name)) {
+                    indexOperations.dropIndex(name);
+                    logger.info("Dropped retired index {} on {}", name, collection);
+                }
+            }
+        } catch (DataAccessException e) {
+            logger.warn("Retired indexes on {} not dropped: {}", collection, e.getMessage());
+        }
+    }
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void reportQueryPlans() {
+        if (!reportOnStartup) {
+            return;
+        }
+        for (MongoQueryPlan plan : explainQueryMethods()) {
+            if (plan.getError() != null) {
+                logger.warn("{}.{}: could not be explained: {}", plan.getRepository(), plan.getMethod(), plan.getError());
+            } else if (!plan.getIndexed()) {
+                logger.warn("{}.{}: scans the whole {} collection", plan.getRepository(), plan.getMethod(), plan.getCollection());
+            } else {
+                logger.info("{}.{}: uses {}{}", plan.getRepository(), plan.getMethod(), plan.getIndexes(),
+                        plan.getInMemorySort() ? ", sorting in memory" : "");
+            }
+        }
+    }
+    
+    public List<MongoQueryPlan> explainQueryMethods() {
+        Repositories repositories = new Repositories(applicationContext);
+        ProjectionFactory projectionFactory = new SpelAwareProxyProjectionFactory();
+        List<MongoQueryPlan> plans = new ArrayList<>();
+        for (Class<?> domainType : repositories) {
+            if (!AnnotatedElementUtils.hasAnnotation(domainType, org.springframework.data.mongodb.core.mapping.Document.class)) {
+                continue;
+            }
+            RepositoryInformation information = repositories.getRequiredRepositoryInformation(domainType);
+            for (Method method : information.getQueryMethods()) {
+                plans.add(explain(information, method, projectionFactory));
+            }
+        }
+        plans.sort(Comparator.comparing(MongoQueryPlan::getRepository).thenComparing(MongoQueryPlan::getMethod));
+        return plans;
+    }
+    
+    private MongoQueryPlan explain(RepositoryInformation information, Method method, ProjectionFactory projectionFactory) {
+        String repository = information.getRepositoryInterface().getSimpleName();
+        MongoQueryMethod queryMethod = new MongoQueryMethod(method, information, projectionFactory,
+                mongoTemplate.getConverter().getMappingContext());
+        String collection = queryMethod.getEntityInformation().getCollectionName();
+        try {
+            ConvertingParameterAccessor accessor = new ConvertingParameterAccessor(mongoTemplate.getConverter(),
+                    new MongoParametersParameterAccessor(queryMethod, sampleArguments(method)));
+            Query query = queryMethod.hasAnnotatedQuery()
+                    ? new AnnotatedQuery(queryMethod, mongoTemplate).build(accessor)
+                    : new DerivedQuery(queryMethod, mongoTemplate).build(accessor);
+            
+            MongoPersistentEntity<?> entity = mongoTemplate.getConverter().getMappingContext()
+                    .getRequiredPersistentEntity(queryMethod.getEntityInformation().getJavaType());
+            QueryMapper mapper = new QueryMapper(mongoTemplate.getConverter());
+            Document sort = query.getSortObject();
+            if (sort.isEmpty() && queryMethod.hasAnnotatedSort()) {
+                sort = Document.parse(queryMethod.getAnnotatedSort());
+            }
+            Document find = new Document("find", collection).append("filter", mapper.getMappedObject(query.getQueryObject(), entity));
+            if (!sort.isEmpty()) {
+                find.append("sort", mapper.getMappedSort(sort, entity));
+            }
+            
+            Document explained = mongoTemplate.getDb().runCommand(new Document("explain", find).append("verbosity", "queryPlanner"));
+            return planOf(repository, method.getName(), collection, explained);
+        } catch (RuntimeException e) {
+            return MongoQueryPlan.failed(repository, method.getName(), collection, e.getMessage());
+        }
+    }
+    
+    // Reads the winning plan of an explain() result: the indexes it uses, and whether it scans or sorts in memory
+    static MongoQueryPlan planOf(String repository, String method, String collection, Document explained) {
+        Document winningPlan = explained.get("queryPlanner", Document.class).get("winningPlan", Document.class);
+        // The slot-based engine nests the classic plan tree one level down
+        if (winningPlan.containsKey("queryPlan")) {
+            winningPlan = winningPlan.get("queryPlan", Document.class);
+        }
+        Set<String> stages = new LinkedHashSet<>();
+        Set<String> indexes = new LinkedHashSet<>();
+        collectStages(winningPlan, stages, indexes);
+        return MongoQueryPlan.of(repository, method, collection, !stages.contains("COLLSCAN"),
+                new ArrayList<>(indexes), stages.contains("SORT"));
+    }
+    
+    private static void collectStages(Document stage, Set<String> stages, Set<String> indexes) {
+        stages.add(stage.getString("stage"));
+        if (stage.getString("indexName") != null) {
+            indexes.add(stage.getString("indexName"));
+        }
+        Document input = stage.get("inputStage", Document.class);
+        if (input != null) {
+            collectStages(input, stages, indexes);
+        }
+        List<Document> inputs = stage.getList("inputStages", Document.class);
+        if (inputs != null) {
+            for (Document each : inputs) {
+                collectStages(each, stages, indexes);
+            }
+        }
+    }
+    
+    private static Object[] sampleArguments(Method method) {
+        Class<?>[] types = method.getParameterTypes();
+        Object[] arguments = new Object[types.length];
+        for (int i = 0; i < types.length; i++) {
+            arguments[i] = sampleValue(types[i]);
+        }
+        return arguments;
+    }
+    
+    static Object sampleValue(Class<?> type) {
+        if (type == Long.class || type == long.class) return 1L;
+        if (type == Integer.class || type == int.class) return 1;
+        if (type == Double.class || type == double.class) return 1.0;
+        if (type == String.class) return "a";
+        if (type == Boolean.class || type == boolean.class) return Boolean.TRUE;
+        if (type == LocalDateTime.class) return LocalDateTime.now();
+        if (type == LocalDate.class) return LocalDate.now();
+        if (Pageable.class.isAssignableFrom(type)) return Pageable.unpaged();
+        if (Sort.class.isAssignableFrom(type)) return Sort.unsorted();
+        throw new IllegalArgumentException("No placeholder for parameter type " + type.getSimpleName());
+    }
+    
+    // The repository query classes only build their Query for execution; these expose that step
+    
+    private static final class DerivedQuery extends PartTreeMongoQuery {
+        
+        DerivedQuery(MongoQueryMethod method, MongoOperations operations) {
+            super(method, operations, new SpelExpressionParser(), QueryMethodEvaluationContextProvider.DEFAULT);
+        }
+        
+        Query build(ConvertingParameterAccessor accessor) {
+            return createQuery(accessor);
+        }
+    }
+    
+    private static final class AnnotatedQuery extends StringBasedMongoQuery {
+        
+        AnnotatedQuery(MongoQueryMethod method, MongoOperations operations) {
+            super(method, operations, new SpelExpressionParser(), QueryMethodEvaluationContextProvider.DEFAULT);
+        }
+        
+        Query build(ConvertingParameterAccessor accessor) {
+            return createQuery(accessor);
+        }
+    }
+}
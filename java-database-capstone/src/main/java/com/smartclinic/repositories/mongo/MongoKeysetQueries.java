@@ -0,0 +1,132 @@
+package com.smartclinic.repositories.mongo;
+
+import com.smartclinic.dtos.Cursor;
+import com.smartclinic.dtos.CursorPage;
+import com.smartclinic.dtos.CursorRequest;
+import com.smartclinic.repositories.KeysetSort;
+import com.smartclinic.repositories.RowCallback;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentProperty;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.util.CloseableIterator;
+import org.springframework.stereotype.Repository;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keyset ("seek") pagination over Mongo documents, the counterpart of the JPA
+ * {@code KeysetQueries}: pages continue after the last (sort key, _id) instead of skipping,
+ * so they are served from an index on the sort key however deep the client has paged.
+ */
+@Repository
+public class MongoKeysetQueries {
+    
+    private static final String ID_FIELD = "_id";
+    
+    @Autowired
+    private MongoTemplate mongoTemplate;
+    
+    @Value("${app.streaming.mongo-batch-size:500}")
+    private int batchSize;
+    
+    public <T> CursorPage<T> find(Class<T> type, Criteria filter, KeysetSort<T> sort, CursorRequest request) {
+        int limit = request.getEffectiveLimit();
+        Cursor cursor = request.getDecodedCursor();
+        MongoPersistentEntity<?> entity = mongoTemplate.getConverter().getMappingContext().getRequiredPersistentEntity(type);
+        
+        List<Criteria> parts = new ArrayList<>();
+        if (filter != null) {
+            parts.add(filter);
+        }
+        String field = ID_FIELD;
+        if (!sort.isById()) {
+            MongoPersistentProperty property = entity.getRequiredPersistentProperty(sort.getAttribute());
+            field = property.getFieldName();
+            if (cursor != null) {
+                parts.add(seek(field, Cursor.convert(cursor.getKey(), property.getType()), toId(cursor.getId()), sort.isDescending()));
+            }
+        } else if (cursor != null) {
+            Object afterId = toId(cursor.getId());
+            parts.add(sort.isDescending() ? Criteria.where(ID_FIELD).lt(afterId) : Criteria.where(ID_FIELD).gt(afterId));
+        }
+        
+        Query query = new Query(combine(parts)).with(order(sort, field)).limit(limit + 1);
+        
+        List<T> documents = mongoTemplate.find(query, type);
+        String nextCursor = null;
+        if (documents.size() > limit) {
+            documents = new ArrayList<>(documents.subList(0, limit));
+            nextCursor = sort.cursorAfter(documents.get(limit - 1));
+        }
+        
+        switch (request.getTotalMode()) {
+            case EXACT:
+                return new CursorPage<>(documents, nextCursor, count(type, filter), false);
+            case ESTIMATED:
+                // Collection metadata only covers the whole collection
+                return filter == null
+                        ? new CursorPage<>(documents, nextCursor, mongoTemplate.estimatedCount(type), true)
+                        : new CursorPage<>(documents, nextCursor, count(type, filter), false);
+            default:
+                return new CursorPage<>(documents, nextCursor, null, null);
+        }
+    }
+    
+    /**
+     * Hands every matching document to the callback in sort order, read from a server-side cursor
+     * {@code batchSize} documents per round trip, so the result never has to fit in memory.
+     */
+    public <T> void stream(Class<T> type, Criteria filter, KeysetSort<T> sort, RowCallback<? super T> callback)
+            throws IOException {
+        String field = ID_FIELD;
+        if (!sort.isById()) {
+            MongoPersistentEntity<?> entity = mongoTemplate.getConverter().getMappingContext().getRequiredPersistentEntity(type);
+            field = entity.getRequiredPersistentProperty(sort.getAttribute()).getFieldName();
+        }
+        Query query = new Query(filter != null ? filter : new Criteria()).with(order(sort, field)).cursorBatchSize(batchSize);
+        try (CloseableIterator<T> documents = mongoTemplate.stream(query, type)) {
+            while (documents.hasNext()) {
+                callback.accept(documents.next());
+            }
+        }
+    }
+    
+    private static Sort order(KeysetSort<?> sort, String field) {
+        Sort.Direction direction = sort.isDescending() ? Sort.Direction.DESC : Sort.Direction.ASC;
+        return sort.isById() ? Sort.by(direction, ID_FIELD) : Sort.by(direction, field).and(Sort.by(direction, ID_FIELD));
+    }
+    
+    private static Criteria seek(String field, Object afterKey, Object afterId, boolean descending) {
+        if (descending) {
+            return new Criteria().orOperator(
+                    Criteria.where(field).lt(afterKey),
+                    new Criteria().andOperator(Criteria.where(field).is(afterKey), Criteria.where(ID_FIELD).lt(afterId)));
+        }
+        return new Criteria().orOperator(
+                Criteria.where(field).gt(afterKey),
+                new Criteria().andOperator(Criteria.where(field).is(afterKey), Criteria.where(ID_FIELD).gt(afterId)));
+    }
+    
+    private static Criteria combine(List<Criteria> parts) {
+        if (parts.isEmpty()) {
+            return new Criteria();
+        }
+        return parts.size() == 1 ? parts.get(0) : new Criteria().andOperator(parts.toArray(new Criteria[0]));
+    }
+    
+    private static Object toId(String id) {
+        return ObjectId.isValid(id) ? new ObjectId(id) : id;
+    }
+    
+    private <T> long count(Class<T> type, Criteria filter) {
+        return mongoTemplate.count(filter != null ? new Query(filter) : new Query(), type);
+    }
+}
@@ -26,9 +26,6 @@ public interface PrescriptionRepository extends MongoRepository<Prescription, St
         LocalDateTime endDate
     );
     
-    @Query("{ 'doctorId': ?0, 'diagnosis': { $regex: ?1, $options: 'i' } }")
-    List<Prescription> findByDoctorIdAndDiagnosisContaining(Long doctorId, String diagnosis);
-    
     @Query(value = "{ 'patientId': ?0 }", sort = "{ 'prescriptionDate': -1 }")
     List<Prescription> findLatestPrescriptionsByPatientId(Long patientId);
     
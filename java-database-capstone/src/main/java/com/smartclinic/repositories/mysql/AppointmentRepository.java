@@ -2,19 +2,28 @@ package com.smartclinic.repositories.mysql;
 
 import com.smartclinic.models.mysql.Appointment;
 import com.smartclinic.models.mysql.AppointmentStatus;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
+import javax.persistence.LockModeType;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface AppointmentRepository extends JpaRepository<Appointment, Long> {
     
+    @EntityGraph(Appointment.WITH_PARTIES)
+    Optional<Appointment> findWithPartiesById(Long id);
+    
     List<Appointment> findByPatientId(Long patientId);
     
     List<Appointment> findByDoctorId(Long doctorId);
@@ -36,14 +45,120 @@ public interface AppointmentRepository extends JpaRepository<Appointment, Long>
         @Param("status") AppointmentStatus status
     );
     
-    @Query("SELECT COUNT(a) FROM Appointment a WHERE a.doctor.id = :doctorId AND a.status = 'SCHEDULED'")
-    Long countScheduledAppointmentsByDoctor(@Param("doctorId") Long doctorId);
-    
     @Modifying
     @Transactional
     @Query("UPDATE Appointment a SET a.status = :status WHERE a.id = :appointmentId")
     void updateAppointmentStatus(@Param("appointmentId") Long appointmentId, @Param("status") AppointmentStatus status);
     
-    @Query(value = "CALL GetDoctorAppointmentStats(:doctorId)", nativeQuery = true)
-    List<Object[]> getDoctorAppointmentStats(@Param("doctorId") Long doctorId);
+    // Only succeeds while the appointment still has the expected status; returns the number of rows changed
+    @Modifying
+    @Transactional
+    @Query("UPDATE Appointment a SET a.status = :status, a.version = a.version + 1 " +
+           "WHERE a.id = :appointmentId AND a.status = :expected")
+    int compareAndSetStatus(
+        @Param("appointmentId") Long appointmentId,
+        @Param("expected") AppointmentStatus expected,
+        @Param("status") AppointmentStatus status
+    );
+    
+    // Set-based form of compareAndSetStatus for rows that all share the expected status
+    @Modifying
+    @Transactional
+    @Query("UPDATE Appointment a SET a.status = :status, a.version = a.version + 1 " +
+           "WHERE a.id IN :appointmentIds AND a.status = :expected")
+    int compareAndSetStatuses(
+        @Param("appointmentIds") Collection<Long> appointmentIds,
+        @Param("expected") AppointmentStatus expected,
+        @Param("status") AppointmentStatus status
+    );
+    
+    // Locks the rows until the surrounding transaction ends; patient and doctor stay unloaded
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT a FROM Appointment a WHERE a.id IN :ids")
+    List<Appointment> findAllByIdForUpdate(@Param("ids") Collection<Long> ids);
+    
+    interface StatusCount {
+        Long getDoctorId();
+        AppointmentStatus getStatus();
+        long getCount();
+    }
+    
+    @Query("SELECT a.doctor.id AS doctorId, a.status AS status, COUNT(a) AS count " +
+           "FROM Appointment a GROUP BY a.doctor.id, a.status")
+    List<StatusCount> countByDoctorAndStatus();
+    
+    // Only the columns the slot index needs, without loading patients or doctors
+    interface SlotView {
+        Long getId();
+        Long getDoctorId();
+        Long getPatientId();
+        LocalDateTime getAppointmentDate();
+        AppointmentStatus getStatus();
+    }
+    
+    @Query("SELECT a.id AS id, a.doctor.id AS doctorId, a.patient.id AS patientId, " +
+           "a.appointmentDate AS appointmentDate, a.status AS status " +
+           "FROM Appointment a WHERE a.appointmentDate >= :from AND a.status NOT IN :inactiveStatuses")
+    List<SlotView> findActiveSlotsFrom(
+        @Param("from") LocalDateTime from,
+        @Param("inactiveStatuses") Collection<AppointmentStatus> inactiveStatuses
+    );
+    
+    @Query("SELECT a.id AS id, a.doctor.id AS doctorId, a.patient.id AS patientId, " +
+           "a.appointmentDate AS appointmentDate, a.status AS status " +
+           "FROM Appointment a WHERE a.appointmentDate >= :from AND a.appointmentDate < :to " +
+           "AND a.status NOT IN :inactiveStatuses")
+    List<SlotView> findActiveSlotsBetween(
+        @Param("from") LocalDateTime from,
+        @Param("to") LocalDateTime to,
+        @Param("inactiveStatuses") Collection<AppointmentStatus> inactiveStatuses
+    );
+    
+    @Query("SELECT a.id AS id, a.doctor.id AS doctorId, a.patient.id AS patientId, " +
+           "a.appointmentDate AS appointmentDate, a.status AS status " +
+           "FROM Appointment a WHERE a.id = :id")
+    Optional<SlotView> findSlotViewById(@Param("id") Long id);
+    
+    // Active appointments of the doctor or the patient starting strictly inside (from, to)
+    @Query("SELECT a.id AS id, a.doctor.id AS doctorId, a.patient.id AS patientId, " +
+           "a.appointmentDate AS appointmentDate, a.status AS status " +
+           "FROM Appointment a WHERE (a.doctor.id = :doctorId OR a.patient.id = :patientId) " +
+           "AND a.appointmentDate > :from AND a.appointmentDate < :to " +
+           "AND a.status NOT IN :inactiveStatuses AND a.id <> :excludeId")
+    List<SlotView> findConflictingSlots(
+        @Param("doctorId") Long doctorId,
+        @Param("patientId") Long patientId,
+        @Param("from") LocalDateTime from,
+        @Param("to") LocalDateTime to,
+        @Param("inactiveStatuses") Collection<AppointmentStatus> inactiveStatuses,
+        @Param("excludeId") Long excludeId
+    );
+    
+    // What a reminder message needs, read in the same statement as the appointment
+    interface ReminderView {
+        Long getId();
+        LocalDateTime getAppointmentDate();
+        String getPatientEmail();
+        String getPatientFirstName();
+        String getPatientLastName();
+        String getDoctorFirstName();
+        String getDoctorLastName();
+        String getSpecialization();
+    }
+    
+    // Keyset page of appointments after (afterDate, afterId) and before :to, in (date, id) order
+    @Query("SELECT a.id AS id, a.appointmentDate AS appointmentDate, p.email AS patientEmail, " +
+           "p.firstName AS patientFirstName, p.lastName AS patientLastName, " +
+           "d.firstName AS doctorFirstName, d.lastName AS doctorLastName, d.specialization AS specialization " +
+           "FROM Appointment a JOIN a.patient p JOIN a.doctor d " +
+           "WHERE a.status IN :statuses AND a.appointmentDate < :to " +
+           "AND (a.appointmentDate > :afterDate OR (a.appointmentDate = :afterDate AND a.id > :afterId)) " +
+           "ORDER BY a.appointmentDate ASC, a.id ASC")
+    List<ReminderView> findReminderPage(
+        @Param("statuses") Collection<AppointmentStatus> statuses,
+        @Param("afterDate") LocalDateTime afterDate,
+        @Param("afterId") Long afterId,
+        @Param("to") LocalDateTime to,
+        Pageable page
+    );
 }
\ No newline at end of file
@@ -0,0 +1,29 @@
+package com.smartclinic.repositories.mysql;
+
+import com.smartclinic.models.mysql.ArchivedAppointment;
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface ArchivedAppointmentRepository extends JpaRepository<ArchivedAppointment, Long> {
+    
+    @EntityGraph(ArchivedAppointment.WITH_PARTIES)
+    Optional<ArchivedAppointment> findWithPartiesById(Long id);
+    
+    @Query("SELECT a.doctor.id AS doctorId, a.status AS status, COUNT(a) AS count " +
+           "FROM ArchivedAppointment a GROUP BY a.doctor.id, a.status")
+    List<AppointmentRepository.StatusCount> countByDoctorAndStatus();
+    
+    // Both served from the end of an index
+    @Query("SELECT MAX(a.appointmentDate) FROM ArchivedAppointment a")
+    LocalDateTime findNewestAppointmentDate();
+    
+    @Query("SELECT MAX(a.archivedAt) FROM ArchivedAppointment a")
+    LocalDateTime findLastArchivedAt();
+}
@@ -6,6 +6,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -29,4 +30,25 @@ public interface DoctorRepository extends JpaRepository<Doctor, Long> {
     
     @Query("SELECT COUNT(d) FROM Doctor d WHERE d.specialization = :specialization")
     Long countBySpecialization(@Param("specialization") String specialization);
+    
+    @Query("SELECT d.id FROM Doctor d WHERE d.id IN :ids")
+    List<Long> findExistingIds(@Param("ids") Collection<Long> ids);
+    
+    interface SpecializationView {
+        Long getId();
+        String getSpecialization();
+    }
+    
+    @Query("SELECT d.id AS id, d.specialization AS specialization FROM Doctor d WHERE d.id IN :ids")
+    List<SpecializationView> findSpecializationsByIdIn(@Param("ids") Collection<Long> ids);
+    
+    interface ChangeMarker {
+        Long getCount();
+        Long getMaxId();
+        Long getVersionSum();
+    }
+    
+    // Moves on every insert (count, max id), update (version sum) and delete (count) of a doctor
+    @Query("SELECT COUNT(d) AS count, MAX(d.id) AS maxId, SUM(d.version) AS versionSum FROM Doctor d")
+    ChangeMarker findChangeMarker();
 }
\ No newline at end of file
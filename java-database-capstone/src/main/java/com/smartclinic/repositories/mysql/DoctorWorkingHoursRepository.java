@@ -0,0 +1,31 @@
+package com.smartclinic.repositories.mysql;
+
+import com.smartclinic.models.mysql.DoctorWorkingHours;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+@Repository
+public interface DoctorWorkingHoursRepository extends JpaRepository<DoctorWorkingHours, Long> {
+    
+    List<DoctorWorkingHours> findByDoctorId(Long doctorId);
+    
+    interface ChangeMarker {
+        Long getCount();
+        Long getMaxId();
+    }
+    
+    // Templates are replaced by delete and insert, so any change moves the count or the max id
+    @Query("SELECT COUNT(w) AS count, MAX(w.id) AS maxId FROM DoctorWorkingHours w")
+    ChangeMarker findChangeMarker();
+    
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM DoctorWorkingHours w WHERE w.doctorId = :doctorId")
+    int deleteByDoctorId(@Param("doctorId") Long doctorId);
+}
@@ -0,0 +1,271 @@
+package com.smartclinic.repositories.mysql;
+
+import com.smartclinic.dtos.Cursor;
+import com.smartclinic.dtos.CursorPage;
+import com.smartclinic.dtos.CursorRequest;
+import com.smartclinic.repositories.KeysetSort;
+import com.smartclinic.repositories.RowCallback;
+import com.zaxxer.hikari.HikariDataSource;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.jpa.QueryHints;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.Table;
+import javax.persistence.TypedQuery;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Expression;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Keyset ("seek") pagination over JPA entities. A page is {@code WHERE (key, id) > (:key, :id)
+ * ORDER BY key, id LIMIT n + 1}, which an index on the sort key turns into a range scan, so the
+ * cost of a page does not grow with its position. One extra row is fetched to tell whether
+ * another page follows; nothing is counted unless the caller asks for a total.
+ *
+ * Exports that want every row use {@link #stream} instead, which walks the same ordering
+ * through a forward-only cursor. On MySQL they read through a small pool of their own opened
+ * with {@code useCursorFetch=true}: the driver needs it to honour the fetch size, but it also
+ * turns every statement into a server-side prepared one, which the rest of the application
+ * should not pay for.
+ */
+@Repository
+public class KeysetQueries {
+    
+    private static final Logger logger = LoggerFactory.getLogger(KeysetQueries.class);
+    
+    @PersistenceContext
+    private EntityManager entityManager;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    @Autowired
+    private DataSource dataSource;
+    
+    // Rows per round trip while streaming
+    @Value("${app.streaming.jdbc-fetch-size:500}")
+    private int fetchSize;
+    
+    // Bounds the exports this instance runs at once
+    @Value("${app.streaming.export-pool-size:4}")
+    private int exportPoolSize;
+    
+    private TransactionTemplate readOnlyTransaction;
+    
+    private HikariDataSource exportDataSource;
+    
+    @PostConstruct
+    void init() {
+        readOnlyTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction.setReadOnly(true);
+        
+        if (dataSource instanceof HikariDataSource) {
+            HikariDataSource main = (HikariDataSource) dataSource;
+            if (main.getJdbcUrl() != null && main.getJdbcUrl().startsWith("jdbc:mysql:")) {
+                exportDataSource = new HikariDataSource();
+                exportDataSource.setPoolName("export");
+                exportDataSource.setJdbcUrl(main.getJdbcUrl());
+                exportDataSource.setUsername(main.getUsername());
+                exportDataSource.setPassword(main.getPassword());
+                exportDataSource.setDriverClassName(main.getDriverClassName());
+                exportDataSource.setDataSourceProperties(main.getDataSourceProperties());
+                exportDataSource.addDataSourceProperty("useCursorFetch", "true");
+                exportDataSource.setReadOnly(true);
+                exportDataSource.setMaximumPoolSize(exportPoolSize);
+                exportDataSource.setMinimumIdle(0);
+            }
+        }
+    }
+    
+    @PreDestroy
+    void stop() {
+        if (exportDataSource != null) {
+            exportDataSource.close();
+        }
+    }
+    
+    public <T> CursorPage<T> find(Class<T> type, Specification<T> filter, KeysetSort<T> sort, CursorRequest request) {
+        return find(type, filter, sort, request, null);
+    }
+    
+    /**
+     * Like {@link #find(Class, Specification, KeysetSort, CursorRequest)}, loading the associations
+     * of the named entity graph in the same statement as the page.
+     */
+    public <T> CursorPage<T> find(Class<T> type, Specification<T> filter, KeysetSort<T> sort, CursorRequest request,
+                                  String entityGraph) {
+        int limit = request.getEffectiveLimit();
+        CriteriaQuery<T> query = select(type, filter, sort, request.getDecodedCursor());
+        
+        List<T> rows = withGraph(entityManager, entityManager.createQuery(query), entityGraph).setMaxResults(limit + 1).getResultList();
+        String nextCursor = null;
+        if (rows.size() > limit) {
+            rows = new ArrayList<>(rows.subList(0, limit));
+            nextCursor = sort.cursorAfter(rows.get(limit - 1));
+        }
+        
+        switch (request.getTotalMode()) {
+            case EXACT:
+                return new CursorPage<>(rows, nextCursor, count(type, filter), false);
+            case ESTIMATED:
+                Long estimate = filter == null ? estimateRows(type) : null;
+                return estimate != null
+                        ? new CursorPage<>(rows, nextCursor, estimate, true)
+                        : new CursorPage<>(rows, nextCursor, count(type, filter), false);
+            default:
+                return new CursorPage<>(rows, nextCursor, null, null);
+        }
+    }
+    
+    /**
+     * Hands every matching row to the callback in sort order. Rows are read {@code fetchSize} at a
+     * time and the persistence context is cleared as often, so memory stays flat however many rows
+     * match. Runs in a session of its own (on MySQL, on an export connection), which lets it be
+     * called from the thread that writes a streaming response.
+     */
+    public <T> void stream(Class<T> type, Specification<T> filter, KeysetSort<T> sort, String entityGraph,
+                           RowCallback<? super T> callback) throws IOException {
+        try {
+            if (exportDataSource == null) {
+                readOnlyTransaction.executeWithoutResult(
+                        status -> streamRows(entityManager, type, filter, sort, entityGraph, callback));
+                return;
+            }
+            SessionFactory sessionFactory = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class);
+            try (Connection connection = exportDataSource.getConnection();
+                 Session session = sessionFactory.withOptions().connection(connection).openSession()) {
+                session.setDefaultReadOnly(true);
+                streamRows(session, type, filter, sort, entityGraph, callback);
+            } catch (SQLException e) {
+                throw new DataAccessResourceFailureException("Could not open an export connection", e);
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+    
+    private <T> void streamRows(EntityManager rowManager, Class<T> type, Specification<T> filter, KeysetSort<T> sort,
+                                String entityGraph, RowCallback<? super T> callback) {
+        CriteriaQuery<T> query = select(type, filter, sort, null);
+        try (Stream<T> rows = withGraph(rowManager, rowManager.createQuery(query), entityGraph)
+                .setHint(QueryHints.HINT_FETCH_SIZE, fetchSize)
+                .setHint(QueryHints.HINT_READONLY, true)
+                .getResultStream()) {
+            Iterator<T> iterator = rows.iterator();
+            int sinceClear = 0;
+            while (iterator.hasNext()) {
+                callback.accept(iterator.next());
+                if (++sinceClear == fetchSize) {
+                    rowManager.clear();
+                    sinceClear = 0;
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+    
+    // A fetch graph rather than fetch joins in the filter, so count queries over the same filter stay valid
+    private static <T> TypedQuery<T> withGraph(EntityManager manager, TypedQuery<T> query, String entityGraph) {
+        return entityGraph != null
+                ? query.setHint(QueryHints.HINT_FETCHGRAPH, manager.getEntityGraph(entityGraph))
+                : query;
+    }
+    
+    private <T> CriteriaQuery<T> select(Class<T> type, Specification<T> filter, KeysetSort<T> sort, Cursor cursor) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<T> query = cb.createQuery(type);
+        Root<T> root = query.from(type);
+        
+        List<Predicate> predicates = new ArrayList<>();
+        Predicate filterPredicate = filter != null ? filter.toPredicate(root, query, cb) : null;
+        if (filterPredicate != null) {
+            predicates.add(filterPredicate);
+        }
+        Expression<Comparable<Object>> key = root.get(sort.getAttribute());
+        Expression<Comparable<Object>> id = root.get(KeysetSort.ID);
+        if (cursor != null) {
+            predicates.add(seek(cb, key, id, sort, cursor));
+        }
+        
+        query.select(root).where(predicates.toArray(new Predicate[0]));
+        if (sort.isById()) {
+            query.orderBy(sort.isDescending() ? cb.desc(id) : cb.asc(id));
+        } else {
+            query.orderBy(sort.isDescending() ? cb.desc(key) : cb.asc(key),
+                          sort.isDescending() ? cb.desc(id) : cb.asc(id));
+        }
+        return query;
+    }
+    
+    @SuppressWarnings("unchecked")
+    private <T> Predicate seek(CriteriaBuilder cb, Expression<Comparable<Object>> key, Expression<Comparable<Object>> id,
+                               KeysetSort<T> sort, Cursor cursor) {
+        Comparable<Object> afterId = (Comparable<Object>) Cursor.convert(cursor.getId(), id.getJavaType());
+        if (sort.isById()) {
+            return sort.isDescending() ? cb.lessThan(id, afterId) : cb.greaterThan(id, afterId);
+        }
+        Comparable<Object> afterKey = (Comparable<Object>) Cursor.convert(cursor.getKey(), key.getJavaType());
+        if (sort.isDescending()) {
+            return cb.or(cb.lessThan(key, afterKey), cb.and(cb.equal(key, afterKey), cb.lessThan(id, afterId)));
+        }
+        return cb.or(cb.greaterThan(key, afterKey), cb.and(cb.equal(key, afterKey), cb.greaterThan(id, afterId)));
+    }
+    
+    private <T> long count(Class<T> type, Specification<T> filter) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = cb.createQuery(Long.class);
+        Root<T> root = query.from(type);
+        Predicate filterPredicate = filter != null ? filter.toPredicate(root, query, cb) : null;
+        query.select(cb.count(root));
+        if (filterPredicate != null) {
+            query.where(filterPredicate);
+        }
+        return entityManager.createQuery(query).getSingleResult();
+    }
+    
+    // InnoDB's row estimate from table statistics; null when unavailable, e.g. on other databases
+    private Long estimateRows(Class<?> type) {
+        Table table = type.getAnnotation(Table.class);
+        if (table == null) {
+            return null;
+        }
+        try {
+            return jdbcTemplate.queryForObject(
+                    "SELECT TABLE_ROWS FROM information_schema.TABLES WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ?",
+                    Long.class, table.name());
+        } catch (DataAccessException e) {
+            logger.debug("No row estimate for table {}: {}", table.name(), e.getMessage());
+            return null;
+        }
+    }
+}
@@ -6,6 +6,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -24,4 +25,7 @@ public interface PatientRepository extends JpaRepository<Patient, Long> {
     
     @Query("SELECT p FROM Patient p WHERE p.emergencyContact IS NOT NULL")
     List<Patient> findPatientsWithEmergencyContact();
+    
+    @Query("SELECT p.id FROM Patient p WHERE p.id IN :ids")
+    List<Long> findExistingIds(@Param("ids") Collection<Long> ids);
 }
\ No newline at end of file
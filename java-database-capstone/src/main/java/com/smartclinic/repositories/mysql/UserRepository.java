@@ -26,6 +26,11 @@ public interface UserRepository extends JpaRepository<User, Long> {
     @Query("SELECT u FROM User u WHERE u.firstName LIKE %:name% OR u.lastName LIKE %:name%")
     List<User> findByNameContaining(@Param("name") String name);
     
+    @Modifying
+    @Transactional
+    @Query("UPDATE User u SET u.password = :password WHERE u.username = :username")
+    int updatePassword(@Param("username") String username, @Param("password") String password);
+    
     @Query("SELECT u FROM User u WHERE u.role = 'DOCTOR' AND u.id IN " +
            "(SELECT d.user.id FROM Doctor d WHERE d.specialization = :specialization)")
     List<User> findDoctorsBySpecialization(@Param("specialization") String specialization);
@@ -0,0 +1,218 @@
+package com.smartclinic.services;
+
+import com.smartclinic.models.mysql.AppointmentStatus;
+import com.smartclinic.repositories.mysql.ArchivedAppointmentRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+
+/**
+ * Moves finished appointments older than the archive horizon from {@code appointments} into
+ * {@code appointments_archive}, so the hot table and its indexes only hold the recent months
+ * nearly all reads touch. Rows keep their id, so links to an appointment stay valid.
+ *
+ * Work is done in small chunks, each in its own transaction. Candidates are found with a plain
+ * keyset read, so the scan itself locks nothing; only the chunk's rows are then locked by primary
+ * key, their status checked again, and copied and deleted together, so a row is always in exactly
+ * one table once the transaction commits. Rows locked by a concurrent write are skipped and picked
+ * up by the next run.
+ *
+ * {@link #coldBoundary} tells readers from which appointment date on the archive can be ignored.
+ */
+@Service
+public class AppointmentArchiver {
+    
+    private static final Logger logger = LoggerFactory.getLogger(AppointmentArchiver.class);
+    
+    // Only finished appointments are archived; one past the horizon is not moved back to an active status
+    public static final Set<AppointmentStatus> ARCHIVED_STATUSES =
+            Collections.unmodifiableSet(EnumSet.of(AppointmentStatus.COMPLETED, AppointmentStatus.CANCELLED, AppointmentStatus.NO_SHOW));
+    
+    private static final String FINISHED = ARCHIVED_STATUSES.stream()
+            .map(status -> "'" + status.name() + "'")
+            .collect(Collectors.joining(", ", "status IN (", ")"));
+    
+    private static final String CANDIDATES_SQL =
+            "SELECT id, appointment_date FROM appointments " +
+            "WHERE appointment_date < ? AND (appointment_date > ? OR (appointment_date = ? AND id > ?)) AND " + FINISHED + " " +
+            "ORDER BY appointment_date, id LIMIT ?";
+    
+    private static final String LOCK_SQL =
+            "SELECT id FROM appointments WHERE id IN (%s) AND " + FINISHED + " FOR UPDATE SKIP LOCKED";
+    
+    private static final String COPY_SQL =
+            "INSERT INTO appointments_archive " +
+            "(id, patient_id, doctor_id, appointment_date, status, notes, version, created_at, updated_at, archived_at) " +
+            "SELECT id, patient_id, doctor_id, appointment_date, status, notes, version, created_at, updated_at, ? " +
+            "FROM appointments WHERE id IN (%s)";
+    
+    private static final String DELETE_SQL = "DELETE FROM appointments WHERE id IN (%s)";
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    private ArchivedAppointmentRepository archivedAppointmentRepository;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    @Value("${app.appointments.archive.enabled:true}")
+    private boolean enabled;
+    
+    // Finished appointments older than this many days are archived
+    @Value("${app.appointments.archive.horizon-days:180}")
+    private long horizonDays;
+    
+    @Value("${app.appointments.archive.chunk-size:500}")
+    private int chunkSize;
+    
+    // Pause between chunks, leaving room for regular traffic and replication
+    @Value("${app.appointments.archive.pause-ms:200}")
+    private long pauseMillis;
+    
+    private TransactionTemplate transaction;
+    
+    // Newest appointment date known to be in the archive, also covering rows archived under a longer horizon
+    private final AtomicReference<LocalDateTime> newestArchived = new AtomicReference<>();
+    
+    @PostConstruct
+    void init() {
+        if (horizonDays < 1) {
+            throw new IllegalStateException("app.appointments.archive.horizon-days must be at least 1, was " + horizonDays);
+        }
+        transaction = new TransactionTemplate(transactionManager);
+        advanceNewestArchived(archivedAppointmentRepository.findNewestAppointmentDate());
+    }
+    
+    @Scheduled(cron = "${app.appointments.archive.cron:0 30 2 * * *}")
+    public void archiveScheduled() {
+        if (enabled) {
+            archive(LocalDateTime.now());
+        }
+    }
+    
+    /**
+     * Archives chunk by chunk until no finished appointment older than the horizon is left.
+     *
+     * @return number of appointments moved
+     */
+    public int archive(LocalDateTime now) {
+        long started = System.currentTimeMillis();
+        Timestamp cutoff = Timestamp.valueOf(now.minusDays(horizonDays));
+        int total = 0;
+        Chunk chunk = new Chunk();
+        do {
+            Chunk previous = chunk;
+            chunk = transaction.execute(status -> archiveChunk(cutoff, previous));
+            total += chunk.moved;
+            if (chunk.candidates == chunkSize && !pause()) {
+                break;
+            }
+        } while (chunk.candidates == chunkSize);
+        
+        if (total > 0) {
+            logger.info("Archived {} appointments older than {} in {} ms",
+                    total, cutoff.toLocalDateTime(), System.currentTimeMillis() - started);
+        }
+        return total;
+    }
+    
+    /**
+     * Appointments dated from the returned instant on are all in the hot table. Rows are only
+     * archived once they are older than the horizon, so the boundary moves with the clock even
+     * when another instance did the archiving.
+     */
+    public LocalDateTime coldBoundary(LocalDateTime now) {
+        LocalDateTime byHorizon = now.minusDays(horizonDays);
+        LocalDateTime archived = newestArchived.get();
+        return archived != null && !archived.isBefore(byHorizon) ? archived.plusNanos(1) : byHorizon;
+    }
+    
+    private Chunk archiveChunk(Timestamp cutoff, Chunk previous) {
+        Chunk chunk = new Chunk();
+        chunk.lastDate = previous.lastDate;
+        chunk.lastId = previous.lastId;
+        List<Long> candidates = new ArrayList<>(chunkSize);
+        Timestamp afterDate = Timestamp.valueOf(previous.lastDate);
+        jdbcTemplate.query(CANDIDATES_SQL, resultSet -> {
+            candidates.add(resultSet.getLong(1));
+            chunk.lastId = resultSet.getLong(1);
+            chunk.lastDate = resultSet.getTimestamp(2).toLocalDateTime();
+        }, cutoff, afterDate, afterDate, previous.lastId, chunkSize);
+        chunk.candidates = candidates.size();
+        if (candidates.isEmpty()) {
+            return chunk;
+        }
+        
+        List<Long> ids = jdbcTemplate.queryForList(
+                String.format(LOCK_SQL, placeholders(candidates.size())), Long.class, candidates.toArray());
+        if (ids.isEmpty()) {
+            return chunk;
+        }
+        String placeholders = placeholders(ids.size());
+        List<Object> copyArgs = new ArrayList<>(ids.size() + 1);
+        // Distinct per chunk, so readers of the archive can tell from MAX(archived_at) that it changed
+        copyArgs.add(Timestamp.valueOf(LocalDateTime.now()));
+        copyArgs.addAll(ids);
+        int copied = jdbcTemplate.update(String.format(COPY_SQL, placeholders), copyArgs.toArray());
+        int deleted = jdbcTemplate.update(String.format(DELETE_SQL, placeholders), ids.toArray());
+        if (copied != ids.size() || deleted != ids.size()) {
+            // Rolls the chunk back; the rows stay in the hot table
+            throw new IllegalStateException("Archived " + copied + " and deleted " + deleted + " of " + ids.size() + " appointments");
+        }
+        // Moving the boundary before the commit is harmless: it only sends readers to the archive more often
+        advanceNewestArchived(chunk.lastDate);
+        chunk.moved = ids.size();
+        return chunk;
+    }
+    
+    private static String placeholders(int count) {
+        return String.join(", ", Collections.nCopies(count, "?"));
+    }
+    
+    private void advanceNewestArchived(LocalDateTime appointmentDate) {
+        if (appointmentDate != null) {
+            newestArchived.accumulateAndGet(appointmentDate,
+                    (current, candidate) -> current == null || candidate.isAfter(current) ? candidate : current);
+        }
+    }
+    
+    private boolean pause() {
+        if (pauseMillis <= 0) {
+            return true;
+        }
+        try {
+            Thread.sleep(pauseMillis);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+    
+    // Progress of a run: the keyset position reached and what the last chunk did
+    private static final class Chunk {
+        private LocalDateTime lastDate = LocalDateTime.of(1970, 1, 1, 0, 0);
+        private long lastId;
+        private int candidates;
+        private int moved;
+    }
+}
@@ -0,0 +1,332 @@
+package com.smartclinic.services;
+
+import com.smartclinic.dtos.BatchAppointmentRequest;
+import com.smartclinic.dtos.BatchAppointmentResponse;
+import com.smartclinic.dtos.BatchAppointmentResult;
+import com.smartclinic.dtos.BatchAppointmentResult.Outcome;
+import com.smartclinic.exceptions.BusinessException;
+import com.smartclinic.exceptions.ConflictException;
+import com.smartclinic.models.mysql.AppointmentStatus;
+import com.smartclinic.repositories.mysql.AppointmentRepository;
+import com.smartclinic.repositories.mysql.DoctorRepository;
+import com.smartclinic.repositories.mysql.PatientRepository;
+import com.smartclinic.services.AppointmentSlotIndex.Reservation;
+import com.smartclinic.services.locks.SlotLock;
+import com.smartclinic.services.locks.SlotLockService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Bulk appointment import. Appointments use IDENTITY ids, which keeps Hibernate from batching
+ * inserts, so rows are written here with plain JDBC batches instead; with
+ * {@code rewriteBatchedStatements=true} the MySQL driver sends each chunk as multi-row INSERTs.
+ *
+ * Rows are validated up front and then written in chunks. Each row's slot is reserved in
+ * {@link AppointmentSlotIndex} right before its chunk is inserted, so conflicts with existing
+ * bookings and between rows of the same batch are found in memory. Each chunk is inserted in its
+ * own transaction; a chunk that fails releases its reservations and reports its rows as FAILED
+ * without affecting the others.
+ *
+ * With a distributed slot-lock provider, a chunk first locks the slots of all its rows (in one
+ * sorted pass, like a single booking) and re-reads the index for them from the database; the
+ * locks are held until the chunk commits, so no other instance can book those slots in between.
+ * Slot locks are per doctor-day and patient-day, and such chunks are capped at
+ * {@code distributed-chunk-size} rows, which bounds the keys taken under one lock timeout and
+ * the rows a single contended key turns into conflicts.
+ */
+@Service
+public class AppointmentBatchService {
+    
+    private static final Logger logger = LoggerFactory.getLogger(AppointmentBatchService.class);
+    
+    private static final String INSERT_SQL =
+            "INSERT INTO appointments (patient_id, doctor_id, appointment_date, status, notes, version, created_at, updated_at) " +
+            "VALUES (?, ?, ?, ?, ?, 0, ?, ?)";
+    
+    // Keeps IN lists for the id lookups well below driver and server limits
+    private static final int LOOKUP_CHUNK = 1000;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+    
+    @Autowired
+    private DoctorRepository doctorRepository;
+    
+    @Autowired
+    private PatientRepository patientRepository;
+    
+    @Autowired
+    private AppointmentSlotIndex slotIndex;
+    
+    @Autowired
+    private SlotLockService slotLockService;
+    
+    @Autowired
+    private DoctorAppointmentCounters statusCounters;
+    
+    @Value("${app.appointments.batch.max-rows:50000}")
+    private int maxRows;
+    
+    @Value("${app.appointments.batch.chunk-size:1000}")
+    private int chunkSize;
+    
+    @Value("${app.appointments.batch.distributed-chunk-size:100}")
+    private int distributedChunkSize;
+    
+    public BatchAppointmentResponse importAppointments(List<BatchAppointmentRequest> rows) {
+        if (rows == null || rows.isEmpty()) {
+            throw new BusinessException("Batch contains no appointments");
+        }
+        if (rows.size() > maxRows) {
+            throw new BusinessException("Batch exceeds the limit of " + maxRows + " appointments");
+        }
+        long started = System.currentTimeMillis();
+        LocalDateTime now = LocalDateTime.now();
+        BatchAppointmentResult[] results = new BatchAppointmentResult[rows.size()];
+        
+        Set<Long> doctorIds = existingIds(rows, BatchAppointmentRequest::getDoctorId, doctorRepository::findExistingIds);
+        Set<Long> patientIds = existingIds(rows, BatchAppointmentRequest::getPatientId, patientRepository::findExistingIds);
+        
+        List<PendingRow> pending = new ArrayList<>();
+        for (int i = 0; i < rows.size(); i++) {
+            BatchAppointmentRequest row = rows.get(i);
+            String problem = validate(row, doctorIds, patientIds, now);
+            if (problem != null) {
+                results[i] = BatchAppointmentResult.rejected(i, Outcome.INVALID, problem);
+                continue;
+            }
+            AppointmentStatus status = row.getStatus() != null ? row.getStatus() : AppointmentStatus.SCHEDULED;
+            pending.add(new PendingRow(i, row, status));
+        }
+        
+        int size = slotLockService.isDistributed() ? Math.min(chunkSize, distributedChunkSize) : chunkSize;
+        for (int from = 0; from < pending.size(); from += size) {
+            importChunk(pending.subList(from, Math.min(from + size, pending.size())), now, results);
+        }
+        
+        BatchAppointmentResponse response = new BatchAppointmentResponse(Arrays.asList(results),
+                System.currentTimeMillis() - started);
+        logger.info("Imported appointment batch: {} created, {} conflicts, {} invalid, {} failed in {} ms",
+                response.getCreated(), response.getConflicts(), response.getInvalid(), response.getFailed(),
+                response.getElapsedMillis());
+        return response;
+    }
+    
+    private void importChunk(List<PendingRow> chunk, LocalDateTime now, BatchAppointmentResult[] results) {
+        SlotLock lock;
+        try {
+            lock = slotLockService.lockSlots(slotKeys(chunk));
+        } catch (ConflictException e) {
+            for (PendingRow row : chunk) {
+                results[row.index] = BatchAppointmentResult.rejected(row.index, Outcome.CONFLICT, e.getMessage());
+            }
+            return;
+        }
+        
+        // Released only after the chunk committed or rolled back
+        try (lock) {
+            if (slotLockService.isDistributed()) {
+                syncSlotIndex(chunk.stream().map(row -> row.request).collect(Collectors.toList()));
+            }
+            
+            List<PendingRow> reserved = new ArrayList<>(chunk.size());
+            for (PendingRow row : chunk) {
+                if (AppointmentSlotIndex.holdsSlot(row.status)) {
+                    try {
+                        row.reservation = slotIndex.reserve(null, row.request.getDoctorId(), row.request.getPatientId(),
+                                row.request.getAppointmentDate());
+                    } catch (ConflictException e) {
+                        results[row.index] = BatchAppointmentResult.rejected(row.index, Outcome.CONFLICT, e.getMessage());
+                        continue;
+                    }
+                }
+                reserved.add(row);
+            }
+            if (reserved.isEmpty()) {
+                return;
+            }
+            
+            try {
+                List<Long> ids = insertChunk(reserved, now);
+                for (int j = 0; j < reserved.size(); j++) {
+                    PendingRow row = reserved.get(j);
+                    if (row.reservation != null) {
+                        slotIndex.confirm(row.reservation, ids.get(j));
+                    }
+                    statusCounters.created(row.request.getDoctorId(), row.status);
+                    results[row.index] = BatchAppointmentResult.created(row.index, ids.get(j));
+                }
+            } catch (DataAccessException e) {
+                logger.warn("Batch appointment insert of {} rows failed", reserved.size(), e);
+                for (PendingRow row : reserved) {
+                    if (row.reservation != null) {
+                        slotIndex.release(row.reservation);
+                    }
+                    results[row.index] = BatchAppointmentResult.rejected(row.index, Outcome.FAILED,
+                            "Appointment could not be stored");
+                }
+            }
+        }
+    }
+    
+    private Set<String> slotKeys(List<PendingRow> chunk) {
+        Set<String> keys = new TreeSet<>();
+        if (!slotLockService.isDistributed()) {
+            return keys;
+        }
+        for (PendingRow row : chunk) {
+            if (AppointmentSlotIndex.holdsSlot(row.status)) {
+                keys.addAll(slotLockService.keysFor(row.request.getDoctorId(), row.request.getPatientId(),
+                        row.request.getAppointmentDate()));
+            }
+        }
+        return keys;
+    }
+    
+    private String validate(BatchAppointmentRequest row, Set<Long> doctorIds, Set<Long> patientIds, LocalDateTime now) {
+        if (row == null) {
+            return "Appointment is required";
+        }
+        if (row.getDoctorId() == null || !doctorIds.contains(row.getDoctorId())) {
+            return "Doctor not found with id: " + row.getDoctorId();
+        }
+        if (row.getPatientId() == null || !patientIds.contains(row.getPatientId())) {
+            return "Patient not found with id: " + row.getPatientId();
+        }
+        if (row.getAppointmentDate() == null) {
+            return "Appointment date is required";
+        }
+        if (row.getAppointmentDate().isBefore(now)) {
+            return "Appointment date cannot be in the past";
+        }
+        return null;
+    }
+    
+    private Set<Long> existingIds(List<BatchAppointmentRequest> rows, Function<BatchAppointmentRequest, Long> idOf,
+                                  Function<List<Long>, List<Long>> lookup) {
+        Set<Long> requested = new HashSet<>();
+        for (BatchAppointmentRequest row : rows) {
+            if (row != null && idOf.apply(row) != null) {
+                requested.add(idOf.apply(row));
+            }
+        }
+        List<Long> ids = new ArrayList<>(requested);
+        Set<Long> existing = new HashSet<>();
+        for (int from = 0; from < ids.size(); from += LOOKUP_CHUNK) {
+            existing.addAll(lookup.apply(ids.subList(from, Math.min(from + LOOKUP_CHUNK, ids.size()))));
+        }
+        return existing;
+    }
+    
+    // Other instances may have booked or cancelled in the batch's window since this index last saw them
+    private void syncSlotIndex(List<BatchAppointmentRequest> rows) {
+        LocalDateTime first = null;
+        LocalDateTime last = null;
+        for (BatchAppointmentRequest row : rows) {
+            if (row == null || row.getAppointmentDate() == null) {
+                continue;
+            }
+            if (first == null || row.getAppointmentDate().isBefore(first)) {
+                first = row.getAppointmentDate();
+            }
+            if (last == null || row.getAppointmentDate().isAfter(last)) {
+                last = row.getAppointmentDate();
+            }
+        }
+        if (first == null) {
+            return;
+        }
+        long slotMinutes = slotIndex.getSlotMinutes();
+        LocalDateTime from = first.minusMinutes(slotMinutes);
+        LocalDateTime to = last.plusMinutes(slotMinutes);
+        slotIndex.reload(from, to, appointmentRepository.findActiveSlotsBetween(from, to, AppointmentSlotIndex.INACTIVE_STATUSES));
+    }
+    
+    private List<Long> insertChunk(List<PendingRow> chunk, LocalDateTime now) {
+        Timestamp createdAt = Timestamp.valueOf(now);
+        return jdbcTemplate.execute((ConnectionCallback<List<Long>>) connection -> {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try {
+                List<Long> ids = insert(connection, chunk, createdAt);
+                connection.commit();
+                return ids;
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+        });
+    }
+    
+    private List<Long> insert(Connection connection, List<PendingRow> chunk, Timestamp createdAt) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(INSERT_SQL, PreparedStatement.RETURN_GENERATED_KEYS)) {
+            for (PendingRow row : chunk) {
+                statement.setLong(1, row.request.getPatientId());
+                statement.setLong(2, row.request.getDoctorId());
+                statement.setTimestamp(3, Timestamp.valueOf(row.request.getAppointmentDate()));
+                statement.setString(4, row.status.name());
+                if (row.request.getNotes() != null) {
+                    statement.setString(5, row.request.getNotes());
+                } else {
+                    statement.setNull(5, Types.VARCHAR);
+                }
+                statement.setTimestamp(6, createdAt);
+                statement.setTimestamp(7, createdAt);
+                statement.addBatch();
+            }
+            statement.executeBatch();
+            
+            List<Long> ids = new ArrayList<>(chunk.size());
+            try (ResultSet keys = statement.getGeneratedKeys()) {
+                while (keys.next()) {
+                    ids.add(keys.getLong(1));
+                }
+            }
+            if (ids.size() != chunk.size()) {
+                throw new SQLException("Expected " + chunk.size() + " generated keys but got " + ids.size());
+            }
+            return ids;
+        }
+    }
+    
+    private static final class PendingRow {
+        private final int index;
+        private final BatchAppointmentRequest request;
+        private final AppointmentStatus status;
+        // Set once the row's chunk reserves its slot
+        private Reservation reservation;
+        
+        PendingRow(int index, BatchAppointmentRequest request, AppointmentStatus status) {
+            this.index = index;
+            this.request = request;
+            this.status = status;
+        }
+    }
+}
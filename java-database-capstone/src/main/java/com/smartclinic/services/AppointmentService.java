@@ -1,100 +1,529 @@
 package com.smartclinic.services;
 
 import java.util.Optional;
+import com.smartclinic.dtos.AppointmentResponse;
+import com.smartclinic.dtos.BulkStatusUpdateResponse;
+import com.smartclinic.dtos.BulkStatusUpdateResult;
+import com.smartclinic.dtos.BulkStatusUpdateResult.Outcome;
+import com.smartclinic.dtos.Cursor;
+import com.smartclinic.dtos.CursorPage;
+import com.smartclinic.dtos.CursorRequest;
+import com.smartclinic.dtos.DoctorAppointmentStats;
 import com.smartclinic.models.mysql.Appointment;
 import com.smartclinic.models.mysql.AppointmentStatus;
+import com.smartclinic.models.mysql.ArchivedAppointment;
+import com.smartclinic.repositories.KeysetSort;
+import com.smartclinic.repositories.RowCallback;
 import com.smartclinic.repositories.mysql.AppointmentRepository;
+import com.smartclinic.repositories.mysql.ArchivedAppointmentRepository;
+import com.smartclinic.repositories.mysql.DoctorRepository;
+import com.smartclinic.repositories.mysql.KeysetQueries;
+import com.smartclinic.repositories.mysql.PatientRepository;
+import com.smartclinic.exceptions.BusinessException;
+import com.smartclinic.exceptions.ConflictException;
+import com.smartclinic.exceptions.StaleVersionException;
+import com.smartclinic.services.AppointmentSlotIndex.Reservation;
+import com.smartclinic.services.locks.SlotLock;
+import com.smartclinic.services.locks.SlotLockService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import javax.annotation.PostConstruct;
+import java.io.IOException;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 @Service
 public class AppointmentService {
     
+    private static final KeysetSort<Appointment> BY_DATE =
+            KeysetSort.ascending("appointmentDate", Appointment::getAppointmentDate, Appointment::getId);
+    
+    // Same key as BY_DATE, so a cursor from either tier continues the merged list
+    private static final KeysetSort<ArchivedAppointment> ARCHIVED_BY_DATE =
+            KeysetSort.ascending("appointmentDate", ArchivedAppointment::getAppointmentDate, ArchivedAppointment::getId);
+    
+    private static final Comparator<AppointmentResponse> RESPONSE_BY_DATE =
+            Comparator.comparing(AppointmentResponse::getAppointmentDate).thenComparing(AppointmentResponse::getId);
+    
     @Autowired
     private AppointmentRepository appointmentRepository;
     
-    public List<Appointment> getAllAppointments() {
-        return appointmentRepository.findAll();
+    @Autowired
+    private ArchivedAppointmentRepository archivedAppointmentRepository;
+    
+    @Autowired
+    private PatientRepository patientRepository;
+    
+    @Autowired
+    private DoctorRepository doctorRepository;
+    
+    @Autowired
+    private AppointmentArchiver archiver;
+    
+    @Autowired
+    private KeysetQueries keysetQueries;
+    
+    @Autowired
+    private AppointmentSlotIndex slotIndex;
+    
+    @Autowired
+    private SlotLockService slotLockService;
+    
+    @Autowired
+    private DoctorAppointmentCounters statusCounters;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    @Value("${app.appointments.bulk-status.max-ids:1000}")
+    private int maxBulkStatusIds;
+    
+    private TransactionTemplate transaction;
+    
+    @PostConstruct
+    void init() {
+        transaction = new TransactionTemplate(transactionManager);
+    }
+    
+    public CursorPage<AppointmentResponse> getAllAppointments(CursorRequest page) {
+        return acrossTiers(null, null, null, page);
+    }
+    
+    public Optional<AppointmentResponse> getAppointmentById(Long id) {
+        return appointmentRepository.findWithPartiesById(id).map(AppointmentResponse::from)
+                .or(() -> archivedAppointmentRepository.findWithPartiesById(id).map(AppointmentResponse::from));
+    }
+    
+    public CursorPage<AppointmentResponse> getAppointmentsByPatientId(Long patientId, CursorRequest page) {
+        return acrossTiers(ofPatient(patientId), ofPatient(patientId), null, page);
+    }
+    
+    public CursorPage<AppointmentResponse> getAppointmentsByDoctorId(Long doctorId, CursorRequest page) {
+        return acrossTiers(ofDoctor(doctorId), ofDoctor(doctorId), null, page);
+    }
+    
+    public CursorPage<AppointmentResponse> getAppointmentsByStatus(AppointmentStatus status, CursorRequest page) {
+        if (!AppointmentArchiver.ARCHIVED_STATUSES.contains(status)) {
+            return keysetQueries.find(Appointment.class, withStatus(status), BY_DATE, page, Appointment.WITH_PARTIES)
+                    .map(AppointmentResponse::from);
+        }
+        return acrossTiers(withStatus(status), withStatus(status), null, page);
+    }
+    
+    public CursorPage<AppointmentResponse> getAppointmentsInDateRange(LocalDateTime startDate, LocalDateTime endDate,
+                                                                      CursorRequest page) {
+        return acrossTiers(between(startDate, endDate), between(startDate, endDate), startDate, page);
+    }
+    
+    public CursorPage<AppointmentResponse> getDoctorAppointmentsInDateRange(Long doctorId, LocalDateTime startDate,
+                                                                            LocalDateTime endDate, CursorRequest page) {
+        return acrossTiers(both(ofDoctor(doctorId), between(startDate, endDate)),
+                both(ofDoctor(doctorId), between(startDate, endDate)), startDate, page);
+    }
+    
+    public CursorPage<AppointmentResponse> getPatientAppointmentsByStatus(Long patientId, AppointmentStatus status,
+                                                                          CursorRequest page) {
+        if (!AppointmentArchiver.ARCHIVED_STATUSES.contains(status)) {
+            return keysetQueries.find(Appointment.class, both(ofPatient(patientId), withStatus(status)), BY_DATE, page,
+                    Appointment.WITH_PARTIES).map(AppointmentResponse::from);
+        }
+        return acrossTiers(both(ofPatient(patientId), withStatus(status)),
+                both(ofPatient(patientId), withStatus(status)), null, page);
+    }
+    
+    /**
+     * Pages through hot and archived appointments as one list in appointment date order. The
+     * archive is only queried when the page can reach back before
+     * {@link AppointmentArchiver#coldBoundary}, i.e. when there is no cursor or date bound past it;
+     * otherwise this is the plain query on the hot table.
+     */
+    private CursorPage<AppointmentResponse> acrossTiers(Specification<Appointment> hotFilter,
+                                                        Specification<ArchivedAppointment> coldFilter,
+                                                        LocalDateTime from, CursorRequest page) {
+        CursorPage<AppointmentResponse> hot = keysetQueries.find(Appointment.class, hotFilter, BY_DATE, page,
+                Appointment.WITH_PARTIES).map(AppointmentResponse::from);
+        if (!reachesArchive(from, page.getDecodedCursor())) {
+            return hot;
+        }
+        // Read after the hot tier, so a chunk archived in between shows up twice rather than not at all
+        CursorPage<AppointmentResponse> cold = keysetQueries.find(ArchivedAppointment.class, coldFilter, ARCHIVED_BY_DATE,
+                page, ArchivedAppointment.WITH_PARTIES).map(AppointmentResponse::from);
+        return merge(hot, cold, page.getEffectiveLimit());
+    }
+    
+    private boolean reachesArchive(LocalDateTime from, Cursor cursor) {
+        LocalDateTime lowest = from;
+        if (cursor != null) {
+            LocalDateTime after = (LocalDateTime) Cursor.convert(cursor.getKey(), LocalDateTime.class);
+            if (lowest == null || after.isAfter(lowest)) {
+                lowest = after;
+            }
+        }
+        return lowest == null || lowest.isBefore(archiver.coldBoundary(LocalDateTime.now()));
+    }
+    
+    // Both pages start after the same cursor, so the first `limit` rows of their union are the merged page
+    private static CursorPage<AppointmentResponse> merge(CursorPage<AppointmentResponse> hot,
+                                                         CursorPage<AppointmentResponse> cold, int limit) {
+        List<AppointmentResponse> hotItems = hot.getItems();
+        List<AppointmentResponse> coldItems = cold.getItems();
+        List<AppointmentResponse> items = new ArrayList<>(Math.min(limit, hotItems.size() + coldItems.size()));
+        Set<Long> seen = new HashSet<>();
+        boolean more = hot.getNextCursor() != null || cold.getNextCursor() != null;
+        int h = 0;
+        int c = 0;
+        while (h < hotItems.size() || c < coldItems.size()) {
+            AppointmentResponse next = c == coldItems.size()
+                    || (h < hotItems.size() && RESPONSE_BY_DATE.compare(hotItems.get(h), coldItems.get(c)) <= 0)
+                    ? hotItems.get(h++) : coldItems.get(c++);
+            if (!seen.add(next.getId())) {
+                continue;
+            }
+            if (items.size() == limit) {
+                more = true;
+                break;
+            }
+            items.add(next);
+        }
+        
+        AppointmentResponse last = items.isEmpty() ? null : items.get(items.size() - 1);
+        String nextCursor = more && last != null ? Cursor.encode(last.getAppointmentDate(), last.getId()) : null;
+        Long total = hot.getTotal() != null && cold.getTotal() != null ? hot.getTotal() + cold.getTotal() : null;
+        Boolean totalEstimated = total == null ? null
+                : Boolean.TRUE.equals(hot.getTotalEstimated()) || Boolean.TRUE.equals(cold.getTotalEstimated());
+        return new CursorPage<>(items, nextCursor, total, totalEstimated);
+    }
+    
+    public void streamAllAppointments(RowCallback<? super AppointmentResponse> callback) throws IOException {
+        streamAcrossTiers(null, null, null, callback);
     }
     
-    public Optional<Appointment> getAppointmentById(Long id) {
-        return appointmentRepository.findById(id);
+    public void streamAppointmentsInDateRange(LocalDateTime startDate, LocalDateTime endDate,
+                                              RowCallback<? super AppointmentResponse> callback) throws IOException {
+        streamAcrossTiers(between(startDate, endDate), between(startDate, endDate), startDate, callback);
     }
     
-    public List<Appointment> getAppointmentsByPatientId(Long patientId) {
-        return appointmentRepository.findByPatientId(patientId);
+    /**
+     * Streams hot appointments, then archived ones when the range reaches back before
+     * {@link AppointmentArchiver#coldBoundary}. Each tier is in appointment date order on its own;
+     * merging two open cursors would hold two export connections per request.
+     */
+    private void streamAcrossTiers(Specification<Appointment> hotFilter, Specification<ArchivedAppointment> coldFilter,
+                                   LocalDateTime from, RowCallback<? super AppointmentResponse> callback) throws IOException {
+        // Hot rows the archiver may move before the archive is read; they are not written twice
+        Set<Long> archivable = new HashSet<>();
+        keysetQueries.stream(Appointment.class, hotFilter, BY_DATE, Appointment.WITH_PARTIES, row -> {
+            if (AppointmentArchiver.ARCHIVED_STATUSES.contains(row.getStatus())
+                    && row.getAppointmentDate().isBefore(archiver.coldBoundary(LocalDateTime.now()))) {
+                archivable.add(row.getId());
+            }
+            callback.accept(AppointmentResponse.from(row));
+        });
+        if (!reachesArchive(from, null)) {
+            return;
+        }
+        keysetQueries.stream(ArchivedAppointment.class, coldFilter, ARCHIVED_BY_DATE, ArchivedAppointment.WITH_PARTIES,
+                row -> {
+                    if (!archivable.contains(row.getId())) {
+                        callback.accept(AppointmentResponse.from(row));
+                    }
+                });
     }
     
-    public List<Appointment> getAppointmentsByDoctorId(Long doctorId) {
-        return appointmentRepository.findByDoctorId(doctorId);
+    // Filters are generic so the same ones apply to Appointment and ArchivedAppointment
+    private static <T> Specification<T> ofPatient(Long patientId) {
+        return (root, query, cb) -> cb.equal(root.get("patient").get("id"), patientId);
     }
     
-    public List<Appointment> getAppointmentsByStatus(AppointmentStatus status) {
-        return appointmentRepository.findByStatus(status);
+    private static <T> Specification<T> ofDoctor(Long doctorId) {
+        return (root, query, cb) -> cb.equal(root.get("doctor").get("id"), doctorId);
     }
     
-    public List<Appointment> getAppointmentsInDateRange(LocalDateTime startDate, LocalDateTime endDate) {
-        return appointmentRepository.findByAppointmentDateBetween(startDate, endDate);
+    private static <T> Specification<T> withStatus(AppointmentStatus status) {
+        return (root, query, cb) -> cb.equal(root.get("status"), status);
     }
     
-    public List<Appointment> getDoctorAppointmentsInDateRange(Long doctorId, LocalDateTime startDate, LocalDateTime endDate) {
-        return appointmentRepository.findDoctorAppointmentsInDateRange(doctorId, startDate, endDate);
+    private static <T> Specification<T> between(LocalDateTime startDate, LocalDateTime endDate) {
+        return (root, query, cb) -> cb.between(root.get("appointmentDate"), startDate, endDate);
     }
     
-    public List<Appointment> getPatientAppointmentsByStatus(Long patientId, AppointmentStatus status) {
-        return appointmentRepository.findPatientAppointmentsByStatus(patientId, status);
+    private static <T> Specification<T> both(Specification<T> first, Specification<T> second) {
+        return first.and(second);
     }
     
     public Appointment createAppointment(Appointment appointment) {
+        if (appointment.getAppointmentDate() == null || appointment.getPatient() == null || appointment.getDoctor() == null
+                || appointment.getPatient().getId() == null || appointment.getDoctor().getId() == null) {
+            throw new BusinessException("Appointment needs a patient, a doctor and a date");
+        }
         // Basic validation - check if appointment time is in the future
         if (appointment.getAppointmentDate().isBefore(LocalDateTime.now())) {
-            throw new RuntimeException("Appointment date cannot be in the past");
+            throw new BusinessException("Appointment date cannot be in the past");
         }
+        // The request only carries the parties' ids; the response shows their names
+        Long patientId = appointment.getPatient().getId();
+        Long doctorId = appointment.getDoctor().getId();
+        appointment.setPatient(patientRepository.findById(patientId)
+                .orElseThrow(() -> new BusinessException("Patient not found with id: " + patientId)));
+        appointment.setDoctor(doctorRepository.findById(doctorId)
+                .orElseThrow(() -> new BusinessException("Doctor not found with id: " + doctorId)));
         
-        // Check for scheduling conflicts (simplified)
-        List<Appointment> existingAppointments = appointmentRepository
-            .findDoctorAppointmentsInDateRange(
-                appointment.getDoctor().getId(),
-                appointment.getAppointmentDate().minusHours(1),
-                appointment.getAppointmentDate().plusHours(1)
-            );
-        
-        if (!existingAppointments.isEmpty()) {
-            throw new RuntimeException("Doctor has conflicting appointment at this time");
+        Appointment saved;
+        if (!AppointmentSlotIndex.holdsSlot(appointment.getStatus())) {
+            saved = appointmentRepository.save(appointment);
+        } else {
+            saved = bookSlot(null, appointment.getDoctor().getId(), appointment.getPatient().getId(),
+                    appointment.getAppointmentDate(), () -> appointmentRepository.save(appointment), Appointment::getId);
         }
-        
-        return appointmentRepository.save(appointment);
+        statusCounters.created(saved.getDoctor().getId(), saved.getStatus());
+        return saved;
     }
     
-    public Appointment updateAppointment(Long id, Appointment appointmentDetails) {
-        Appointment appointment = appointmentRepository.findById(id)
+    /**
+     * Updates the appointment if it is still at {@code expectedVersion} (any version when null).
+     * The save itself is conditional on the version read here, so a concurrent update between
+     * the read and the write is rejected as well instead of being overwritten.
+     */
+    public Appointment updateAppointment(Long id, Appointment appointmentDetails, Long expectedVersion) {
+        Appointment appointment = appointmentRepository.findWithPartiesById(id)
             .orElseThrow(() -> new RuntimeException("Appointment not found with id: " + id));
+        StaleVersionException.check("Appointment", id, expectedVersion, appointment.getVersion());
+        AppointmentStatus previousStatus = appointment.getStatus();
+        AppointmentStatus status = appointmentDetails.getStatus();
+        if (status != previousStatus && (status == null || !previousStatus.canMoveTo(status))) {
+            throw new BusinessException("Cannot change appointment status from " + previousStatus + " to " + status);
+        }
         
         appointment.setAppointmentDate(appointmentDetails.getAppointmentDate());
         appointment.setNotes(appointmentDetails.getNotes());
-        appointment.setStatus(appointmentDetails.getStatus());
+        appointment.setStatus(status);
         
-        return appointmentRepository.save(appointment);
+        Appointment saved;
+        try {
+            // Past or inactive appointments cannot conflict with new bookings, so they leave the index
+            if (!AppointmentSlotIndex.holdsSlot(appointment.getStatus())
+                    || appointment.getAppointmentDate().isBefore(LocalDateTime.now())) {
+                saved = appointmentRepository.save(appointment);
+                slotIndex.remove(id);
+            } else {
+                // The appointment keeps its old slot until the new one is stored
+                saved = bookSlot(id, appointment.getDoctor().getId(), appointment.getPatient().getId(),
+                        appointment.getAppointmentDate(), () -> appointmentRepository.save(appointment), Appointment::getId);
+            }
+        } catch (OptimisticLockingFailureException e) {
+            throw StaleVersionException.concurrent("Appointment", id, e);
+        }
+        statusCounters.moved(saved.getDoctor().getId(), previousStatus, saved.getStatus());
+        return saved;
     }
     
+    /**
+     * Changes the status with a compare-and-set against the status just read, retrying if another
+     * request changed it in between, so the stats counters move by exactly the transition applied.
+     */
     public void updateAppointmentStatus(Long appointmentId, AppointmentStatus status) {
-        appointmentRepository.updateAppointmentStatus(appointmentId, status);
+        for (;;) {
+            AppointmentRepository.SlotView view = appointmentRepository.findSlotViewById(appointmentId)
+                .orElseThrow(() -> new RuntimeException("Appointment not found with id: " + appointmentId));
+            if (view.getStatus() == status) {
+                return;
+            }
+            if (!view.getStatus().canMoveTo(status)) {
+                throw new BusinessException("Cannot change appointment status from " + view.getStatus() + " to " + status);
+            }
+            if (changeStatus(view, status)) {
+                statusCounters.moved(view.getDoctorId(), view.getStatus(), status);
+                return;
+            }
+        }
+    }
+    
+    /**
+     * Moves many appointments to one status in a single transaction. The rows are locked and read
+     * in one statement, every transition is checked against the status state machine, and the
+     * valid ones are applied with one UPDATE per previous status. Reactivating cancelled
+     * appointments needs a slot check per appointment and is rejected here.
+     */
+    public BulkStatusUpdateResponse updateAppointmentStatuses(List<Long> appointmentIds, AppointmentStatus status) {
+        if (status == null) {
+            throw new BusinessException("Status is required");
+        }
+        if (appointmentIds == null || appointmentIds.isEmpty()) {
+            throw new BusinessException("No appointments given");
+        }
+        if (appointmentIds.size() > maxBulkStatusIds) {
+            throw new BusinessException("Bulk status update exceeds the limit of " + maxBulkStatusIds + " appointments");
+        }
+        long started = System.currentTimeMillis();
+        Set<Long> ids = new LinkedHashSet<>(appointmentIds);
+        if (ids.remove(null)) {
+            throw new BusinessException("Appointment ids must not be null");
+        }
+        
+        Map<Long, BulkStatusUpdateResult> results = new LinkedHashMap<>();
+        Map<Long, Long> doctorIds = new HashMap<>();
+        transaction.executeWithoutResult(tx -> applyStatuses(ids, status, results, doctorIds));
+        
+        // The rows are committed; now the counters and the slot index may follow
+        for (BulkStatusUpdateResult result : results.values()) {
+            if (result.getOutcome() == Outcome.UPDATED) {
+                statusCounters.moved(doctorIds.get(result.getAppointmentId()), result.getPreviousStatus(), status);
+                if (!AppointmentSlotIndex.holdsSlot(status)) {
+                    slotIndex.remove(result.getAppointmentId());
+                }
+            }
+        }
+        return new BulkStatusUpdateResponse(new ArrayList<>(results.values()), System.currentTimeMillis() - started);
+    }
+    
+    private void applyStatuses(Set<Long> ids, AppointmentStatus status, Map<Long, BulkStatusUpdateResult> results,
+                               Map<Long, Long> doctorIds) {
+        Map<Long, Appointment> appointments = new HashMap<>();
+        for (Appointment appointment : appointmentRepository.findAllByIdForUpdate(ids)) {
+            appointments.put(appointment.getId(), appointment);
+        }
+        
+        Map<AppointmentStatus, List<Long>> idsByPreviousStatus = new EnumMap<>(AppointmentStatus.class);
+        for (Long id : ids) {
+            Appointment appointment = appointments.get(id);
+            if (appointment == null) {
+                results.put(id, BulkStatusUpdateResult.rejected(id, Outcome.NOT_FOUND, null,
+                        "Appointment not found with id: " + id));
+                continue;
+            }
+            AppointmentStatus previous = appointment.getStatus();
+            if (previous == status) {
+                results.put(id, BulkStatusUpdateResult.of(id, Outcome.UNCHANGED, previous));
+            } else if (!previous.canMoveTo(status)) {
+                results.put(id, BulkStatusUpdateResult.rejected(id, Outcome.INVALID_TRANSITION, previous,
+                        "Cannot change appointment status from " + previous + " to " + status));
+            } else if (!AppointmentSlotIndex.holdsSlot(previous) && AppointmentSlotIndex.holdsSlot(status)) {
+                results.put(id, BulkStatusUpdateResult.rejected(id, Outcome.INVALID_TRANSITION, previous,
+                        "Cancelled appointments have to be rebooked one at a time"));
+            } else {
+                idsByPreviousStatus.computeIfAbsent(previous, s -> new ArrayList<>()).add(id);
+                // The doctor is a lazy proxy here; reading its id does not load it
+                doctorIds.put(id, appointment.getDoctor().getId());
+                results.put(id, BulkStatusUpdateResult.of(id, Outcome.UPDATED, previous));
+            }
+        }
+        
+        idsByPreviousStatus.forEach((previous, group) -> {
+            // The rows are locked, so every one of them still has the status just read
+            int updated = appointmentRepository.compareAndSetStatuses(group, previous, status);
+            if (updated != group.size()) {
+                throw new IllegalStateException("Expected to update " + group.size() + " appointments but updated " + updated);
+            }
+        });
+    }
+    
+    private boolean changeStatus(AppointmentRepository.SlotView view, AppointmentStatus status) {
+        Long appointmentId = view.getId();
+        if (!AppointmentSlotIndex.holdsSlot(status)) {
+            if (appointmentRepository.compareAndSetStatus(appointmentId, view.getStatus(), status) == 0) {
+                return false;
+            }
+            slotIndex.remove(appointmentId);
+            return true;
+        }
+        if (AppointmentSlotIndex.holdsSlot(view.getStatus()) || view.getAppointmentDate().isBefore(LocalDateTime.now())) {
+            return appointmentRepository.compareAndSetStatus(appointmentId, view.getStatus(), status) == 1;
+        }
+        
+        // Reactivating a cancelled appointment has to win its slot back first
+        try {
+            bookSlot(appointmentId, view.getDoctorId(), view.getPatientId(), view.getAppointmentDate(), () -> {
+                if (appointmentRepository.compareAndSetStatus(appointmentId, view.getStatus(), status) == 0) {
+                    throw new StatusChangedConcurrently();
+                }
+                return appointmentId;
+            }, Function.identity());
+            return true;
+        } catch (StatusChangedConcurrently e) {
+            return false;
+        }
+    }
+    
+    /**
+     * Runs the write while the slot is held. With a distributed slot lock the database is the
+     * source of truth, so conflicts are checked there under the lock; otherwise the in-memory index
+     * checks and reserves the slot. The write commits before the lock is released, so this
+     * method must not run inside a surrounding transaction.
+     */
+    private <T> T bookSlot(Long appointmentId, Long doctorId, Long patientId, LocalDateTime start,
+                           Supplier<T> write, Function<T, Long> idOf) {
+        try (SlotLock lock = slotLockService.lockSlot(doctorId, patientId, start)) {
+            if (slotLockService.isDistributed()) {
+                checkConflictsInDatabase(appointmentId, doctorId, patientId, start);
+                T result = write.get();
+                slotIndex.record(idOf.apply(result), doctorId, patientId, start);
+                return result;
+            }
+            
+            Reservation reservation = slotIndex.reserve(appointmentId, doctorId, patientId, start);
+            try {
+                T result = write.get();
+                slotIndex.confirm(reservation, idOf.apply(result));
+                return result;
+            } catch (RuntimeException e) {
+                slotIndex.release(reservation);
+                throw e;
+            }
+        }
+    }
+    
+    private void checkConflictsInDatabase(Long appointmentId, Long doctorId, Long patientId, LocalDateTime start) {
+        long slotMinutes = slotIndex.getSlotMinutes();
+        List<AppointmentRepository.SlotView> conflicts = appointmentRepository.findConflictingSlots(
+                doctorId, patientId, start.minusMinutes(slotMinutes), start.plusMinutes(slotMinutes),
+                AppointmentSlotIndex.INACTIVE_STATUSES, appointmentId != null ? appointmentId : -1L);
+        for (AppointmentRepository.SlotView conflict : conflicts) {
+            if (doctorId.equals(conflict.getDoctorId())) {
+                throw new ConflictException("Doctor has conflicting appointment at this time");
+            }
+        }
+        if (!conflicts.isEmpty()) {
+            throw new ConflictException("Patient has conflicting appointment at this time");
+        }
     }
     
     public void deleteAppointment(Long id) {
         Appointment appointment = appointmentRepository.findById(id)
             .orElseThrow(() -> new RuntimeException("Appointment not found with id: " + id));
         appointmentRepository.delete(appointment);
+        slotIndex.remove(id);
+        statusCounters.deleted(appointment.getDoctor().getId(), appointment.getStatus());
     }
     
     public Long getScheduledAppointmentsCountByDoctor(Long doctorId) {
-        return appointmentRepository.countScheduledAppointmentsByDoctor(doctorId);
+        return statusCounters.count(doctorId, AppointmentStatus.SCHEDULED);
     }
     
-    public List<Object[]> getDoctorAppointmentStats(Long doctorId) {
-        return appointmentRepository.getDoctorAppointmentStats(doctorId);
+    public DoctorAppointmentStats getDoctorAppointmentStats(Long doctorId) {
+        return statusCounters.stats(doctorId);
+    }
+    
+    // Makes bookSlot give the reserved slot back when the status compare-and-set loses a race
+    private static final class StatusChangedConcurrently extends RuntimeException {
+        StatusChangedConcurrently() {
+            super(null, null, false, false);
+        }
     }
 }
\ No newline at end of file
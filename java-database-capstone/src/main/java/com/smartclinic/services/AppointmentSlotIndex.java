@@ -0,0 +1,440 @@
+package com.smartclinic.services;
+
+import com.smartclinic.exceptions.ConflictException;
+import com.smartclinic.models.mysql.AppointmentStatus;
+import com.smartclinic.repositories.mysql.AppointmentRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * In-process index of booked appointment slots per doctor and per patient. Every booking
+ * occupies the half-open interval [start, start + slot length); two bookings for the same
+ * doctor or the same patient may not overlap. Mutations for a doctor/patient pair run under
+ * striped locks, so the conflict check and the reservation are one atomic in-memory step
+ * instead of a query followed by an insert.
+ *
+ * For availability searches every doctor also has a bitmap of busy cells per day: a cell is a
+ * fixed slice of the day ({@code app.appointments.availability.cell-minutes}) and is busy while
+ * any booking overlaps it. Bitmaps are replaced, never mutated, so readers need no lock.
+ *
+ * The index covers a single application instance. It is rebuilt from the appointments table
+ * at startup and kept in step by {@link AppointmentService} on create, update, status change
+ * and delete.
+ */
+@Component
+public class AppointmentSlotIndex {
+    
+    private static final Logger logger = LoggerFactory.getLogger(AppointmentSlotIndex.class);
+    
+    // Statuses that no longer hold their slot
+    public static final Set<AppointmentStatus> INACTIVE_STATUSES =
+            EnumSet.of(AppointmentStatus.CANCELLED, AppointmentStatus.NO_SHOW);
+    
+    private static final int STRIPES = 256;
+    
+    private static final int MINUTES_PER_DAY = 24 * 60;
+    
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+    
+    @Value("${app.appointments.slot-minutes:60}")
+    private long slotMinutes;
+    
+    @Value("${app.appointments.availability.cell-minutes:15}")
+    private int cellMinutes;
+    
+    private final ReentrantLock[] locks = new ReentrantLock[STRIPES];
+    
+    private final Map<Long, NavigableSet<Slot>> doctorSlots = new ConcurrentHashMap<>();
+    private final Map<Long, NavigableSet<Slot>> patientSlots = new ConcurrentHashMap<>();
+    
+    // doctor id -> epoch day -> busy cell bitmap, copied on write
+    private final Map<Long, Map<Long, long[]>> doctorBusyCells = new ConcurrentHashMap<>();
+    
+    // appointment id -> the slot it currently holds
+    private final Map<Long, Booking> bookings = new ConcurrentHashMap<>();
+    
+    // Reservations made before the insert has produced an id get negative placeholder ids
+    private final AtomicLong pendingIds = new AtomicLong();
+    
+    public AppointmentSlotIndex() {
+        for (int i = 0; i < STRIPES; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+    
+    @PostConstruct
+    void rebuild() {
+        if (cellMinutes <= 0 || MINUTES_PER_DAY % cellMinutes != 0) {
+            throw new IllegalStateException("app.appointments.availability.cell-minutes must divide a day, was " + cellMinutes);
+        }
+        long started = System.currentTimeMillis();
+        List<AppointmentRepository.SlotView> views = appointmentRepository.findActiveSlotsFrom(
+                LocalDateTime.now().minusMinutes(slotMinutes), INACTIVE_STATUSES);
+        for (AppointmentRepository.SlotView view : views) {
+            record(view.getId(), view.getDoctorId(), view.getPatientId(), view.getAppointmentDate());
+        }
+        logger.info("Appointment slot index rebuilt with {} bookings in {} ms",
+                views.size(), System.currentTimeMillis() - started);
+    }
+    
+    public static boolean holdsSlot(AppointmentStatus status) {
+        return status == null || !INACTIVE_STATUSES.contains(status);
+    }
+    
+    /**
+     * Reserves the slot, failing with {@link ConflictException} if it overlaps another booking of
+     * the doctor or the patient. Pass the appointment id when moving an existing appointment so
+     * its current slot is not counted as a conflict; it keeps that slot until {@link #confirm}.
+     */
+    public Reservation reserve(Long appointmentId, Long doctorId, Long patientId, LocalDateTime start) {
+        long startMinute = toMinute(start);
+        long key = appointmentId != null ? appointmentId : pendingIds.decrementAndGet();
+        Booking booking = new Booking(doctorId, patientId, startMinute);
+        Slot slot = new Slot(startMinute, key);
+        
+        lock(doctorId, patientId);
+        try {
+            if (overlaps(doctorSlots.get(doctorId), startMinute, key)) {
+                throw new ConflictException("Doctor has conflicting appointment at this time");
+            }
+            if (overlaps(patientSlots.get(patientId), startMinute, key)) {
+                throw new ConflictException("Patient has conflicting appointment at this time");
+            }
+            slotsOf(doctorSlots, doctorId).add(slot);
+            slotsOf(patientSlots, patientId).add(slot);
+            refreshBusyCells(doctorId, startMinute);
+        } finally {
+            unlock(doctorId, patientId);
+        }
+        return new Reservation(key, booking);
+    }
+    
+    /**
+     * Binds a reservation to the stored appointment once the row is saved, releasing the slot
+     * the appointment held before (if any).
+     */
+    public void confirm(Reservation reservation, Long appointmentId) {
+        Booking booking = reservation.booking;
+        Booking previous;
+        
+        lock(booking.doctorId, booking.patientId);
+        try {
+            if (reservation.key != appointmentId) {
+                Slot pending = new Slot(booking.startMinute, reservation.key);
+                Slot confirmed = new Slot(booking.startMinute, appointmentId);
+                replace(doctorSlots.get(booking.doctorId), pending, confirmed);
+                replace(patientSlots.get(booking.patientId), pending, confirmed);
+            }
+            previous = bookings.put(appointmentId, booking);
+        } finally {
+            unlock(booking.doctorId, booking.patientId);
+        }
+        
+        if (previous != null && !previous.equals(booking)) {
+            removeSlot(previous, appointmentId);
+        }
+    }
+    
+    // Undoes a reservation whose save failed; a slot the appointment already held is kept
+    public void release(Reservation reservation) {
+        if (reservation.booking.equals(bookings.get(reservation.key))) {
+            return;
+        }
+        removeSlot(reservation.booking, reservation.key);
+    }
+    
+    public void remove(Long appointmentId) {
+        Booking booking = bookings.remove(appointmentId);
+        if (booking != null) {
+            removeSlot(booking, appointmentId);
+        }
+    }
+    
+    /**
+     * Replaces the bookings starting in [from, to) with the given rows from the database, dropping
+     * bookings another instance has since moved or cancelled. Pending reservations are kept.
+     */
+    public void reload(LocalDateTime from, LocalDateTime to, List<AppointmentRepository.SlotView> views) {
+        long fromMinute = toMinute(from);
+        long toMinute = toMinute(to);
+        Set<Long> current = new HashSet<>();
+        for (AppointmentRepository.SlotView view : views) {
+            current.add(view.getId());
+        }
+        bookings.forEach((id, booking) -> {
+            if (booking.startMinute >= fromMinute && booking.startMinute < toMinute
+                    && !current.contains(id) && bookings.remove(id, booking)) {
+                removeSlot(booking, id);
+            }
+        });
+        for (AppointmentRepository.SlotView view : views) {
+            record(view.getId(), view.getDoctorId(), view.getPatientId(), view.getAppointmentDate());
+        }
+    }
+    
+    public boolean isBooked(Long appointmentId) {
+        return bookings.containsKey(appointmentId);
+    }
+    
+    public int size() {
+        return bookings.size();
+    }
+    
+    // Past bookings can no longer conflict with anything that may be booked
+    @Scheduled(fixedDelayString = "${app.appointments.slot-index.prune-interval-ms:3600000}")
+    public void prunePast() {
+        long cutoff = toMinute(LocalDateTime.now()) - slotMinutes;
+        bookings.forEach((id, booking) -> {
+            if (booking.startMinute < cutoff && bookings.remove(id, booking)) {
+                removeSlot(booking, id);
+            }
+        });
+    }
+    
+    /**
+     * Records a booking without a conflict check, for rows that are already authoritative: the
+     * startup rebuild, and bookings checked against the database under a distributed slot lock.
+     */
+    public void record(Long appointmentId, Long doctorId, Long patientId, LocalDateTime start) {
+        Booking booking = new Booking(doctorId, patientId, toMinute(start));
+        Slot slot = new Slot(booking.startMinute, appointmentId);
+        Booking previous;
+        lock(doctorId, patientId);
+        try {
+            slotsOf(doctorSlots, doctorId).add(slot);
+            slotsOf(patientSlots, patientId).add(slot);
+            refreshBusyCells(doctorId, booking.startMinute);
+            previous = bookings.put(appointmentId, booking);
+        } finally {
+            unlock(doctorId, patientId);
+        }
+        if (previous != null && !previous.equals(booking)) {
+            removeSlot(previous, appointmentId);
+        }
+    }
+    
+    public long getSlotMinutes() {
+        return slotMinutes;
+    }
+    
+    public int getCellMinutes() {
+        return cellMinutes;
+    }
+    
+    /**
+     * Busy cells of the doctor on the given day: bit {@code i} covers minutes
+     * [i * cell, (i + 1) * cell) after midnight. Returns {@code null} when nothing is booked that day.
+     * The array is a snapshot and must not be modified.
+     */
+    public long[] busyCells(Long doctorId, LocalDate day) {
+        Map<Long, long[]> days = doctorBusyCells.get(doctorId);
+        return days != null ? days.get(day.toEpochDay()) : null;
+    }
+    
+    private void removeSlot(Booking booking, long key) {
+        Slot slot = new Slot(booking.startMinute, key);
+        lock(booking.doctorId, booking.patientId);
+        try {
+            removeFrom(doctorSlots, booking.doctorId, slot);
+            removeFrom(patientSlots, booking.patientId, slot);
+            refreshBusyCells(booking.doctorId, booking.startMinute);
+        } finally {
+            unlock(booking.doctorId, booking.patientId);
+        }
+    }
+    
+    private boolean overlaps(NavigableSet<Slot> slots, long startMinute, long ownKey) {
+        if (slots == null || slots.isEmpty()) {
+            return false;
+        }
+        // Half-open intervals overlap when their starts are less than one slot apart
+        for (Slot other : slots.subSet(new Slot(startMinute - slotMinutes, Long.MAX_VALUE), false,
+                new Slot(startMinute + slotMinutes, Long.MIN_VALUE), false)) {
+            if (other.key != ownKey) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    // Recomputes the cells a booking starting at startMinute covers; caller holds the doctor's stripe lock
+    private void refreshBusyCells(Long doctorId, long startMinute) {
+        NavigableSet<Slot> slots = doctorSlots.get(doctorId);
+        Map<Long, long[]> days = doctorBusyCells.computeIfAbsent(doctorId, id -> new ConcurrentHashMap<>());
+        int cellsPerDay = MINUTES_PER_DAY / cellMinutes;
+        long firstCell = Math.floorDiv(startMinute, cellMinutes);
+        long lastCell = Math.floorDiv(startMinute + slotMinutes - 1, cellMinutes);
+        
+        long day = Long.MIN_VALUE;
+        long[] cells = null;
+        for (long cell = firstCell; cell <= lastCell; cell++) {
+            long cellDay = Math.floorDiv(cell, cellsPerDay);
+            if (cellDay != day) {
+                storeDay(days, day, cells);
+                day = cellDay;
+                long[] current = days.get(day);
+                cells = current != null ? current.clone() : new long[(cellsPerDay + 63) / 64];
+            }
+            long cellStart = cell * cellMinutes;
+            boolean busy = slots != null && !slots.subSet(new Slot(cellStart - slotMinutes, Long.MAX_VALUE), false,
+                    new Slot(cellStart + cellMinutes, Long.MIN_VALUE), false).isEmpty();
+            int bit = (int) (cell - cellDay * cellsPerDay);
+            if (busy) {
+                cells[bit >>> 6] |= 1L << bit;
+            } else {
+                cells[bit >>> 6] &= ~(1L << bit);
+            }
+        }
+        storeDay(days, day, cells);
+        if (days.isEmpty()) {
+            doctorBusyCells.remove(doctorId);
+        }
+    }
+    
+    private static void storeDay(Map<Long, long[]> days, long day, long[] cells) {
+        if (cells == null) {
+            return;
+        }
+        for (long word : cells) {
+            if (word != 0) {
+                days.put(day, cells);
+                return;
+            }
+        }
+        days.remove(day);
+    }
+    
+    private static NavigableSet<Slot> slotsOf(Map<Long, NavigableSet<Slot>> index, Long ownerId) {
+        return index.computeIfAbsent(ownerId, id -> new TreeSet<>());
+    }
+    
+    private static void replace(NavigableSet<Slot> slots, Slot from, Slot to) {
+        if (slots != null && slots.remove(from)) {
+            slots.add(to);
+        }
+    }
+    
+    // Caller holds the owner's stripe lock, so the empty set cannot be repopulated concurrently
+    private static void removeFrom(Map<Long, NavigableSet<Slot>> index, Long ownerId, Slot slot) {
+        NavigableSet<Slot> slots = index.get(ownerId);
+        if (slots != null && slots.remove(slot) && slots.isEmpty()) {
+            index.remove(ownerId);
+        }
+    }
+    
+    private long toMinute(LocalDateTime dateTime) {
+        return dateTime.toEpochSecond(ZoneOffset.UTC) / 60;
+    }
+    
+    private int stripe(Long ownerId, int salt) {
+        int h = (Long.hashCode(ownerId) * 31 + salt) * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & (STRIPES - 1);
+    }
+    
+    // Always lock the lower stripe first so doctor/patient pairs cannot deadlock
+    private void lock(Long doctorId, Long patientId) {
+        int[] order = stripeOrder(doctorId, patientId);
+        locks[order[0]].lock();
+        if (order[1] != order[0]) {
+            locks[order[1]].lock();
+        }
+    }
+    
+    private void unlock(Long doctorId, Long patientId) {
+        int[] order = stripeOrder(doctorId, patientId);
+        if (order[1] != order[0]) {
+            locks[order[1]].unlock();
+        }
+        locks[order[0]].unlock();
+    }
+    
+    private int[] stripeOrder(Long doctorId, Long patientId) {
+        int a = stripe(doctorId, 1);
+        int b = stripe(patientId, 2);
+        return a <= b ? new int[] {a, b} : new int[] {b, a};
+    }
+    
+    public static final class Reservation {
+        private final long key;
+        private final Booking booking;
+        
+        private Reservation(long key, Booking booking) {
+            this.key = key;
+            this.booking = booking;
+        }
+    }
+    
+    private static final class Booking {
+        private final Long doctorId;
+        private final Long patientId;
+        private final long startMinute;
+        
+        Booking(Long doctorId, Long patientId, long startMinute) {
+            this.doctorId = doctorId;
+            this.patientId = patientId;
+            this.startMinute = startMinute;
+        }
+        
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Booking)) return false;
+            Booking other = (Booking) o;
+            return startMinute == other.startMinute
+                    && doctorId.equals(other.doctorId)
+                    && patientId.equals(other.patientId);
+        }
+        
+        @Override
+        public int hashCode() {
+            return Objects.hash(doctorId, patientId, startMinute);
+        }
+    }
+    
+    private static final class Slot implements Comparable<Slot> {
+        private final long startMinute;
+        private final long key;
+        
+        Slot(long startMinute, long key) {
+            this.startMinute = startMinute;
+            this.key = key;
+        }
+        
+        @Override
+        public int compareTo(Slot other) {
+            int byStart = Long.compare(startMinute, other.startMinute);
+            return byStart != 0 ? byStart : Long.compare(key, other.key);
+        }
+        
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Slot && compareTo((Slot) o) == 0;
+        }
+        
+        @Override
+        public int hashCode() {
+            return Long.hashCode(startMinute) * 31 + Long.hashCode(key);
+        }
+    }
+}
@@ -2,7 +2,11 @@ package com.smartclinic.services;
 
 import com.smartclinic.models.mysql.User;
 import com.smartclinic.repositories.mysql.UserRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -10,8 +14,14 @@ import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.PostConstruct;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Service
 public class CustomUserDetailsService implements UserDetailsService {
@@ -19,19 +29,141 @@ public class CustomUserDetailsService implements UserDetailsService {
     @Autowired
     private UserRepository userRepository;
     
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    @Value("${app.security.user-cache.ttl-ms:300000}")
+    private long cacheTtlMillis;
+    
+    @Value("${app.security.user-cache.max-size:10000}")
+    private int cacheMaxSize;
+    
+    // One future per username: concurrent misses for the same user share a single load
+    private final Map<String, CompletableFuture<CachedUser>> cache = new ConcurrentHashMap<>();
+    
+    private Counter hits;
+    private Counter misses;
+    private Counter evictions;
+    
+    @PostConstruct
+    void registerMetrics() {
+        hits = Counter.builder("smartclinic.user.details.cache")
+                .tag("result", "hit")
+                .description("UserDetails served from the cache")
+                .register(meterRegistry);
+        misses = Counter.builder("smartclinic.user.details.cache")
+                .tag("result", "miss")
+                .description("UserDetails loaded from the users table")
+                .register(meterRegistry);
+        evictions = Counter.builder("smartclinic.user.details.cache.evictions")
+                .description("UserDetails cache entries evicted by expiry, size or invalidation")
+                .register(meterRegistry);
+        Gauge.builder("smartclinic.user.details.cache.size", cache, Map::size)
+                .register(meterRegistry);
+    }
+    
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
-        User user = userRepository.findByUsername(username)
-                .orElseThrow(() -> new UsernameNotFoundException("User not found with username: " + username));
+        long now = System.currentTimeMillis();
+        
+        CompletableFuture<CachedUser> existing = cache.get(username);
+        if (existing != null) {
+            CachedUser cached = existing.getNow(null);
+            if (cached == null || !cached.isExpired(now, cacheTtlMillis)) {
+                hits.increment();
+                return join(existing, username).toUserDetails();
+            }
+            if (cache.remove(username, existing)) {
+                evictions.increment();
+            }
+        }
         
-        return new org.springframework.security.core.userdetails.User(
-                user.getUsername(),
-                user.getPassword(),
-                getAuthorities(user.getRole().name())
-        );
+        CompletableFuture<CachedUser> loading = new CompletableFuture<>();
+        CompletableFuture<CachedUser> winner = cache.putIfAbsent(username, loading);
+        if (winner != null) {
+            hits.increment();
+            return join(winner, username).toUserDetails();
+        }
+        
+        misses.increment();
+        try {
+            User user = userRepository.findByUsername(username)
+                    .orElseThrow(() -> new UsernameNotFoundException("User not found with username: " + username));
+            loading.complete(new CachedUser(user.getUsername(), user.getPassword(),
+                    getAuthorities(user.getRole().name()), now));
+            enforceMaxSize(now);
+        } catch (RuntimeException e) {
+            // Failed loads are not cached; waiters see the same failure and the next call retries
+            cache.remove(username, loading);
+            loading.completeExceptionally(e);
+            throw e;
+        }
+        return loading.join().toUserDetails();
+    }
+    
+    public void evict(String username) {
+        if (username != null && cache.remove(username) != null) {
+            evictions.increment();
+        }
+    }
+    
+    private void enforceMaxSize(long now) {
+        if (cache.size() <= cacheMaxSize) {
+            return;
+        }
+        Iterator<CompletableFuture<CachedUser>> entries = cache.values().iterator();
+        while (entries.hasNext()) {
+            CachedUser cached = entries.next().getNow(null);
+            if (cached != null && cached.isExpired(now, cacheTtlMillis)) {
+                entries.remove();
+                evictions.increment();
+            }
+        }
+        entries = cache.values().iterator();
+        while (cache.size() > cacheMaxSize && entries.hasNext()) {
+            CompletableFuture<CachedUser> entry = entries.next();
+            if (entry.isDone()) {
+                entries.remove();
+                evictions.increment();
+            }
+        }
+    }
+    
+    private static CachedUser join(CompletableFuture<CachedUser> future, String username) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new UsernameNotFoundException("User not found with username: " + username);
+        }
     }
     
     private Collection<? extends GrantedAuthority> getAuthorities(String role) {
         return Collections.singletonList(new SimpleGrantedAuthority("ROLE_" + role));
     }
+    
+    private static final class CachedUser {
+        private final String username;
+        private final String password;
+        private final Collection<? extends GrantedAuthority> authorities;
+        private final long loadedAt;
+        
+        CachedUser(String username, String password, Collection<? extends GrantedAuthority> authorities, long loadedAt) {
+            this.username = username;
+            this.password = password;
+            this.authorities = authorities;
+            this.loadedAt = loadedAt;
+        }
+        
+        boolean isExpired(long now, long ttlMillis) {
+            return now - loadedAt >= ttlMillis;
+        }
+        
+        // A fresh instance per call: ProviderManager erases credentials on the returned principal
+        UserDetails toUserDetails() {
+            return new org.springframework.security.core.userdetails.User(username, password, authorities);
+        }
+    }
 }
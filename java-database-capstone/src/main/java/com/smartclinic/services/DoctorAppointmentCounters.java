@@ -0,0 +1,209 @@
+package com.smartclinic.services;
+
+import com.smartclinic.dtos.DoctorAppointmentStats;
+import com.smartclinic.models.mysql.AppointmentStatus;
+import com.smartclinic.repositories.mysql.AppointmentRepository;
+import com.smartclinic.repositories.mysql.ArchivedAppointmentRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Appointment counts per doctor and status, kept in memory so stats reads cost a map lookup
+ * instead of a GROUP BY. {@link AppointmentService} and {@link AppointmentBatchService} report
+ * every create, status transition and delete once it has committed.
+ *
+ * Writes from other instances are not seen here, so the counters are periodically reconciled
+ * against the appointments table. A doctor whose counters changed while the reconciling query
+ * ran is left alone for that round: the query may or may not have seen the change, and the next
+ * round settles it.
+ *
+ * Counts cover archived appointments too. The archive only changes when {@link AppointmentArchiver}
+ * runs, so its counts are cached and queried again only once its newest {@code archived_at} moved.
+ * Both tiers are read in one REPEATABLE READ transaction: archiving a chunk does not touch the
+ * counters, so a chunk committed between two separate reads would be counted in both tiers.
+ */
+@Component
+public class DoctorAppointmentCounters {
+    
+    private static final Logger logger = LoggerFactory.getLogger(DoctorAppointmentCounters.class);
+    
+    private static final AppointmentStatus[] STATUSES = AppointmentStatus.values();
+    
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+    
+    @Autowired
+    private ArchivedAppointmentRepository archivedAppointmentRepository;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    private final Map<Long, Counts> counts = new ConcurrentHashMap<>();
+    
+    // Only touched by reconcile, which the scheduler never runs concurrently with itself
+    private List<AppointmentRepository.StatusCount> archivedCounts;
+    private LocalDateTime archivedCountsAsOf;
+    
+    @PostConstruct
+    void rebuild() {
+        long started = System.currentTimeMillis();
+        reconcile();
+        logger.info("Doctor appointment counters built for {} doctors in {} ms",
+                counts.size(), System.currentTimeMillis() - started);
+    }
+    
+    public void created(Long doctorId, AppointmentStatus status) {
+        afterCommit(() -> apply(doctorId, null, status));
+    }
+    
+    public void moved(Long doctorId, AppointmentStatus from, AppointmentStatus to) {
+        if (from != to) {
+            afterCommit(() -> apply(doctorId, from, to));
+        }
+    }
+    
+    public void deleted(Long doctorId, AppointmentStatus status) {
+        afterCommit(() -> apply(doctorId, status, null));
+    }
+    
+    public long count(Long doctorId, AppointmentStatus status) {
+        Counts doctorCounts = counts.get(doctorId);
+        if (doctorCounts == null) {
+            return 0;
+        }
+        synchronized (doctorCounts) {
+            return doctorCounts.byStatus[status.ordinal()];
+        }
+    }
+    
+    public DoctorAppointmentStats stats(Long doctorId) {
+        long[] snapshot = new long[STATUSES.length];
+        Counts doctorCounts = counts.get(doctorId);
+        if (doctorCounts != null) {
+            synchronized (doctorCounts) {
+                System.arraycopy(doctorCounts.byStatus, 0, snapshot, 0, snapshot.length);
+            }
+        }
+        Map<AppointmentStatus, Long> byStatus = new EnumMap<>(AppointmentStatus.class);
+        for (AppointmentStatus status : STATUSES) {
+            byStatus.put(status, snapshot[status.ordinal()]);
+        }
+        return new DoctorAppointmentStats(doctorId, byStatus);
+    }
+    
+    @Scheduled(fixedDelayString = "${app.appointments.stats.reconcile-interval-ms:300000}",
+               initialDelayString = "${app.appointments.stats.reconcile-interval-ms:300000}")
+    public void reconcile() {
+        Map<Long, Long> versionsBefore = new HashMap<>();
+        counts.forEach((doctorId, doctorCounts) -> {
+            synchronized (doctorCounts) {
+                versionsBefore.put(doctorId, doctorCounts.version);
+            }
+        });
+        
+        Map<Long, long[]> actual = snapshot().execute(status -> {
+            Map<Long, long[]> byDoctor = new HashMap<>();
+            List<AppointmentRepository.StatusCount> archived = archivedCounts();
+            for (AppointmentRepository.StatusCount row : appointmentRepository.countByDoctorAndStatus()) {
+                byDoctor.computeIfAbsent(row.getDoctorId(), id -> new long[STATUSES.length])[row.getStatus().ordinal()] += row.getCount();
+            }
+            for (AppointmentRepository.StatusCount row : archived) {
+                byDoctor.computeIfAbsent(row.getDoctorId(), id -> new long[STATUSES.length])[row.getStatus().ordinal()] += row.getCount();
+            }
+            return byDoctor;
+        });
+        
+        Set<Long> doctorIds = new HashSet<>(actual.keySet());
+        doctorIds.addAll(counts.keySet());
+        int corrected = 0;
+        int skipped = 0;
+        for (Long doctorId : doctorIds) {
+            long[] fresh = actual.getOrDefault(doctorId, new long[STATUSES.length]);
+            Counts doctorCounts = counts.computeIfAbsent(doctorId, id -> new Counts());
+            synchronized (doctorCounts) {
+                if (doctorCounts.version != versionsBefore.getOrDefault(doctorId, 0L)) {
+                    skipped++;
+                    continue;
+                }
+                if (!Arrays.equals(doctorCounts.byStatus, fresh)) {
+                    System.arraycopy(fresh, 0, doctorCounts.byStatus, 0, fresh.length);
+                    corrected++;
+                }
+            }
+        }
+        if (corrected > 0 || skipped > 0) {
+            logger.info("Reconciled doctor appointment counters: {} corrected, {} changed during reconcile",
+                    corrected, skipped);
+        }
+    }
+    
+    // One consistent view of both tiers, so a row moved by a concurrent archive chunk is counted once
+    private TransactionTemplate snapshot() {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        transaction.setReadOnly(true);
+        return transaction;
+    }
+    
+    private List<AppointmentRepository.StatusCount> archivedCounts() {
+        LocalDateTime lastArchivedAt = archivedAppointmentRepository.findLastArchivedAt();
+        if (archivedCounts == null || !Objects.equals(lastArchivedAt, archivedCountsAsOf)) {
+            archivedCounts = archivedAppointmentRepository.countByDoctorAndStatus();
+            archivedCountsAsOf = lastArchivedAt;
+        }
+        return archivedCounts;
+    }
+    
+    private void apply(Long doctorId, AppointmentStatus from, AppointmentStatus to) {
+        Counts doctorCounts = counts.computeIfAbsent(doctorId, id -> new Counts());
+        synchronized (doctorCounts) {
+            if (from != null) {
+                doctorCounts.byStatus[from.ordinal()]--;
+            }
+            if (to != null) {
+                doctorCounts.byStatus[to.ordinal()]++;
+            }
+            doctorCounts.version++;
+        }
+    }
+    
+    // A change only counts once its transaction has committed; outside a transaction it already has
+    private static void afterCommit(Runnable change) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            change.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                change.run();
+            }
+        });
+    }
+    
+    private static final class Counts {
+        private final long[] byStatus = new long[STATUSES.length];
+        // Bumped on every change so reconcile can tell whether it raced with one
+        private long version;
+    }
+}
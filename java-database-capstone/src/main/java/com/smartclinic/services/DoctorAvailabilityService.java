@@ -0,0 +1,325 @@
+package com.smartclinic.services;
+
+import com.smartclinic.dtos.AvailableSlot;
+import com.smartclinic.exceptions.BusinessException;
+import com.smartclinic.models.mysql.Doctor;
+import com.smartclinic.models.mysql.DoctorWorkingHours;
+import com.smartclinic.repositories.mysql.DoctorRepository;
+import com.smartclinic.repositories.mysql.DoctorWorkingHoursRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PostConstruct;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Free-slot search over doctors' weekly working hours. Candidate slots start at the beginning of
+ * each working period and follow each other at the slot length; a candidate is free when none of
+ * its cells is set in the doctor's busy-cell bitmap kept by {@link AppointmentSlotIndex}, so a
+ * search never touches the appointments table.
+ *
+ * Doctors and their working hours are held in a snapshot. Writes through this instance update it
+ * once they have committed; writes elsewhere are picked up by a scheduled check of two aggregate
+ * queries, which reloads the snapshot only when they show a change. Results are a hint: booking
+ * still runs the full conflict check.
+ *
+ * The busy cells come from this instance's {@link AppointmentSlotIndex}. With several instances,
+ * a booking made on another one only shows up after a restart or a batch import here re-reads
+ * its window, so a slot listed as free may already be taken elsewhere.
+ */
+@Service
+public class DoctorAvailabilityService {
+    
+    private static final Comparator<AvailableSlot> BY_START =
+            Comparator.comparing(AvailableSlot::getStart).thenComparing(AvailableSlot::getDoctorId);
+    
+    @Autowired
+    private DoctorRepository doctorRepository;
+    
+    @Autowired
+    private DoctorWorkingHoursRepository workingHoursRepository;
+    
+    @Autowired
+    private AppointmentSlotIndex slotIndex;
+    
+    @Value("${app.appointments.availability.default-days:MONDAY,TUESDAY,WEDNESDAY,THURSDAY,FRIDAY}")
+    private DayOfWeek[] defaultDays;
+    
+    @Value("${app.appointments.availability.default-start:09:00}")
+    private String defaultStart;
+    
+    @Value("${app.appointments.availability.default-end:17:00}")
+    private String defaultEnd;
+    
+    @Value("${app.appointments.availability.max-days:31}")
+    private int maxDays;
+    
+    @Value("${app.appointments.availability.max-results:100}")
+    private int maxResults;
+    
+    private int[][][] defaultWeek;
+    
+    // doctor id -> schedule
+    private final Map<Long, DoctorSchedule> schedules = new ConcurrentHashMap<>();
+    
+    private volatile Map<String, List<Long>> doctorsBySpecialization = Collections.emptyMap();
+    
+    // Doctor and working-hours change markers as of the last reload
+    private volatile List<Object> loadedMarker;
+    
+    @PostConstruct
+    void init() {
+        List<DoctorWorkingHours> defaults = defaultHours(null);
+        validate(defaults);
+        defaultWeek = toWeek(defaults);
+        refresh();
+    }
+    
+    @Scheduled(fixedDelayString = "${app.appointments.availability.refresh-interval-ms:60000}",
+               initialDelayString = "${app.appointments.availability.refresh-interval-ms:60000}")
+    public void refresh() {
+        // Read before reloading: a write that lands in between changes the marker and is reloaded next time
+        List<Object> marker = changeMarker();
+        if (marker.equals(loadedMarker)) {
+            return;
+        }
+        reload();
+        loadedMarker = marker;
+    }
+    
+    // Called by DoctorService after a doctor is created or updated
+    public synchronized void doctorSaved(Doctor doctor) {
+        schedules.put(doctor.getId(), scheduleOf(doctor, workingHoursRepository.findByDoctorId(doctor.getId())));
+        indexSpecializations();
+    }
+    
+    public synchronized void doctorDeleted(Long doctorId) {
+        schedules.remove(doctorId);
+        indexSpecializations();
+    }
+    
+    private synchronized void reload() {
+        Map<Long, List<DoctorWorkingHours>> hoursByDoctor = new HashMap<>();
+        for (DoctorWorkingHours hours : workingHoursRepository.findAll()) {
+            hoursByDoctor.computeIfAbsent(hours.getDoctorId(), id -> new ArrayList<>()).add(hours);
+        }
+        
+        List<Long> seen = new ArrayList<>();
+        for (Doctor doctor : doctorRepository.findAll()) {
+            schedules.put(doctor.getId(), scheduleOf(doctor, hoursByDoctor.getOrDefault(doctor.getId(), Collections.emptyList())));
+            seen.add(doctor.getId());
+        }
+        schedules.keySet().retainAll(seen);
+        indexSpecializations();
+    }
+    
+    private List<Object> changeMarker() {
+        DoctorRepository.ChangeMarker doctors = doctorRepository.findChangeMarker();
+        DoctorWorkingHoursRepository.ChangeMarker hours = workingHoursRepository.findChangeMarker();
+        return Arrays.asList(doctors.getCount(), doctors.getMaxId(), doctors.getVersionSum(),
+                hours.getCount(), hours.getMaxId());
+    }
+    
+    private void indexSpecializations() {
+        Map<String, List<Long>> bySpecialization = new HashMap<>();
+        for (DoctorSchedule schedule : schedules.values()) {
+            if (schedule.specialization != null) {
+                bySpecialization.computeIfAbsent(schedule.specialization, s -> new ArrayList<>()).add(schedule.id);
+            }
+        }
+        doctorsBySpecialization = bySpecialization;
+    }
+    
+    public List<DoctorWorkingHours> getWorkingHours(Long doctorId) {
+        List<DoctorWorkingHours> hours = workingHoursRepository.findByDoctorId(doctorId);
+        return hours.isEmpty() ? defaultHours(doctorId) : hours;
+    }
+    
+    // Replaces the doctor's weekly template; an empty list falls back to the default hours
+    @Transactional
+    public List<DoctorWorkingHours> setWorkingHours(Long doctorId, List<DoctorWorkingHours> hours) {
+        Doctor doctor = doctorRepository.findById(doctorId)
+            .orElseThrow(() -> new RuntimeException("Doctor not found with id: " + doctorId));
+        validate(hours);
+        
+        workingHoursRepository.deleteByDoctorId(doctorId);
+        for (DoctorWorkingHours period : hours) {
+            period.setId(null);
+            period.setDoctorId(doctorId);
+        }
+        List<DoctorWorkingHours> saved = workingHoursRepository.saveAll(hours);
+        
+        // A rolled-back change would stay in the snapshot, as the change markers never moved
+        DoctorSchedule schedule = scheduleOf(doctor, saved);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                scheduleSaved(schedule);
+            }
+        });
+        return saved.isEmpty() ? defaultHours(doctorId) : saved;
+    }
+    
+    // Synchronized with reload, so a reload that read the old hours cannot overwrite these
+    private synchronized void scheduleSaved(DoctorSchedule schedule) {
+        schedules.put(schedule.id, schedule);
+    }
+    
+    /**
+     * Returns up to {@code limit} free slots in [from, to), earliest first, for one doctor or for
+     * every doctor of a specialization.
+     */
+    public List<AvailableSlot> findAvailableSlots(Long doctorId, String specialization,
+                                                  LocalDateTime from, LocalDateTime to, int limit) {
+        if ((doctorId == null) == (specialization == null)) {
+            throw new BusinessException("Exactly one of doctorId or specialization is required");
+        }
+        if (limit <= 0) {
+            throw new BusinessException("Limit must be positive");
+        }
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime windowStart = from == null || from.isBefore(now) ? now : from;
+        LocalDateTime windowEnd = windowStart.plusDays(maxDays);
+        if (to != null && to.isBefore(windowEnd)) {
+            windowEnd = to;
+        }
+        int wanted = Math.min(limit, maxResults);
+        
+        List<DoctorSchedule> doctors = new ArrayList<>();
+        List<Long> ids = doctorId != null
+                ? Collections.singletonList(doctorId)
+                : doctorsBySpecialization.getOrDefault(specialization, Collections.emptyList());
+        for (Long id : ids) {
+            DoctorSchedule schedule = schedules.get(id);
+            if (schedule == null && doctorId != null) {
+                // Created since the last refresh
+                schedule = doctorRepository.findById(id)
+                    .map(doctor -> scheduleOf(doctor, workingHoursRepository.findByDoctorId(id)))
+                    .orElse(null);
+            }
+            if (schedule != null) {
+                doctors.add(schedule);
+            }
+        }
+        
+        List<AvailableSlot> result = new ArrayList<>();
+        if (doctors.isEmpty() || !windowStart.isBefore(windowEnd)) {
+            return result;
+        }
+        
+        int slotMinutes = (int) slotIndex.getSlotMinutes();
+        int cellMinutes = slotIndex.getCellMinutes();
+        List<AvailableSlot> daySlots = new ArrayList<>();
+        
+        // Days are visited in order, so sorting each day's candidates keeps the whole result ordered
+        for (LocalDate day = windowStart.toLocalDate(); !day.isAfter(windowEnd.toLocalDate()); day = day.plusDays(1)) {
+            daySlots.clear();
+            for (DoctorSchedule doctor : doctors) {
+                long[] busy = slotIndex.busyCells(doctor.id, day);
+                for (int[] period : doctor.week[day.getDayOfWeek().getValue() - 1]) {
+                    for (int minute = period[0]; minute + slotMinutes <= period[1]; minute += slotMinutes) {
+                        LocalDateTime start = day.atStartOfDay().plusMinutes(minute);
+                        LocalDateTime end = start.plusMinutes(slotMinutes);
+                        if (start.isBefore(windowStart) || end.isAfter(windowEnd)
+                                || !isFree(busy, minute / cellMinutes, (minute + slotMinutes + cellMinutes - 1) / cellMinutes)) {
+                            continue;
+                        }
+                        daySlots.add(new AvailableSlot(doctor.id, doctor.name, doctor.specialization, start, end));
+                    }
+                }
+            }
+            daySlots.sort(BY_START);
+            for (AvailableSlot slot : daySlots) {
+                result.add(slot);
+                if (result.size() == wanted) {
+                    return result;
+                }
+            }
+        }
+        return result;
+    }
+    
+    private DoctorSchedule scheduleOf(Doctor doctor, List<DoctorWorkingHours> hours) {
+        return new DoctorSchedule(doctor.getId(), doctor.getFirstName() + " " + doctor.getLastName(),
+                doctor.getSpecialization(), hours.isEmpty() ? defaultWeek : toWeek(hours));
+    }
+    
+    private List<DoctorWorkingHours> defaultHours(Long doctorId) {
+        List<DoctorWorkingHours> defaults = new ArrayList<>();
+        for (DayOfWeek day : defaultDays) {
+            defaults.add(new DoctorWorkingHours(doctorId, day, LocalTime.parse(defaultStart), LocalTime.parse(defaultEnd)));
+        }
+        return defaults;
+    }
+    
+    private static boolean isFree(long[] busy, int fromCell, int toCell) {
+        if (busy == null) {
+            return true;
+        }
+        for (int cell = fromCell; cell < toCell; cell++) {
+            if ((busy[cell >>> 6] & (1L << cell)) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    private static void validate(List<DoctorWorkingHours> hours) {
+        for (DoctorWorkingHours period : hours) {
+            if (period.getDayOfWeek() == null || period.getStartTime() == null || period.getEndTime() == null) {
+                throw new BusinessException("Working hours need a day of week, start time and end time");
+            }
+            if (!period.getStartTime().isBefore(period.getEndTime())) {
+                throw new BusinessException("Working hours must start before they end: " + period.getDayOfWeek());
+            }
+        }
+    }
+    
+    // Working periods as [start minute, end minute) per day of week, Monday first
+    private static int[][][] toWeek(List<DoctorWorkingHours> hours) {
+        List<List<int[]>> days = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            days.add(new ArrayList<>());
+        }
+        for (DoctorWorkingHours period : hours) {
+            days.get(period.getDayOfWeek().getValue() - 1).add(new int[] {
+                    period.getStartTime().toSecondOfDay() / 60, period.getEndTime().toSecondOfDay() / 60});
+        }
+        int[][][] week = new int[7][][];
+        for (int i = 0; i < 7; i++) {
+            days.get(i).sort(Comparator.comparingInt(period -> period[0]));
+            week[i] = days.get(i).toArray(new int[0][]);
+        }
+        return week;
+    }
+    
+    private static final class DoctorSchedule {
+        private final Long id;
+        private final String name;
+        private final String specialization;
+        private final int[][][] week;
+        
+        DoctorSchedule(Long id, String name, String specialization, int[][][] week) {
+            this.id = id;
+            this.name = name;
+            this.specialization = specialization;
+            this.week = week;
+        }
+    }
+}
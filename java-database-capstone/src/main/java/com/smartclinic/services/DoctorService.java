@@ -1,8 +1,16 @@
 package com.smartclinic.services;
 
+import com.smartclinic.dtos.CursorPage;
+import com.smartclinic.dtos.CursorRequest;
+import com.smartclinic.dtos.DoctorResponse;
+import com.smartclinic.exceptions.StaleVersionException;
 import com.smartclinic.models.mysql.Doctor;
+import com.smartclinic.repositories.KeysetSort;
 import com.smartclinic.repositories.mysql.DoctorRepository;
+import com.smartclinic.repositories.mysql.KeysetQueries;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
@@ -11,31 +19,50 @@ import java.util.Optional;
 @Service
 public class DoctorService {
     
+    private static final KeysetSort<Doctor> BY_ID = KeysetSort.byId(Doctor::getId);
+    
     @Autowired
     private DoctorRepository doctorRepository;
     
-    public List<Doctor> getAllDoctors() {
-        return doctorRepository.findAll();
+    @Autowired
+    private KeysetQueries keysetQueries;
+    
+    @Autowired
+    private DoctorAvailabilityService availabilityService;
+    
+    public CursorPage<DoctorResponse> getAllDoctors(CursorRequest page) {
+        return keysetQueries.find(Doctor.class, null, BY_ID, page).map(DoctorResponse::from);
     }
     
-    public Optional<Doctor> getDoctorById(Long id) {
-        return doctorRepository.findById(id);
+    public Optional<DoctorResponse> getDoctorById(Long id) {
+        return doctorRepository.findById(id).map(DoctorResponse::from);
     }
     
-    public Optional<Doctor> getDoctorByLicenseNumber(String licenseNumber) {
-        return doctorRepository.findByLicenseNumber(licenseNumber);
+    public Optional<DoctorResponse> getDoctorByLicenseNumber(String licenseNumber) {
+        return doctorRepository.findByLicenseNumber(licenseNumber).map(DoctorResponse::from);
     }
     
-    public List<Doctor> getDoctorsBySpecialization(String specialization) {
-        return doctorRepository.findBySpecialization(specialization);
+    public CursorPage<DoctorResponse> getDoctorsBySpecialization(String specialization, CursorRequest page) {
+        return keysetQueries.find(Doctor.class, withSpecialization(specialization), BY_ID, page).map(DoctorResponse::from);
     }
     
-    public List<Doctor> getDoctorsByExperience(Integer minYears) {
-        return doctorRepository.findByYearsOfExperienceGreaterThanEqual(minYears);
+    public CursorPage<DoctorResponse> getDoctorsByExperience(Integer minYears, CursorRequest page) {
+        return keysetQueries.find(Doctor.class, withMinExperience(minYears), BY_ID, page).map(DoctorResponse::from);
     }
     
-    public List<Doctor> getDoctorsBySpecializationAndExperience(String specialization, Integer minExperience) {
-        return doctorRepository.findBySpecializationAndMinExperience(specialization, minExperience);
+    public CursorPage<DoctorResponse> getDoctorsBySpecializationAndExperience(String specialization, Integer minExperience,
+                                                                              CursorRequest page) {
+        return keysetQueries.find(Doctor.class,
+                withSpecialization(specialization).and(withMinExperience(minExperience)), BY_ID, page)
+                .map(DoctorResponse::from);
+    }
+    
+    private static Specification<Doctor> withSpecialization(String specialization) {
+        return (root, query, cb) -> cb.equal(root.get("specialization"), specialization);
+    }
+    
+    private static Specification<Doctor> withMinExperience(Integer minYears) {
+        return (root, query, cb) -> cb.greaterThanOrEqualTo(root.get("yearsOfExperience"), minYears);
     }
     
     public Doctor createDoctor(Doctor doctor) {
@@ -43,12 +70,16 @@ public class DoctorService {
         if (doctorRepository.findByLicenseNumber(doctor.getLicenseNumber()).isPresent()) {
             throw new RuntimeException("Doctor with license number already exists: " + doctor.getLicenseNumber());
         }
-        return doctorRepository.save(doctor);
+        Doctor savedDoctor = doctorRepository.save(doctor);
+        availabilityService.doctorSaved(savedDoctor);
+        return savedDoctor;
     }
     
-    public Doctor updateDoctor(Long id, Doctor doctorDetails) {
+    // Conditional on expectedVersion when given, and always on the version read here
+    public Doctor updateDoctor(Long id, Doctor doctorDetails, Long expectedVersion) {
         Doctor doctor = doctorRepository.findById(id)
             .orElseThrow(() -> new RuntimeException("Doctor not found with id: " + id));
+        StaleVersionException.check("Doctor", id, expectedVersion, doctor.getVersion());
         
         doctor.setSpecialization(doctorDetails.getSpecialization());
         doctor.setYearsOfExperience(doctorDetails.getYearsOfExperience());
@@ -56,13 +87,21 @@ public class DoctorService {
         doctor.setConsultationFee(doctorDetails.getConsultationFee());
         doctor.setPhone(doctorDetails.getPhone());
         
-        return doctorRepository.save(doctor);
+        Doctor savedDoctor;
+        try {
+            savedDoctor = doctorRepository.save(doctor);
+        } catch (OptimisticLockingFailureException e) {
+            throw StaleVersionException.concurrent("Doctor", id, e);
+        }
+        availabilityService.doctorSaved(savedDoctor);
+        return savedDoctor;
     }
     
     public void deleteDoctor(Long id) {
         Doctor doctor = doctorRepository.findById(id)
             .orElseThrow(() -> new RuntimeException("Doctor not found with id: " + id));
         doctorRepository.delete(doctor);
+        availabilityService.doctorDeleted(id);
     }
     
     public List<String> getAllSpecializations() {
@@ -0,0 +1,129 @@
+package com.smartclinic.services;
+
+import com.smartclinic.dtos.CursorPage;
+import com.smartclinic.dtos.CursorRequest;
+import com.smartclinic.exceptions.StaleVersionException;
+import com.smartclinic.models.mongo.MedicalRecord;
+import com.smartclinic.repositories.KeysetSort;
+import com.smartclinic.repositories.mongo.MedicalRecordRepository;
+import com.smartclinic.repositories.mongo.MongoKeysetQueries;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+@Service
+public class MedicalRecordService {
+    
+    private static final KeysetSort<MedicalRecord> BY_ID = KeysetSort.byId(MedicalRecord::getId);
+    private static final KeysetSort<MedicalRecord> BY_VISIT_DATE =
+            KeysetSort.ascending("visitDate", MedicalRecord::getVisitDate, MedicalRecord::getId);
+    private static final KeysetSort<MedicalRecord> LATEST_FIRST =
+            KeysetSort.descending("visitDate", MedicalRecord::getVisitDate, MedicalRecord::getId);
+    
+    @Autowired
+    private MedicalRecordRepository medicalRecordRepository;
+    
+    @Autowired
+    private MongoKeysetQueries keysetQueries;
+    
+    @Autowired
+    private MongoTemplate mongoTemplate;
+    
+    public CursorPage<MedicalRecord> getAllMedicalRecords(CursorRequest page) {
+        return keysetQueries.find(MedicalRecord.class, null, BY_ID, page);
+    }
+    
+    public Optional<MedicalRecord> getMedicalRecordById(String id) {
+        return medicalRecordRepository.findById(id);
+    }
+    
+    // Oldest visit first
+    public CursorPage<MedicalRecord> getMedicalRecordsByPatientId(Long patientId, CursorRequest page) {
+        return keysetQueries.find(MedicalRecord.class, Criteria.where("patient_id").is(patientId), BY_VISIT_DATE, page);
+    }
+    
+    public CursorPage<MedicalRecord> getMedicalRecordsByDoctorId(Long doctorId, CursorRequest page) {
+        return keysetQueries.find(MedicalRecord.class, Criteria.where("doctor_id").is(doctorId), BY_ID, page);
+    }
+    
+    public CursorPage<MedicalRecord> getRecordsRequiringFollowUp(CursorRequest page) {
+        return keysetQueries.find(MedicalRecord.class, Criteria.where("follow_up_required").is(true), BY_ID, page);
+    }
+    
+    public CursorPage<MedicalRecord> getPatientRecordsInDateRange(Long patientId, LocalDateTime startDate, LocalDateTime endDate,
+                                                                  CursorRequest page) {
+        Criteria filter = Criteria.where("patient_id").is(patientId)
+                .and("visit_date").gte(startDate).lte(endDate);
+        return keysetQueries.find(MedicalRecord.class, filter, BY_VISIT_DATE, page);
+    }
+    
+    public CursorPage<MedicalRecord> getLatestRecordsByPatientId(Long patientId, CursorRequest page) {
+        return keysetQueries.find(MedicalRecord.class, Criteria.where("patient_id").is(patientId), LATEST_FIRST, page);
+    }
+    
+    public MedicalRecord createMedicalRecord(MedicalRecord record) {
+        // Keyset pages sort on the visit date, which must not be null
+        if (record.getVisitDate() == null) {
+            record.setVisitDate(LocalDateTime.now());
+        }
+        record.setCreatedAt(LocalDateTime.now());
+        record.setId(null);
+        record.setVersion(null);
+        
+        return medicalRecordRepository.save(record);
+    }
+    
+    /**
+     * Updates the record if it is still at {@code expectedVersion} (any version when null). The
+     * save goes through the repository so the save listeners run, and only matches the version
+     * read here, so a concurrent update in between is rejected instead of overwritten.
+     */
+    public MedicalRecord updateMedicalRecord(String id, MedicalRecord recordDetails, Long expectedVersion) {
+        MedicalRecord record = medicalRecordRepository.findById(id)
+            .orElseThrow(() -> new RuntimeException("Medical record not found with id: " + id));
+        if (record.getVersion() == null) {
+            // Written before versioning; a save without a version would be taken for an insert
+            mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(id).and("version").exists(false)),
+                    new Update().set("version", 0L), MedicalRecord.class);
+            record.setVersion(0L);
+        }
+        StaleVersionException.check("Medical record", id, expectedVersion, record.getVersion());
+        
+        record.setDiagnosis(recordDetails.getDiagnosis());
+        record.setSymptoms(recordDetails.getSymptoms());
+        record.setTreatment(recordDetails.getTreatment());
+        record.setNotes(recordDetails.getNotes());
+        record.setVitalSigns(recordDetails.getVitalSigns());
+        record.setLabResults(recordDetails.getLabResults());
+        record.setFollowUpRequired(recordDetails.getFollowUpRequired());
+        record.setFollowUpDate(recordDetails.getFollowUpDate());
+        
+        // Diagnosis terms and lab results are derived again by the save listeners
+        try {
+            return medicalRecordRepository.save(record);
+        } catch (OptimisticLockingFailureException e) {
+            throw StaleVersionException.concurrent("Medical record", id, e);
+        }
+    }
+    
+    public void deleteMedicalRecord(String id) {
+        MedicalRecord record = medicalRecordRepository.findById(id)
+            .orElseThrow(() -> new RuntimeException("Medical record not found with id: " + id));
+        medicalRecordRepository.delete(record);
+    }
+    
+    public Long getMedicalRecordCountByPatient(Long patientId) {
+        return medicalRecordRepository.countByPatientId(patientId);
+    }
+    
+    public Long getFollowUpCount() {
+        return medicalRecordRepository.countByFollowUpRequired(true);
+    }
+}
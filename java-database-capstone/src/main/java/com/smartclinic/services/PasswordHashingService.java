@@ -0,0 +1,81 @@
+package com.smartclinic.services;
+
+import com.smartclinic.exceptions.ServiceUnavailableException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Runs password hashing and verification off the Tomcat request threads. The pool is
+ * sized to the CPU and its queue is bounded, so a login burst is rejected with a 503
+ * instead of pinning every request thread on BCrypt.
+ */
+@Service
+public class PasswordHashingService {
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    @Value("${app.security.password.hashing.threads:0}")
+    private int threads;
+    
+    @Value("${app.security.password.hashing.queue-capacity:64}")
+    private int queueCapacity;
+    
+    @Value("${app.security.password.hashing.retry-after-seconds:1}")
+    private long retryAfterSeconds;
+    
+    private ThreadPoolExecutor executor;
+    
+    private Counter rejections;
+    
+    @PostConstruct
+    void start() {
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadNumber = new AtomicInteger();
+        executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "password-hashing-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        
+        rejections = Counter.builder("smartclinic.password.hashing.rejected")
+                .description("Password hashing tasks rejected because the pool was saturated")
+                .register(meterRegistry);
+        Gauge.builder("smartclinic.password.hashing.queue.size", executor, e -> e.getQueue().size())
+                .register(meterRegistry);
+        Gauge.builder("smartclinic.password.hashing.active", executor, ThreadPoolExecutor::getActiveCount)
+                .register(meterRegistry);
+    }
+    
+    @PreDestroy
+    void stop() {
+        executor.shutdown();
+    }
+    
+    public <T> CompletableFuture<T> submit(Supplier<T> task) {
+        try {
+            return CompletableFuture.supplyAsync(task, executor);
+        } catch (RejectedExecutionException e) {
+            rejections.increment();
+            throw new ServiceUnavailableException("Authentication service is busy, please retry shortly",
+                    retryAfterSeconds);
+        }
+    }
+}
@@ -1,37 +1,54 @@
 package com.smartclinic.services;
 
+import com.smartclinic.dtos.CursorPage;
+import com.smartclinic.dtos.CursorRequest;
+import com.smartclinic.dtos.PatientResponse;
+import com.smartclinic.exceptions.StaleVersionException;
 import com.smartclinic.models.mysql.Patient;
+import com.smartclinic.repositories.KeysetSort;
+import com.smartclinic.repositories.mysql.KeysetQueries;
 import com.smartclinic.repositories.mysql.PatientRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 
-import java.util.List;
 import java.util.Optional;
 
 @Service
 public class PatientService {
     
+    private static final KeysetSort<Patient> BY_ID = KeysetSort.byId(Patient::getId);
+    
     @Autowired
     private PatientRepository patientRepository;
     
-    public List<Patient> getAllPatients() {
-        return patientRepository.findAll();
+    @Autowired
+    private KeysetQueries keysetQueries;
+    
+    public CursorPage<PatientResponse> getAllPatients(CursorRequest page) {
+        return keysetQueries.find(Patient.class, null, BY_ID, page).map(PatientResponse::from);
     }
     
-    public Optional<Patient> getPatientById(Long id) {
-        return patientRepository.findById(id);
+    public Optional<PatientResponse> getPatientById(Long id) {
+        return patientRepository.findById(id).map(PatientResponse::from);
     }
     
-    public Optional<Patient> getPatientByEmail(String email) {
-        return patientRepository.findByEmail(email);
+    public Optional<PatientResponse> getPatientByEmail(String email) {
+        return patientRepository.findByEmail(email).map(PatientResponse::from);
     }
     
-    public List<Patient> searchPatientsByName(String name) {
-        return patientRepository.findByNameContaining(name);
+    public CursorPage<PatientResponse> searchPatientsByName(String name, CursorRequest page) {
+        Specification<Patient> filter = (root, query, cb) -> cb.or(
+                cb.like(root.get("firstName"), "%" + name + "%"),
+                cb.like(root.get("lastName"), "%" + name + "%"));
+        return keysetQueries.find(Patient.class, filter, BY_ID, page).map(PatientResponse::from);
     }
     
-    public List<Patient> searchPatientsByLastName(String lastName) {
-        return patientRepository.findByLastNameContainingIgnoreCase(lastName);
+    public CursorPage<PatientResponse> searchPatientsByLastName(String lastName, CursorRequest page) {
+        Specification<Patient> filter = (root, query, cb) ->
+                cb.like(cb.lower(root.get("lastName")), "%" + lastName.toLowerCase() + "%");
+        return keysetQueries.find(Patient.class, filter, BY_ID, page).map(PatientResponse::from);
     }
     
     public Patient createPatient(Patient patient) {
@@ -42,9 +59,11 @@ public class PatientService {
         return patientRepository.save(patient);
     }
     
-    public Patient updatePatient(Long id, Patient patientDetails) {
+    // Conditional on expectedVersion when given, and always on the version read here
+    public Patient updatePatient(Long id, Patient patientDetails, Long expectedVersion) {
         Patient patient = patientRepository.findById(id)
             .orElseThrow(() -> new RuntimeException("Patient not found with id: " + id));
+        StaleVersionException.check("Patient", id, expectedVersion, patient.getVersion());
         
         patient.setDateOfBirth(patientDetails.getDateOfBirth());
         patient.setBloodType(patientDetails.getBloodType());
@@ -53,7 +72,11 @@ public class PatientService {
         patient.setAddress(patientDetails.getAddress());
         patient.setPhone(patientDetails.getPhone());
         
-        return patientRepository.save(patient);
+        try {
+            return patientRepository.save(patient);
+        } catch (OptimisticLockingFailureException e) {
+            throw StaleVersionException.concurrent("Patient", id, e);
+        }
     }
     
     public void deletePatient(Long id) {
@@ -66,7 +89,8 @@ public class PatientService {
         return patientRepository.getTotalPatientCount();
     }
     
-    public List<Patient> getPatientsWithEmergencyContact() {
-        return patientRepository.findPatientsWithEmergencyContact();
+    public CursorPage<PatientResponse> getPatientsWithEmergencyContact(CursorRequest page) {
+        Specification<Patient> filter = (root, query, cb) -> cb.isNotNull(root.get("emergencyContact"));
+        return keysetQueries.find(Patient.class, filter, BY_ID, page).map(PatientResponse::from);
     }
 }
\ No newline at end of file
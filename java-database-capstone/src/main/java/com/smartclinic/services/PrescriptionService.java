@@ -1,74 +1,115 @@
 package com.smartclinic.services;
 
+import com.smartclinic.dtos.CursorPage;
+import com.smartclinic.dtos.CursorRequest;
+import com.smartclinic.exceptions.StaleVersionException;
 import com.smartclinic.models.mongo.Prescription;
+import com.smartclinic.repositories.KeysetSort;
+import com.smartclinic.repositories.RowCallback;
+import com.smartclinic.repositories.mongo.MongoKeysetQueries;
 import com.smartclinic.repositories.mongo.PrescriptionRepository;
+import com.smartclinic.services.search.DiagnosisQuery;
+import com.smartclinic.services.search.DiagnosisTerms;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
 import java.time.LocalDateTime;
-import java.util.List;
 import java.util.Optional;
 
 @Service
 public class PrescriptionService {
     
+    private static final KeysetSort<Prescription> BY_ID = KeysetSort.byId(Prescription::getId);
+    private static final KeysetSort<Prescription> BY_DATE =
+            KeysetSort.ascending("prescriptionDate", Prescription::getPrescriptionDate, Prescription::getId);
+    private static final KeysetSort<Prescription> LATEST_FIRST =
+            KeysetSort.descending("prescriptionDate", Prescription::getPrescriptionDate, Prescription::getId);
+    
     @Autowired
     private PrescriptionRepository prescriptionRepository;
     
-    public List<Prescription> getAllPrescriptions() {
-        return prescriptionRepository.findAll();
+    @Autowired
+    private MongoKeysetQueries keysetQueries;
+    
+    @Autowired
+    private MongoTemplate mongoTemplate;
+    
+    public CursorPage<Prescription> getAllPrescriptions(CursorRequest page) {
+        return keysetQueries.find(Prescription.class, null, BY_ID, page);
+    }
+    
+    public void streamAllPrescriptions(RowCallback<? super Prescription> callback) throws IOException {
+        keysetQueries.stream(Prescription.class, null, BY_ID, callback);
     }
     
     public Optional<Prescription> getPrescriptionById(String id) {
         return prescriptionRepository.findById(id);
     }
     
-    public List<Prescription> getPrescriptionsByPatientId(Long patientId) {
-        return prescriptionRepository.findByPatientId(patientId);
+    public CursorPage<Prescription> getPrescriptionsByPatientId(Long patientId, CursorRequest page) {
+        return keysetQueries.find(Prescription.class, Criteria.where("patient_id").is(patientId), BY_ID, page);
+    }
+    
+    // Oldest prescription first
+    public CursorPage<Prescription> getPatientPrescriptionsByDate(Long patientId, CursorRequest page) {
+        return keysetQueries.find(Prescription.class, Criteria.where("patient_id").is(patientId), BY_DATE, page);
     }
     
-    public List<Prescription> getPrescriptionsByDoctorId(Long doctorId) {
-        return prescriptionRepository.findByDoctorId(doctorId);
+    public CursorPage<Prescription> getPrescriptionsByDoctorId(Long doctorId, CursorRequest page) {
+        return keysetQueries.find(Prescription.class, Criteria.where("doctor_id").is(doctorId), BY_ID, page);
     }
     
-    public List<Prescription> getPrescriptionsByAppointmentId(Long appointmentId) {
-        return prescriptionRepository.findByAppointmentId(appointmentId);
+    public CursorPage<Prescription> getPrescriptionsByAppointmentId(Long appointmentId, CursorRequest page) {
+        return keysetQueries.find(Prescription.class, Criteria.where("appointment_id").is(appointmentId), BY_ID, page);
     }
     
-    public List<Prescription> getActivePrescriptions() {
-        return prescriptionRepository.findByIsActive(true);
+    public CursorPage<Prescription> getActivePrescriptions(CursorRequest page) {
+        return keysetQueries.find(Prescription.class, Criteria.where("is_active").is(true), BY_ID, page);
     }
     
-    public List<Prescription> getPatientPrescriptionsInDateRange(Long patientId, LocalDateTime startDate, LocalDateTime endDate) {
-        return prescriptionRepository.findPatientPrescriptionsInDateRange(patientId, startDate, endDate);
+    public CursorPage<Prescription> getPatientPrescriptionsInDateRange(Long patientId, LocalDateTime startDate, LocalDateTime endDate,
+                                                                       CursorRequest page) {
+        Criteria filter = Criteria.where("patient_id").is(patientId)
+                .and("prescription_date").gte(startDate).lte(endDate);
+        return keysetQueries.find(Prescription.class, filter, BY_DATE, page);
     }
     
-    public List<Prescription> getDoctorPrescriptionsByDiagnosis(Long doctorId, String diagnosis) {
-        return prescriptionRepository.findByDoctorIdAndDiagnosisContaining(doctorId, diagnosis);
+    public CursorPage<Prescription> getDoctorPrescriptionsByDiagnosis(Long doctorId, String diagnosis, CursorRequest page) {
+        Criteria filter = DiagnosisQuery.parse(diagnosis).criteria(Criteria.where("doctor_id").is(doctorId));
+        return keysetQueries.find(Prescription.class, filter, BY_ID, page);
     }
     
-    public List<Prescription> getLatestPrescriptionsByPatientId(Long patientId) {
-        return prescriptionRepository.findLatestPrescriptionsByPatientId(patientId);
+    public CursorPage<Prescription> getLatestPrescriptionsByPatientId(Long patientId, CursorRequest page) {
+        return keysetQueries.find(Prescription.class, Criteria.where("patient_id").is(patientId), LATEST_FIRST, page);
     }
     
     public Prescription createPrescription(Prescription prescription) {
         // Set timestamps
         prescription.setPrescriptionDate(LocalDateTime.now());
         prescription.setCreatedAt(LocalDateTime.now());
+        // A version from the client would make save() attempt a versioned update instead of an insert
+        prescription.setVersion(null);
         
         return prescriptionRepository.save(prescription);
     }
     
-    public Prescription updatePrescription(String id, Prescription prescriptionDetails) {
-        Prescription prescription = prescriptionRepository.findById(id)
-            .orElseThrow(() -> new RuntimeException("Prescription not found with id: " + id));
-        
-        prescription.setDiagnosis(prescriptionDetails.getDiagnosis());
-        prescription.setMedications(prescriptionDetails.getMedications());
-        prescription.setInstructions(prescriptionDetails.getInstructions());
-        prescription.setIsActive(prescriptionDetails.getIsActive());
-        
-        return prescriptionRepository.save(prescription);
+    /**
+     * Updates the prescription in a single findAndModify that only matches while the document is
+     * still at the expected version (the version read here when the client gave none).
+     */
+    public Prescription updatePrescription(String id, Prescription prescriptionDetails, Long expectedVersion) {
+        Update update = DiagnosisTerms.set(new Update(), prescriptionDetails.getDiagnosis())
+                .set("diagnosis", prescriptionDetails.getDiagnosis())
+                .set("medications", prescriptionDetails.getMedications())
+                .set("instructions", prescriptionDetails.getInstructions())
+                .set("is_active", prescriptionDetails.getIsActive());
+        return updateVersioned(id, expectedVersion, update);
     }
     
     public void deletePrescription(String id) {
@@ -78,10 +119,35 @@ public class PrescriptionService {
     }
     
     public void deactivatePrescription(String id) {
-        Prescription prescription = prescriptionRepository.findById(id)
+        updateVersioned(id, null, new Update().set("is_active", false));
+    }
+    
+    private Prescription updateVersioned(String id, Long expectedVersion, Update update) {
+        long version = expectedVersion != null ? expectedVersion : versionOf(prescriptionRepository.findById(id)
+            .orElseThrow(() -> new RuntimeException("Prescription not found with id: " + id)));
+        Prescription updated = mongoTemplate.findAndModify(
+                Query.query(Criteria.where("_id").is(id).andOperator(atVersion(version))),
+                update.inc("version", 1),
+                FindAndModifyOptions.options().returnNew(true),
+                Prescription.class);
+        if (updated != null) {
+            return updated;
+        }
+        Prescription current = prescriptionRepository.findById(id)
             .orElseThrow(() -> new RuntimeException("Prescription not found with id: " + id));
-        prescription.setIsActive(false);
-        prescriptionRepository.save(prescription);
+        throw new StaleVersionException("Prescription " + id + " is at version " + versionOf(current)
+                + ", not " + version, versionOf(current));
+    }
+    
+    private static Criteria atVersion(long version) {
+        if (version == 0) {
+            return new Criteria().orOperator(Criteria.where("version").is(0L), Criteria.where("version").exists(false));
+        }
+        return Criteria.where("version").is(version);
+    }
+    
+    private static long versionOf(Prescription prescription) {
+        return prescription.getVersion() != null ? prescription.getVersion() : 0;
     }
     
     public Long getPrescriptionCountByPatient(Long patientId) {
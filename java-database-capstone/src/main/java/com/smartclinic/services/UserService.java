@@ -1,13 +1,29 @@
 package com.smartclinic.services;
 
 import java.util.Optional;
+import com.smartclinic.config.TokenRevocationRegistry;
+import com.smartclinic.dtos.CursorPage;
+import com.smartclinic.dtos.CursorRequest;
+import com.smartclinic.exceptions.BusinessException;
+import com.smartclinic.exceptions.ConflictException;
 import com.smartclinic.models.mysql.User;
 import com.smartclinic.models.mysql.Role;
+import com.smartclinic.repositories.KeysetSort;
+import com.smartclinic.repositories.mysql.KeysetQueries;
 import com.smartclinic.repositories.mysql.UserRepository;
+import org.hibernate.exception.ConstraintViolationException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.PostConstruct;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
 import java.util.Optional;
 
 @Service
@@ -16,10 +32,56 @@ public class UserService {
     @Autowired
     private UserRepository userRepository;
     
+    @Autowired
+    private TokenRevocationRegistry tokenRevocationRegistry;
+    
+    @Autowired
+    private CustomUserDetailsService userDetailsService;
+    
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+    
+    @Autowired
+    private KeysetQueries keysetQueries;
+    
+    // Sortable user attributes; all non-null, as keyset pagination requires
+    private static final Map<String, Function<User, ?>> SORT_KEYS = new HashMap<>();
+    
+    static {
+        SORT_KEYS.put("id", User::getId);
+        SORT_KEYS.put("username", User::getUsername);
+        SORT_KEYS.put("email", User::getEmail);
+        SORT_KEYS.put("firstName", User::getFirstName);
+        SORT_KEYS.put("lastName", User::getLastName);
+    }
+    
+    // Unknown usernames are checked against this, so they cost the same BCrypt time as real ones
+    private String dummyPasswordHash;
+    
+    @PostConstruct
+    void initDummyPasswordHash() {
+        dummyPasswordHash = passwordEncoder.encode("dummy-password-for-unknown-users");
+    }
+    
     public List<User> getAllUsers() {
         return userRepository.findAll();
     }
     
+    public Page<User> getAllUsers(Pageable pageable) {
+        return userRepository.findAll(pageable);
+    }
+    
+    public CursorPage<User> getUsers(String sortBy, boolean descending, CursorRequest page) {
+        Function<User, ?> keyOf = SORT_KEYS.get(sortBy);
+        if (keyOf == null) {
+            throw new BusinessException("Users cannot be sorted by " + sortBy);
+        }
+        KeysetSort<User> sort = sortBy.equals(KeysetSort.ID) ? KeysetSort.byId(User::getId)
+                : descending ? KeysetSort.descending(sortBy, keyOf, User::getId)
+                : KeysetSort.ascending(sortBy, keyOf, User::getId);
+        return keysetQueries.find(User.class, null, sort, page);
+    }
+    
     public Optional<User> getUserById(Long id) {
         return userRepository.findById(id);
     }
@@ -40,15 +102,66 @@ public class UserService {
         return userRepository.findByNameContaining(name);
     }
     
+    /**
+     * Checks the credentials with a single lookup and returns the user row for building the
+     * login response. Hashes from an older BCrypt strength are upgraded in place.
+     */
+    public Optional<User> authenticate(String username, String rawPassword) {
+        Optional<User> user = username != null ? userRepository.findByUsername(username) : Optional.empty();
+        String storedHash = user.map(User::getPassword).orElse(dummyPasswordHash);
+        
+        if (rawPassword == null || !passwordEncoder.matches(rawPassword, storedHash) || user.isEmpty()) {
+            return Optional.empty();
+        }
+        
+        if (passwordEncoder.upgradeEncoding(storedHash)) {
+            String upgradedHash = passwordEncoder.encode(rawPassword);
+            userRepository.updatePassword(username, upgradedHash);
+            user.get().setPassword(upgradedHash);
+            userDetailsService.evict(username);
+        }
+        return user;
+    }
+    
+    // Uniqueness is enforced by the uk_users_username / uk_users_email constraints, not by pre-checks
     public User createUser(User user) {
-        // Basic validation
-        if (userRepository.existsByUsername(user.getUsername())) {
-            throw new RuntimeException("Username already exists: " + user.getUsername());
+        User savedUser;
+        try {
+            savedUser = userRepository.saveAndFlush(user);
+        } catch (DataIntegrityViolationException e) {
+            throw new ConflictException(duplicateMessage(user, e), e);
+        }
+        userDetailsService.evict(savedUser.getUsername());
+        return savedUser;
+    }
+    
+    private static String duplicateMessage(User user, DataIntegrityViolationException e) {
+        String key = violatedKey(e);
+        if (User.EMAIL_CONSTRAINT.equals(key) || "email".equals(key)) {
+            return "Email already exists: " + user.getEmail();
+        }
+        if (User.USERNAME_CONSTRAINT.equals(key) || "username".equals(key)) {
+            return "Username already exists: " + user.getUsername();
+        }
+        return "User already exists";
+    }
+    
+    // The violated key's name without its table prefix; never the duplicate value, which is user input
+    private static String violatedKey(DataIntegrityViolationException e) {
+        String name = null;
+        if (e.getCause() instanceof ConstraintViolationException) {
+            name = ((ConstraintViolationException) e.getCause()).getConstraintName();
         }
-        if (userRepository.existsByEmail(user.getEmail())) {
-            throw new RuntimeException("Email already exists: " + user.getEmail());
+        if (name == null) {
+            // MySQL: Duplicate entry '<value>' for key '<table>.<key>'; the key always comes last
+            String detail = e.getMostSpecificCause().getMessage();
+            int start = detail != null ? detail.lastIndexOf("for key '") : -1;
+            if (start < 0 || !detail.endsWith("'")) {
+                return "";
+            }
+            name = detail.substring(start + "for key '".length(), detail.length() - 1);
         }
-        return userRepository.save(user);
+        return name.substring(name.lastIndexOf('.') + 1).toLowerCase();
     }
     
     public User updateUser(Long id, User userDetails) {
@@ -60,13 +173,17 @@ public class UserService {
         user.setPhone(userDetails.getPhone());
         user.setEmail(userDetails.getEmail());
         
-        return userRepository.save(user);
+        User savedUser = userRepository.save(user);
+        userDetailsService.evict(savedUser.getUsername());
+        return savedUser;
     }
     
     public void deleteUser(Long id) {
         User user = userRepository.findById(id)
             .orElseThrow(() -> new RuntimeException("User not found with id: " + id));
         userRepository.delete(user);
+        userDetailsService.evict(user.getUsername());
+        tokenRevocationRegistry.revokeAllFor(user.getUsername());
     }
     
     public boolean userExists(Long id) {
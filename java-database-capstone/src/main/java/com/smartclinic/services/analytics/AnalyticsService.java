@@ -0,0 +1,212 @@
+package com.smartclinic.services.analytics;
+
+import com.smartclinic.dtos.DoctorMonthlyPrescriptions;
+import com.smartclinic.dtos.FollowUpRate;
+import com.smartclinic.dtos.MedicationUsage;
+import com.smartclinic.dtos.SpecializationDiagnoses;
+import com.smartclinic.dtos.SpecializationDiagnoses.DiagnosisCount;
+import com.smartclinic.exceptions.BusinessException;
+import com.smartclinic.models.mongo.MedicalRecord;
+import com.smartclinic.models.mongo.Prescription;
+import com.smartclinic.repositories.mysql.DoctorRepository;
+import com.smartclinic.repositories.mysql.DoctorRepository.SpecializationView;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.ConditionalOperators;
+import org.springframework.data.mongodb.core.aggregation.DateOperators;
+import org.springframework.data.mongodb.core.aggregation.StringOperators;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Prescription and medical record statistics computed by aggregation pipelines, so only the
+ * aggregates leave the database. Every pipeline starts with a {@code $match} on the date range
+ * (and doctor, when given), served by the date-leading indexes of the collections.
+ *
+ * The range is [from, to); either end defaults to {@code app.analytics.default-months} from the
+ * other, or from now, and a range may span at most {@code app.analytics.max-months}. Months are
+ * counted in the server's time zone, the zone the dates were written in.
+ */
+@Service
+public class AnalyticsService {
+    
+    @Autowired
+    private MongoTemplate mongoTemplate;
+    
+    @Autowired
+    private DoctorRepository doctorRepository;
+    
+    @Value("${app.analytics.default-months:12}")
+    private int defaultMonths;
+    
+    @Value("${app.analytics.max-months:60}")
+    private int maxMonths;
+    
+    @Value("${app.analytics.max-results:100}")
+    private int maxResults;
+    
+    public List<DoctorMonthlyPrescriptions> getPrescriptionsPerDoctorPerMonth(LocalDateTime from, LocalDateTime to, Long doctorId) {
+        DateOperators.DateOperatorFactory date = DateOperators.dateOf("prescription_date")
+                .withTimezone(DateOperators.Timezone.valueOf(ZoneId.systemDefault().getId()));
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.match(inRange("prescription_date", from, to, doctorId)),
+                Aggregation.project("doctor_id", "doctor_name")
+                        .and(date.year()).as("year")
+                        .and(date.month()).as("month"),
+                Aggregation.group("doctor_id", "year", "month")
+                        .first("doctor_name").as("doctorName")
+                        .count().as("prescriptions"),
+                Aggregation.sort(Sort.by("year", "month", "doctor_id")));
+        
+        List<DoctorMonthlyPrescriptions> counts = new ArrayList<>();
+        for (Document row : aggregate(aggregation, Prescription.class)) {
+            Document key = row.get("_id", Document.class);
+            counts.add(new DoctorMonthlyPrescriptions(toLong(key.get("doctor_id")), row.getString("doctorName"),
+                    key.getInteger("year"), key.getInteger("month"), toLong(row.get("prescriptions"))));
+        }
+        return counts;
+    }
+    
+    // Names are compared trimmed and case-insensitively; the first spelling seen is reported
+    public List<MedicationUsage> getTopMedications(LocalDateTime from, LocalDateTime to, Integer limit) {
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.match(inRange("prescription_date", from, to, null)),
+                Aggregation.unwind("medications"),
+                Aggregation.match(Criteria.where("medications.name").exists(true).ne("")),
+                Aggregation.project()
+                        .and(StringOperators.valueOf(StringOperators.valueOf("medications.name").trim()).toLower()).as("key")
+                        .and("medications.name").as("name"),
+                Aggregation.group("key")
+                        .first("name").as("name")
+                        .count().as("prescriptions"),
+                Aggregation.sort(Sort.by(Sort.Direction.DESC, "prescriptions").and(Sort.by("_id"))),
+                Aggregation.limit(resultLimit(limit)));
+        
+        List<MedicationUsage> usage = new ArrayList<>();
+        for (Document row : aggregate(aggregation, Prescription.class)) {
+            usage.add(new MedicationUsage(row.getString("name"), toLong(row.get("prescriptions"))));
+        }
+        return usage;
+    }
+    
+    public List<FollowUpRate> getFollowUpRates(LocalDateTime from, LocalDateTime to, Long doctorId) {
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.match(inRange("visit_date", from, to, doctorId)),
+                Aggregation.group("doctor_id")
+                        .first("doctor_name").as("doctorName")
+                        .count().as("records")
+                        .sum(ConditionalOperators.when(Criteria.where("follow_up_required").is(true)).then(1).otherwise(0))
+                        .as("followUps"),
+                Aggregation.sort(Sort.by("_id")));
+        
+        List<FollowUpRate> rates = new ArrayList<>();
+        for (Document row : aggregate(aggregation, MedicalRecord.class)) {
+            rates.add(new FollowUpRate(toLong(row.get("_id")), row.getString("doctorName"),
+                    toLong(row.get("records")), toLong(row.get("followUps"))));
+        }
+        return rates;
+    }
+    
+    /**
+     * Most frequent diagnoses of medical records per specialization of the treating doctor.
+     * Specializations live in MySQL, so the pipeline counts records per doctor and normalized
+     * diagnosis, and those counts are rolled up by specialization here. Records of doctors no
+     * longer in the doctors table are left out.
+     */
+    public List<SpecializationDiagnoses> getDiagnosesPerSpecialization(LocalDateTime from, LocalDateTime to, Integer limit) {
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.match(inRange("visit_date", from, to, null).and("diagnosis_terms").exists(true).ne("")),
+                Aggregation.group("doctor_id", "diagnosis_terms")
+                        .first("diagnosis").as("diagnosis")
+                        .count().as("records"));
+        List<Document> rows = aggregate(aggregation, MedicalRecord.class);
+        
+        Set<Long> doctorIds = new HashSet<>();
+        for (Document row : rows) {
+            Long doctorId = toLong(row.get("_id", Document.class).get("doctor_id"));
+            if (doctorId != null) {
+                doctorIds.add(doctorId);
+            }
+        }
+        Map<Long, String> specializations = new HashMap<>();
+        if (!doctorIds.isEmpty()) {
+            for (SpecializationView doctor : doctorRepository.findSpecializationsByIdIn(doctorIds)) {
+                specializations.put(doctor.getId(), doctor.getSpecialization());
+            }
+        }
+        
+        // specialization -> normalized diagnosis -> (first spelling, records)
+        Map<String, Map<String, DiagnosisCount>> bySpecialization = new HashMap<>();
+        for (Document row : rows) {
+            Document key = row.get("_id", Document.class);
+            String specialization = specializations.get(toLong(key.get("doctor_id")));
+            if (specialization == null) {
+                continue;
+            }
+            bySpecialization.computeIfAbsent(specialization, s -> new LinkedHashMap<>())
+                    .merge(key.getString("diagnosis_terms"),
+                            new DiagnosisCount(row.getString("diagnosis"), toLong(row.get("records"))),
+                            (a, b) -> new DiagnosisCount(a.getDiagnosis(), a.getRecords() + b.getRecords()));
+        }
+        
+        int top = resultLimit(limit);
+        List<SpecializationDiagnoses> result = new ArrayList<>();
+        for (Map.Entry<String, Map<String, DiagnosisCount>> entry : bySpecialization.entrySet()) {
+            List<DiagnosisCount> diagnoses = new ArrayList<>(entry.getValue().values());
+            long records = diagnoses.stream().mapToLong(DiagnosisCount::getRecords).sum();
+            diagnoses.sort(Comparator.comparingLong(DiagnosisCount::getRecords).reversed()
+                    .thenComparing(DiagnosisCount::getDiagnosis));
+            result.add(new SpecializationDiagnoses(entry.getKey(), records,
+                    new ArrayList<>(diagnoses.subList(0, Math.min(top, diagnoses.size())))));
+        }
+        result.sort(Comparator.comparing(SpecializationDiagnoses::getSpecialization));
+        return result;
+    }
+    
+    private Criteria inRange(String dateField, LocalDateTime from, LocalDateTime to, Long doctorId) {
+        LocalDateTime end = to != null ? to : (from != null ? from.plusMonths(defaultMonths) : LocalDateTime.now());
+        LocalDateTime start = from != null ? from : end.minusMonths(defaultMonths);
+        if (!start.isBefore(end)) {
+            throw new BusinessException("The range must end after it starts");
+        }
+        if (start.plusMonths(maxMonths).isBefore(end)) {
+            throw new BusinessException("The range may span at most " + maxMonths + " months");
+        }
+        // Written the way Spring converts LocalDateTime, which untyped pipelines do not do for us
+        Criteria criteria = Criteria.where(dateField).gte(toDate(start)).lt(toDate(end));
+        return doctorId != null ? criteria.and("doctor_id").is(doctorId) : criteria;
+    }
+    
+    private List<Document> aggregate(Aggregation aggregation, Class<?> collectionType) {
+        return mongoTemplate.aggregate(aggregation, mongoTemplate.getCollectionName(collectionType), Document.class)
+                .getMappedResults();
+    }
+    
+    private int resultLimit(Integer limit) {
+        return limit == null || limit <= 0 ? maxResults : Math.min(limit, maxResults);
+    }
+    
+    private static Date toDate(LocalDateTime dateTime) {
+        return Date.from(dateTime.atZone(ZoneId.systemDefault()).toInstant());
+    }
+    
+    private static Long toLong(Object value) {
+        return value != null ? ((Number) value).longValue() : null;
+    }
+}
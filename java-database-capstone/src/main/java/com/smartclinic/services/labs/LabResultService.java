@@ -0,0 +1,129 @@
+package com.smartclinic.services.labs;
+
+import com.smartclinic.dtos.CursorPage;
+import com.smartclinic.dtos.CursorRequest;
+import com.smartclinic.dtos.LabTest;
+import com.smartclinic.exceptions.BusinessException;
+import com.smartclinic.models.mongo.MedicalRecord;
+import com.smartclinic.repositories.KeysetSort;
+import com.smartclinic.repositories.mongo.MongoBackfill;
+import com.smartclinic.repositories.mongo.MongoKeysetQueries;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Lab result lookups over the normalized fields written by {@link LabResultsListener}. A test is
+ * matched by catalog code, so every name it was recorded under is found, and value and abnormal
+ * filters are range and equality matches served by the multikey indexes on the lab results.
+ */
+@Service
+public class LabResultService {
+    
+    private static final Logger logger = LoggerFactory.getLogger(LabResultService.class);
+    
+    private static final KeysetSort<MedicalRecord> BY_VISIT_DATE =
+            KeysetSort.ascending("visitDate", MedicalRecord::getVisitDate, MedicalRecord::getId);
+    
+    @Autowired
+    private LabTestCatalog catalog;
+    
+    @Autowired
+    private MongoKeysetQueries keysetQueries;
+    
+    @Autowired
+    private MongoBackfill mongoBackfill;
+    
+    @Autowired
+    private MongoTemplate mongoTemplate;
+    
+    @Value("${app.lab-tests.backfill-on-startup:true}")
+    private boolean backfillOnStartup;
+    
+    @Value("${app.lab-tests.backfill-batch-size:500}")
+    private int backfillBatchSize;
+    
+    public List<LabTest> getCatalog() {
+        return catalog.getTests();
+    }
+    
+    /**
+     * Medical records with a result of the given test (code, name or synonym) visited in
+     * [from, to), optionally only abnormal or normal ones and only values within [minValue, maxValue].
+     * All conditions on the result apply to the same result.
+     */
+    public CursorPage<MedicalRecord> findRecordsWithResult(String test, LocalDateTime from, LocalDateTime to, Boolean abnormal,
+                                                           Double minValue, Double maxValue, CursorRequest page) {
+        LabTest labTest = catalog.resolve(test)
+                .orElseThrow(() -> new BusinessException("Unknown lab test: " + test));
+        Criteria result = Criteria.where("testCode").is(labTest.getCode());
+        if (abnormal != null) {
+            result.and("abnormal").is(abnormal);
+        }
+        if (minValue != null || maxValue != null) {
+            Criteria value = result.and("numericValue");
+            if (minValue != null) {
+                value.gte(minValue);
+            }
+            if (maxValue != null) {
+                value.lte(maxValue);
+            }
+        }
+        Criteria filter = Criteria.where("lab_results").elemMatch(result);
+        if (from != null || to != null) {
+            Criteria visitDate = filter.and("visit_date");
+            if (from != null) {
+                visitDate.gte(from);
+            }
+            if (to != null) {
+                visitDate.lt(to);
+            }
+        }
+        return keysetQueries.find(MedicalRecord.class, filter, BY_VISIT_DATE, page);
+    }
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillOnStartup() {
+        if (!backfillOnStartup) {
+            return;
+        }
+        MongoBackfill.runOnStartup("Lab result", this::backfill);
+    }
+    
+    /**
+     * Normalizes the lab results of every record written before the current catalog version, in
+     * unordered bulk updates of {@code backfill-batch-size}. An update only applies while the
+     * record is still at the catalog version it was read with; a record saved in between was
+     * normalized by that save. A record that cannot be read or normalized is logged and keeps its
+     * old version, so the next start tries it again.
+     */
+    public long backfill() {
+        int current = catalog.getVersion();
+        Criteria stale = new Criteria().orOperator(
+                Criteria.where("lab_catalog_version").exists(false),
+                Criteria.where("lab_catalog_version").lt(current));
+        long updated = mongoBackfill.run(MedicalRecord.class, stale, backfillBatchSize, "normalize the lab results", document -> {
+            MedicalRecord record = mongoTemplate.getConverter().read(MedicalRecord.class, document);
+            Criteria readVersion = record.getLabCatalogVersion() != null
+                    ? Criteria.where("lab_catalog_version").is(record.getLabCatalogVersion())
+                    : Criteria.where("lab_catalog_version").exists(false);
+            catalog.normalize(record);
+            return MongoBackfill.Write.of(new Update().set("lab_results", record.getLabResults()).set("lab_catalog_version", current))
+                    .onlyIf(readVersion);
+        });
+        if (updated > 0) {
+            logger.info("Normalized the lab results of {} medical records against catalog version {}", updated, current);
+        }
+        return updated;
+    }
+}
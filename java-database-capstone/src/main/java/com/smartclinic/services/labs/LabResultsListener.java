@@ -0,0 +1,22 @@
+package com.smartclinic.services.labs;
+
+import com.smartclinic.models.mongo.MedicalRecord;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.mapping.event.AbstractMongoEventListener;
+import org.springframework.data.mongodb.core.mapping.event.BeforeConvertEvent;
+import org.springframework.stereotype.Component;
+
+/**
+ * Normalizes the lab results of a medical record against the catalog on every save and insert.
+ */
+@Component
+public class LabResultsListener extends AbstractMongoEventListener<MedicalRecord> {
+    
+    @Autowired
+    private LabTestCatalog catalog;
+    
+    @Override
+    public void onBeforeConvert(BeforeConvertEvent<MedicalRecord> event) {
+        catalog.normalize(event.getSource());
+    }
+}
@@ -0,0 +1,143 @@
+package com.smartclinic.services.labs;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.smartclinic.dtos.LabTest;
+import com.smartclinic.models.mongo.LabResult;
+import com.smartclinic.models.mongo.MedicalRecord;
+import com.smartclinic.services.search.DiagnosisTerms;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Catalog of lab tests ({@code app.lab-tests.catalog}), used to normalize lab results when a
+ * medical record is written.
+ *
+ * A test is recognized by its code, its name or any synonym, compared the way diagnoses are
+ * ({@link DiagnosisTerms#normalize}: case, accents and punctuation do not matter). The result and
+ * the normal range, free text as entered, are parsed into numbers where they are numeric:
+ * "7,2", "98 mg/dL", "70-100", "&lt;6.5", "&gt;= 40". A result without a parseable range is checked
+ * against the catalog's reference range instead. Range bounds count as normal.
+ *
+ * The catalog carries a version; bumping it after changing names or ranges makes
+ * {@link LabResultService} normalize the stored records again.
+ */
+@Component
+public class LabTestCatalog {
+    
+    private static final String NUMBER = "(\\d+(?:[.,]\\d+)?)";
+    
+    // A number, optionally followed by a unit
+    private static final Pattern RESULT = Pattern.compile("^\\s*([-+]?\\d+(?:[.,]\\d+)?)\\s*(?:[^\\d\\s.,].*)?$");
+    private static final Pattern BETWEEN = Pattern.compile("^\\s*" + NUMBER + "\\s*[-\\u2013]\\s*" + NUMBER + "\\b.*$");
+    private static final Pattern AT_MOST = Pattern.compile("^\\s*(?:<=?|\\u2264)\\s*" + NUMBER + "\\b.*$");
+    private static final Pattern AT_LEAST = Pattern.compile("^\\s*(?:>=?|\\u2265)\\s*" + NUMBER + "\\b.*$");
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    @Value("${app.lab-tests.catalog:classpath:lab-tests/catalog.json}")
+    private Resource catalog;
+    
+    private int version;
+    
+    private List<LabTest> tests;
+    
+    private Map<String, LabTest> byName;
+    
+    @PostConstruct
+    void load() throws IOException {
+        JsonNode root;
+        try (InputStream input = catalog.getInputStream()) {
+            root = objectMapper.readTree(input);
+        }
+        List<LabTest> loaded = new ArrayList<>();
+        Map<String, LabTest> names = new HashMap<>();
+        for (JsonNode node : root.path("tests")) {
+            LabTest test = objectMapper.treeToValue(node, LabTest.class);
+            if (test.getCode() == null || test.getName() == null) {
+                throw new IllegalStateException("Lab test catalog entry without code or name: " + node);
+            }
+            loaded.add(test);
+            List<String> keys = new ArrayList<>(test.getSynonyms());
+            keys.add(test.getCode());
+            keys.add(test.getName());
+            for (String key : keys) {
+                LabTest existing = names.put(DiagnosisTerms.normalize(key), test);
+                if (existing != null && existing != test) {
+                    throw new IllegalStateException("Lab test name '" + key + "' is used by both "
+                            + existing.getCode() + " and " + test.getCode());
+                }
+            }
+        }
+        version = root.path("version").asInt(1);
+        tests = Collections.unmodifiableList(loaded);
+        byName = names;
+    }
+    
+    public Optional<LabTest> resolve(String codeOrName) {
+        return Optional.ofNullable(byName.get(DiagnosisTerms.normalize(codeOrName)));
+    }
+    
+    public List<LabTest> getTests() { return tests; }
+    
+    public int getVersion() { return version; }
+    
+    public void normalize(MedicalRecord record) {
+        if (record.getLabResults() != null) {
+            for (LabResult result : record.getLabResults()) {
+                normalize(result);
+            }
+        }
+        record.setLabCatalogVersion(version);
+    }
+    
+    void normalize(LabResult result) {
+        LabTest test = resolve(result.getTestName()).orElse(null);
+        result.setTestCode(test != null ? test.getCode() : null);
+        
+        Double value = parse(RESULT, result.getResult(), 1);
+        Double low = null;
+        Double high = null;
+        String range = result.getNormalRange();
+        if (range != null && BETWEEN.matcher(range).matches()) {
+            low = parse(BETWEEN, range, 1);
+            high = parse(BETWEEN, range, 2);
+        } else if (range != null && AT_MOST.matcher(range).matches()) {
+            high = parse(AT_MOST, range, 1);
+        } else if (range != null && AT_LEAST.matcher(range).matches()) {
+            low = parse(AT_LEAST, range, 1);
+        } else if (test != null) {
+            low = test.getReferenceLow();
+            high = test.getReferenceHigh();
+        }
+        result.setNumericValue(value);
+        result.setRangeLow(low);
+        result.setRangeHigh(high);
+        result.setAbnormal(value == null || (low == null && high == null)
+                ? null
+                : (low != null && value < low) || (high != null && value > high));
+    }
+    
+    private static Double parse(Pattern pattern, String text, int group) {
+        if (text == null) {
+            return null;
+        }
+        Matcher matcher = pattern.matcher(text);
+        return matcher.matches() ? Double.valueOf(matcher.group(group).replace(',', '.')) : null;
+    }
+}
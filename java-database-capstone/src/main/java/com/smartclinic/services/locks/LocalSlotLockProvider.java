@@ -0,0 +1,41 @@
+package com.smartclinic.services.locks;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Single-instance deployments: AppointmentSlotIndex already serializes bookings inside the JVM,
+ * so no further locking is needed.
+ */
+@Component
+@ConditionalOnProperty(name = "app.appointments.slot-lock.provider", havingValue = "local", matchIfMissing = true)
+public class LocalSlotLockProvider implements SlotLockProvider {
+    
+    private static final SlotLock NO_LOCK = new SlotLock() {
+        @Override
+        public boolean isContended() {
+            return false;
+        }
+        
+        @Override
+        public void close() {
+        }
+    };
+    
+    @Override
+    public SlotLock tryAcquire(List<String> keys, long timeoutMillis) {
+        return NO_LOCK;
+    }
+    
+    @Override
+    public String getName() {
+        return "local";
+    }
+    
+    @Override
+    public boolean isDistributed() {
+        return false;
+    }
+}
@@ -0,0 +1,163 @@
+package com.smartclinic.services.locks;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Slot locks as MySQL user locks ({@code GET_LOCK}). User locks belong to the session, so the
+ * connection that took them is held until the locks are released. Those connections come from a
+ * small pool of their own: a booking holds one while its write borrows another from the main
+ * pool, and drawing both from the same pool would let concurrent bookings exhaust it and wait on
+ * each other forever.
+ */
+@Component
+@ConditionalOnProperty(name = "app.appointments.slot-lock.provider", havingValue = "mysql")
+public class MySqlSlotLockProvider implements SlotLockProvider {
+    
+    private static final Logger logger = LoggerFactory.getLogger(MySqlSlotLockProvider.class);
+    
+    // MySQL limits user lock names to 64 characters
+    private static final String LOCK_PREFIX = "smartclinic:";
+    
+    @Autowired
+    private DataSourceProperties dataSourceProperties;
+    
+    // Bounds the bookings this instance can have in flight
+    @Value("${app.appointments.slot-lock.mysql-pool-size:10}")
+    private int poolSize;
+    
+    @Value("${app.appointments.slot-lock.timeout-ms:3000}")
+    private long timeoutMillis;
+    
+    private HikariDataSource dataSource;
+    
+    @PostConstruct
+    void start() {
+        dataSource = dataSourceProperties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("slot-lock");
+        dataSource.setMaximumPoolSize(poolSize);
+        dataSource.setMinimumIdle(1);
+        // Waiting for a free lock connection counts against the lock timeout, Hikari's floor is 250ms
+        dataSource.setConnectionTimeout(Math.max(250, timeoutMillis));
+    }
+    
+    @PreDestroy
+    void stop() {
+        dataSource.close();
+    }
+    
+    @Override
+    public SlotLock tryAcquire(List<String> keys, long timeoutMillis) {
+        long deadline = System.nanoTime() + timeoutMillis * 1_000_000L;
+        List<String> held = new ArrayList<>(keys.size());
+        boolean contended = false;
+        Connection connection;
+        
+        try {
+            connection = dataSource.getConnection();
+        } catch (SQLTransientConnectionException e) {
+            // Every lock connection is taken by a booking in flight: treat as contention
+            return null;
+        } catch (SQLException e) {
+            throw new DataAccessResourceFailureException("Could not acquire appointment slot lock", e);
+        }
+        
+        try {
+            for (String key : keys) {
+                String name = LOCK_PREFIX + key;
+                if (!getLock(connection, name, 0)) {
+                    contended = true;
+                    long remainingMillis = (deadline - System.nanoTime()) / 1_000_000L;
+                    // GET_LOCK waits in whole seconds
+                    if (remainingMillis <= 0 || !getLock(connection, name, (remainingMillis + 999) / 1000)) {
+                        release(connection, held);
+                        return null;
+                    }
+                }
+                held.add(name);
+            }
+            return new MySqlSlotLock(connection, held, contended);
+        } catch (SQLException e) {
+            release(connection, held);
+            throw new DataAccessResourceFailureException("Could not acquire appointment slot lock", e);
+        }
+    }
+    
+    @Override
+    public String getName() {
+        return "mysql";
+    }
+    
+    @Override
+    public boolean isDistributed() {
+        return true;
+    }
+    
+    private static boolean getLock(Connection connection, String name, long timeoutSeconds) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT GET_LOCK(?, ?)")) {
+            statement.setString(1, name);
+            statement.setLong(2, timeoutSeconds);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                // 1 = acquired, 0 = timed out, NULL = error
+                return resultSet.next() && resultSet.getInt(1) == 1;
+            }
+        }
+    }
+    
+    private static void release(Connection connection, List<String> held) {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT RELEASE_LOCK(?)")) {
+            for (int i = held.size() - 1; i >= 0; i--) {
+                statement.setString(1, held.get(i));
+                statement.executeQuery().close();
+            }
+        } catch (SQLException e) {
+            // Closing the session below frees any user locks it still holds
+            logger.warn("Failed to release appointment slot locks {}", held, e);
+        } finally {
+            try {
+                connection.close();
+            } catch (SQLException e) {
+                logger.warn("Failed to close slot lock connection", e);
+            }
+        }
+    }
+    
+    private static final class MySqlSlotLock implements SlotLock {
+        private final Connection connection;
+        private final List<String> held;
+        private final boolean contended;
+        
+        MySqlSlotLock(Connection connection, List<String> held, boolean contended) {
+            this.connection = connection;
+            this.held = held;
+            this.contended = contended;
+        }
+        
+        @Override
+        public boolean isContended() {
+            return contended;
+        }
+        
+        @Override
+        public void close() {
+            release(connection, held);
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.smartclinic.services.locks;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.data.redis.RedisAutoConfiguration;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.UUID;
+
+/**
+ * Slot locks in a Redis-compatible store: {@code SET key token NX PX lease} to acquire and a
+ * compare-and-delete script to release, so a lock whose lease ran out and was taken by another
+ * instance is never deleted by its former owner.
+ * <p>
+ * The store must run with {@code maxmemory-policy noeviction}: under any eviction policy a held
+ * lock can be dropped under memory pressure (the lease makes it a volatile key as well), and two
+ * instances could then book the same slot. Startup fails when the store reports another policy.
+ * <p>
+ * Redis auto-configuration is excluded in application.yml, so only deployments using this
+ * provider create a Redis connection (and its health check).
+ */
+@Component
+@ConditionalOnProperty(name = "app.appointments.slot-lock.provider", havingValue = "redis")
+@Import(RedisAutoConfiguration.class)
+public class RedisSlotLockProvider implements SlotLockProvider {
+    
+    private static final Logger logger = LoggerFactory.getLogger(RedisSlotLockProvider.class);
+    
+    private static final RedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) else return 0 end",
+            Long.class);
+    
+    private static final String KEY_PREFIX = "smartclinic:";
+    
+    private static final String EVICTION_POLICY = "maxmemory-policy";
+    
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+    
+    // Must comfortably exceed the time a booking holds its lock
+    @Value("${app.appointments.slot-lock.lease-ms:10000}")
+    private long leaseMillis;
+    
+    @PostConstruct
+    void checkEvictionPolicy() {
+        Properties config;
+        try {
+            config = redisTemplate.execute((RedisCallback<Properties>) connection ->
+                    connection.serverCommands().getConfig(EVICTION_POLICY));
+        } catch (RuntimeException e) {
+            // Managed services often disable CONFIG, so the policy cannot be checked from here
+            logger.warn("Could not read the Redis {}, slot locks require noeviction", EVICTION_POLICY, e);
+            return;
+        }
+        String policy = config != null ? config.getProperty(EVICTION_POLICY) : null;
+        if (policy != null && !"noeviction".equals(policy)) {
+            throw new IllegalStateException("Redis slot locks require " + EVICTION_POLICY + " noeviction, was " + policy);
+        }
+    }
+    
+    @Override
+    public SlotLock tryAcquire(List<String> keys, long timeoutMillis) {
+        long deadline = System.nanoTime() + timeoutMillis * 1_000_000L;
+        String token = UUID.randomUUID().toString();
+        List<String> held = new ArrayList<>(keys.size());
+        boolean contended = false;
+        
+        try {
+            for (String key : keys) {
+                String redisKey = KEY_PREFIX + key;
+                long backoffMillis = 5;
+                while (!Boolean.TRUE.equals(redisTemplate.opsForValue()
+                        .setIfAbsent(redisKey, token, Duration.ofMillis(leaseMillis)))) {
+                    contended = true;
+                    if (System.nanoTime() - deadline >= 0) {
+                        release(held, token);
+                        return null;
+                    }
+                    Thread.sleep(backoffMillis);
+                    backoffMillis = Math.min(backoffMillis * 2, 50);
+                }
+                held.add(redisKey);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            release(held, token);
+            return null;
+        } catch (RuntimeException e) {
+            release(held, token);
+            throw e;
+        }
+        return new RedisSlotLock(held, token, contended);
+    }
+    
+    @Override
+    public String getName() {
+        return "redis";
+    }
+    
+    @Override
+    public boolean isDistributed() {
+        return true;
+    }
+    
+    private void release(List<String> held, String token) {
+        for (int i = held.size() - 1; i >= 0; i--) {
+            try {
+                redisTemplate.execute(RELEASE_SCRIPT, Collections.singletonList(held.get(i)), token);
+            } catch (RuntimeException e) {
+                // The lease expires on its own
+                logger.warn("Failed to release appointment slot lock {}", held.get(i), e);
+            }
+        }
+    }
+    
+    private final class RedisSlotLock implements SlotLock {
+        private final List<String> held;
+        private final String token;
+        private final boolean contended;
+        
+        RedisSlotLock(List<String> held, String token, boolean contended) {
+            this.held = held;
+            this.token = token;
+            this.contended = contended;
+        }
+        
+        @Override
+        public boolean isContended() {
+            return contended;
+        }
+        
+        @Override
+        public void close() {
+            release(held, token);
+        }
+    }
+}
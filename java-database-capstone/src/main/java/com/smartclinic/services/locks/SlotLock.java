@@ -0,0 +1,13 @@
+package com.smartclinic.services.locks;
+
+/**
+ * A set of held slot locks. Closing releases all of them.
+ */
+public interface SlotLock extends AutoCloseable {
+    
+    // True if the first attempt found a key already held and had to wait
+    boolean isContended();
+    
+    @Override
+    void close();
+}
@@ -0,0 +1,22 @@
+package com.smartclinic.services.locks;
+
+import java.util.List;
+
+/**
+ * Mutual exclusion for appointment slot keys. Implementations are selected with
+ * {@code app.appointments.slot-lock.provider}.
+ */
+public interface SlotLockProvider {
+    
+    /**
+     * Acquires every key, in the given order, waiting at most {@code timeoutMillis} in total.
+     *
+     * @return the held locks, or {@code null} if they could not all be acquired in time
+     */
+    SlotLock tryAcquire(List<String> keys, long timeoutMillis);
+    
+    String getName();
+    
+    // Whether the lock is shared by all application instances rather than this JVM only
+    boolean isDistributed();
+}
@@ -0,0 +1,313 @@
+package com.smartclinic.services.reminders;
+
+import com.smartclinic.models.mysql.AppointmentStatus;
+import com.smartclinic.repositories.mysql.AppointmentRepository;
+import com.smartclinic.repositories.mysql.AppointmentRepository.ReminderView;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailParseException;
+import org.springframework.mail.MailPreparationException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StreamUtils;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Emails a reminder for every SCHEDULED or CONFIRMED appointment in the coming lookahead window,
+ * once a night. It selects what {@code GetUpcomingAppointments} selects, but pages through it
+ * with a keyset query so a night with 100k appointments never holds them all in memory.
+ *
+ * Each page is cut into batches that are sent on a dedicated pool, never on request threads.
+ * A batch goes out over a single SMTP connection ({@link JavaMailSender#send(SimpleMailMessage...)}
+ * reuses the transport for all its messages), so the pool size bounds the number of concurrent
+ * connections to the mail server. Messages the server refused are retried with backoff; every
+ * batch is claimed in the {@link ReminderLedger} before sending, so restarts and other instances
+ * never send a reminder twice.
+ */
+@Service
+public class AppointmentReminderDispatcher {
+    
+    private static final Logger logger = LoggerFactory.getLogger(AppointmentReminderDispatcher.class);
+    
+    private static final List<AppointmentStatus> REMINDED_STATUSES =
+            Arrays.asList(AppointmentStatus.SCHEDULED, AppointmentStatus.CONFIRMED);
+    
+    private static final String SUBJECT_PREFIX = "Subject:";
+    
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+    
+    @Autowired
+    private ReminderLedger ledger;
+    
+    // Only present when spring.mail.host is configured
+    @Autowired(required = false)
+    private JavaMailSender mailSender;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    @Value("${app.features.email-notifications:false}")
+    private boolean enabled;
+    
+    @Value("${app.reminders.lookahead-hours:24}")
+    private long lookaheadHours;
+    
+    @Value("${app.reminders.page-size:1000}")
+    private int pageSize;
+    
+    @Value("${app.reminders.batch-size:50}")
+    private int batchSize;
+    
+    @Value("${app.reminders.concurrency:4}")
+    private int concurrency;
+    
+    @Value("${app.reminders.retries:2}")
+    private int retries;
+    
+    @Value("${app.reminders.retry-backoff-ms:2000}")
+    private long retryBackoffMillis;
+    
+    @Value("${app.reminders.max-attempts:3}")
+    private int maxAttempts;
+    
+    @Value("${app.reminders.ledger-retention-days:30}")
+    private long ledgerRetentionDays;
+    
+    @Value("${app.reminders.from:no-reply@smartclinic.com}")
+    private String from;
+    
+    @Value("${app.reminders.template:classpath:reminders/appointment-reminder.txt}")
+    private Resource template;
+    
+    private ReminderTemplate subjectTemplate;
+    
+    private ReminderTemplate bodyTemplate;
+    
+    private ThreadPoolExecutor executor;
+    
+    private Counter sentCounter;
+    
+    private Counter failedCounter;
+    
+    @PostConstruct
+    void start() throws IOException {
+        compileTemplate(StreamUtils.copyToString(template.getInputStream(), StandardCharsets.UTF_8));
+        
+        AtomicInteger threadNumber = new AtomicInteger();
+        executor = new ThreadPoolExecutor(concurrency, concurrency, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "reminder-sender-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        
+        sentCounter = Counter.builder("smartclinic.reminders.sent")
+                .description("Appointment reminders accepted by the mail server")
+                .register(meterRegistry);
+        failedCounter = Counter.builder("smartclinic.reminders.failed")
+                .description("Appointment reminders that could not be sent after all retries")
+                .register(meterRegistry);
+    }
+    
+    @PreDestroy
+    void stop() {
+        executor.shutdownNow();
+    }
+    
+    @Scheduled(cron = "${app.reminders.cron:0 0 18 * * *}")
+    public void dispatchScheduled() {
+        if (!enabled) {
+            return;
+        }
+        if (mailSender == null) {
+            logger.warn("Email notifications are enabled but no mail server is configured; no reminders sent");
+            return;
+        }
+        dispatch(LocalDateTime.now());
+    }
+    
+    public ReminderRun dispatch(LocalDateTime now) {
+        long started = System.currentTimeMillis();
+        LocalDateTime to = now.plusHours(lookaheadHours);
+        ReminderRun run = new ReminderRun();
+        // Bounds the batches read ahead of the senders, and with them the memory of the run
+        Semaphore inFlight = new Semaphore(concurrency * 2);
+        
+        Pageable firstRows = PageRequest.of(0, pageSize);
+        LocalDateTime afterDate = now;
+        Long afterId = 0L;
+        try {
+            while (true) {
+                List<ReminderView> page = appointmentRepository.findReminderPage(
+                        REMINDED_STATUSES, afterDate, afterId, to, firstRows);
+                for (int start = 0; start < page.size(); start += batchSize) {
+                    List<ReminderView> batch = new ArrayList<>(page.subList(start, Math.min(start + batchSize, page.size())));
+                    inFlight.acquire();
+                    executor.execute(() -> {
+                        try {
+                            sendBatch(batch, run);
+                        } catch (RuntimeException e) {
+                            logger.error("Reminder batch of {} appointments aborted", batch.size(), e);
+                            run.failed.addAndGet(batch.size());
+                        } finally {
+                            inFlight.release();
+                        }
+                    });
+                }
+                if (page.size() < pageSize) {
+                    break;
+                }
+                ReminderView last = page.get(page.size() - 1);
+                afterDate = last.getAppointmentDate();
+                afterId = last.getId();
+            }
+            // Wait for the batches still being sent
+            inFlight.acquire(concurrency * 2);
+            inFlight.release(concurrency * 2);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.warn("Reminder run interrupted; unsent reminders are picked up by the next run");
+        }
+        
+        int purged = ledger.purgeBefore(now.minusDays(ledgerRetentionDays));
+        logger.info("Reminder run for appointments until {}: {} sent, {} failed, {} skipped, {} old ledger entries purged in {} ms",
+                to, run.getSent(), run.getFailed(), run.getSkipped(), purged, System.currentTimeMillis() - started);
+        return run;
+    }
+    
+    private void sendBatch(List<ReminderView> batch, ReminderRun run) {
+        List<ReminderView> addressed = new ArrayList<>(batch.size());
+        for (ReminderView view : batch) {
+            if (view.getPatientEmail() != null && !view.getPatientEmail().isEmpty()) {
+                addressed.add(view);
+            }
+        }
+        run.skipped.addAndGet(batch.size() - addressed.size());
+        if (addressed.isEmpty()) {
+            return;
+        }
+        
+        String token = UUID.randomUUID().toString();
+        Set<Long> claimed;
+        try {
+            claimed = ledger.claim(token, addressed, LocalDateTime.now(), maxAttempts);
+        } catch (DataAccessException e) {
+            // Nothing was claimed for certain, so nothing is sent; the next run tries again
+            logger.warn("Could not claim {} reminders; skipping the batch", addressed.size(), e);
+            run.failed.addAndGet(addressed.size());
+            return;
+        }
+        run.skipped.addAndGet(addressed.size() - claimed.size());
+        
+        Map<SimpleMailMessage, Long> pending = new IdentityHashMap<>();
+        for (ReminderView view : addressed) {
+            if (claimed.contains(view.getId())) {
+                pending.put(render(view), view.getId());
+            }
+        }
+        
+        String lastError = null;
+        for (int attempt = 0; attempt <= retries && !pending.isEmpty(); attempt++) {
+            if (attempt > 0 && !backOff(attempt)) {
+                break;
+            }
+            List<Long> sent = new ArrayList<>(pending.size());
+            try {
+                mailSender.send(pending.keySet().toArray(new SimpleMailMessage[0]));
+                sent.addAll(pending.values());
+                pending.clear();
+            } catch (MailSendException e) {
+                // Without failed messages the exception only reports a connection that did not close cleanly
+                lastError = e.getMessage();
+                Map<Object, Exception> failed = e.getFailedMessages();
+                pending.entrySet().removeIf(entry -> {
+                    if (failed.containsKey(entry.getKey())) {
+                        return false;
+                    }
+                    sent.add(entry.getValue());
+                    return true;
+                });
+            } catch (MailParseException | MailPreparationException e) {
+                // The messages themselves are broken; sending them again cannot help
+                lastError = e.getMessage();
+                break;
+            } catch (MailException e) {
+                lastError = e.getMessage();
+            }
+            if (!sent.isEmpty()) {
+                ledger.markSent(token, sent, LocalDateTime.now());
+                run.sent.addAndGet(sent.size());
+                sentCounter.increment(sent.size());
+            }
+        }
+        
+        if (!pending.isEmpty()) {
+            logger.warn("{} reminders could not be sent: {}", pending.size(), lastError);
+            ledger.markFailed(token, pending.values(), lastError);
+            run.failed.addAndGet(pending.size());
+            failedCounter.increment(pending.size());
+        }
+    }
+    
+    private SimpleMailMessage render(ReminderView view) {
+        SimpleMailMessage message = new SimpleMailMessage();
+        message.setFrom(from);
+        message.setTo(view.getPatientEmail());
+        message.setSubject(subjectTemplate.render(view));
+        message.setText(bodyTemplate.render(view));
+        return message;
+    }
+    
+    private boolean backOff(int attempt) {
+        try {
+            Thread.sleep(retryBackoffMillis << (attempt - 1));
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+    
+    // The template starts with a "Subject:" line; everything after the following blank line is the body
+    private void compileTemplate(String source) {
+        String text = source.replace("\r\n", "\n");
+        int subjectEnd = text.indexOf('\n');
+        if (!text.startsWith(SUBJECT_PREFIX) || subjectEnd < 0) {
+            throw new IllegalStateException("Reminder template must start with a '" + SUBJECT_PREFIX + "' line");
+        }
+        String body = text.substring(subjectEnd + 1);
+        subjectTemplate = ReminderTemplate.compile(text.substring(SUBJECT_PREFIX.length(), subjectEnd).trim());
+        bodyTemplate = ReminderTemplate.compile(body.startsWith("\n") ? body.substring(1) : body);
+    }
+}
@@ -0,0 +1,129 @@
+package com.smartclinic.services.reminders;
+
+import com.smartclinic.repositories.mysql.AppointmentRepository.ReminderView;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Records which appointment reminders have been sent, in {@code appointment_reminders}, so that
+ * neither a restart nor a second instance sends one twice.
+ *
+ * A batch is claimed right before it is handed to the SMTP server: {@code INSERT IGNORE} on the
+ * (appointment_date, appointment_id) key lets exactly one claimant win, and the winners are read
+ * back by the batch's claim token. Entries that later failed can be claimed again by a later run
+ * up to the attempt limit. An entry left CLAIMED by a run that died mid-send is never claimed
+ * again: the server may already have accepted the message, and a missed reminder is preferable
+ * to a duplicate.
+ */
+@Component
+public class ReminderLedger {
+    
+    private static final String CLAIM_NEW_SQL =
+            "INSERT IGNORE INTO appointment_reminders (appointment_id, appointment_date, status, attempts, claim_token, claimed_at) " +
+            "VALUES (?, ?, 'CLAIMED', 0, ?, ?)";
+    
+    private static final String CLAIM_FAILED_SQL =
+            "UPDATE appointment_reminders SET status = 'CLAIMED', claim_token = ?, claimed_at = ? " +
+            "WHERE appointment_date = ? AND appointment_id = ? AND status = 'FAILED' AND attempts < ?";
+    
+    private static final String CLAIMED_SQL =
+            "SELECT appointment_id FROM appointment_reminders WHERE claim_token = ?";
+    
+    private static final String MARK_SENT_SQL =
+            "UPDATE appointment_reminders SET status = 'SENT', sent_at = ?, attempts = attempts + 1, last_error = NULL " +
+            "WHERE claim_token = ? AND appointment_id = ?";
+    
+    private static final String MARK_FAILED_SQL =
+            "UPDATE appointment_reminders SET status = 'FAILED', attempts = attempts + 1, last_error = ? " +
+            "WHERE claim_token = ? AND appointment_id = ?";
+    
+    private static final String PURGE_SQL =
+            "DELETE FROM appointment_reminders WHERE appointment_date < ? LIMIT ?";
+    
+    private static final int PURGE_CHUNK = 5000;
+    
+    private static final int MAX_ERROR_LENGTH = 500;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    /**
+     * Claims the reminders of the given appointments for one send attempt. {@code maxAttempts}
+     * limits how many runs may try a reminder that keeps failing.
+     *
+     * @return ids of the appointments this caller now owns; the rest were already sent, are being
+     *         sent elsewhere, or have used up their attempts
+     */
+    public Set<Long> claim(String token, List<ReminderView> batch, LocalDateTime now, int maxAttempts) {
+        Timestamp claimedAt = Timestamp.valueOf(now);
+        jdbcTemplate.batchUpdate(CLAIM_NEW_SQL, batch, batch.size(), (statement, view) -> {
+            statement.setLong(1, view.getId());
+            statement.setTimestamp(2, Timestamp.valueOf(view.getAppointmentDate()));
+            statement.setString(3, token);
+            statement.setTimestamp(4, claimedAt);
+        });
+        Set<Long> claimed = claimedBy(token);
+        if (claimed.size() == batch.size()) {
+            return claimed;
+        }
+        
+        // Rows that were not new already had an entry; only failed ones may be tried again
+        List<ReminderView> existing = new ArrayList<>();
+        for (ReminderView view : batch) {
+            if (!claimed.contains(view.getId())) {
+                existing.add(view);
+            }
+        }
+        jdbcTemplate.batchUpdate(CLAIM_FAILED_SQL, existing, existing.size(), (statement, view) -> {
+            statement.setString(1, token);
+            statement.setTimestamp(2, claimedAt);
+            statement.setTimestamp(3, Timestamp.valueOf(view.getAppointmentDate()));
+            statement.setLong(4, view.getId());
+            statement.setInt(5, maxAttempts);
+        });
+        return claimedBy(token);
+    }
+    
+    public void markSent(String token, Collection<Long> appointmentIds, LocalDateTime now) {
+        Timestamp sentAt = Timestamp.valueOf(now);
+        jdbcTemplate.batchUpdate(MARK_SENT_SQL, appointmentIds, appointmentIds.size(), (statement, id) -> {
+            statement.setTimestamp(1, sentAt);
+            statement.setString(2, token);
+            statement.setLong(3, id);
+        });
+    }
+    
+    public void markFailed(String token, Collection<Long> appointmentIds, String error) {
+        String lastError = error != null && error.length() > MAX_ERROR_LENGTH ? error.substring(0, MAX_ERROR_LENGTH) : error;
+        jdbcTemplate.batchUpdate(MARK_FAILED_SQL, appointmentIds, appointmentIds.size(), (statement, id) -> {
+            statement.setString(1, lastError);
+            statement.setString(2, token);
+            statement.setLong(3, id);
+        });
+    }
+    
+    // Deletes in chunks so a large purge does not hold locks on the whole range at once
+    public int purgeBefore(LocalDateTime appointmentDate) {
+        Timestamp before = Timestamp.valueOf(appointmentDate);
+        int total = 0;
+        int deleted;
+        do {
+            deleted = jdbcTemplate.update(PURGE_SQL, before, PURGE_CHUNK);
+            total += deleted;
+        } while (deleted == PURGE_CHUNK);
+        return total;
+    }
+    
+    private Set<Long> claimedBy(String token) {
+        return new HashSet<>(jdbcTemplate.queryForList(CLAIMED_SQL, Long.class, token));
+    }
+}
@@ -0,0 +1,20 @@
+package com.smartclinic.services.reminders;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Outcome counts of one reminder run, updated concurrently by the sender threads.
+ */
+public final class ReminderRun {
+    
+    final AtomicInteger sent = new AtomicInteger();
+    final AtomicInteger failed = new AtomicInteger();
+    // Already reminded, claimed by another instance, or without an email address
+    final AtomicInteger skipped = new AtomicInteger();
+    
+    public int getSent() { return sent.get(); }
+    
+    public int getFailed() { return failed.get(); }
+    
+    public int getSkipped() { return skipped.get(); }
+}
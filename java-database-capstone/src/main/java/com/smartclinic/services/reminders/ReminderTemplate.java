@@ -0,0 +1,81 @@
+package com.smartclinic.services.reminders;
+
+import com.smartclinic.repositories.mysql.AppointmentRepository.ReminderView;
+
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * A reminder subject or body compiled once into literal text and placeholder lookups, so
+ * rendering a message is a single pass appending strings instead of searching and replacing
+ * over the template for every appointment. Placeholders are written {@code {{name}}}; an unknown
+ * name fails at compile time rather than producing a broken message at night.
+ */
+public final class ReminderTemplate {
+    
+    private static final DateTimeFormatter DATE = DateTimeFormatter.ofPattern("EEEE, d MMMM yyyy", Locale.ENGLISH);
+    private static final DateTimeFormatter TIME = DateTimeFormatter.ofPattern("HH:mm", Locale.ENGLISH);
+    
+    private static final Map<String, Function<ReminderView, String>> PLACEHOLDERS = new HashMap<>();
+    
+    static {
+        PLACEHOLDERS.put("patientFirstName", ReminderView::getPatientFirstName);
+        PLACEHOLDERS.put("patientName", view -> view.getPatientFirstName() + " " + view.getPatientLastName());
+        PLACEHOLDERS.put("doctorName", view -> view.getDoctorFirstName() + " " + view.getDoctorLastName());
+        PLACEHOLDERS.put("specialization", ReminderView::getSpecialization);
+        PLACEHOLDERS.put("date", view -> DATE.format(view.getAppointmentDate()));
+        PLACEHOLDERS.put("time", view -> TIME.format(view.getAppointmentDate()));
+    }
+    
+    // literals[i] is followed by placeholders[i]; the last literal has no placeholder after it
+    private final String[] literals;
+    private final List<Function<ReminderView, String>> placeholders;
+    private final int estimatedLength;
+    
+    private ReminderTemplate(String[] literals, List<Function<ReminderView, String>> placeholders, int estimatedLength) {
+        this.literals = literals;
+        this.placeholders = placeholders;
+        this.estimatedLength = estimatedLength;
+    }
+    
+    public static ReminderTemplate compile(String source) {
+        List<String> literals = new ArrayList<>();
+        List<Function<ReminderView, String>> placeholders = new ArrayList<>();
+        int position = 0;
+        while (true) {
+            int open = source.indexOf("{{", position);
+            if (open < 0) {
+                break;
+            }
+            int close = source.indexOf("}}", open + 2);
+            if (close < 0) {
+                throw new IllegalArgumentException("Unclosed placeholder at offset " + open);
+            }
+            String name = source.substring(open + 2, close).trim();
+            Function<ReminderView, String> placeholder = PLACEHOLDERS.get(name);
+            if (placeholder == null) {
+                throw new IllegalArgumentException("Unknown placeholder {{" + name + "}}, expected one of " + PLACEHOLDERS.keySet());
+            }
+            literals.add(source.substring(position, open));
+            placeholders.add(placeholder);
+            position = close + 2;
+        }
+        literals.add(source.substring(position));
+        return new ReminderTemplate(literals.toArray(new String[0]), placeholders, source.length() + 32 * placeholders.size());
+    }
+    
+    public String render(ReminderView view) {
+        StringBuilder text = new StringBuilder(estimatedLength);
+        for (int i = 0; i < placeholders.size(); i++) {
+            text.append(literals[i]);
+            String value = placeholders.get(i).apply(view);
+            text.append(value != null ? value : "");
+        }
+        return text.append(literals[literals.length - 1]).toString();
+    }
+}
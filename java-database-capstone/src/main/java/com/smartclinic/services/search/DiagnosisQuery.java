@@ -0,0 +1,83 @@
+package com.smartclinic.services.search;
+
+import com.smartclinic.exceptions.BusinessException;
+import org.springframework.data.mongodb.core.query.Criteria;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * A diagnosis search term, matched case- and accent-insensitively as a substring of the
+ * normalized diagnosis. A term shorter than three characters matches at the start of a word
+ * only ("hy" finds "hypertension", not "dehydration").
+ *
+ * The grams every match must contain narrow the candidates through the index; the regex on
+ * {@code diagnosis_terms} then checks the few candidates left for the exact substring.
+ */
+public final class DiagnosisQuery {
+    
+    private final String text;
+    private final List<String> grams;
+    private final boolean wordPrefix;
+    
+    private DiagnosisQuery(String text, List<String> grams, boolean wordPrefix) {
+        this.text = text;
+        this.grams = grams;
+        this.wordPrefix = wordPrefix;
+    }
+    
+    public static DiagnosisQuery parse(String input) {
+        String text = DiagnosisTerms.normalize(input);
+        if (text.isEmpty()) {
+            throw new BusinessException("Diagnosis search needs at least one letter or digit");
+        }
+        List<String> tokens = DiagnosisTerms.tokens(text);
+        Set<String> grams = new LinkedHashSet<>();
+        for (int i = 0; i < tokens.size(); i++) {
+            // The first word may match the end of a word; every later one starts a word
+            DiagnosisTerms.addWindows(i == 0 ? tokens.get(i) : DiagnosisTerms.PADDING + tokens.get(i), grams);
+        }
+        boolean wordPrefix = grams.isEmpty();
+        if (wordPrefix) {
+            DiagnosisTerms.addWindows(DiagnosisTerms.PADDING + text, grams);
+        }
+        return new DiagnosisQuery(text, new ArrayList<>(grams), wordPrefix);
+    }
+    
+    /**
+     * Restricts {@code scope} (may be null) to documents whose diagnosis matches.
+     */
+    public Criteria criteria(Criteria scope) {
+        Criteria criteria = scope != null
+                ? scope.and(DiagnosisTerms.GRAMS_FIELD).all(grams)
+                : Criteria.where(DiagnosisTerms.GRAMS_FIELD).all(grams);
+        String pattern = wordPrefix ? "(?:^| )" + Pattern.quote(text) : Pattern.quote(text);
+        return criteria.and(DiagnosisTerms.TERMS_FIELD).regex(pattern);
+    }
+    
+    /**
+     * Ranks a matching diagnosis, given as its normalized terms: 3 for the whole diagnosis,
+     * 2 for its beginning, 1 for the beginning of a later word, 0 for anywhere else.
+     */
+    public int score(String terms) {
+        if (terms.equals(text)) {
+            return 3;
+        }
+        if (terms.startsWith(text)) {
+            return 2;
+        }
+        for (int at = terms.indexOf(text); at >= 0; at = terms.indexOf(text, at + 1)) {
+            if (at > 0 && terms.charAt(at - 1) == ' ') {
+                return 1;
+            }
+        }
+        return 0;
+    }
+    
+    public String getText() { return text; }
+    
+    public List<String> getGrams() { return grams; }
+}
@@ -0,0 +1,137 @@
+package com.smartclinic.services.search;
+
+import com.smartclinic.models.mongo.MedicalRecord;
+import com.smartclinic.models.mongo.Prescription;
+import com.smartclinic.repositories.mongo.MongoBackfill;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Ranked diagnosis search over medical records and prescriptions (see {@link DiagnosisQuery}).
+ *
+ * Matching runs in two steps. The index lookup returns at most {@code max-candidates} matches
+ * with only their normalized diagnosis; these are ranked in memory (best {@link
+ * DiagnosisQuery#score}, then shortest diagnosis, then id), and only the documents of the
+ * requested top results are fetched in full. When a term matches more than
+ * {@code max-candidates} documents, the ranking covers the first ones in index order.
+ *
+ * Documents written before the search fields existed are backfilled once at startup. A document
+ * whose fields cannot be derived or written is logged and left without them for the next start;
+ * it never stops the backfill or the application.
+ */
+@Service
+public class DiagnosisSearchService {
+    
+    private static final Logger logger = LoggerFactory.getLogger(DiagnosisSearchService.class);
+    
+    private static final String ID_FIELD = "_id";
+    
+    @Autowired
+    private MongoTemplate mongoTemplate;
+    
+    @Autowired
+    private MongoBackfill mongoBackfill;
+    
+    @Value("${app.search.diagnosis.max-candidates:1000}")
+    private int maxCandidates;
+    
+    @Value("${app.search.diagnosis.max-results:100}")
+    private int maxResults;
+    
+    @Value("${app.search.diagnosis.backfill-on-startup:true}")
+    private boolean backfillOnStartup;
+    
+    @Value("${app.search.diagnosis.backfill-batch-size:500}")
+    private int backfillBatchSize;
+    
+    public List<MedicalRecord> searchMedicalRecords(String diagnosis, Long patientId, Integer limit) {
+        Criteria scope = patientId != null ? Criteria.where("patient_id").is(patientId) : null;
+        return search(MedicalRecord.class, scope, DiagnosisQuery.parse(diagnosis), limit);
+    }
+    
+    public List<Prescription> searchPrescriptions(String diagnosis, Long doctorId, Integer limit) {
+        Criteria scope = doctorId != null ? Criteria.where("doctor_id").is(doctorId) : null;
+        return search(Prescription.class, scope, DiagnosisQuery.parse(diagnosis), limit);
+    }
+    
+    <T> List<T> search(Class<T> type, Criteria scope, DiagnosisQuery query, Integer limit) {
+        int resultLimit = limit == null || limit <= 0 ? maxResults : Math.min(limit, maxResults);
+        Query candidateQuery = new Query(query.criteria(scope)).limit(maxCandidates);
+        candidateQuery.fields().include(DiagnosisTerms.TERMS_FIELD);
+        List<Document> candidates = mongoTemplate.find(candidateQuery, Document.class, mongoTemplate.getCollectionName(type));
+        
+        candidates.sort(Comparator.<Document>comparingInt(candidate -> -query.score(candidate.getString(DiagnosisTerms.TERMS_FIELD)))
+                .thenComparingInt(candidate -> candidate.getString(DiagnosisTerms.TERMS_FIELD).length())
+                .thenComparing(candidate -> candidate.get(ID_FIELD).toString()));
+        List<Object> ids = new ArrayList<>(resultLimit);
+        for (Document candidate : candidates.subList(0, Math.min(resultLimit, candidates.size()))) {
+            ids.add(candidate.get(ID_FIELD));
+        }
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        
+        MongoPersistentEntity<?> entity = mongoTemplate.getConverter().getMappingContext().getRequiredPersistentEntity(type);
+        Map<String, T> byId = new HashMap<>();
+        for (T document : mongoTemplate.find(Query.query(Criteria.where(ID_FIELD).in(ids)), type)) {
+            byId.put(String.valueOf(entity.getIdentifierAccessor(document).getIdentifier()), document);
+        }
+        List<T> ranked = new ArrayList<>(ids.size());
+        for (Object id : ids) {
+            // Deleted between the two reads
+            T document = byId.get(id.toString());
+            if (document != null) {
+                ranked.add(document);
+            }
+        }
+        return ranked;
+    }
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillOnStartup() {
+        if (!backfillOnStartup) {
+            return;
+        }
+        backfillLogged(MedicalRecord.class);
+        backfillLogged(Prescription.class);
+    }
+    
+    private void backfillLogged(Class<?> type) {
+        MongoBackfill.runOnStartup("Diagnosis search of " + type.getSimpleName(), () -> backfill(type));
+    }
+    
+    /**
+     * Derives the search fields of every document that has none, in unordered bulk updates of
+     * {@code backfill-batch-size}. An update only applies while the diagnosis is still the one it
+     * was derived from, so a concurrent edit is never overwritten with stale terms.
+     */
+    public long backfill(Class<?> type) {
+        long updated = mongoBackfill.run(type, Criteria.where(DiagnosisTerms.GRAMS_FIELD).exists(false), backfillBatchSize,
+                "derive the diagnosis search fields", document -> {
+                    String diagnosis = document.getString("diagnosis");
+                    return MongoBackfill.Write.of(DiagnosisTerms.set(new Update(), diagnosis))
+                            .onlyIf(Criteria.where("diagnosis").is(diagnosis));
+                }, "diagnosis");
+        if (updated > 0) {
+            logger.info("Derived diagnosis search fields for {} documents in {}", updated, mongoTemplate.getCollectionName(type));
+        }
+        return updated;
+    }
+}
@@ -0,0 +1,81 @@
+package com.smartclinic.services.search;
+
+import com.smartclinic.models.mongo.DiagnosisIndexed;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Derives the stored search fields of a diagnosis.
+ *
+ * {@code diagnosis_terms} is the diagnosis folded to lower case without accents (Turkish dotted
+ * and dotless i both become i), with every run of punctuation and whitespace reduced to one
+ * space: "Tip 2 Diyabet, Insuline bagimli" becomes "tip 2 diyabet insuline bagimli". {@code diagnosis_grams} holds every three-character window
+ * of every word, each word padded with two leading spaces so its first one and two characters
+ * form grams as well. Any substring of three or more characters within a word, and any word
+ * prefix, is then found through equality matches on the multikey index over the grams.
+ */
+public final class DiagnosisTerms {
+    
+    public static final String TERMS_FIELD = "diagnosis_terms";
+    public static final String GRAMS_FIELD = "diagnosis_grams";
+    
+    static final int GRAM_LENGTH = 3;
+    static final String PADDING = "  ";
+    
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+    
+    private DiagnosisTerms() {
+    }
+    
+    public static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        // Turkish dotless i has no decomposition, so it is folded by hand
+        String folded = MARKS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("")
+                .toLowerCase(Locale.ROOT)
+                .replace('\u0131', 'i');
+        return SEPARATORS.matcher(folded).replaceAll(" ").trim();
+    }
+    
+    public static List<String> tokens(String normalized) {
+        return normalized.isEmpty() ? Collections.emptyList() : Arrays.asList(normalized.split(" "));
+    }
+    
+    public static List<String> grams(String normalized) {
+        Set<String> grams = new LinkedHashSet<>();
+        for (String token : tokens(normalized)) {
+            addWindows(PADDING + token, grams);
+        }
+        return new ArrayList<>(grams);
+    }
+    
+    public static void index(DiagnosisIndexed document) {
+        String terms = normalize(document.getDiagnosis());
+        document.setDiagnosisTerms(terms);
+        document.setDiagnosisGrams(grams(terms));
+    }
+    
+    // For writes that change the diagnosis through an Update instead of a saved document
+    public static Update set(Update update, String diagnosis) {
+        String terms = normalize(diagnosis);
+        return update.set(TERMS_FIELD, terms).set(GRAMS_FIELD, grams(terms));
+    }
+    
+    static void addWindows(String text, Collection<String> grams) {
+        for (int start = 0; start + GRAM_LENGTH <= text.length(); start++) {
+            grams.add(text.substring(start, start + GRAM_LENGTH));
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.smartclinic.services.search;
+
+import com.smartclinic.models.mongo.DiagnosisIndexed;
+import org.springframework.data.mongodb.core.mapping.event.AbstractMongoEventListener;
+import org.springframework.data.mongodb.core.mapping.event.BeforeConvertEvent;
+import org.springframework.stereotype.Component;
+
+/**
+ * Keeps the diagnosis search fields in step with the diagnosis on every save and insert.
+ */
+@Component
+public class DiagnosisTermsListener extends AbstractMongoEventListener<DiagnosisIndexed> {
+    
+    @Override
+    public void onBeforeConvert(BeforeConvertEvent<DiagnosisIndexed> event) {
+        DiagnosisTerms.index(event.getSource());
+    }
+}
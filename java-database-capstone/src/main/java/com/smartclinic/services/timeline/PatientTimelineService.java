@@ -0,0 +1,296 @@
+package com.smartclinic.services.timeline;
+
+import com.smartclinic.dtos.Cursor;
+import com.smartclinic.dtos.CursorPage;
+import com.smartclinic.dtos.CursorRequest;
+import com.smartclinic.dtos.TimelineEntry;
+import com.smartclinic.exceptions.BusinessException;
+import com.smartclinic.exceptions.ServiceUnavailableException;
+import com.smartclinic.services.AppointmentService;
+import com.smartclinic.services.MedicalRecordService;
+import com.smartclinic.services.PrescriptionService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * A patient's appointments (both tiers), medical records and prescriptions as one chronological
+ * list. Each store is asked for a full page after the cursor, the three reads run concurrently
+ * and their pages are merged, so a page takes as long as the slowest store rather than all three
+ * in turn.
+ *
+ * Reads run on a bounded pool per database, so a slow Mongo cannot hold the threads the MySQL
+ * reads need or the other way round. A saturated pool, or a page not read within
+ * {@code app.timeline.timeout-ms}, is answered with a 503.
+ *
+ * Entries are ordered by date, then type, then id. The cursor is the position of the last entry
+ * returned, from which the keyset cursor of every store is derived.
+ */
+@Service
+public class PatientTimelineService {
+    
+    static final Comparator<TimelineEntry> ORDER = Comparator.comparing(TimelineEntry::getDate)
+            .thenComparing(TimelineEntry::getType)
+            .thenComparing((a, b) -> a.getType() == TimelineEntry.Type.APPOINTMENT
+                    ? Long.compare(Long.parseLong(a.getId()), Long.parseLong(b.getId()))
+                    : a.getId().compareTo(b.getId()));
+    
+    // Bounds of the ObjectId order, to seek before or past every document of a date
+    private static final String MIN_OBJECT_ID = "000000000000000000000000";
+    private static final String MAX_OBJECT_ID = "ffffffffffffffffffffffff";
+    
+    @Autowired
+    private AppointmentService appointmentService;
+    
+    @Autowired
+    private MedicalRecordService medicalRecordService;
+    
+    @Autowired
+    private PrescriptionService prescriptionService;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    // The appointment read takes one MySQL connection at a time, so this stays below the Hikari pool
+    @Value("${app.timeline.mysql-threads:8}")
+    private int mysqlThreads;
+    
+    @Value("${app.timeline.mongo-threads:16}")
+    private int mongoThreads;
+    
+    @Value("${app.timeline.queue-capacity:100}")
+    private int queueCapacity;
+    
+    @Value("${app.timeline.timeout-ms:3000}")
+    private long timeoutMs;
+    
+    @Value("${app.timeline.retry-after-seconds:1}")
+    private long retryAfterSeconds;
+    
+    private ThreadPoolExecutor mysqlExecutor;
+    
+    private ThreadPoolExecutor mongoExecutor;
+    
+    private Counter rejections;
+    
+    private Counter timeouts;
+    
+    @PostConstruct
+    void start() {
+        mysqlExecutor = pool("mysql", mysqlThreads);
+        mongoExecutor = pool("mongo", mongoThreads);
+        rejections = Counter.builder("smartclinic.timeline.rejected")
+                .description("Timeline reads rejected because a pool was saturated")
+                .register(meterRegistry);
+        timeouts = Counter.builder("smartclinic.timeline.timeouts")
+                .description("Timeline pages not read within the timeout")
+                .register(meterRegistry);
+    }
+    
+    @PreDestroy
+    void stop() {
+        mysqlExecutor.shutdown();
+        mongoExecutor.shutdown();
+    }
+    
+    public CursorPage<TimelineEntry> getTimeline(Long patientId, CursorRequest page) {
+        // Fail on bad paging parameters here rather than in three pool threads
+        int limit = page.getEffectiveLimit();
+        page.getTotalMode();
+        Position position = Position.decode(page.getDecodedCursor());
+        
+        List<CompletableFuture<CursorPage<TimelineEntry>>> reads = new ArrayList<>(3);
+        try {
+            reads.add(submit(mysqlExecutor, () -> appointmentService
+                    .getAppointmentsByPatientId(patientId, after(position, TimelineEntry.Type.APPOINTMENT, page))
+                    .map(TimelineEntry::appointment)));
+            reads.add(submit(mongoExecutor, () -> medicalRecordService
+                    .getMedicalRecordsByPatientId(patientId, after(position, TimelineEntry.Type.MEDICAL_RECORD, page))
+                    .map(TimelineEntry::medicalRecord)));
+            reads.add(submit(mongoExecutor, () -> prescriptionService
+                    .getPatientPrescriptionsByDate(patientId, after(position, TimelineEntry.Type.PRESCRIPTION, page))
+                    .map(TimelineEntry::prescription)));
+            return merge(await(reads), limit);
+        } finally {
+            // Drops reads still queued after a rejection or timeout; completed ones are unaffected
+            reads.forEach(read -> read.cancel(false));
+        }
+    }
+    
+    /**
+     * K-way merge of pages that are each in timeline order. The result has more entries when any
+     * store has another page or an entry of its page was left out.
+     */
+    static CursorPage<TimelineEntry> merge(List<CursorPage<TimelineEntry>> pages, int limit) {
+        PriorityQueue<Head> heads = new PriorityQueue<>(Math.max(1, pages.size()),
+                Comparator.comparing((Head head) -> head.entry, ORDER));
+        boolean more = false;
+        Long total = 0L;
+        boolean estimated = false;
+        for (CursorPage<TimelineEntry> page : pages) {
+            Iterator<TimelineEntry> items = page.getItems().iterator();
+            if (items.hasNext()) {
+                heads.add(new Head(items.next(), items));
+            }
+            more |= page.getNextCursor() != null;
+            total = total != null && page.getTotal() != null ? total + page.getTotal() : null;
+            estimated |= Boolean.TRUE.equals(page.getTotalEstimated());
+        }
+        
+        List<TimelineEntry> merged = new ArrayList<>(limit);
+        while (merged.size() < limit && !heads.isEmpty()) {
+            Head head = heads.poll();
+            merged.add(head.entry);
+            if (head.rest.hasNext()) {
+                head.entry = head.rest.next();
+                heads.add(head);
+            }
+        }
+        more |= !heads.isEmpty();
+        
+        String nextCursor = null;
+        if (more && !merged.isEmpty()) {
+            TimelineEntry last = merged.get(merged.size() - 1);
+            nextCursor = Cursor.encode(last.getDate(), last.getType() + ":" + last.getId());
+        }
+        return new CursorPage<>(merged, nextCursor, total, total != null ? estimated : null);
+    }
+    
+    /**
+     * The page of one store that follows the timeline position. Entries of the position's date
+     * come after it when their type sorts after its type, so such a store seeks past the date
+     * with the lowest possible id, and a store whose type sorts before it with the highest.
+     */
+    private static CursorRequest after(Position position, TimelineEntry.Type store, CursorRequest page) {
+        String cursor = null;
+        if (position != null) {
+            int order = store.compareTo(position.type);
+            Object id;
+            if (order == 0) {
+                id = position.id;
+            } else if (store == TimelineEntry.Type.APPOINTMENT) {
+                id = order < 0 ? Long.MAX_VALUE : 0L;
+            } else {
+                id = order < 0 ? MAX_OBJECT_ID : MIN_OBJECT_ID;
+            }
+            cursor = Cursor.encode(position.date, id);
+        }
+        return new CursorRequest(cursor, page.getEffectiveLimit(), page.getTotal());
+    }
+    
+    private CompletableFuture<CursorPage<TimelineEntry>> submit(ThreadPoolExecutor executor,
+                                                                Supplier<CursorPage<TimelineEntry>> read) {
+        try {
+            return CompletableFuture.supplyAsync(read, executor);
+        } catch (RejectedExecutionException e) {
+            rejections.increment();
+            throw new ServiceUnavailableException("Patient timeline is busy, please retry shortly", retryAfterSeconds);
+        }
+    }
+    
+    private List<CursorPage<TimelineEntry>> await(List<CompletableFuture<CursorPage<TimelineEntry>>> reads) {
+        try {
+            CompletableFuture.allOf(reads.toArray(new CompletableFuture[0])).get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            timeouts.increment();
+            throw new ServiceUnavailableException("Patient timeline took too long to load, please retry shortly",
+                    retryAfterSeconds);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServiceUnavailableException("Patient timeline was interrupted, please retry", retryAfterSeconds);
+        } catch (ExecutionException e) {
+            // The store's own exception, so it is answered as it would be by the store's endpoint
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException("Patient timeline read failed", e.getCause());
+        }
+        List<CursorPage<TimelineEntry>> pages = new ArrayList<>(reads.size());
+        for (CompletableFuture<CursorPage<TimelineEntry>> read : reads) {
+            pages.add(read.join());
+        }
+        return pages;
+    }
+    
+    private ThreadPoolExecutor pool(String store, int threads) {
+        AtomicInteger threadNumber = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "timeline-" + store + "-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        Gauge.builder("smartclinic.timeline.queue.size", executor, e -> e.getQueue().size())
+                .tag("store", store)
+                .register(meterRegistry);
+        Gauge.builder("smartclinic.timeline.active", executor, ThreadPoolExecutor::getActiveCount)
+                .tag("store", store)
+                .register(meterRegistry);
+        return executor;
+    }
+    
+    private static final class Head {
+        
+        private TimelineEntry entry;
+        private final Iterator<TimelineEntry> rest;
+        
+        private Head(TimelineEntry entry, Iterator<TimelineEntry> rest) {
+            this.entry = entry;
+            this.rest = rest;
+        }
+    }
+    
+    private static final class Position {
+        
+        private final LocalDateTime date;
+        private final TimelineEntry.Type type;
+        private final String id;
+        
+        private Position(LocalDateTime date, TimelineEntry.Type type, String id) {
+            this.date = date;
+            this.type = type;
+            this.id = id;
+        }
+        
+        // The cursor id is "TYPE:id"
+        static Position decode(Cursor cursor) {
+            if (cursor == null) {
+                return null;
+            }
+            try {
+                int colon = cursor.getId().indexOf(':');
+                TimelineEntry.Type type = TimelineEntry.Type.valueOf(cursor.getId().substring(0, colon));
+                String id = cursor.getId().substring(colon + 1);
+                if (type == TimelineEntry.Type.APPOINTMENT) {
+                    Long.parseLong(id);
+                }
+                return new Position((LocalDateTime) Cursor.convert(cursor.getKey(), LocalDateTime.class), type, id);
+            } catch (RuntimeException e) {
+                throw new BusinessException("Invalid cursor");
+            }
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.smartclinic.services.vitals;
+
+import com.smartclinic.models.mongo.MedicalRecord;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.mapping.event.AbstractMongoEventListener;
+import org.springframework.data.mongodb.core.mapping.event.AfterDeleteEvent;
+import org.springframework.data.mongodb.core.mapping.event.AfterSaveEvent;
+import org.springframework.data.mongodb.core.mapping.event.BeforeConvertEvent;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Collections;
+
+/**
+ * Keeps the vital signs series in step with medical record saves and deletes. A record is only
+ * marked as in the series once its sample is written, so one whose series write failed is picked
+ * up by the next backfill; the save itself is not failed for it.
+ */
+@Component
+public class VitalSignsSeriesListener extends AbstractMongoEventListener<MedicalRecord> {
+    
+    private static final Logger logger = LoggerFactory.getLogger(VitalSignsSeriesListener.class);
+    
+    @Autowired
+    private VitalSignsSeriesService seriesService;
+    
+    @Override
+    public void onBeforeConvert(BeforeConvertEvent<MedicalRecord> event) {
+        event.getSource().setInVitalSignsSeries(null);
+    }
+    
+    @Override
+    public void onAfterSave(AfterSaveEvent<MedicalRecord> event) {
+        MedicalRecord record = event.getSource();
+        try {
+            seriesService.record(record);
+            seriesService.markRecorded(record.getId());
+        } catch (RuntimeException e) {
+            logger.warn("Could not add medical record {} to the vital signs series, it is left to the next backfill",
+                    record.getId(), e);
+        }
+    }
+    
+    // Only the delete query is known here: {_id: id}, or {_id: {$in: ids}} for a batch
+    @Override
+    public void onAfterDelete(AfterDeleteEvent<MedicalRecord> event) {
+        Object id = event.getSource().get("_id");
+        Collection<?> ids = Collections.emptyList();
+        if (id instanceof Document && ((Document) id).get("$in") instanceof Collection) {
+            ids = (Collection<?>) ((Document) id).get("$in");
+        } else if (id != null) {
+            ids = Collections.singletonList(id);
+        }
+        for (Object recordId : ids) {
+            try {
+                seriesService.remove(recordId.toString());
+            } catch (RuntimeException e) {
+                logger.warn("Could not remove medical record {} from the vital signs series", recordId, e);
+            }
+        }
+    }
+}
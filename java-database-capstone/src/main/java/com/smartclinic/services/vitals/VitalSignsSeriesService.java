@@ -0,0 +1,332 @@
+package com.smartclinic.services.vitals;
+
+import com.smartclinic.dtos.VitalSignsTrend;
+import com.smartclinic.dtos.VitalSignsTrend.Stats;
+import com.smartclinic.exceptions.BusinessException;
+import com.smartclinic.models.mongo.MedicalRecord;
+import com.smartclinic.models.mongo.VitalSigns;
+import com.smartclinic.models.mongo.VitalSignsBucket;
+import com.smartclinic.repositories.mongo.MongoBackfill;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.Period;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.TemporalAmount;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Per-patient vital signs series, kept next to the medical records so a trend reads a few
+ * columnar buckets (see {@link VitalSignsBucket}) instead of every record of the patient.
+ *
+ * Every medical record save moves the record's sample into the bucket of its visit date
+ * ({@link VitalSignsSeriesListener}); records written before the series existed, or whose series
+ * write failed, are added by the startup backfill. Buckets are read, changed and saved under
+ * their version, so concurrent writes to one bucket are retried rather than lost.
+ *
+ * Trends are downsampled to min/max/avg per window. A window is an ISO-8601 period or duration
+ * ("P1M", "P7D", "PT6H") counted from the start of the range; without one the range is split
+ * into {@code app.vital-signs.default-points} equal windows. Times are in the server's time zone.
+ */
+@Service
+public class VitalSignsSeriesService {
+    
+    private static final Logger logger = LoggerFactory.getLogger(VitalSignsSeriesService.class);
+    
+    // Measure names, as the VitalSigns properties
+    static final Map<String, Function<VitalSigns, Double>> MEASURES = new LinkedHashMap<>();
+    
+    static {
+        MEASURES.put("bloodPressureSystolic", VitalSigns::getBloodPressureSystolic);
+        MEASURES.put("bloodPressureDiastolic", VitalSigns::getBloodPressureDiastolic);
+        MEASURES.put("heartRate", VitalSigns::getHeartRate);
+        MEASURES.put("temperature", VitalSigns::getTemperature);
+        MEASURES.put("respiratoryRate", VitalSigns::getRespiratoryRate);
+        MEASURES.put("weight", VitalSigns::getWeight);
+        MEASURES.put("height", VitalSigns::getHeight);
+    }
+    
+    private static final int MAX_ATTEMPTS = 5;
+    
+    @Autowired
+    private MongoTemplate mongoTemplate;
+    
+    @Autowired
+    private MongoBackfill mongoBackfill;
+    
+    @Value("${app.vital-signs.default-points:200}")
+    private int defaultPoints;
+    
+    @Value("${app.vital-signs.max-points:5000}")
+    private int maxPoints;
+    
+    @Value("${app.vital-signs.backfill-on-startup:true}")
+    private boolean backfillOnStartup;
+    
+    @Value("${app.vital-signs.backfill-batch-size:500}")
+    private int backfillBatchSize;
+    
+    /**
+     * Puts the record's vital signs in the bucket of its patient and visit year, dropping the
+     * sample it had anywhere else (an earlier visit date or patient, or vital signs since removed).
+     */
+    public void record(MedicalRecord record) {
+        Map<String, Double> sample = sampleOf(record.getVitalSigns());
+        LocalDateTime start = !sample.isEmpty() && record.getVisitDate() != null && record.getPatientId() != null
+                ? bucketStart(record.getVisitDate())
+                : null;
+        Query containing = Query.query(Criteria.where("record_ids").is(record.getId()));
+        containing.fields().include("patient_id").include("start");
+        for (VitalSignsBucket bucket : mongoTemplate.find(containing, VitalSignsBucket.class)) {
+            if (start == null || !start.equals(bucket.getStart()) || !record.getPatientId().equals(bucket.getPatientId())) {
+                change(bucket.getPatientId(), bucket.getStart(), b -> b.remove(record.getId()));
+            }
+        }
+        if (start != null) {
+            long time = toMillis(record.getVisitDate());
+            change(record.getPatientId(), start, b -> {
+                b.remove(record.getId());
+                b.add(record.getId(), time, sample);
+            });
+        }
+    }
+    
+    public void remove(String recordId) {
+        Query containing = Query.query(Criteria.where("record_ids").is(recordId));
+        containing.fields().include("patient_id").include("start");
+        for (VitalSignsBucket bucket : mongoTemplate.find(containing, VitalSignsBucket.class)) {
+            change(bucket.getPatientId(), bucket.getStart(), b -> b.remove(recordId));
+        }
+    }
+    
+    // By collection name with the id mapped here, as an update by entity type would bump the record's version
+    public void markRecorded(String recordId) {
+        Object id = mongoTemplate.getConverter().convertId(recordId, ObjectId.class);
+        mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(id)),
+                new Update().set("vital_signs_series", true), mongoTemplate.getCollectionName(MedicalRecord.class));
+    }
+    
+    /**
+     * Min, max and average of the given measures (all when none) per window over [from, to).
+     * {@code to} defaults to now and {@code from} to the day of the patient's first sample.
+     */
+    public VitalSignsTrend getTrend(Long patientId, LocalDateTime from, LocalDateTime to, String window,
+                                    List<String> measures) {
+        List<String> selected = measures == null || measures.isEmpty() ? new ArrayList<>(MEASURES.keySet()) : measures;
+        for (String measure : selected) {
+            if (!MEASURES.containsKey(measure)) {
+                throw new BusinessException("Unknown measure '" + measure + "', expected one of " + MEASURES.keySet());
+            }
+        }
+        TemporalAmount step = window != null ? parseWindow(window) : null;
+        LocalDateTime end = to != null ? to : LocalDateTime.now();
+        
+        Criteria filter = Criteria.where("patient_id").is(patientId).and("start").lt(end);
+        if (from != null) {
+            filter.gte(bucketStart(from));
+        }
+        Query query = Query.query(filter).with(Sort.by("start"));
+        query.fields().include("times");
+        for (String measure : selected) {
+            query.fields().include("values." + measure);
+        }
+        List<VitalSignsBucket> buckets = mongoTemplate.find(query, VitalSignsBucket.class);
+        
+        LocalDateTime begin = from;
+        if (begin == null) {
+            long first = Long.MAX_VALUE;
+            for (VitalSignsBucket bucket : buckets) {
+                for (long time : bucket.getTimes()) {
+                    first = Math.min(first, time);
+                }
+            }
+            if (first == Long.MAX_VALUE) {
+                return new VitalSignsTrend(patientId, null, end, window, Collections.emptyList());
+            }
+            begin = toDateTime(first).toLocalDate().atStartOfDay();
+        }
+        if (!begin.isBefore(end)) {
+            throw new BusinessException("The range must end after it starts");
+        }
+        if (step == null) {
+            Duration equal = Duration.between(begin, end).dividedBy(defaultPoints);
+            step = equal.compareTo(Duration.ofSeconds(1)) < 0 ? Duration.ofSeconds(1) : equal;
+        }
+        
+        long[] starts = windowStarts(begin, end, step);
+        return new VitalSignsTrend(patientId, begin, end, step.toString(),
+                downsample(buckets, selected, starts, toMillis(end)));
+    }
+    
+    static List<VitalSignsTrend.Window> downsample(List<VitalSignsBucket> buckets, List<String> measures,
+                                                   long[] starts, long end) {
+        int windows = starts.length;
+        int[] samples = new int[windows];
+        Map<String, double[][]> stats = new HashMap<>();
+        for (String measure : measures) {
+            // min, max, sum, count per window
+            double[][] columns = new double[4][windows];
+            Arrays.fill(columns[0], Double.POSITIVE_INFINITY);
+            Arrays.fill(columns[1], Double.NEGATIVE_INFINITY);
+            stats.put(measure, columns);
+        }
+        
+        for (VitalSignsBucket bucket : buckets) {
+            long[] times = bucket.getTimes();
+            for (int i = 0; i < times.length; i++) {
+                if (times[i] < starts[0] || times[i] >= end) {
+                    continue;
+                }
+                int position = Arrays.binarySearch(starts, times[i]);
+                int index = position >= 0 ? position : -position - 2;
+                samples[index]++;
+                for (String measure : measures) {
+                    double[] column = bucket.getValues().get(measure);
+                    if (column == null || Double.isNaN(column[i])) {
+                        continue;
+                    }
+                    double[][] window = stats.get(measure);
+                    window[0][index] = Math.min(window[0][index], column[i]);
+                    window[1][index] = Math.max(window[1][index], column[i]);
+                    window[2][index] += column[i];
+                    window[3][index]++;
+                }
+            }
+        }
+        
+        List<VitalSignsTrend.Window> result = new ArrayList<>();
+        for (int index = 0; index < windows; index++) {
+            if (samples[index] == 0) {
+                continue;
+            }
+            Map<String, Stats> measured = new LinkedHashMap<>();
+            for (String measure : measures) {
+                double[][] window = stats.get(measure);
+                int count = (int) window[3][index];
+                if (count > 0) {
+                    measured.put(measure, new Stats(window[0][index], window[1][index], window[2][index] / count, count));
+                }
+            }
+            result.add(new VitalSignsTrend.Window(toDateTime(starts[index]), samples[index], measured));
+        }
+        return result;
+    }
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillOnStartup() {
+        if (!backfillOnStartup) {
+            return;
+        }
+        MongoBackfill.runOnStartup("Vital signs", this::backfill);
+    }
+    
+    /**
+     * Adds every medical record not yet in the series, {@code backfill-batch-size} records at a
+     * time, and marks it recorded. A record that cannot be read or added is logged and left
+     * unmarked, so the next start tries it again.
+     */
+    public long backfill() {
+        long recorded = mongoBackfill.run(MedicalRecord.class, Criteria.where("vital_signs_series").ne(true), backfillBatchSize,
+                "add the vital signs to the series", document -> {
+                    record(mongoTemplate.getConverter().read(MedicalRecord.class, document));
+                    return MongoBackfill.Write.of(new Update().set("vital_signs_series", true));
+                }, "patient_id", "visit_date", "vital_signs");
+        if (recorded > 0) {
+            logger.info("Added the vital signs of {} medical records to the series", recorded);
+        }
+        return recorded;
+    }
+    
+    private void change(Long patientId, LocalDateTime start, Consumer<VitalSignsBucket> change) {
+        Query bucketQuery = Query.query(Criteria.where("patient_id").is(patientId).and("start").is(start));
+        for (int attempt = 1; ; attempt++) {
+            VitalSignsBucket bucket = mongoTemplate.findOne(bucketQuery, VitalSignsBucket.class);
+            if (bucket == null) {
+                bucket = new VitalSignsBucket(patientId, start);
+            }
+            change.accept(bucket);
+            try {
+                mongoTemplate.save(bucket);
+                return;
+            } catch (OptimisticLockingFailureException | DuplicateKeyException e) {
+                // Another write changed or created the bucket since it was read
+                if (attempt == MAX_ATTEMPTS) {
+                    throw e;
+                }
+            }
+        }
+    }
+    
+    private long[] windowStarts(LocalDateTime begin, LocalDateTime end, TemporalAmount step) {
+        List<Long> starts = new ArrayList<>();
+        for (LocalDateTime start = begin; start.isBefore(end); start = start.plus(step)) {
+            if (starts.size() == maxPoints) {
+                throw new BusinessException("The window splits the range into more than " + maxPoints + " windows");
+            }
+            starts.add(toMillis(start));
+        }
+        return starts.stream().mapToLong(Long::longValue).toArray();
+    }
+    
+    private static TemporalAmount parseWindow(String window) {
+        try {
+            TemporalAmount step = window.toUpperCase().contains("T") ? Duration.parse(window) : Period.parse(window);
+            if (step instanceof Duration ? ((Duration) step).isNegative() || ((Duration) step).isZero()
+                    : ((Period) step).isNegative() || ((Period) step).isZero()) {
+                throw new BusinessException("The window must be positive");
+            }
+            return step;
+        } catch (DateTimeParseException e) {
+            throw new BusinessException("The window must be an ISO-8601 period or duration, such as P1M or PT6H");
+        }
+    }
+    
+    private static Map<String, Double> sampleOf(VitalSigns vitalSigns) {
+        Map<String, Double> sample = new HashMap<>();
+        if (vitalSigns != null) {
+            MEASURES.forEach((measure, value) -> {
+                if (value.apply(vitalSigns) != null) {
+                    sample.put(measure, value.apply(vitalSigns));
+                }
+            });
+        }
+        return sample;
+    }
+    
+    private static LocalDateTime bucketStart(LocalDateTime dateTime) {
+        return LocalDateTime.of(dateTime.getYear(), 1, 1, 0, 0);
+    }
+    
+    private static long toMillis(LocalDateTime dateTime) {
+        return dateTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+    
+    private static LocalDateTime toDateTime(long millis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault());
+    }
+}
@@ -0,0 +1,67 @@
+package com.smartclinic.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JsonStreamWriterTest {
+
+    private JsonStreamWriter jsonStreamWriter;
+
+    @BeforeEach
+    void setUp() {
+        jsonStreamWriter = new JsonStreamWriter();
+        ReflectionTestUtils.setField(jsonStreamWriter, "objectMapper", new ObjectMapper());
+    }
+
+    @Test
+    void stream_WithNdjsonAccept_ShouldWriteOneDocumentPerLine() throws Exception {
+        // Act
+        ResponseEntity<StreamingResponseBody> response = jsonStreamWriter.stream("application/x-ndjson", out -> {
+            out.accept(Collections.singletonMap("id", 1));
+            out.accept(Collections.singletonMap("id", 2));
+        });
+
+        // Assert
+        assertEquals(MediaType.APPLICATION_NDJSON, response.getHeaders().getContentType());
+        assertEquals("{\"id\":1}\n{\"id\":2}\n", write(response));
+    }
+
+    @Test
+    void stream_WithJsonAccept_ShouldWriteOneArray() throws Exception {
+        // Act
+        ResponseEntity<StreamingResponseBody> response = jsonStreamWriter.stream("application/json, */*", out -> {
+            out.accept(Collections.singletonMap("id", 1));
+            out.accept(Collections.singletonMap("id", 2));
+        });
+
+        // Assert
+        assertEquals(MediaType.APPLICATION_JSON, response.getHeaders().getContentType());
+        assertEquals("[{\"id\":1},{\"id\":2}]", write(response));
+    }
+
+    @Test
+    void stream_WithNoRows_ShouldWriteEmptyArray() throws Exception {
+        // Act
+        ResponseEntity<StreamingResponseBody> response = jsonStreamWriter.stream(null, out -> { });
+
+        // Assert
+        assertEquals("[]", write(response));
+    }
+
+    private static String write(ResponseEntity<StreamingResponseBody> response) throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        response.getBody().writeTo(output);
+        return new String(output.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,151 @@
+package com.smartclinic.config;
+
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.security.Keys;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JwtUtilTest {
+
+    private static final String SECRET = "unit-test-jwt-secret-key-with-at-least-32-bytes";
+
+    private JwtUtil jwtUtil;
+
+    @BeforeEach
+    void setUp() {
+        jwtUtil = newJwtUtil(SECRET, 3600000L);
+    }
+
+    private JwtUtil newJwtUtil(String secret, long expiration) {
+        JwtUtil util = new JwtUtil();
+        ReflectionTestUtils.setField(util, "secret", secret);
+        ReflectionTestUtils.setField(util, "expiration", expiration);
+        ReflectionTestUtils.setField(util, "refreshExpiration", expiration * 2);
+        ReflectionTestUtils.setField(util, "cacheMaxSize", 4);
+        util.init();
+        return util;
+    }
+
+    @Test
+    void verify_WithValidToken_ShouldReturnClaims() {
+        // Arrange
+        String token = jwtUtil.generateToken("testuser", "PATIENT");
+
+        // Act
+        VerifiedClaims claims = jwtUtil.verify(token);
+
+        // Assert
+        assertNotNull(claims);
+        assertEquals("testuser", claims.getSubject());
+        assertEquals("PATIENT", claims.getRole());
+        assertFalse(claims.isExpired(System.currentTimeMillis()));
+    }
+
+    @Test
+    void verify_WithRepeatedToken_ShouldReturnCachedClaims() {
+        // Arrange
+        String token = jwtUtil.generateToken("testuser", "PATIENT");
+
+        // Act
+        VerifiedClaims first = jwtUtil.verify(token);
+        VerifiedClaims second = jwtUtil.verify(new String(token));
+
+        // Assert
+        assertSame(first, second);
+    }
+
+    @Test
+    void verify_WithTokenSignedByOtherKey_ShouldReturnNull() {
+        // Arrange
+        JwtUtil other = newJwtUtil("another-unit-test-secret-key-with-32-bytes-or-more", 3600000L);
+        String token = other.generateToken("testuser", "ADMIN");
+
+        // Act & Assert
+        assertNull(jwtUtil.verify(token));
+    }
+
+    @Test
+    void verify_WithExpiredToken_ShouldReturnNull() {
+        // Arrange
+        JwtUtil shortLived = newJwtUtil(SECRET, -1000L);
+        String token = shortLived.generateToken("testuser", "PATIENT");
+
+        // Act & Assert
+        assertNull(jwtUtil.verify(token));
+    }
+
+    @Test
+    void verify_WithMalformedToken_ShouldReturnNull() {
+        assertNull(jwtUtil.verify("not-a-jwt"));
+        assertNull(jwtUtil.verify(""));
+        assertNull(jwtUtil.verify(null));
+    }
+
+    @Test
+    void verify_WithSignedTokenWithoutSubject_ShouldReturnNull() {
+        // Arrange
+        String token = Jwts.builder()
+                .claim("role", "ADMIN")
+                .setExpiration(new Date(System.currentTimeMillis() + 3600000L))
+                .signWith(Keys.hmacShaKeyFor(SECRET.getBytes(StandardCharsets.UTF_8)), SignatureAlgorithm.HS256)
+                .compact();
+
+        // Act & Assert
+        assertNull(jwtUtil.verify(token));
+        assertFalse(jwtUtil.validateToken(token, User.withUsername("admin").password("x").roles("ADMIN").build()));
+    }
+
+    @Test
+    void generateRefreshToken_ShouldBeMarkedAsRefreshAndOutliveAccessToken() {
+        // Arrange
+        String accessToken = jwtUtil.generateToken("testuser", "PATIENT", 7L);
+        String refreshToken = jwtUtil.generateRefreshToken("testuser", "PATIENT", 7L);
+
+        // Act
+        VerifiedClaims access = jwtUtil.verify(accessToken);
+        VerifiedClaims refresh = jwtUtil.verify(refreshToken);
+
+        // Assert
+        assertFalse(access.isRefreshToken());
+        assertTrue(refresh.isRefreshToken());
+        assertEquals(7L, refresh.getUserId());
+        assertNotEquals(access.getTokenId(), refresh.getTokenId());
+        assertTrue(refresh.getExpiresAtMillis() > access.getExpiresAtMillis());
+    }
+
+    @Test
+    void generateRefreshToken_FromConsumedToken_ShouldContinueItsFamily() {
+        // Arrange
+        VerifiedClaims login = jwtUtil.verify(jwtUtil.generateRefreshToken("testuser", "PATIENT", 7L));
+
+        // Act
+        VerifiedClaims rotated = jwtUtil.verify(jwtUtil.generateRefreshToken("testuser", "PATIENT", 7L, login));
+
+        // Assert
+        assertEquals(0, login.getGeneration());
+        assertEquals(login.getFamilyId(), rotated.getFamilyId());
+        assertEquals(1, rotated.getGeneration());
+        assertNull(jwtUtil.verify(jwtUtil.generateToken("testuser", "PATIENT", 7L)).getFamilyId());
+    }
+
+    @Test
+    void verify_WhenCacheIsFull_ShouldStillVerifyNewTokens() {
+        // Arrange & Act
+        for (int i = 0; i < 10; i++) {
+            String token = jwtUtil.generateToken("user" + i, "PATIENT");
+            VerifiedClaims claims = jwtUtil.verify(token);
+
+            // Assert
+            assertNotNull(claims);
+            assertEquals("user" + i, claims.getSubject());
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.smartclinic.config;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RateLimiterTest {
+
+    private static final long SECOND = 1_000_000_000L;
+
+    @Test
+    void tryAcquire_ShouldAllowBurstThenReject() {
+        // Arrange
+        RateLimiter limiter = new RateLimiter(60, 3, 100);
+        long now = 0;
+
+        // Act & Assert
+        assertEquals(0, limiter.tryAcquire("ip:1.2.3.4", now));
+        assertEquals(0, limiter.tryAcquire("ip:1.2.3.4", now));
+        assertEquals(0, limiter.tryAcquire("ip:1.2.3.4", now));
+        assertEquals(SECOND, limiter.tryAcquire("ip:1.2.3.4", now));
+    }
+
+    @Test
+    void tryAcquire_ShouldRefillAtConfiguredRate() {
+        // Arrange
+        RateLimiter limiter = new RateLimiter(60, 1, 100);
+        assertEquals(0, limiter.tryAcquire("user:alice", 0));
+        assertTrue(limiter.tryAcquire("user:alice", SECOND / 2) > 0);
+
+        // Act & Assert
+        assertEquals(0, limiter.tryAcquire("user:alice", SECOND));
+    }
+
+    @Test
+    void tryAcquire_ShouldKeepClientsIndependent() {
+        // Arrange
+        RateLimiter limiter = new RateLimiter(60, 1, 100);
+        limiter.tryAcquire("ip:1.1.1.1", 0);
+
+        // Act & Assert
+        assertTrue(limiter.tryAcquire("ip:1.1.1.1", 0) > 0);
+        assertEquals(0, limiter.tryAcquire("ip:2.2.2.2", 0));
+    }
+
+    @Test
+    void evictIdle_ShouldDropOnlyRefilledBuckets() {
+        // Arrange
+        RateLimiter limiter = new RateLimiter(60, 5, 100);
+        limiter.tryAcquire("ip:1.1.1.1", 0);
+        limiter.tryAcquire("ip:2.2.2.2", 10 * SECOND);
+
+        // Act
+        limiter.evictIdle(5 * SECOND);
+
+        // Assert
+        assertEquals(1, limiter.size());
+    }
+
+    @Test
+    void tryAcquire_WhenBucketsFull_ShouldShareOverflowBucket() {
+        // Arrange
+        RateLimiter limiter = new RateLimiter(60, 1, 1);
+        limiter.tryAcquire("ip:1.1.1.1", 0);
+
+        // Act & Assert
+        assertEquals(0, limiter.tryAcquire("ip:2.2.2.2", 0));
+        assertTrue(limiter.tryAcquire("ip:3.3.3.3", 0) > 0);
+    }
+
+    @Test
+    void tryAcquire_WhenBucketsFullAndRecentlySwept_ShouldUseOverflowWithoutSweeping() {
+        // Arrange: 100ms per permit, room for a single bucket
+        RateLimiter limiter = new RateLimiter(600, 1, 1);
+        long millis = SECOND / 1000;
+        limiter.tryAcquire("ip:1.1.1.1", 0);
+        limiter.tryAcquire("ip:2.2.2.2", 500 * millis);
+        assertEquals(1, limiter.size());
+
+        // Act: ip:2.2.2.2 is idle again, but the last sweep was 400ms ago
+        limiter.tryAcquire("ip:3.3.3.3", 900 * millis);
+
+        // Assert
+        assertEquals(2, limiter.size());
+
+        // Act & Assert: a second later the next new key sweeps again
+        assertEquals(0, limiter.tryAcquire("ip:4.4.4.4", 1600 * millis));
+        assertEquals(1, limiter.size());
+    }
+
+    @Test
+    void tryAcquire_UnderContention_ShouldNeverExceedBurst() throws Exception {
+        // Arrange
+        RateLimiter limiter = new RateLimiter(1, 50, 100);
+        AtomicInteger allowed = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+
+        try {
+            // Act
+            for (int t = 0; t < 8; t++) {
+                executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < 100; i++) {
+                        if (limiter.tryAcquire("user:shared", 0) == 0) {
+                            allowed.incrementAndGet();
+                        }
+                    }
+                    return null;
+                });
+            }
+            start.countDown();
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+
+            // Assert
+            assertEquals(50, allowed.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.smartclinic.config;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RevokedTokenStoreTest {
+
+    @Test
+    void add_ShouldMakeTokenRevokedOnce() {
+        // Arrange
+        RevokedTokenStore store = new RevokedTokenStore(1000);
+
+        // Act & Assert
+        assertFalse(store.contains("token-1"));
+        assertTrue(store.add("token-1", 5000L));
+        assertFalse(store.add("token-1", 5000L));
+        assertTrue(store.contains("token-1"));
+        assertFalse(store.contains("token-2"));
+    }
+
+    @Test
+    void purgeExpired_ShouldDropOnlyExpiredTokens() {
+        // Arrange
+        RevokedTokenStore store = new RevokedTokenStore(1000);
+        store.add("expired", 1000L);
+        store.add("live", 9000L);
+
+        // Act
+        store.purgeExpired(5000L);
+
+        // Assert
+        assertFalse(store.contains("expired"));
+        assertTrue(store.contains("live"));
+        assertEquals(1, store.size());
+    }
+
+    @Test
+    void purgeExpired_WhenGrownPastCapacity_ShouldKeepAllEntries() {
+        // Arrange
+        RevokedTokenStore store = new RevokedTokenStore(1024);
+        for (int i = 0; i < 5000; i++) {
+            store.add("token-" + i, Long.MAX_VALUE);
+        }
+
+        // Act
+        store.purgeExpired(0L);
+
+        // Assert
+        for (int i = 0; i < 5000; i++) {
+            assertTrue(store.contains("token-" + i));
+        }
+        assertFalse(store.contains("never-revoked"));
+    }
+}
@@ -0,0 +1,85 @@
+package com.smartclinic.config;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Date;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenRevocationRegistryTest {
+
+    private static final long HOUR = 3600000L;
+
+    private TokenRevocationRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        JwtUtil jwtUtil = new JwtUtil();
+        ReflectionTestUtils.setField(jwtUtil, "refreshExpiration", HOUR);
+        registry = new TokenRevocationRegistry();
+        ReflectionTestUtils.setField(registry, "jwtUtil", jwtUtil);
+        ReflectionTestUtils.setField(registry, "expectedEntries", 1000);
+        registry.init();
+    }
+
+    @Test
+    void consumeRefreshToken_ShouldAcceptEachGenerationOnceWithOneEntryPerFamily() {
+        // Arrange
+        long expiresAt = System.currentTimeMillis() + HOUR;
+        VerifiedClaims login = refreshClaims("alice", "family-1", 0, expiresAt);
+        VerifiedClaims rotated = refreshClaims("alice", "family-1", 1, expiresAt);
+        VerifiedClaims otherLogin = refreshClaims("bob", "family-2", 0, expiresAt);
+
+        // Act & Assert
+        assertTrue(registry.consumeRefreshToken(login));
+        assertTrue(registry.consumeRefreshToken(rotated));
+        assertTrue(registry.consumeRefreshToken(otherLogin));
+        assertEquals(2, registry.refreshFamilyCount());
+    }
+
+    @Test
+    void consumeRefreshToken_WhenOlderGenerationIsReplayed_ShouldRevokeTheFamily() {
+        // Arrange
+        long expiresAt = System.currentTimeMillis() + HOUR;
+        VerifiedClaims login = refreshClaims("alice", "family-1", 0, expiresAt);
+        VerifiedClaims rotated = refreshClaims("alice", "family-1", 1, expiresAt);
+        registry.consumeRefreshToken(login);
+
+        // Act
+        boolean replayed = registry.consumeRefreshToken(login);
+
+        // Assert
+        assertFalse(replayed);
+        assertFalse(registry.consumeRefreshToken(rotated));
+    }
+
+    @Test
+    void purgeExpired_ShouldDropFamiliesOnceTheirNewestTokenExpired() {
+        // Arrange: a family logged out with a token that has already expired, and a live one
+        registry.revoke(refreshClaims("alice", "family-1", 3, System.currentTimeMillis() - 1000));
+        registry.consumeRefreshToken(refreshClaims("bob", "family-2", 0, System.currentTimeMillis() + HOUR));
+
+        // Act
+        registry.purgeExpired();
+
+        // Assert
+        assertEquals(1, registry.refreshFamilyCount());
+    }
+
+    private static VerifiedClaims refreshClaims(String username, String familyId, int generation, long expiresAtMillis) {
+        Claims claims = Jwts.claims()
+                .setId(UUID.randomUUID().toString())
+                .setSubject(username)
+                .setIssuedAt(new Date(System.currentTimeMillis() - HOUR))
+                .setExpiration(new Date(expiresAtMillis));
+        claims.put(JwtUtil.TOKEN_TYPE_CLAIM, JwtUtil.REFRESH_TOKEN_TYPE);
+        claims.put(JwtUtil.FAMILY_CLAIM, familyId);
+        claims.put(JwtUtil.GENERATION_CLAIM, generation);
+        return VerifiedClaims.from(claims);
+    }
+}
@@ -0,0 +1,48 @@
+package com.smartclinic.dtos;
+
+import com.smartclinic.exceptions.BusinessException;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CursorTest {
+
+    @Test
+    void decode_ShouldReturnEncodedKeyAndId() {
+        // Arrange
+        LocalDateTime key = LocalDateTime.of(2030, 1, 15, 9, 30);
+
+        // Act
+        Cursor cursor = Cursor.decode(Cursor.encode(key, 42L));
+
+        // Assert
+        assertEquals(key, Cursor.convert(cursor.getKey(), LocalDateTime.class));
+        assertEquals(42L, Cursor.convert(cursor.getId(), Long.class));
+    }
+
+    @Test
+    void decode_WithKeyContainingSeparators_ShouldKeepKeyIntact() {
+        // Act
+        Cursor cursor = Cursor.decode(Cursor.encode("12:van der Berg", "65a1f0c2e4b0a1b2c3d4e5f6"));
+
+        // Assert
+        assertEquals("12:van der Berg", cursor.getKey());
+        assertEquals("65a1f0c2e4b0a1b2c3d4e5f6", cursor.getId());
+    }
+
+    @Test
+    void decode_WithTamperedToken_ShouldThrowBusinessException() {
+        // Act & Assert
+        assertThrows(BusinessException.class, () -> Cursor.decode("not a cursor"));
+    }
+
+    @Test
+    void getEffectiveLimit_ShouldDefaultAndCap() {
+        // Assert
+        assertEquals(CursorRequest.DEFAULT_LIMIT, new CursorRequest().getEffectiveLimit());
+        assertEquals(CursorRequest.MAX_LIMIT, CursorRequest.firstPage(10_000).getEffectiveLimit());
+        assertThrows(BusinessException.class, () -> CursorRequest.firstPage(0).getEffectiveLimit());
+    }
+}
@@ -0,0 +1,101 @@
+package com.smartclinic.repositories.mongo;
+
+import com.mongodb.bulk.BulkWriteError;
+import com.smartclinic.models.mongo.MedicalRecord;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class MongoBackfillTest {
+
+    private static final Criteria PENDING = Criteria.where("migrated").ne(true);
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private BulkOperations bulkOperations;
+
+    @InjectMocks
+    private MongoBackfill mongoBackfill;
+
+    @BeforeEach
+    void setUp() {
+        when(mongoTemplate.getCollectionName(MedicalRecord.class)).thenReturn("medical_records");
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, MedicalRecord.class, "medical_records"))
+                .thenReturn(bulkOperations);
+    }
+
+    @Test
+    void run_ShouldWalkFullBatchesByIdAndWriteEachOnlyIfUnchanged() {
+        // Arrange
+        when(mongoTemplate.find(any(Query.class), eq(Document.class), eq("medical_records"))).thenReturn(
+                Arrays.asList(new Document("_id", "r1").append("v", 1), new Document("_id", "r2").append("v", 2)),
+                Collections.singletonList(new Document("_id", "r3").append("v", 3)));
+
+        // Act
+        long updated = mongoBackfill.run(MedicalRecord.class, PENDING, 2, "migrate",
+                document -> MongoBackfill.Write.of(new Update().set("migrated", true))
+                        .onlyIf(Criteria.where("v").is(document.get("v"))), "v");
+
+        // Assert
+        assertEquals(3, updated);
+        ArgumentCaptor<Query> read = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate, times(2)).find(read.capture(), eq(Document.class), eq("medical_records"));
+        assertEquals(PENDING.getCriteriaObject(), read.getAllValues().get(0).getQueryObject());
+        assertEquals(new Document("v", 1), read.getAllValues().get(0).getFieldsObject());
+        // The second batch continues after the last id of the first
+        assertEquals(new Document("$and", Arrays.asList(PENDING.getCriteriaObject(), new Document("_id", new Document("$gt", "r2")))),
+                read.getAllValues().get(1).getQueryObject());
+        ArgumentCaptor<Query> written = ArgumentCaptor.forClass(Query.class);
+        verify(bulkOperations, times(3)).updateOne(written.capture(), any(Update.class));
+        verify(bulkOperations, times(2)).execute();
+        assertEquals(new Document("_id", "r1").append("$and", Collections.singletonList(new Document("v", 1))),
+                written.getAllValues().get(0).getQueryObject());
+    }
+
+    @Test
+    void run_WhenDocumentsFail_ShouldLeaveThemAndCountOnlyTheWritten() {
+        // Arrange
+        when(mongoTemplate.find(any(Query.class), eq(Document.class), eq("medical_records"))).thenReturn(Arrays.asList(
+                new Document("_id", "r1"), new Document("_id", "r2"), new Document("_id", "r3")));
+        BulkOperationException failed = mock(BulkOperationException.class);
+        List<BulkWriteError> errors = Collections.singletonList(mock(BulkWriteError.class));
+        when(failed.getErrors()).thenReturn(errors);
+        when(bulkOperations.execute()).thenThrow(failed);
+
+        // Act: r2 cannot be migrated, and one of the two queued writes fails
+        long updated = mongoBackfill.run(MedicalRecord.class, PENDING, 10, "migrate", document -> {
+            if ("r2".equals(document.get("_id"))) {
+                throw new IllegalStateException("malformed");
+            }
+            return MongoBackfill.Write.of(new Update().set("migrated", true));
+        });
+
+        // Assert
+        assertEquals(1, updated);
+        verify(bulkOperations, times(2)).updateOne(any(Query.class), any(Update.class));
+        verify(mongoTemplate, times(1)).find(any(Query.class), eq(Document.class), eq("medical_records"));
+    }
+}
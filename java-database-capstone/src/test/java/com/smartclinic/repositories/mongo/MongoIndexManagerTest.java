@@ -0,0 +1,143 @@
+package com.smartclinic.repositories.mongo;
+
+import com.smartclinic.dtos.MongoQueryPlan;
+import com.smartclinic.models.mongo.RetiredIndexes;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.index.IndexDefinition;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class MongoIndexManagerTest {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private IndexOperations indexOperations;
+
+    @InjectMocks
+    private MongoIndexManager indexManager;
+
+    @Test
+    void planOf_WithClassicPlan_ShouldReportTheIndexOfNestedStages() {
+        // Arrange
+        Document plan = stage("FETCH").append("inputStage", stage("IXSCAN").append("indexName", "patient_id_seek"));
+
+        // Act
+        MongoQueryPlan result = MongoIndexManager.planOf("Repo", "find", "records", explained(plan));
+
+        // Assert
+        assertTrue(result.getIndexed());
+        assertEquals(Collections.singletonList("patient_id_seek"), result.getIndexes());
+        assertFalse(result.getInMemorySort());
+    }
+
+    @Test
+    void planOf_WithSlotBasedEnginePlan_ShouldReadTheNestedQueryPlan() {
+        // Arrange: SBE wraps the classic tree in queryPlan next to its own slotBasedPlan
+        Document plan = new Document("queryPlan", stage("SORT").append("inputStage", stage("COLLSCAN")))
+                .append("slotBasedPlan", new Document("stages", "..."));
+
+        // Act
+        MongoQueryPlan result = MongoIndexManager.planOf("Repo", "find", "records", explained(plan));
+
+        // Assert
+        assertFalse(result.getIndexed());
+        assertTrue(result.getIndexes().isEmpty());
+        assertTrue(result.getInMemorySort());
+    }
+
+    @Test
+    void planOf_WithOrPlan_ShouldReportEveryBranchIndex() {
+        // Arrange
+        Document plan = stage("FETCH").append("inputStage", stage("OR").append("inputStages", Arrays.asList(
+                stage("IXSCAN").append("indexName", "doctor_id_seek"),
+                stage("IXSCAN").append("indexName", "patient_id_seek"))));
+
+        // Act
+        MongoQueryPlan result = MongoIndexManager.planOf("Repo", "find", "records", explained(plan));
+
+        // Assert
+        assertTrue(result.getIndexed());
+        assertEquals(Arrays.asList("doctor_id_seek", "patient_id_seek"), result.getIndexes());
+    }
+
+    @Test
+    void sampleValue_ShouldCoverRepositoryParameterTypes() {
+        // Act & Assert
+        assertEquals(1L, MongoIndexManager.sampleValue(Long.class));
+        assertEquals(1, MongoIndexManager.sampleValue(int.class));
+        assertEquals(Boolean.TRUE, MongoIndexManager.sampleValue(Boolean.class));
+        assertTrue(MongoIndexManager.sampleValue(LocalDateTime.class) instanceof LocalDateTime);
+        assertEquals(Pageable.unpaged(), MongoIndexManager.sampleValue(Pageable.class));
+        assertThrows(IllegalArgumentException.class, () -> MongoIndexManager.sampleValue(Object.class));
+    }
+
+    @Test
+    void createIndexes_ShouldDropRetiredIndexesOnlyAfterCreatingTheDeclaredOnes() {
+        // Arrange
+        MongoMappingContext mappingContext = new MongoMappingContext();
+        mappingContext.setInitialEntitySet(Collections.singleton(Visit.class));
+        mappingContext.initialize();
+        when(mongoTemplate.getConverter()).thenReturn(new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, mappingContext));
+        when(mongoTemplate.indexOps(Visit.class)).thenReturn(indexOperations);
+        when(indexOperations.getIndexInfo()).thenReturn(Arrays.asList(index("_id_"), index("patient_id"), index("patient_id_seek")));
+        ReflectionTestUtils.setField(indexManager, "createOnStartup", true);
+
+        // Act
+        indexManager.createIndexes();
+
+        // Assert
+        InOrder inOrder = inOrder(indexOperations);
+        inOrder.verify(indexOperations).ensureIndex(any(IndexDefinition.class));
+        inOrder.verify(indexOperations).dropIndex("patient_id");
+        verify(indexOperations, never()).dropIndex("patient_id_old");
+        verify(indexOperations, never()).dropIndex("patient_id_seek");
+    }
+
+    private static Document stage(String name) {
+        return new Document("stage", name);
+    }
+
+    private static Document explained(Document winningPlan) {
+        return new Document("queryPlanner", new Document("winningPlan", winningPlan));
+    }
+
+    private static IndexInfo index(String name) {
+        return new IndexInfo(Collections.emptyList(), name, false, false, null);
+    }
+
+    @org.springframework.data.mongodb.core.mapping.Document(collection = "visits")
+    @RetiredIndexes({"patient_id", "patient_id_old"})
+    static class Visit {
+
+        @Id
+        private String id;
+
+        @Indexed(name = "patient_id_seek")
+        private Long patientId;
+    }
+}
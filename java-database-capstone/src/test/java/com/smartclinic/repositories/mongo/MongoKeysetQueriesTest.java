@@ -0,0 +1,184 @@
+package com.smartclinic.repositories.mongo;
+
+import com.smartclinic.dtos.Cursor;
+import com.smartclinic.dtos.CursorPage;
+import com.smartclinic.dtos.CursorRequest;
+import com.smartclinic.models.mongo.Prescription;
+import com.smartclinic.repositories.KeysetSort;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.util.CloseableIterator;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class MongoKeysetQueriesTest {
+
+    private static final LocalDateTime NINE = LocalDateTime.of(2030, 1, 15, 9, 0);
+
+    private static final KeysetSort<Prescription> BY_DATE =
+            KeysetSort.ascending("prescriptionDate", Prescription::getPrescriptionDate, Prescription::getId);
+
+    private static final KeysetSort<Prescription> BY_DATE_DESC =
+            KeysetSort.descending("prescriptionDate", Prescription::getPrescriptionDate, Prescription::getId);
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @InjectMocks
+    private MongoKeysetQueries keysetQueries;
+
+    @Test
+    void find_Ascending_ShouldSeekPastTheCursorByFieldThenId() {
+        // Arrange
+        useMapping();
+        ObjectId afterId = new ObjectId();
+        String cursor = Cursor.encode(NINE, afterId);
+        List<Prescription> documents = Arrays.asList(
+                prescription(NINE, new ObjectId()), prescription(NINE.plusHours(1), new ObjectId()),
+                prescription(NINE.plusHours(2), new ObjectId()));
+        when(mongoTemplate.find(any(Query.class), eq(Prescription.class))).thenReturn(documents);
+
+        // Act
+        CursorPage<Prescription> page = keysetQueries.find(Prescription.class, null, BY_DATE,
+                new CursorRequest(cursor, 2, null));
+
+        // Assert
+        Query query = capturedFind();
+        assertEquals(new Document("$or", Arrays.asList(
+                new Document("prescription_date", new Document("$gt", NINE)),
+                new Document("$and", Arrays.asList(
+                        new Document("prescription_date", NINE),
+                        new Document("_id", new Document("$gt", afterId)))))), query.getQueryObject());
+        assertEquals(new Document("prescription_date", 1).append("_id", 1), query.getSortObject());
+        assertEquals(3, query.getLimit());
+        assertEquals(2, page.getItems().size());
+        assertEquals(BY_DATE.cursorAfter(documents.get(1)), page.getNextCursor());
+        assertNull(page.getTotal());
+    }
+
+    @Test
+    void find_Descending_ShouldSeekBackwardsAndReportTheLastPage() {
+        // Arrange
+        useMapping();
+        ObjectId afterId = new ObjectId();
+        when(mongoTemplate.find(any(Query.class), eq(Prescription.class)))
+                .thenReturn(Collections.singletonList(prescription(NINE.minusHours(1), new ObjectId())));
+
+        // Act
+        CursorPage<Prescription> page = keysetQueries.find(Prescription.class, null, BY_DATE_DESC,
+                new CursorRequest(Cursor.encode(NINE, afterId), 2, null));
+
+        // Assert
+        Query query = capturedFind();
+        assertEquals(new Document("$or", Arrays.asList(
+                new Document("prescription_date", new Document("$lt", NINE)),
+                new Document("$and", Arrays.asList(
+                        new Document("prescription_date", NINE),
+                        new Document("_id", new Document("$lt", afterId)))))), query.getQueryObject());
+        assertEquals(new Document("prescription_date", -1).append("_id", -1), query.getSortObject());
+        assertEquals(1, page.getItems().size());
+        assertNull(page.getNextCursor());
+    }
+
+    @Test
+    void find_WithEstimatedTotal_ShouldEstimateOnlyTheWholeCollection() {
+        // Arrange
+        useMapping();
+        Criteria ofPatient = Criteria.where("patientId").is(10L);
+        when(mongoTemplate.find(any(Query.class), eq(Prescription.class))).thenReturn(Collections.emptyList());
+        when(mongoTemplate.estimatedCount(Prescription.class)).thenReturn(1000L);
+        when(mongoTemplate.count(any(Query.class), eq(Prescription.class))).thenReturn(7L);
+
+        // Act
+        CursorPage<Prescription> all = keysetQueries.find(Prescription.class, null, BY_DATE,
+                new CursorRequest(null, 10, "estimated"));
+        CursorPage<Prescription> filtered = keysetQueries.find(Prescription.class, ofPatient, BY_DATE,
+                new CursorRequest(null, 10, "estimated"));
+
+        // Assert
+        assertEquals(1000L, all.getTotal());
+        assertTrue(all.getTotalEstimated());
+        assertEquals(7L, filtered.getTotal());
+        assertFalse(filtered.getTotalEstimated());
+    }
+
+    @Test
+    void stream_ShouldReadInSortOrderInBatchesAndCloseTheCursor() throws Exception {
+        // Arrange
+        useMapping();
+        ReflectionTestUtils.setField(keysetQueries, "batchSize", 100);
+        List<Prescription> documents = Arrays.asList(
+                prescription(NINE, new ObjectId()), prescription(NINE.plusHours(1), new ObjectId()));
+        AtomicBoolean closed = new AtomicBoolean();
+        when(mongoTemplate.stream(any(Query.class), eq(Prescription.class))).thenReturn(cursorOver(documents, closed));
+        List<Prescription> seen = new ArrayList<>();
+
+        // Act
+        keysetQueries.stream(Prescription.class, null, BY_DATE, seen::add);
+
+        // Assert
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).stream(query.capture(), eq(Prescription.class));
+        assertEquals(new Document("prescription_date", 1).append("_id", 1), query.getValue().getSortObject());
+        assertEquals(100, query.getValue().getMeta().getCursorBatchSize());
+        assertEquals(documents, seen);
+        assertTrue(closed.get());
+    }
+
+    private void useMapping() {
+        when(mongoTemplate.getConverter())
+                .thenReturn(new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, new MongoMappingContext()));
+    }
+
+    private Query capturedFind() {
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).find(query.capture(), eq(Prescription.class));
+        return query.getValue();
+    }
+
+    private static <T> CloseableIterator<T> cursorOver(List<T> documents, AtomicBoolean closed) {
+        Iterator<T> iterator = documents.iterator();
+        return new CloseableIterator<T>() {
+            @Override
+            public boolean hasNext() { return iterator.hasNext(); }
+
+            @Override
+            public T next() { return iterator.next(); }
+
+            @Override
+            public void close() { closed.set(true); }
+        };
+    }
+
+    private static Prescription prescription(LocalDateTime date, ObjectId id) {
+        Prescription prescription = new Prescription();
+        prescription.setId(id.toHexString());
+        prescription.setPrescriptionDate(date);
+        return prescription;
+    }
+}
@@ -0,0 +1,145 @@
+package com.smartclinic.repositories.mysql;
+
+import com.smartclinic.dtos.CursorPage;
+import com.smartclinic.dtos.CursorRequest;
+import com.smartclinic.models.mysql.Appointment;
+import com.smartclinic.models.mysql.Doctor;
+import com.smartclinic.models.mysql.Patient;
+import com.smartclinic.repositories.KeysetSort;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@Import(KeysetQueries.class)
+class KeysetQueriesTest {
+
+    private static final LocalDateTime NINE = LocalDateTime.of(2030, 1, 15, 9, 0);
+
+    private static final KeysetSort<Appointment> BY_DATE =
+            KeysetSort.ascending("appointmentDate", Appointment::getAppointmentDate, Appointment::getId);
+
+    private static final KeysetSort<Appointment> BY_DATE_DESC =
+            KeysetSort.descending("appointmentDate", Appointment::getAppointmentDate, Appointment::getId);
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private KeysetQueries keysetQueries;
+
+    // In (appointmentDate, id) order; two pairs share a date
+    private List<Long> ids;
+
+    @BeforeEach
+    void setUp() {
+        Patient patient = entityManager.persist(new Patient("jdoe", "jdoe@example.com", "password123", "John", "Doe"));
+        Doctor doctor = new Doctor("drhouse", "house@example.com", "password123", "Gregory", "House", "Diagnostics");
+        doctor.setLicenseNumber("LIC-1");
+        doctor = entityManager.persist(doctor);
+
+        ids = new ArrayList<>();
+        for (LocalDateTime date : Arrays.asList(NINE, NINE, NINE.plusHours(1), NINE.plusHours(1), NINE.plusHours(2))) {
+            ids.add(entityManager.persist(new Appointment(patient, doctor, date)).getId());
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void find_Ascending_ShouldPageThroughTiesInIdOrder() {
+        // Act
+        List<Long> seen = pageThrough(BY_DATE, 2);
+
+        // Assert
+        assertEquals(ids, seen);
+    }
+
+    @Test
+    void find_Descending_ShouldPageThroughTiesInReverseIdOrder() {
+        // Arrange
+        List<Long> expected = new ArrayList<>(ids);
+        Collections.reverse(expected);
+
+        // Act
+        List<Long> seen = pageThrough(BY_DATE_DESC, 2);
+
+        // Assert
+        assertEquals(expected, seen);
+    }
+
+    @Test
+    void find_WithExactTotal_ShouldCountOnlyMatchingRows() {
+        // Arrange
+        Specification<Appointment> fromTen = (root, query, cb) ->
+                cb.greaterThanOrEqualTo(root.get("appointmentDate"), NINE.plusHours(1));
+
+        // Act
+        CursorPage<Appointment> page = keysetQueries.find(Appointment.class, fromTen, BY_DATE,
+                new CursorRequest(null, 1, "exact"));
+
+        // Assert
+        assertEquals(1, page.getItems().size());
+        assertEquals(3L, page.getTotal());
+        assertFalse(page.getTotalEstimated());
+    }
+
+    @Test
+    void find_WithEstimatedTotal_WhenNoEstimateAvailable_ShouldFallBackToExactCount() {
+        // Act: H2 has no InnoDB row statistics
+        CursorPage<Appointment> page = keysetQueries.find(Appointment.class, null, BY_DATE,
+                new CursorRequest(null, 1, "estimated"));
+
+        // Assert
+        assertEquals(5L, page.getTotal());
+        assertFalse(page.getTotalEstimated());
+    }
+
+    @Test
+    void stream_ShouldVisitEveryRowInOrderAndClearThePersistenceContextPeriodically() throws Exception {
+        // Arrange
+        ReflectionTestUtils.setField(keysetQueries, "fetchSize", 2);
+        List<Appointment> rows = new ArrayList<>();
+
+        // Act
+        keysetQueries.stream(Appointment.class, null, BY_DATE, Appointment.WITH_PARTIES, rows::add);
+
+        // Assert
+        assertEquals(5, rows.size());
+        for (int i = 0; i < rows.size(); i++) {
+            assertEquals(ids.get(i), rows.get(i).getId());
+        }
+        // Cleared after every second row: only the row read since the last clear is still managed
+        assertFalse(entityManager.getEntityManager().contains(rows.get(0)));
+        assertFalse(entityManager.getEntityManager().contains(rows.get(3)));
+        assertTrue(entityManager.getEntityManager().contains(rows.get(4)));
+        // The fetch graph loaded the parties with each row, so detached rows still have them
+        assertEquals("John", rows.get(0).getPatient().getFirstName());
+    }
+
+    private List<Long> pageThrough(KeysetSort<Appointment> sort, int limit) {
+        List<Long> seen = new ArrayList<>();
+        String cursor = null;
+        do {
+            CursorPage<Appointment> page = keysetQueries.find(Appointment.class, null, sort,
+                    new CursorRequest(cursor, limit, null));
+            assertTrue(page.getItems().size() <= limit);
+            page.getItems().forEach(appointment -> seen.add(appointment.getId()));
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+        return seen;
+    }
+}
@@ -0,0 +1,186 @@
+package com.smartclinic.services;
+
+import com.smartclinic.dtos.AppointmentResponse;
+import com.smartclinic.dtos.CursorPage;
+import com.smartclinic.dtos.CursorRequest;
+import com.smartclinic.models.mysql.Appointment;
+import com.smartclinic.models.mysql.AppointmentStatus;
+import com.smartclinic.models.mysql.ArchivedAppointment;
+import com.smartclinic.models.mysql.Doctor;
+import com.smartclinic.models.mysql.Patient;
+import com.smartclinic.repositories.mysql.KeysetQueries;
+import com.smartclinic.services.locks.SlotLockService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Finished appointments past the horizon move to the archive in chunks, and patient history
+ * keeps reading them as one list with the appointments left in the hot table.
+ */
+@DataJpaTest
+@Import({AppointmentService.class, AppointmentArchiver.class, KeysetQueries.class})
+class AppointmentArchiverTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2030, 6, 1, 2, 30);
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private AppointmentArchiver archiver;
+
+    @Autowired
+    private AppointmentService appointmentService;
+
+    @MockBean
+    private AppointmentSlotIndex slotIndex;
+
+    @MockBean
+    private SlotLockService slotLockService;
+
+    @MockBean
+    private DoctorAppointmentCounters statusCounters;
+
+    private Patient patient;
+    private Appointment completed;
+    private Appointment cancelled;
+    private Appointment overdue;
+    private Appointment recent;
+
+    @BeforeEach
+    void setUp() {
+        patient = entityManager.persist(new Patient("jdoe", "jdoe@example.com", "password123", "John", "Doe"));
+        Doctor doctor = new Doctor("drhouse", "house@example.com", "password123", "Gregory", "House", "Diagnostics");
+        doctor.setLicenseNumber("LIC-1");
+        doctor = entityManager.persist(doctor);
+
+        completed = persist(doctor, LocalDateTime.of(2029, 1, 10, 9, 0), AppointmentStatus.COMPLETED);
+        cancelled = persist(doctor, LocalDateTime.of(2029, 2, 10, 9, 0), AppointmentStatus.CANCELLED);
+        // Old but never closed, so it stays in the hot table
+        overdue = persist(doctor, LocalDateTime.of(2029, 3, 10, 9, 0), AppointmentStatus.SCHEDULED);
+        recent = persist(doctor, LocalDateTime.of(2030, 5, 20, 9, 0), AppointmentStatus.COMPLETED);
+        entityManager.flush();
+        entityManager.clear();
+
+        ReflectionTestUtils.setField(archiver, "horizonDays", 180L);
+        ReflectionTestUtils.setField(archiver, "chunkSize", 1);
+        ReflectionTestUtils.setField(archiver, "pauseMillis", 0L);
+    }
+
+    @Test
+    void archive_ShouldMoveOnlyFinishedAppointmentsPastTheHorizon() {
+        // Act
+        int moved = archiver.archive(NOW);
+        entityManager.clear();
+
+        // Assert
+        assertEquals(2, moved);
+        assertNull(entityManager.find(Appointment.class, completed.getId()));
+        assertNull(entityManager.find(Appointment.class, cancelled.getId()));
+        assertNotNull(entityManager.find(Appointment.class, overdue.getId()));
+        assertNotNull(entityManager.find(Appointment.class, recent.getId()));
+        ArchivedAppointment archived = entityManager.find(ArchivedAppointment.class, cancelled.getId());
+        assertEquals(AppointmentStatus.CANCELLED, archived.getStatus());
+        assertEquals(cancelled.getAppointmentDate(), archived.getAppointmentDate());
+        // Covers what was archived even where the horizon alone would not
+        assertTrue(archiver.coldBoundary(NOW.minusYears(5)).isAfter(cancelled.getAppointmentDate()));
+    }
+
+    @Test
+    void getAppointmentsByPatientId_ShouldPageAcrossBothTiersInDateOrder() {
+        // Arrange
+        archiver.archive(NOW);
+        entityManager.clear();
+
+        // Act
+        CursorPage<AppointmentResponse> first = appointmentService.getAppointmentsByPatientId(patient.getId(),
+                new CursorRequest(null, 3, "exact"));
+        CursorPage<AppointmentResponse> second = appointmentService.getAppointmentsByPatientId(patient.getId(),
+                new CursorRequest(first.getNextCursor(), 3, null));
+
+        // Assert
+        assertEquals(3, first.getItems().size());
+        assertEquals(completed.getId(), first.getItems().get(0).getId());
+        assertTrue(first.getItems().get(0).isArchived());
+        assertEquals(cancelled.getId(), first.getItems().get(1).getId());
+        assertEquals(overdue.getId(), first.getItems().get(2).getId());
+        assertFalse(first.getItems().get(2).isArchived());
+        assertEquals(4L, first.getTotal());
+        assertEquals(1, second.getItems().size());
+        assertEquals(recent.getId(), second.getItems().get(0).getId());
+        assertNull(second.getNextCursor());
+    }
+
+    @Test
+    void getAppointmentById_ShouldFallBackToTheArchive() {
+        // Arrange
+        archiver.archive(NOW);
+        entityManager.clear();
+
+        // Act
+        AppointmentResponse response = appointmentService.getAppointmentById(completed.getId()).orElseThrow(AssertionError::new);
+
+        // Assert
+        assertTrue(response.isArchived());
+        assertEquals("John Doe", response.getPatientName());
+    }
+
+    @Test
+    void streamAllAppointments_ShouldExportArchivedAppointmentsAfterTheHotOnes() throws Exception {
+        // Arrange
+        archiver.archive(NOW);
+        entityManager.clear();
+        List<AppointmentResponse> rows = new ArrayList<>();
+
+        // Act
+        appointmentService.streamAllAppointments(rows::add);
+
+        // Assert
+        assertEquals(Arrays.asList(overdue.getId(), recent.getId(), completed.getId(), cancelled.getId()),
+                rows.stream().map(AppointmentResponse::getId).collect(Collectors.toList()));
+        assertTrue(rows.get(2).isArchived());
+        assertEquals("John Doe", rows.get(2).getPatientName());
+    }
+
+    @Test
+    void streamAppointmentsInDateRange_ShouldReadTheArchiveOnlyWhenTheRangeReachesIt() throws Exception {
+        // Arrange
+        archiver.archive(NOW);
+        entityManager.clear();
+        List<AppointmentResponse> old = new ArrayList<>();
+        List<AppointmentResponse> current = new ArrayList<>();
+
+        // Act
+        appointmentService.streamAppointmentsInDateRange(LocalDateTime.of(2029, 1, 1, 0, 0),
+                LocalDateTime.of(2029, 1, 31, 0, 0), old::add);
+        appointmentService.streamAppointmentsInDateRange(LocalDateTime.of(2030, 5, 1, 0, 0),
+                LocalDateTime.of(2030, 5, 31, 0, 0), current::add);
+
+        // Assert
+        assertEquals(1, old.size());
+        assertEquals(completed.getId(), old.get(0).getId());
+        assertTrue(old.get(0).isArchived());
+        assertEquals(1, current.size());
+        assertEquals(recent.getId(), current.get(0).getId());
+    }
+
+    private Appointment persist(Doctor doctor, LocalDateTime date, AppointmentStatus status) {
+        Appointment appointment = new Appointment(patient, doctor, date);
+        appointment.setStatus(status);
+        return entityManager.persist(appointment);
+    }
+}
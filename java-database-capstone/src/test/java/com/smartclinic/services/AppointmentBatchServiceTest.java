@@ -0,0 +1,207 @@
+package com.smartclinic.services;
+
+import com.smartclinic.dtos.BatchAppointmentRequest;
+import com.smartclinic.dtos.BatchAppointmentResponse;
+import com.smartclinic.dtos.BatchAppointmentResult.Outcome;
+import com.smartclinic.exceptions.BusinessException;
+import com.smartclinic.exceptions.ConflictException;
+import com.smartclinic.repositories.mysql.AppointmentRepository;
+import com.smartclinic.repositories.mysql.DoctorRepository;
+import com.smartclinic.repositories.mysql.PatientRepository;
+import com.smartclinic.services.locks.SlotLock;
+import com.smartclinic.services.locks.SlotLockService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AppointmentBatchServiceTest {
+
+    private static final LocalDateTime NINE = LocalDateTime.of(2030, 1, 15, 9, 0);
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private AppointmentRepository appointmentRepository;
+
+    @Mock
+    private DoctorRepository doctorRepository;
+
+    @Mock
+    private PatientRepository patientRepository;
+
+    @Mock
+    private SlotLockService slotLockService;
+
+    @Mock
+    private DoctorAppointmentCounters statusCounters;
+
+    @InjectMocks
+    private AppointmentBatchService batchService;
+
+    private AppointmentSlotIndex slotIndex;
+
+    @BeforeEach
+    void setUp() {
+        slotIndex = new AppointmentSlotIndex();
+        ReflectionTestUtils.setField(slotIndex, "slotMinutes", 60L);
+        ReflectionTestUtils.setField(slotIndex, "cellMinutes", 15);
+        ReflectionTestUtils.setField(batchService, "slotIndex", slotIndex);
+        ReflectionTestUtils.setField(batchService, "maxRows", 100);
+        ReflectionTestUtils.setField(batchService, "chunkSize", 10);
+        ReflectionTestUtils.setField(batchService, "distributedChunkSize", 10);
+    }
+
+    @Test
+    void importAppointments_ShouldReportEachRowOutcome() {
+        // Arrange
+        when(doctorRepository.findExistingIds(anyList())).thenReturn(Collections.singletonList(1L));
+        when(patientRepository.findExistingIds(anyList())).thenReturn(Arrays.asList(10L, 20L));
+        when(jdbcTemplate.execute(any(ConnectionCallback.class))).thenReturn(Collections.singletonList(500L));
+
+        // Act
+        BatchAppointmentResponse response = batchService.importAppointments(Arrays.asList(
+                row(1L, 10L, NINE),
+                row(1L, 20L, NINE.plusMinutes(30)),
+                row(99L, 20L, NINE.plusHours(3))));
+
+        // Assert
+        assertEquals(Outcome.CREATED, response.getResults().get(0).getOutcome());
+        assertEquals(500L, response.getResults().get(0).getAppointmentId());
+        assertEquals(Outcome.CONFLICT, response.getResults().get(1).getOutcome());
+        assertEquals(Outcome.INVALID, response.getResults().get(2).getOutcome());
+        assertEquals(1, response.getCreated());
+        assertEquals(1, response.getConflicts());
+        assertEquals(1, response.getInvalid());
+        assertTrue(slotIndex.isBooked(500L));
+        verify(jdbcTemplate, times(1)).execute(any(ConnectionCallback.class));
+    }
+
+    @Test
+    void importAppointments_WhenInsertFails_ShouldReleaseReservedSlots() {
+        // Arrange
+        when(doctorRepository.findExistingIds(anyList())).thenReturn(Collections.singletonList(1L));
+        when(patientRepository.findExistingIds(anyList())).thenReturn(Collections.singletonList(10L));
+        when(jdbcTemplate.execute(any(ConnectionCallback.class)))
+                .thenThrow(new DataAccessResourceFailureException("Connection lost"));
+
+        // Act
+        BatchAppointmentResponse response = batchService.importAppointments(
+                Collections.singletonList(row(1L, 10L, NINE)));
+
+        // Assert
+        assertEquals(Outcome.FAILED, response.getResults().get(0).getOutcome());
+        assertDoesNotThrow(() -> slotIndex.reserve(null, 1L, 10L, NINE));
+    }
+
+    @Test
+    void importAppointments_WithDistributedLocks_ShouldHoldChunkLocksUntilInsertCommits() {
+        // Arrange
+        SlotLock lock = mock(SlotLock.class);
+        when(slotLockService.isDistributed()).thenReturn(true);
+        when(slotLockService.keysFor(1L, 10L, NINE)).thenReturn(Arrays.asList("slot:doctor:1:a", "slot:patient:10:a"));
+        when(slotLockService.keysFor(1L, 20L, NINE.plusHours(2))).thenReturn(Arrays.asList("slot:doctor:1:c", "slot:patient:20:c"));
+        when(slotLockService.lockSlots(anyCollection())).thenReturn(lock);
+        when(doctorRepository.findExistingIds(anyList())).thenReturn(Collections.singletonList(1L));
+        when(patientRepository.findExistingIds(anyList())).thenReturn(Arrays.asList(10L, 20L));
+        when(appointmentRepository.findActiveSlotsBetween(any(), any(), any())).thenReturn(Collections.emptyList());
+        when(jdbcTemplate.execute(any(ConnectionCallback.class))).thenReturn(Arrays.asList(500L, 501L));
+
+        // Act
+        BatchAppointmentResponse response = batchService.importAppointments(Arrays.asList(
+                row(1L, 10L, NINE),
+                row(1L, 20L, NINE.plusHours(2))));
+
+        // Assert: one lock for every key of the chunk, the index re-read under it, released after the insert
+        assertEquals(2, response.getCreated());
+        InOrder inOrder = inOrder(slotLockService, appointmentRepository, jdbcTemplate, lock);
+        inOrder.verify(slotLockService).lockSlots(new HashSet<>(Arrays.asList(
+                "slot:doctor:1:a", "slot:patient:10:a", "slot:doctor:1:c", "slot:patient:20:c")));
+        inOrder.verify(appointmentRepository).findActiveSlotsBetween(NINE.minusHours(1), NINE.plusHours(3),
+                AppointmentSlotIndex.INACTIVE_STATUSES);
+        inOrder.verify(jdbcTemplate).execute(any(ConnectionCallback.class));
+        inOrder.verify(lock).close();
+    }
+
+    @Test
+    void importAppointments_WithDistributedLocks_ShouldCapTheChunkSize() {
+        // Arrange
+        ReflectionTestUtils.setField(batchService, "distributedChunkSize", 1);
+        when(slotLockService.isDistributed()).thenReturn(true);
+        when(slotLockService.keysFor(any(), any(), any())).thenReturn(Collections.singletonList("slot:doctor:1:2030-01-15"));
+        when(slotLockService.lockSlots(anyCollection()))
+                .thenThrow(new ConflictException("The requested slot is being booked by another request, please retry"))
+                .thenReturn(mock(SlotLock.class));
+        when(doctorRepository.findExistingIds(anyList())).thenReturn(Collections.singletonList(1L));
+        when(patientRepository.findExistingIds(anyList())).thenReturn(Arrays.asList(10L, 20L));
+        when(appointmentRepository.findActiveSlotsBetween(any(), any(), any())).thenReturn(Collections.emptyList());
+        when(jdbcTemplate.execute(any(ConnectionCallback.class))).thenReturn(Collections.singletonList(501L));
+
+        // Act
+        BatchAppointmentResponse response = batchService.importAppointments(Arrays.asList(
+                row(1L, 10L, NINE),
+                row(1L, 20L, NINE.plusHours(2))));
+
+        // Assert: the contended key only cost the first row
+        verify(slotLockService, times(2)).lockSlots(anyCollection());
+        assertEquals(Outcome.CONFLICT, response.getResults().get(0).getOutcome());
+        assertEquals(Outcome.CREATED, response.getResults().get(1).getOutcome());
+    }
+
+    @Test
+    void importAppointments_WhenChunkLocksTimeOut_ShouldReportConflicts() {
+        // Arrange
+        when(slotLockService.isDistributed()).thenReturn(true);
+        when(slotLockService.lockSlots(anyCollection())).thenThrow(
+                new ConflictException("The requested slot is being booked by another request, please retry"));
+        when(doctorRepository.findExistingIds(anyList())).thenReturn(Collections.singletonList(1L));
+        when(patientRepository.findExistingIds(anyList())).thenReturn(Collections.singletonList(10L));
+
+        // Act
+        BatchAppointmentResponse response = batchService.importAppointments(
+                Collections.singletonList(row(1L, 10L, NINE)));
+
+        // Assert
+        assertEquals(Outcome.CONFLICT, response.getResults().get(0).getOutcome());
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    @Test
+    void importAppointments_WhenBatchTooLarge_ShouldThrowBusinessException() {
+        // Arrange
+        ReflectionTestUtils.setField(batchService, "maxRows", 1);
+
+        // Act & Assert
+        assertThrows(BusinessException.class, () -> batchService.importAppointments(
+                Arrays.asList(row(1L, 10L, NINE), row(1L, 10L, NINE.plusHours(2)))));
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    private static BatchAppointmentRequest row(Long doctorId, Long patientId, LocalDateTime date) {
+        BatchAppointmentRequest request = new BatchAppointmentRequest();
+        request.setDoctorId(doctorId);
+        request.setPatientId(patientId);
+        request.setAppointmentDate(date);
+        return request;
+    }
+}
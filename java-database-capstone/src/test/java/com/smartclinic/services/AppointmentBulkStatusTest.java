@@ -0,0 +1,149 @@
+package com.smartclinic.services;
+
+import com.smartclinic.dtos.BulkStatusUpdateResponse;
+import com.smartclinic.dtos.BulkStatusUpdateResult;
+import com.smartclinic.dtos.BulkStatusUpdateResult.Outcome;
+import com.smartclinic.exceptions.BusinessException;
+import com.smartclinic.models.mysql.Appointment;
+import com.smartclinic.models.mysql.AppointmentStatus;
+import com.smartclinic.models.mysql.Doctor;
+import com.smartclinic.models.mysql.Patient;
+import com.smartclinic.repositories.mysql.KeysetQueries;
+import com.smartclinic.services.locks.SlotLockService;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+
+import javax.persistence.EntityManagerFactory;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * A bulk status change reads and locks all rows in one statement and writes one UPDATE per
+ * previous status, whatever the number of appointments.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Import({AppointmentService.class, KeysetQueries.class})
+class AppointmentBulkStatusTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private AppointmentService appointmentService;
+
+    @MockBean
+    private AppointmentSlotIndex slotIndex;
+
+    @MockBean
+    private SlotLockService slotLockService;
+
+    @MockBean
+    private DoctorAppointmentCounters statusCounters;
+
+    @MockBean
+    private AppointmentArchiver archiver;
+
+    private Doctor doctor;
+    private Appointment scheduled;
+    private Appointment otherScheduled;
+    private Appointment confirmed;
+    private Appointment cancelled;
+    private Appointment completed;
+
+    @BeforeEach
+    void setUp() {
+        Patient patient = entityManager.persist(new Patient("jdoe", "jdoe@example.com", "password123", "John", "Doe"));
+        doctor = new Doctor("drhouse", "house@example.com", "password123", "Gregory", "House", "Diagnostics");
+        doctor.setLicenseNumber("LIC-1");
+        doctor = entityManager.persist(doctor);
+
+        LocalDateTime start = LocalDateTime.of(2030, 1, 15, 9, 0);
+        scheduled = entityManager.persist(new Appointment(patient, doctor, start));
+        otherScheduled = entityManager.persist(new Appointment(patient, doctor, start.plusHours(1)));
+        confirmed = entityManager.persist(withStatus(new Appointment(patient, doctor, start.plusHours(2)), AppointmentStatus.CONFIRMED));
+        cancelled = entityManager.persist(withStatus(new Appointment(patient, doctor, start.plusHours(3)), AppointmentStatus.CANCELLED));
+        completed = entityManager.persist(withStatus(new Appointment(patient, doctor, start.plusHours(4)), AppointmentStatus.COMPLETED));
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void updateAppointmentStatuses_ShouldApplyValidTransitionsWithOneUpdatePerPreviousStatus() {
+        // Arrange
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        // Act
+        BulkStatusUpdateResponse response = appointmentService.updateAppointmentStatuses(Arrays.asList(
+                scheduled.getId(), otherScheduled.getId(), confirmed.getId(), cancelled.getId(), completed.getId(), 999_999L),
+                AppointmentStatus.COMPLETED);
+
+        // Assert
+        assertEquals(3, statistics.getPrepareStatementCount(), "one locking read and two UPDATEs");
+        assertEquals(3, response.getUpdated());
+        assertEquals(1, response.getUnchanged());
+        assertEquals(1, response.getInvalid());
+        assertEquals(1, response.getNotFound());
+        BulkStatusUpdateResult rejected = response.getResults().get(3);
+        assertEquals(cancelled.getId(), rejected.getAppointmentId());
+        assertEquals(Outcome.INVALID_TRANSITION, rejected.getOutcome());
+        assertEquals(AppointmentStatus.CANCELLED, rejected.getPreviousStatus());
+
+        entityManager.clear();
+        assertEquals(AppointmentStatus.COMPLETED, entityManager.find(Appointment.class, scheduled.getId()).getStatus());
+        assertEquals(AppointmentStatus.COMPLETED, entityManager.find(Appointment.class, confirmed.getId()).getStatus());
+        assertEquals(AppointmentStatus.CANCELLED, entityManager.find(Appointment.class, cancelled.getId()).getStatus());
+        verify(statusCounters, times(2)).moved(doctor.getId(), AppointmentStatus.SCHEDULED, AppointmentStatus.COMPLETED);
+        verify(statusCounters).moved(doctor.getId(), AppointmentStatus.CONFIRMED, AppointmentStatus.COMPLETED);
+    }
+
+    @Test
+    void updateAppointmentStatuses_ShouldReleaseSlotsOfCancelledAppointments() {
+        // Act
+        BulkStatusUpdateResponse response = appointmentService.updateAppointmentStatuses(
+                Arrays.asList(scheduled.getId(), confirmed.getId()), AppointmentStatus.CANCELLED);
+
+        // Assert
+        assertEquals(2, response.getUpdated());
+        verify(slotIndex).remove(scheduled.getId());
+        verify(slotIndex).remove(confirmed.getId());
+    }
+
+    @Test
+    void updateAppointmentStatuses_ShouldRejectEmptyRequest() {
+        // Act & Assert
+        assertThrows(BusinessException.class,
+                () -> appointmentService.updateAppointmentStatuses(Collections.emptyList(), AppointmentStatus.CONFIRMED));
+    }
+
+    @Test
+    void updateAppointment_WithTransitionTheStatusEndpointsReject_ShouldThrowBusinessException() {
+        // Arrange
+        Appointment details = withStatus(new Appointment(null, null, completed.getAppointmentDate()), AppointmentStatus.SCHEDULED);
+
+        // Act & Assert
+        assertThrows(BusinessException.class, () -> appointmentService.updateAppointment(completed.getId(), details, null));
+        entityManager.clear();
+        assertEquals(AppointmentStatus.COMPLETED, entityManager.find(Appointment.class, completed.getId()).getStatus());
+        verify(statusCounters, never()).moved(any(), any(), any());
+    }
+
+    private static Appointment withStatus(Appointment appointment, AppointmentStatus status) {
+        appointment.setStatus(status);
+        return appointment;
+    }
+}
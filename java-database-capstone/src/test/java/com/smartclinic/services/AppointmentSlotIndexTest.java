@@ -0,0 +1,173 @@
+package com.smartclinic.services;
+
+import com.smartclinic.exceptions.ConflictException;
+import com.smartclinic.services.AppointmentSlotIndex.Reservation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AppointmentSlotIndexTest {
+
+    private static final LocalDateTime NINE = LocalDateTime.of(2030, 1, 15, 9, 0);
+
+    private AppointmentSlotIndex slotIndex;
+
+    @BeforeEach
+    void setUp() {
+        slotIndex = new AppointmentSlotIndex();
+        ReflectionTestUtils.setField(slotIndex, "slotMinutes", 60L);
+        ReflectionTestUtils.setField(slotIndex, "cellMinutes", 15);
+    }
+
+    @Test
+    void reserve_WhenDoctorSlotOverlaps_ShouldThrowConflict() {
+        // Arrange
+        slotIndex.confirm(slotIndex.reserve(null, 1L, 10L, NINE), 100L);
+
+        // Act & Assert
+        ConflictException exception = assertThrows(ConflictException.class,
+                () -> slotIndex.reserve(null, 1L, 20L, NINE.plusMinutes(30)));
+        assertEquals("Doctor has conflicting appointment at this time", exception.getMessage());
+    }
+
+    @Test
+    void reserve_WhenPatientSlotOverlaps_ShouldThrowConflict() {
+        // Arrange
+        slotIndex.confirm(slotIndex.reserve(null, 1L, 10L, NINE), 100L);
+
+        // Act & Assert
+        ConflictException exception = assertThrows(ConflictException.class,
+                () -> slotIndex.reserve(null, 2L, 10L, NINE.minusMinutes(59)));
+        assertEquals("Patient has conflicting appointment at this time", exception.getMessage());
+    }
+
+    @Test
+    void reserve_WithAdjacentSlots_ShouldSucceed() {
+        // Arrange
+        slotIndex.confirm(slotIndex.reserve(null, 1L, 10L, NINE), 100L);
+
+        // Act & Assert
+        assertDoesNotThrow(() -> slotIndex.reserve(null, 1L, 20L, NINE.plusMinutes(60)));
+        assertDoesNotThrow(() -> slotIndex.reserve(null, 1L, 30L, NINE.minusMinutes(60)));
+    }
+
+    @Test
+    void reserve_WhenMovingOwnAppointment_ShouldIgnoreItsCurrentSlot() {
+        // Arrange
+        slotIndex.confirm(slotIndex.reserve(null, 1L, 10L, NINE), 100L);
+
+        // Act
+        Reservation moved = slotIndex.reserve(100L, 1L, 10L, NINE.plusMinutes(30));
+        slotIndex.confirm(moved, 100L);
+
+        // Assert: the old 09:00 slot is free again, the new 09:30 one is taken
+        assertDoesNotThrow(() -> slotIndex.reserve(null, 1L, 20L, NINE.minusMinutes(30)));
+        assertThrows(ConflictException.class, () -> slotIndex.reserve(null, 1L, 30L, NINE.plusMinutes(80)));
+        assertEquals(1, slotIndex.size());
+    }
+
+    @Test
+    void release_AfterFailedSave_ShouldFreeSlot() {
+        // Arrange
+        Reservation reservation = slotIndex.reserve(null, 1L, 10L, NINE);
+
+        // Act
+        slotIndex.release(reservation);
+
+        // Assert
+        assertDoesNotThrow(() -> slotIndex.reserve(null, 1L, 20L, NINE));
+    }
+
+    @Test
+    void remove_ShouldFreeSlot() {
+        // Arrange
+        slotIndex.confirm(slotIndex.reserve(null, 1L, 10L, NINE), 100L);
+
+        // Act
+        slotIndex.remove(100L);
+
+        // Assert
+        assertFalse(slotIndex.isBooked(100L));
+        assertDoesNotThrow(() -> slotIndex.reserve(null, 1L, 20L, NINE));
+    }
+
+    @Test
+    void busyCells_ShouldCoverEveryCellTheBookingOverlaps() {
+        // Act
+        slotIndex.confirm(slotIndex.reserve(null, 1L, 10L, NINE.plusMinutes(30)), 100L);
+
+        // Assert
+        long[] cells = slotIndex.busyCells(1L, NINE.toLocalDate());
+        assertNotNull(cells);
+        for (int cell = 0; cell < 96; cell++) {
+            boolean busy = (cells[cell >>> 6] & (1L << cell)) != 0;
+            assertEquals(cell >= 38 && cell <= 41, busy, "cell " + cell);
+        }
+        assertNull(slotIndex.busyCells(2L, NINE.toLocalDate()));
+    }
+
+    @Test
+    void busyCells_WhenBookingRemoved_ShouldKeepCellsOfNeighbouringBooking() {
+        // Arrange
+        slotIndex.confirm(slotIndex.reserve(null, 1L, 10L, NINE.plusMinutes(10)), 100L);
+        slotIndex.confirm(slotIndex.reserve(null, 1L, 20L, NINE.plusMinutes(70)), 101L);
+
+        // Act
+        slotIndex.remove(100L);
+
+        // Assert: 10:10-11:10 still occupies cells 40 to 44
+        long[] cells = slotIndex.busyCells(1L, NINE.toLocalDate());
+        assertNotNull(cells);
+        assertEquals(0b11111L << 40, cells[0]);
+
+        slotIndex.remove(101L);
+        assertNull(slotIndex.busyCells(1L, NINE.toLocalDate()));
+    }
+
+    @Test
+    void reserve_WithConcurrentBookingsForSameSlot_ShouldAcceptExactlyOne() throws Exception {
+        // Arrange
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+
+        try {
+            // Act
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (int i = 0; i < 16; i++) {
+                long patientId = 1000L + i;
+                results.add(executor.submit(() -> {
+                    start.await();
+                    try {
+                        slotIndex.reserve(null, 1L, patientId, NINE);
+                        return true;
+                    } catch (ConflictException e) {
+                        return false;
+                    }
+                }));
+            }
+            start.countDown();
+
+            // Assert
+            int accepted = 0;
+            for (Future<Boolean> result : results) {
+                if (result.get(5, TimeUnit.SECONDS)) {
+                    accepted++;
+                }
+            }
+            assertEquals(1, accepted);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
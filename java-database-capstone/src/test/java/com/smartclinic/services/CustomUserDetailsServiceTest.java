@@ -0,0 +1,141 @@
+package com.smartclinic.services;
+
+import com.smartclinic.models.mysql.User;
+import com.smartclinic.repositories.mysql.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.core.CredentialsContainer;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CustomUserDetailsServiceTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private CustomUserDetailsService userDetailsService;
+
+    private User testUser;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        userDetailsService = new CustomUserDetailsService();
+        ReflectionTestUtils.setField(userDetailsService, "userRepository", userRepository);
+        ReflectionTestUtils.setField(userDetailsService, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(userDetailsService, "cacheTtlMillis", 60000L);
+        ReflectionTestUtils.setField(userDetailsService, "cacheMaxSize", 100);
+        userDetailsService.registerMetrics();
+
+        testUser = new User();
+        testUser.setUsername("testuser");
+        testUser.setPassword("encodedPassword");
+        testUser.setRole(User.Role.PATIENT);
+    }
+
+    @Test
+    void loadUserByUsername_WhenCalledTwice_ShouldQueryRepositoryOnce() {
+        // Arrange
+        when(userRepository.findByUsername("testuser")).thenReturn(Optional.of(testUser));
+
+        // Act
+        UserDetails first = userDetailsService.loadUserByUsername("testuser");
+        UserDetails second = userDetailsService.loadUserByUsername("testuser");
+
+        // Assert
+        assertEquals("testuser", second.getUsername());
+        assertEquals(first.getAuthorities(), second.getAuthorities());
+        verify(userRepository, times(1)).findByUsername("testuser");
+        assertEquals(1.0, meterRegistry.get("smartclinic.user.details.cache").tag("result", "hit").counter().count());
+        assertEquals(1.0, meterRegistry.get("smartclinic.user.details.cache").tag("result", "miss").counter().count());
+    }
+
+    @Test
+    void loadUserByUsername_AfterCredentialsErased_ShouldStillReturnPassword() {
+        // Arrange
+        when(userRepository.findByUsername("testuser")).thenReturn(Optional.of(testUser));
+
+        // Act
+        UserDetails first = userDetailsService.loadUserByUsername("testuser");
+        ((CredentialsContainer) first).eraseCredentials();
+        UserDetails second = userDetailsService.loadUserByUsername("testuser");
+
+        // Assert
+        assertEquals("encodedPassword", second.getPassword());
+    }
+
+    @Test
+    void evict_ShouldForceReload() {
+        // Arrange
+        when(userRepository.findByUsername("testuser")).thenReturn(Optional.of(testUser));
+        userDetailsService.loadUserByUsername("testuser");
+
+        // Act
+        userDetailsService.evict("testuser");
+        userDetailsService.loadUserByUsername("testuser");
+
+        // Assert
+        verify(userRepository, times(2)).findByUsername("testuser");
+        assertEquals(1.0, meterRegistry.get("smartclinic.user.details.cache.evictions").counter().count());
+    }
+
+    @Test
+    void loadUserByUsername_WhenUserMissing_ShouldNotCacheFailure() {
+        // Arrange
+        when(userRepository.findByUsername("ghost")).thenReturn(Optional.empty());
+
+        // Act & Assert
+        assertThrows(UsernameNotFoundException.class, () -> userDetailsService.loadUserByUsername("ghost"));
+        assertThrows(UsernameNotFoundException.class, () -> userDetailsService.loadUserByUsername("ghost"));
+        verify(userRepository, times(2)).findByUsername("ghost");
+    }
+
+    @Test
+    void loadUserByUsername_WithConcurrentMisses_ShouldLoadOnce() throws Exception {
+        // Arrange
+        CountDownLatch release = new CountDownLatch(1);
+        when(userRepository.findByUsername("testuser")).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return Optional.of(testUser);
+        });
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+
+        try {
+            // Act
+            List<Future<UserDetails>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                results.add(executor.submit(() -> userDetailsService.loadUserByUsername("testuser")));
+            }
+            Thread.sleep(100);
+            release.countDown();
+
+            // Assert
+            for (Future<UserDetails> result : results) {
+                assertEquals("testuser", result.get(5, TimeUnit.SECONDS).getUsername());
+            }
+            verify(userRepository, times(1)).findByUsername("testuser");
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
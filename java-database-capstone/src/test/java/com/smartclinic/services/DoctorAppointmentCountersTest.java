@@ -0,0 +1,153 @@
+package com.smartclinic.services;
+
+import com.smartclinic.dtos.DoctorAppointmentStats;
+import com.smartclinic.models.mysql.AppointmentStatus;
+import com.smartclinic.repositories.mysql.AppointmentRepository;
+import com.smartclinic.repositories.mysql.ArchivedAppointmentRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class DoctorAppointmentCountersTest {
+
+    @Mock
+    private AppointmentRepository appointmentRepository;
+
+    @Mock
+    private ArchivedAppointmentRepository archivedAppointmentRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @InjectMocks
+    private DoctorAppointmentCounters counters;
+
+    @Test
+    void moved_ShouldShiftCountBetweenStatuses() {
+        // Arrange
+        counters.created(1L, AppointmentStatus.SCHEDULED);
+        counters.created(1L, AppointmentStatus.SCHEDULED);
+
+        // Act
+        counters.moved(1L, AppointmentStatus.SCHEDULED, AppointmentStatus.CONFIRMED);
+
+        // Assert
+        DoctorAppointmentStats stats = counters.stats(1L);
+        assertEquals(1L, stats.getByStatus().get(AppointmentStatus.SCHEDULED));
+        assertEquals(1L, stats.getByStatus().get(AppointmentStatus.CONFIRMED));
+        assertEquals(2L, stats.getTotal());
+    }
+
+    @Test
+    void stats_ForUnknownDoctor_ShouldReturnZeros() {
+        // Act
+        DoctorAppointmentStats stats = counters.stats(99L);
+
+        // Assert
+        assertEquals(0L, stats.getTotal());
+        assertEquals(AppointmentStatus.values().length, stats.getByStatus().size());
+    }
+
+    @Test
+    void reconcile_ShouldCorrectDriftedCounters() {
+        // Arrange
+        counters.created(1L, AppointmentStatus.SCHEDULED);
+        when(appointmentRepository.countByDoctorAndStatus()).thenReturn(Arrays.asList(
+                statusCount(1L, AppointmentStatus.SCHEDULED, 3),
+                statusCount(2L, AppointmentStatus.COMPLETED, 5)));
+
+        // Act
+        counters.reconcile();
+
+        // Assert
+        assertEquals(3, counters.count(1L, AppointmentStatus.SCHEDULED));
+        assertEquals(5, counters.count(2L, AppointmentStatus.COMPLETED));
+    }
+
+    @Test
+    void reconcile_ShouldAddArchivedCountsAndQueryArchiveOnlyAfterItChanged() {
+        // Arrange
+        LocalDateTime archivedAt = LocalDateTime.of(2030, 1, 15, 2, 30);
+        when(appointmentRepository.countByDoctorAndStatus()).thenReturn(Collections.singletonList(
+                statusCount(1L, AppointmentStatus.COMPLETED, 2)));
+        when(archivedAppointmentRepository.findLastArchivedAt()).thenReturn(archivedAt, archivedAt, archivedAt.plusDays(1));
+        when(archivedAppointmentRepository.countByDoctorAndStatus()).thenReturn(
+                Collections.singletonList(statusCount(1L, AppointmentStatus.COMPLETED, 40)),
+                Collections.singletonList(statusCount(1L, AppointmentStatus.COMPLETED, 41)));
+
+        // Act
+        counters.reconcile();
+        counters.reconcile();
+        long beforeArchiving = counters.count(1L, AppointmentStatus.COMPLETED);
+        counters.reconcile();
+
+        // Assert
+        assertEquals(42, beforeArchiving);
+        assertEquals(43, counters.count(1L, AppointmentStatus.COMPLETED));
+        verify(archivedAppointmentRepository, times(2)).countByDoctorAndStatus();
+    }
+
+    @Test
+    void reconcile_ShouldReadBothTiersInOneRepeatableReadTransaction() {
+        // Arrange
+        when(appointmentRepository.countByDoctorAndStatus()).thenReturn(Collections.emptyList());
+        when(archivedAppointmentRepository.countByDoctorAndStatus()).thenReturn(Collections.emptyList());
+
+        // Act
+        counters.reconcile();
+
+        // Assert
+        ArgumentCaptor<TransactionDefinition> definition = ArgumentCaptor.forClass(TransactionDefinition.class);
+        InOrder inOrder = inOrder(transactionManager, appointmentRepository, archivedAppointmentRepository);
+        inOrder.verify(transactionManager).getTransaction(definition.capture());
+        inOrder.verify(archivedAppointmentRepository).countByDoctorAndStatus();
+        inOrder.verify(appointmentRepository).countByDoctorAndStatus();
+        inOrder.verify(transactionManager).commit(any());
+        assertEquals(TransactionDefinition.ISOLATION_REPEATABLE_READ, definition.getValue().getIsolationLevel());
+        assertTrue(definition.getValue().isReadOnly());
+    }
+
+    @Test
+    void reconcile_WhenDoctorChangesDuringQuery_ShouldLeaveItForNextRound() {
+        // Arrange
+        counters.created(1L, AppointmentStatus.SCHEDULED);
+        when(appointmentRepository.countByDoctorAndStatus()).thenAnswer(invocation -> {
+            counters.created(1L, AppointmentStatus.SCHEDULED);
+            return Collections.singletonList(statusCount(1L, AppointmentStatus.SCHEDULED, 1));
+        });
+
+        // Act
+        counters.reconcile();
+
+        // Assert
+        assertEquals(2, counters.count(1L, AppointmentStatus.SCHEDULED));
+    }
+
+    private static AppointmentRepository.StatusCount statusCount(Long doctorId, AppointmentStatus status, long count) {
+        return new AppointmentRepository.StatusCount() {
+            @Override
+            public Long getDoctorId() { return doctorId; }
+
+            @Override
+            public AppointmentStatus getStatus() { return status; }
+
+            @Override
+            public long getCount() { return count; }
+        };
+    }
+}
@@ -0,0 +1,193 @@
+package com.smartclinic.services;
+
+import com.smartclinic.dtos.AvailableSlot;
+import com.smartclinic.models.mysql.Doctor;
+import com.smartclinic.models.mysql.DoctorWorkingHours;
+import com.smartclinic.repositories.mysql.DoctorRepository;
+import com.smartclinic.repositories.mysql.DoctorWorkingHoursRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.DayOfWeek;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class DoctorAvailabilityServiceTest {
+
+    // A Tuesday
+    private static final LocalDateTime TUESDAY = LocalDateTime.of(2030, 1, 15, 0, 0);
+
+    @Mock
+    private DoctorRepository doctorRepository;
+
+    @Mock
+    private DoctorWorkingHoursRepository workingHoursRepository;
+
+    @Mock
+    private DoctorRepository.ChangeMarker doctorMarker;
+
+    @Mock
+    private DoctorWorkingHoursRepository.ChangeMarker hoursMarker;
+
+    private AppointmentSlotIndex slotIndex;
+
+    private DoctorAvailabilityService availabilityService;
+
+    @BeforeEach
+    void setUp() {
+        slotIndex = new AppointmentSlotIndex();
+        ReflectionTestUtils.setField(slotIndex, "slotMinutes", 60L);
+        ReflectionTestUtils.setField(slotIndex, "cellMinutes", 15);
+
+        availabilityService = new DoctorAvailabilityService();
+        ReflectionTestUtils.setField(availabilityService, "doctorRepository", doctorRepository);
+        ReflectionTestUtils.setField(availabilityService, "workingHoursRepository", workingHoursRepository);
+        ReflectionTestUtils.setField(availabilityService, "slotIndex", slotIndex);
+        ReflectionTestUtils.setField(availabilityService, "defaultDays", new DayOfWeek[] {
+                DayOfWeek.MONDAY, DayOfWeek.TUESDAY, DayOfWeek.WEDNESDAY, DayOfWeek.THURSDAY, DayOfWeek.FRIDAY});
+        ReflectionTestUtils.setField(availabilityService, "defaultStart", "09:00");
+        ReflectionTestUtils.setField(availabilityService, "defaultEnd", "17:00");
+        ReflectionTestUtils.setField(availabilityService, "maxDays", 31);
+        ReflectionTestUtils.setField(availabilityService, "maxResults", 100);
+
+        when(doctorRepository.findChangeMarker()).thenReturn(doctorMarker);
+        when(workingHoursRepository.findChangeMarker()).thenReturn(hoursMarker);
+    }
+
+    @Test
+    void findAvailableSlots_ShouldExpandWorkingHoursIntoWholeSlots() {
+        // Arrange: 09:00-11:30 leaves room for two one-hour slots
+        load(Collections.singletonList(doctor(1L, "Cardiology")), Collections.singletonList(
+                new DoctorWorkingHours(1L, DayOfWeek.TUESDAY, LocalTime.of(9, 0), LocalTime.of(11, 30))));
+
+        // Act
+        List<AvailableSlot> slots = availabilityService.findAvailableSlots(1L, null, TUESDAY, TUESDAY.plusDays(1), 10);
+
+        // Assert
+        assertEquals(Arrays.asList(TUESDAY.withHour(9), TUESDAY.withHour(10)), starts(slots));
+        assertEquals(TUESDAY.withHour(10), slots.get(0).getEnd());
+        assertEquals("Greg Doctor1", slots.get(0).getDoctorName());
+    }
+
+    @Test
+    void findAvailableSlots_ShouldSkipSlotsOverlappingBookings() {
+        // Arrange: default 09:00-17:00 hours, booked at 10:00 and at 11:30
+        load(Collections.singletonList(doctor(1L, "Cardiology")), Collections.emptyList());
+        slotIndex.record(100L, 1L, 10L, TUESDAY.withHour(10));
+        slotIndex.record(101L, 1L, 11L, TUESDAY.withHour(11).withMinute(30));
+
+        // Act
+        List<AvailableSlot> slots = availabilityService.findAvailableSlots(1L, null, TUESDAY, TUESDAY.plusDays(1), 10);
+
+        // Assert: 11:30-12:30 blocks both the 11:00 and the 12:00 slot
+        assertEquals(Arrays.asList(TUESDAY.withHour(9), TUESDAY.withHour(13), TUESDAY.withHour(14),
+                TUESDAY.withHour(15), TUESDAY.withHour(16)), starts(slots));
+    }
+
+    @Test
+    void findAvailableSlots_BySpecialization_ShouldMergeMatchingDoctorsInStartOrder() {
+        // Arrange
+        load(Arrays.asList(doctor(1L, "Cardiology"), doctor(2L, "Dermatology"), doctor(3L, "Cardiology")),
+                Collections.emptyList());
+
+        // Act
+        List<AvailableSlot> slots = availabilityService.findAvailableSlots(null, "Cardiology", TUESDAY, null, 4);
+
+        // Assert
+        assertEquals(Arrays.asList(1L, 3L, 1L, 3L),
+                slots.stream().map(AvailableSlot::getDoctorId).collect(Collectors.toList()));
+        assertEquals(Arrays.asList(TUESDAY.withHour(9), TUESDAY.withHour(9), TUESDAY.withHour(10), TUESDAY.withHour(10)),
+                starts(slots));
+    }
+
+    @Test
+    void findAvailableSlots_ShouldOnlyReturnSlotsInsideTheWindowAcrossDays() {
+        // Arrange
+        load(Collections.singletonList(doctor(1L, "Cardiology")), Collections.emptyList());
+        LocalDateTime from = TUESDAY.withHour(16).withMinute(30);
+        LocalDateTime to = TUESDAY.plusDays(1).withHour(10).withMinute(30);
+
+        // Act
+        List<AvailableSlot> slots = availabilityService.findAvailableSlots(1L, null, from, to, 10);
+
+        // Assert: Tuesday 16:00 starts before the window, Wednesday 10:00 ends after it
+        assertEquals(Collections.singletonList(TUESDAY.plusDays(1).withHour(9)), starts(slots));
+    }
+
+    @Test
+    void refresh_ShouldReloadOnlyWhenDoctorsOrHoursChanged() {
+        // Arrange
+        load(Collections.singletonList(doctor(1L, "Cardiology")), Collections.emptyList());
+
+        // Act: nothing changed
+        availabilityService.refresh();
+
+        // Assert
+        verify(doctorRepository, times(1)).findAll();
+
+        // Act: a doctor was updated elsewhere
+        when(doctorMarker.getVersionSum()).thenReturn(1L);
+        availabilityService.refresh();
+
+        // Assert
+        verify(doctorRepository, times(2)).findAll();
+        verify(workingHoursRepository, times(2)).findAll();
+    }
+
+    @Test
+    void setWorkingHours_ShouldOnlyChangeTheSnapshotOnceCommitted() {
+        // Arrange: default 09:00-17:00 hours until the new ones commit
+        Doctor doctor = doctor(1L, "Cardiology");
+        load(Collections.singletonList(doctor), Collections.emptyList());
+        List<DoctorWorkingHours> hours = Collections.singletonList(
+                new DoctorWorkingHours(1L, DayOfWeek.TUESDAY, LocalTime.of(14, 0), LocalTime.of(15, 0)));
+        when(doctorRepository.findById(1L)).thenReturn(Optional.of(doctor));
+        when(workingHoursRepository.saveAll(hours)).thenReturn(hours);
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            // Act
+            availabilityService.setWorkingHours(1L, hours);
+            List<AvailableSlot> beforeCommit = availabilityService.findAvailableSlots(1L, null, TUESDAY, TUESDAY.plusDays(1), 10);
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+            List<AvailableSlot> afterCommit = availabilityService.findAvailableSlots(1L, null, TUESDAY, TUESDAY.plusDays(1), 10);
+
+            // Assert
+            assertEquals(8, beforeCommit.size());
+            assertEquals(Collections.singletonList(TUESDAY.withHour(14)), starts(afterCommit));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    private void load(List<Doctor> doctors, List<DoctorWorkingHours> hours) {
+        when(doctorRepository.findAll()).thenReturn(doctors);
+        when(workingHoursRepository.findAll()).thenReturn(hours);
+        availabilityService.init();
+    }
+
+    private static Doctor doctor(Long id, String specialization) {
+        Doctor doctor = new Doctor("doctor" + id, "doctor" + id + "@example.com", "password123",
+                "Greg", "Doctor" + id, specialization);
+        doctor.setId(id);
+        return doctor;
+    }
+
+    private static List<LocalDateTime> starts(List<AvailableSlot> slots) {
+        return slots.stream().map(AvailableSlot::getStart).collect(Collectors.toList());
+    }
+}
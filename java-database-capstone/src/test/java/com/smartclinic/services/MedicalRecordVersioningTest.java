@@ -0,0 +1,95 @@
+package com.smartclinic.services;
+
+import com.smartclinic.exceptions.StaleVersionException;
+import com.smartclinic.models.mongo.MedicalRecord;
+import com.smartclinic.repositories.mongo.MedicalRecordRepository;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Medical record updates are conditional on the version the client last read.
+ */
+@ExtendWith(MockitoExtension.class)
+class MedicalRecordVersioningTest {
+
+    @Mock
+    private MedicalRecordRepository medicalRecordRepository;
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @InjectMocks
+    private MedicalRecordService medicalRecordService;
+
+    @Test
+    void updateMedicalRecord_ShouldRejectStaleVersionWithCurrentVersion() {
+        // Arrange
+        when(medicalRecordRepository.findById("r1")).thenReturn(Optional.of(record(3L)));
+
+        // Act
+        StaleVersionException exception = assertThrows(StaleVersionException.class,
+                () -> medicalRecordService.updateMedicalRecord("r1", new MedicalRecord(), 2L));
+
+        // Assert
+        assertEquals(3L, exception.getCurrentVersion());
+        verify(medicalRecordRepository, never()).save(any());
+    }
+
+    @Test
+    void updateMedicalRecord_WrittenBeforeVersioning_ShouldCountAsVersionZero() {
+        // Arrange
+        when(medicalRecordRepository.findById("r1")).thenReturn(Optional.of(record(null)));
+        when(medicalRecordRepository.save(any(MedicalRecord.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        MedicalRecord details = new MedicalRecord();
+        details.setDiagnosis("Hypertension");
+
+        // Act
+        MedicalRecord updated = medicalRecordService.updateMedicalRecord("r1", details, 0L);
+
+        // Assert
+        ArgumentCaptor<Query> stamped = ArgumentCaptor.forClass(Query.class);
+        InOrder inOrder = inOrder(mongoTemplate, medicalRecordRepository);
+        inOrder.verify(mongoTemplate).updateFirst(stamped.capture(), any(Update.class), eq(MedicalRecord.class));
+        inOrder.verify(medicalRecordRepository).save(updated);
+        assertEquals(new Document("_id", "r1").append("version", new Document("$exists", false)),
+                stamped.getValue().getQueryObject());
+        // Saved at version 0, so the save only matches the document as it was read
+        assertEquals(0L, updated.getVersion());
+        assertEquals("Hypertension", updated.getDiagnosis());
+    }
+
+    @Test
+    void updateMedicalRecord_WhenChangedConcurrently_ShouldThrowStaleVersion() {
+        // Arrange
+        when(medicalRecordRepository.findById("r1")).thenReturn(Optional.of(record(3L)));
+        when(medicalRecordRepository.save(any(MedicalRecord.class))).thenThrow(new OptimisticLockingFailureException("r1"));
+
+        // Act & Assert
+        assertThrows(StaleVersionException.class, () -> medicalRecordService.updateMedicalRecord("r1", new MedicalRecord(), null));
+        verifyNoInteractions(mongoTemplate);
+    }
+
+    private static MedicalRecord record(Long version) {
+        MedicalRecord record = new MedicalRecord(1L, 2L, "Hypertension");
+        record.setId("r1");
+        record.setVersion(version);
+        return record;
+    }
+}
@@ -0,0 +1,74 @@
+package com.smartclinic.services;
+
+import com.smartclinic.exceptions.ServiceUnavailableException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PasswordHashingServiceTest {
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private PasswordHashingService passwordHashingService;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        passwordHashingService = new PasswordHashingService();
+        ReflectionTestUtils.setField(passwordHashingService, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(passwordHashingService, "threads", 1);
+        ReflectionTestUtils.setField(passwordHashingService, "queueCapacity", 1);
+        ReflectionTestUtils.setField(passwordHashingService, "retryAfterSeconds", 2L);
+        passwordHashingService.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        passwordHashingService.stop();
+    }
+
+    @Test
+    void submit_ShouldRunTaskOffCallerThread() throws Exception {
+        // Act
+        String threadName = passwordHashingService.submit(() -> Thread.currentThread().getName())
+                .get(5, TimeUnit.SECONDS);
+
+        // Assert
+        assertTrue(threadName.startsWith("password-hashing-"));
+    }
+
+    @Test
+    void submit_WhenPoolSaturated_ShouldRejectWithServiceUnavailable() throws Exception {
+        // Arrange
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Boolean> running = passwordHashingService.submit(() -> await(release));
+        CompletableFuture<Boolean> queued = passwordHashingService.submit(() -> await(release));
+
+        // Act & Assert
+        ServiceUnavailableException ex = assertThrows(ServiceUnavailableException.class,
+                () -> passwordHashingService.submit(() -> true));
+        assertEquals(2L, ex.getRetryAfterSeconds());
+        assertEquals(1.0, meterRegistry.get("smartclinic.password.hashing.rejected").counter().count());
+
+        release.countDown();
+        assertTrue(running.get(5, TimeUnit.SECONDS));
+        assertTrue(queued.get(5, TimeUnit.SECONDS));
+    }
+
+    private static boolean await(CountDownLatch latch) {
+        try {
+            return latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
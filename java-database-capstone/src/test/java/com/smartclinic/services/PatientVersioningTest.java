@@ -0,0 +1,68 @@
+package com.smartclinic.services;
+
+import com.smartclinic.exceptions.StaleVersionException;
+import com.smartclinic.models.mysql.Patient;
+import com.smartclinic.repositories.mysql.KeysetQueries;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Patient updates are conditional on the version the client last read.
+ */
+@DataJpaTest
+@Import({PatientService.class, KeysetQueries.class})
+class PatientVersioningTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private PatientService patientService;
+
+    private Patient patient;
+
+    @BeforeEach
+    void setUp() {
+        patient = entityManager.persistFlushFind(new Patient("jdoe", "jdoe@example.com", "password123", "John", "Doe"));
+        entityManager.clear();
+    }
+
+    @Test
+    void updatePatient_ShouldBumpVersionWhenExpectedVersionIsCurrent() {
+        // Arrange
+        Patient details = new Patient();
+        details.setPhone("+90 555 000 0000");
+
+        // Act
+        patientService.updatePatient(patient.getId(), details, patient.getVersion());
+        entityManager.flush();
+        entityManager.clear();
+
+        // Assert
+        Patient updated = entityManager.find(Patient.class, patient.getId());
+        assertEquals("+90 555 000 0000", updated.getPhone());
+        assertEquals(patient.getVersion() + 1, updated.getVersion());
+    }
+
+    @Test
+    void updatePatient_ShouldRejectStaleVersionWithCurrentVersion() {
+        // Arrange
+        Patient details = new Patient();
+        details.setPhone("+90 555 000 0000");
+
+        // Act
+        StaleVersionException exception = assertThrows(StaleVersionException.class,
+                () -> patientService.updatePatient(patient.getId(), details, patient.getVersion() + 5));
+
+        // Assert
+        assertEquals(Long.valueOf(patient.getVersion()), exception.getCurrentVersion());
+        entityManager.clear();
+        assertNull(entityManager.find(Patient.class, patient.getId()).getPhone());
+    }
+}
@@ -0,0 +1,208 @@
+package com.smartclinic.services;
+
+import com.smartclinic.dtos.AppointmentResponse;
+import com.smartclinic.dtos.CursorPage;
+import com.smartclinic.dtos.CursorRequest;
+import com.smartclinic.dtos.DoctorResponse;
+import com.smartclinic.dtos.PatientResponse;
+import com.smartclinic.models.mysql.Appointment;
+import com.smartclinic.models.mysql.Doctor;
+import com.smartclinic.models.mysql.Patient;
+import com.smartclinic.repositories.mysql.KeysetQueries;
+import com.smartclinic.services.locks.SlotLockService;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+
+import javax.persistence.EntityManagerFactory;
+import java.time.LocalDateTime;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+/**
+ * Every read endpoint must be served by a single SQL statement, including the patient and doctor
+ * names of appointments; a lazy association touched while building a response shows up here as
+ * an extra statement.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Import({AppointmentService.class, PatientService.class, DoctorService.class, KeysetQueries.class})
+class ReadModelStatementCountTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private AppointmentService appointmentService;
+
+    @Autowired
+    private PatientService patientService;
+
+    @Autowired
+    private DoctorService doctorService;
+
+    @MockBean
+    private AppointmentSlotIndex slotIndex;
+
+    @MockBean
+    private SlotLockService slotLockService;
+
+    @MockBean
+    private DoctorAppointmentCounters statusCounters;
+
+    @MockBean
+    private AppointmentArchiver archiver;
+
+    @MockBean
+    private DoctorAvailabilityService availabilityService;
+
+    private Statistics statistics;
+    private Patient patient;
+    private Doctor doctor;
+    private Appointment appointment;
+
+    @BeforeEach
+    void setUp() {
+        patient = entityManager.persist(new Patient("jdoe", "jdoe@example.com", "password123", "John", "Doe"));
+        Patient otherPatient = entityManager.persist(new Patient("asmith", "asmith@example.com", "password123", "Anna", "Smith"));
+        doctor = new Doctor("drhouse", "house@example.com", "password123", "Gregory", "House", "Diagnostics");
+        doctor.setLicenseNumber("LIC-1");
+        doctor = entityManager.persist(doctor);
+        Doctor otherDoctor = new Doctor("drgrey", "grey@example.com", "password123", "Meredith", "Grey", "Surgery");
+        otherDoctor.setLicenseNumber("LIC-2");
+        otherDoctor = entityManager.persist(otherDoctor);
+
+        LocalDateTime start = LocalDateTime.of(2030, 1, 15, 9, 0);
+        appointment = entityManager.persist(new Appointment(patient, doctor, start));
+        entityManager.persist(new Appointment(otherPatient, otherDoctor, start.plusHours(1)));
+        entityManager.persist(new Appointment(patient, otherDoctor, start.plusHours(2)));
+        entityManager.flush();
+        entityManager.clear();
+
+        when(archiver.coldBoundary(any())).thenReturn(start.minusYears(1));
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void getAllAppointments_ShouldLoadPartiesInOneStatementPerTier() {
+        // Act
+        CursorPage<AppointmentResponse> page = countingStatements(2, () -> appointmentService.getAllAppointments(new CursorRequest()));
+
+        // Assert
+        assertEquals(3, page.getItems().size());
+        assertEquals("John Doe", page.getItems().get(0).getPatientName());
+        assertEquals("Gregory House", page.getItems().get(0).getDoctorName());
+        assertEquals("Surgery", page.getItems().get(1).getDoctorSpecialization());
+    }
+
+    @Test
+    void getAppointmentsByPatientId_ShouldLoadPartiesInOneStatementPerTier() {
+        // Act
+        CursorPage<AppointmentResponse> page = countingStatements(2,
+                () -> appointmentService.getAppointmentsByPatientId(patient.getId(), new CursorRequest()));
+
+        // Assert
+        assertEquals(2, page.getItems().size());
+        assertEquals("Meredith Grey", page.getItems().get(1).getDoctorName());
+    }
+
+    @Test
+    void getAppointmentsInDateRange_AfterColdBoundary_ShouldOnlyQueryHotTable() {
+        // Act
+        CursorPage<AppointmentResponse> page = countingStatements(() -> appointmentService.getAppointmentsInDateRange(
+                appointment.getAppointmentDate(), appointment.getAppointmentDate().plusDays(1), new CursorRequest()));
+
+        // Assert
+        assertEquals(3, page.getItems().size());
+    }
+
+    @Test
+    void getAppointmentById_ShouldLoadPartiesInOneStatement() {
+        // Act
+        AppointmentResponse response = countingStatements(
+                () -> appointmentService.getAppointmentById(appointment.getId()).orElseThrow(AssertionError::new));
+
+        // Assert
+        assertEquals("John Doe", response.getPatientName());
+        assertEquals("Gregory House", response.getDoctorName());
+    }
+
+    @Test
+    void createAppointment_WithPartyIdsOnly_ShouldRespondWithTheirNames() {
+        // Arrange: a request body only carries the ids of the parties
+        Patient patientRef = new Patient();
+        patientRef.setId(patient.getId());
+        Doctor doctorRef = new Doctor();
+        doctorRef.setId(doctor.getId());
+        Appointment request = new Appointment(patientRef, doctorRef, LocalDateTime.now().plusDays(1));
+
+        // Act
+        AppointmentResponse response = AppointmentResponse.from(appointmentService.createAppointment(request));
+
+        // Assert
+        assertNotNull(response.getId());
+        assertEquals("John Doe", response.getPatientName());
+        assertEquals("Gregory House", response.getDoctorName());
+        assertEquals("Diagnostics", response.getDoctorSpecialization());
+    }
+
+    @Test
+    void getAllPatients_ShouldUseOneStatement() {
+        // Act
+        CursorPage<PatientResponse> page = countingStatements(() -> patientService.getAllPatients(new CursorRequest()));
+
+        // Assert
+        assertEquals(2, page.getItems().size());
+    }
+
+    @Test
+    void getPatientById_ShouldUseOneStatement() {
+        // Act
+        PatientResponse response = countingStatements(
+                () -> patientService.getPatientById(patient.getId()).orElseThrow(AssertionError::new));
+
+        // Assert
+        assertEquals("jdoe@example.com", response.getEmail());
+    }
+
+    @Test
+    void getAllDoctors_ShouldUseOneStatement() {
+        // Act
+        CursorPage<DoctorResponse> page = countingStatements(() -> doctorService.getAllDoctors(new CursorRequest()));
+
+        // Assert
+        assertEquals(2, page.getItems().size());
+    }
+
+    @Test
+    void getDoctorById_ShouldUseOneStatement() {
+        // Act
+        DoctorResponse response = countingStatements(
+                () -> doctorService.getDoctorById(doctor.getId()).orElseThrow(AssertionError::new));
+
+        // Assert
+        assertEquals("Diagnostics", response.getSpecialization());
+    }
+
+    private <T> T countingStatements(Supplier<T> call) {
+        return countingStatements(1, call);
+    }
+
+    private <T> T countingStatements(int expected, Supplier<T> call) {
+        T result = call.get();
+        assertEquals(expected, statistics.getPrepareStatementCount(), "SQL statements");
+        return result;
+    }
+}
@@ -1,5 +1,7 @@
 package com.smartclinic.services;
 
+import com.smartclinic.config.TokenRevocationRegistry;
+import com.smartclinic.exceptions.ConflictException;
 import com.smartclinic.exceptions.ResourceNotFoundException;
 import com.smartclinic.models.mysql.User;
 import com.smartclinic.repositories.mysql.UserRepository;
@@ -9,6 +11,7 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
@@ -33,6 +36,12 @@ class UserServiceTest {
     @Mock
     private PasswordEncoder passwordEncoder;
 
+    @Mock
+    private TokenRevocationRegistry tokenRevocationRegistry;
+
+    @Mock
+    private CustomUserDetailsService userDetailsService;
+
     @InjectMocks
     private UserService userService;
 
@@ -145,12 +154,9 @@ class UserServiceTest {
     }
 
     @Test
-    void createUser_WithValidData_ShouldCreateUser() {
+    void createUser_WithValidData_ShouldCreateUserWithSingleInsert() {
         // Arrange
-        when(userRepository.existsByUsername(anyString())).thenReturn(false);
-        when(userRepository.existsByEmail(anyString())).thenReturn(false);
-        when(passwordEncoder.encode(anyString())).thenReturn("encodedPassword");
-        when(userRepository.save(any(User.class))).thenReturn(testUser);
+        when(userRepository.saveAndFlush(any(User.class))).thenReturn(testUser);
 
         // Act
         User result = userService.createUser(testUser);
@@ -158,26 +164,110 @@ class UserServiceTest {
         // Assert
         assertNotNull(result);
         assertEquals(testUser.getUsername(), result.getUsername());
-        verify(userRepository, times(1)).existsByUsername(testUser.getUsername());
-        verify(userRepository, times(1)).existsByEmail(testUser.getEmail());
-        verify(passwordEncoder, times(1)).encode(testUser.getPassword());
-        verify(userRepository, times(1)).save(any(User.class));
+        verify(userRepository, times(1)).saveAndFlush(any(User.class));
+        verify(userRepository, never()).existsByUsername(anyString());
+        verify(userRepository, never()).existsByEmail(anyString());
+        verify(userDetailsService, times(1)).evict(testUser.getUsername());
     }
 
     @Test
-    void createUser_WithExistingUsername_ShouldThrowException() {
+    void createUser_WithExistingUsername_ShouldThrowConflict() {
         // Arrange
-        when(userRepository.existsByUsername(testUser.getUsername())).thenReturn(true);
+        when(userRepository.saveAndFlush(any(User.class))).thenThrow(new DataIntegrityViolationException(
+                "could not execute statement",
+                new RuntimeException("Duplicate entry 'testuser' for key 'users.username'")));
 
         // Act & Assert
-        RuntimeException exception = assertThrows(RuntimeException.class, () -> {
+        ConflictException exception = assertThrows(ConflictException.class, () -> {
             userService.createUser(testUser);
         });
 
         assertEquals("Username already exists: " + testUser.getUsername(), exception.getMessage());
-        verify(userRepository, times(1)).existsByUsername(testUser.getUsername());
-        verify(userRepository, never()).existsByEmail(anyString());
-        verify(userRepository, never()).save(any(User.class));
+        verify(userDetailsService, never()).evict(anyString());
+    }
+
+    @Test
+    void createUser_WithExistingEmail_ShouldThrowConflict() {
+        // Arrange
+        when(userRepository.saveAndFlush(any(User.class))).thenThrow(new DataIntegrityViolationException(
+                "could not execute statement",
+                new RuntimeException("Duplicate entry 'test@example.com' for key 'users.email'")));
+
+        // Act & Assert
+        ConflictException exception = assertThrows(ConflictException.class, () -> {
+            userService.createUser(testUser);
+        });
+
+        assertEquals("Email already exists: " + testUser.getEmail(), exception.getMessage());
+    }
+
+    @Test
+    void createUser_WithExistingUsernameContainingEmail_ShouldReportTheUsername() {
+        // Arrange
+        testUser.setUsername("email-admin");
+        when(userRepository.saveAndFlush(any(User.class))).thenThrow(new DataIntegrityViolationException(
+                "could not execute statement",
+                new RuntimeException("Duplicate entry 'email-admin' for key 'users.uk_users_username'")));
+
+        // Act & Assert
+        ConflictException exception = assertThrows(ConflictException.class, () -> {
+            userService.createUser(testUser);
+        });
+
+        assertEquals("Username already exists: email-admin", exception.getMessage());
+    }
+
+    @Test
+    void authenticate_WithValidCredentials_ShouldLoadUserOnce() {
+        // Arrange
+        testUser.setPassword("storedHash");
+        when(userRepository.findByUsername("testuser")).thenReturn(Optional.of(testUser));
+        when(passwordEncoder.matches("password123", "storedHash")).thenReturn(true);
+        when(passwordEncoder.upgradeEncoding("storedHash")).thenReturn(false);
+
+        // Act
+        Optional<User> result = userService.authenticate("testuser", "password123");
+
+        // Assert
+        assertTrue(result.isPresent());
+        assertSame(testUser, result.get());
+        verify(userRepository, times(1)).findByUsername("testuser");
+        verifyNoMoreInteractions(userRepository);
+    }
+
+    @Test
+    void authenticate_WithUnknownUser_ShouldStillCheckPasswordAndFail() {
+        // Arrange
+        when(passwordEncoder.encode(anyString())).thenReturn("dummyHash");
+        userService.initDummyPasswordHash();
+        when(userRepository.findByUsername("ghost")).thenReturn(Optional.empty());
+        when(passwordEncoder.matches("password123", "dummyHash")).thenReturn(false);
+
+        // Act
+        Optional<User> result = userService.authenticate("ghost", "password123");
+
+        // Assert
+        assertTrue(result.isEmpty());
+        verify(passwordEncoder, times(1)).matches("password123", "dummyHash");
+    }
+
+    @Test
+    void authenticate_WithOutdatedHash_ShouldRehashPassword() {
+        // Arrange
+        testUser.setPassword("weakHash");
+        when(userRepository.findByUsername("testuser")).thenReturn(Optional.of(testUser));
+        when(passwordEncoder.matches("password123", "weakHash")).thenReturn(true);
+        when(passwordEncoder.upgradeEncoding("weakHash")).thenReturn(true);
+        when(passwordEncoder.encode("password123")).thenReturn("strongHash");
+
+        // Act
+        Optional<User> result = userService.authenticate("testuser", "password123");
+
+        // Assert
+        assertTrue(result.isPresent());
+        assertEquals("strongHash", result.get().getPassword());
+        verify(userRepository, times(1)).updatePassword("testuser", "strongHash");
+        verify(userDetailsService, times(1)).evict("testuser");
     }
 
     @Test
@@ -247,6 +337,8 @@ class UserServiceTest {
         // Assert
         verify(userRepository, times(1)).findById(userId);
         verify(userRepository, times(1)).delete(testUser);
+        verify(userDetailsService, times(1)).evict(testUser.getUsername());
+        verify(tokenRevocationRegistry, times(1)).revokeAllFor(testUser.getUsername());
     }
 
     @Test
@@ -0,0 +1,106 @@
+package com.smartclinic.services.analytics;
+
+import com.smartclinic.dtos.SpecializationDiagnoses;
+import com.smartclinic.exceptions.BusinessException;
+import com.smartclinic.models.mongo.MedicalRecord;
+import com.smartclinic.repositories.mysql.DoctorRepository;
+import com.smartclinic.repositories.mysql.DoctorRepository.SpecializationView;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationResults;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AnalyticsServiceTest {
+
+    private static final LocalDateTime FROM = LocalDateTime.of(2030, 7, 1, 0, 0);
+    private static final LocalDateTime TO = LocalDateTime.of(2030, 10, 1, 0, 0);
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private DoctorRepository doctorRepository;
+
+    @InjectMocks
+    private AnalyticsService analyticsService;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(analyticsService, "defaultMonths", 12);
+        ReflectionTestUtils.setField(analyticsService, "maxMonths", 60);
+        ReflectionTestUtils.setField(analyticsService, "maxResults", 100);
+    }
+
+    @Test
+    void getDiagnosesPerSpecialization_ShouldRollDoctorCountsUpBySpecialization() {
+        // Arrange
+        when(mongoTemplate.getCollectionName(MedicalRecord.class)).thenReturn("medical_records");
+        List<Document> rows = Arrays.asList(
+                row(1L, "hipertansiyon", "Hipertansiyon", 5),
+                row(2L, "hipertansiyon", "hipertansiyon", 3),
+                row(2L, "aritmi", "Aritmi", 4),
+                row(3L, "gastrit", "Gastrit", 2),
+                row(9L, "migren", "Migren", 7));
+        when(mongoTemplate.aggregate(any(Aggregation.class), eq("medical_records"), eq(Document.class)))
+                .thenReturn(new AggregationResults<>(rows, new Document()));
+        when(doctorRepository.findSpecializationsByIdIn(anyCollection())).thenReturn(Arrays.asList(
+                doctor(1L, "Kardiyoloji"), doctor(2L, "Kardiyoloji"), doctor(3L, "Dahiliye")));
+
+        // Act
+        List<SpecializationDiagnoses> result = analyticsService.getDiagnosesPerSpecialization(FROM, TO, 10);
+
+        // Assert
+        assertEquals(2, result.size());
+        assertEquals("Dahiliye", result.get(0).getSpecialization());
+        SpecializationDiagnoses cardiology = result.get(1);
+        assertEquals("Kardiyoloji", cardiology.getSpecialization());
+        assertEquals(12, cardiology.getRecords());
+        assertEquals("Hipertansiyon", cardiology.getDiagnoses().get(0).getDiagnosis());
+        assertEquals(8, cardiology.getDiagnoses().get(0).getRecords());
+        assertEquals("Aritmi", cardiology.getDiagnoses().get(1).getDiagnosis());
+
+        // Only the aggregates are read, from a pipeline that starts by matching the date range
+        ArgumentCaptor<Aggregation> aggregation = ArgumentCaptor.forClass(Aggregation.class);
+        verify(mongoTemplate).aggregate(aggregation.capture(), eq("medical_records"), eq(Document.class));
+        Document match = aggregation.getValue().toPipeline(Aggregation.DEFAULT_CONTEXT).get(0);
+        assertTrue(match.get("$match", Document.class).containsKey("visit_date"));
+    }
+
+    @Test
+    void getFollowUpRates_WithRangeBeyondTheLimit_ShouldThrowBusinessException() {
+        // Act & Assert
+        assertThrows(BusinessException.class,
+                () -> analyticsService.getFollowUpRates(FROM, FROM.plusYears(6), null));
+        verifyNoInteractions(mongoTemplate);
+    }
+
+    private static Document row(Long doctorId, String terms, String diagnosis, int records) {
+        return new Document("_id", new Document("doctor_id", doctorId).append("diagnosis_terms", terms))
+                .append("diagnosis", diagnosis)
+                .append("records", records);
+    }
+
+    private static SpecializationView doctor(Long id, String specialization) {
+        return new SpecializationView() {
+            public Long getId() { return id; }
+            public String getSpecialization() { return specialization; }
+        };
+    }
+}
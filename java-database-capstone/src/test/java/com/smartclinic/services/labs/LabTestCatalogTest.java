@@ -0,0 +1,87 @@
+package com.smartclinic.services.labs;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.smartclinic.models.mongo.LabResult;
+import com.smartclinic.models.mongo.MedicalRecord;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LabTestCatalogTest {
+
+    private final LabTestCatalog catalog = new LabTestCatalog();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        ReflectionTestUtils.setField(catalog, "objectMapper", new ObjectMapper());
+        ReflectionTestUtils.setField(catalog, "catalog", new ClassPathResource("lab-tests/catalog.json"));
+        catalog.load();
+    }
+
+    @Test
+    void normalize_ShouldResolveSynonymsAndFlagResultsOutsideTheRange() {
+        // Arrange
+        MedicalRecord record = new MedicalRecord(1L, 2L, "Tip 2 Diyabet");
+        LabResult glucose = result("A\u00e7l\u0131k kan \u015fekeri", "145", "70-100");
+        LabResult hba1c = result("HBA1C", "7,2 %", "< 6.5");
+        record.setLabResults(Arrays.asList(glucose, hba1c));
+
+        // Act
+        catalog.normalize(record);
+
+        // Assert
+        assertEquals("GLU", glucose.getTestCode());
+        assertEquals(145.0, glucose.getNumericValue());
+        assertEquals(70.0, glucose.getRangeLow());
+        assertEquals(100.0, glucose.getRangeHigh());
+        assertTrue(glucose.getAbnormal());
+        assertEquals("HBA1C", hba1c.getTestCode());
+        assertEquals(7.2, hba1c.getNumericValue());
+        assertNull(hba1c.getRangeLow());
+        assertEquals(6.5, hba1c.getRangeHigh());
+        assertTrue(hba1c.getAbnormal());
+        assertEquals(catalog.getVersion(), record.getLabCatalogVersion());
+    }
+
+    @Test
+    void normalize_WithoutParseableRange_ShouldUseTheCatalogReferenceRange() {
+        // Arrange
+        LabResult hdl = result("HDL-C", "52", "see report");
+
+        // Act
+        catalog.normalize(hdl);
+
+        // Assert
+        assertEquals("HDL", hdl.getTestCode());
+        assertEquals(40.0, hdl.getRangeLow());
+        assertNull(hdl.getRangeHigh());
+        assertFalse(hdl.getAbnormal());
+    }
+
+    @Test
+    void normalize_WithUnknownTestAndTextResult_ShouldLeaveDerivedFieldsEmpty() {
+        // Arrange
+        LabResult culture = result("Idrar K\u00fclt\u00fcr\u00fc", "Negatif", null);
+
+        // Act
+        catalog.normalize(culture);
+
+        // Assert
+        assertNull(culture.getTestCode());
+        assertNull(culture.getNumericValue());
+        assertNull(culture.getAbnormal());
+    }
+
+    private static LabResult result(String testName, String value, String normalRange) {
+        LabResult result = new LabResult();
+        result.setTestName(testName);
+        result.setResult(value);
+        result.setNormalRange(normalRange);
+        return result;
+    }
+}
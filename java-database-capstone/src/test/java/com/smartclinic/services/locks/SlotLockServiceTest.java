@@ -0,0 +1,79 @@
+package com.smartclinic.services.locks;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SlotLockServiceTest {
+
+    private static final LocalDateTime NINE = LocalDateTime.of(2030, 1, 15, 9, 0);
+
+    private SlotLockService slotLockService;
+
+    @BeforeEach
+    void setUp() {
+        slotLockService = new SlotLockService();
+        ReflectionTestUtils.setField(slotLockService, "slotMinutes", 60L);
+    }
+
+    @Test
+    void keysFor_WhenBookingsOverlap_ShouldShareAKey() {
+        // Act
+        List<String> first = slotLockService.keysFor(1L, 10L, NINE.plusMinutes(50));
+        List<String> second = slotLockService.keysFor(1L, 20L, NINE.plusMinutes(100));
+
+        // Assert
+        assertTrue(first.stream().anyMatch(second::contains));
+    }
+
+    @Test
+    void keysFor_WhenBookingsOverlapAcrossMidnight_ShouldShareAKey() {
+        // Act
+        List<String> first = slotLockService.keysFor(1L, 10L, NINE.withHour(23).withMinute(30));
+        List<String> second = slotLockService.keysFor(1L, 20L, NINE.plusDays(1).withHour(0).withMinute(15));
+
+        // Assert
+        assertTrue(first.stream().anyMatch(second::contains));
+    }
+
+    @Test
+    void keysFor_WhenBookingsAreOnDifferentDays_ShouldNotShareAKey() {
+        // Act
+        List<String> first = slotLockService.keysFor(1L, 10L, NINE);
+        List<String> second = slotLockService.keysFor(1L, 10L, NINE.plusDays(1));
+
+        // Assert
+        assertTrue(Collections.disjoint(first, second));
+    }
+
+    @Test
+    void keysFor_ForBookingsOfOneDoctorAndDay_ShouldShareTheDoctorKey() {
+        // Act
+        List<String> morning = slotLockService.keysFor(1L, 10L, NINE);
+        List<String> afternoon = slotLockService.keysFor(1L, 20L, NINE.plusHours(6));
+
+        // Assert: a batch chunk of that doctor's day needs one doctor key
+        assertEquals(Collections.singletonList("slot:doctor:1:2030-01-15"),
+                morning.stream().filter(afternoon::contains).collect(Collectors.toList()));
+    }
+
+    @Test
+    void keysFor_ShouldReturnKeysInSortedOrder() {
+        // Act
+        List<String> keys = slotLockService.keysFor(42L, 7L, NINE);
+
+        // Assert
+        List<String> sorted = new ArrayList<>(keys);
+        Collections.sort(sorted);
+        assertEquals(sorted, keys);
+        assertEquals(2, keys.size());
+    }
+}
@@ -0,0 +1,174 @@
+package com.smartclinic.services.reminders;
+
+import com.icegreen.greenmail.junit5.GreenMailExtension;
+import com.icegreen.greenmail.util.GreenMailUtil;
+import com.icegreen.greenmail.util.ServerSetupTest;
+import com.smartclinic.repositories.mysql.AppointmentRepository;
+import com.smartclinic.repositories.mysql.AppointmentRepository.ReminderView;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.mail.internet.MimeMessage;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Sends reminders to an in-process SMTP server, so batching, rendering and the ledger
+ * bookkeeping are exercised against a real mail transport.
+ */
+@ExtendWith(MockitoExtension.class)
+class AppointmentReminderDispatcherTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2030, 1, 14, 18, 0);
+
+    @RegisterExtension
+    static GreenMailExtension smtp = new GreenMailExtension(ServerSetupTest.SMTP);
+
+    @Mock
+    private AppointmentRepository appointmentRepository;
+
+    @Mock
+    private ReminderLedger ledger;
+
+    @InjectMocks
+    private AppointmentReminderDispatcher dispatcher;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        JavaMailSenderImpl mailSender = new JavaMailSenderImpl();
+        mailSender.setHost("localhost");
+        mailSender.setPort(ServerSetupTest.SMTP.getPort());
+
+        ReflectionTestUtils.setField(dispatcher, "mailSender", mailSender);
+        ReflectionTestUtils.setField(dispatcher, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(dispatcher, "lookaheadHours", 24L);
+        ReflectionTestUtils.setField(dispatcher, "pageSize", 2);
+        ReflectionTestUtils.setField(dispatcher, "batchSize", 2);
+        ReflectionTestUtils.setField(dispatcher, "concurrency", 2);
+        ReflectionTestUtils.setField(dispatcher, "retries", 1);
+        ReflectionTestUtils.setField(dispatcher, "retryBackoffMillis", 10L);
+        ReflectionTestUtils.setField(dispatcher, "maxAttempts", 3);
+        ReflectionTestUtils.setField(dispatcher, "ledgerRetentionDays", 30L);
+        ReflectionTestUtils.setField(dispatcher, "from", "no-reply@smartclinic.com");
+        ReflectionTestUtils.setField(dispatcher, "template", new ClassPathResource("reminders/appointment-reminder.txt"));
+        dispatcher.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        dispatcher.stop();
+    }
+
+    @Test
+    void dispatch_ShouldPageThroughUpcomingAppointmentsAndSendEachReminderOnce() throws Exception {
+        // Arrange
+        ReminderView first = view(1L, "mehmet.demir@example.com", NOW.plusHours(15));
+        ReminderView second = view(2L, "zeynep.sahin@example.com", NOW.plusHours(16));
+        ReminderView third = view(3L, "ali.veli@example.com", NOW.plusHours(20));
+        when(appointmentRepository.findReminderPage(anyCollection(), any(), any(), any(), any()))
+                .thenReturn(Arrays.asList(first, second), Collections.singletonList(third));
+        when(ledger.claim(anyString(), anyList(), any(), eq(3))).thenAnswer(invocation -> {
+            List<ReminderView> batch = invocation.getArgument(1);
+            return batch.stream().map(ReminderView::getId).collect(Collectors.toSet());
+        });
+
+        // Act
+        ReminderRun run = dispatcher.dispatch(NOW);
+
+        // Assert
+        assertEquals(3, run.getSent());
+        assertEquals(0, run.getFailed());
+        MimeMessage[] received = smtp.getReceivedMessages();
+        assertEquals(3, received.length);
+        MimeMessage message = null;
+        for (MimeMessage candidate : received) {
+            if ("zeynep.sahin@example.com".equals(candidate.getAllRecipients()[0].toString())) {
+                message = candidate;
+            }
+        }
+        assertNotNull(message);
+        assertEquals("Reminder: your appointment on Tuesday, 15 January 2030 at 10:00", message.getSubject());
+        assertTrue(GreenMailUtil.getBody(message).contains("Dr. Ayse Kaya (Dahiliye)"));
+        // The second page continues after the last appointment of the first
+        verify(appointmentRepository).findReminderPage(anyCollection(), eq(second.getAppointmentDate()), eq(2L), any(), any());
+        verify(ledger, times(2)).markSent(anyString(), anyCollection(), any());
+        verify(ledger, never()).markFailed(anyString(), anyCollection(), any());
+    }
+
+    @Test
+    void dispatch_ShouldSkipRemindersClaimedElsewhere() {
+        // Arrange
+        ReminderView sentBefore = view(1L, "mehmet.demir@example.com", NOW.plusHours(15));
+        ReminderView pending = view(2L, "zeynep.sahin@example.com", NOW.plusHours(16));
+        when(appointmentRepository.findReminderPage(anyCollection(), any(), any(), any(), any()))
+                .thenReturn(Arrays.asList(sentBefore, pending), Collections.emptyList());
+        when(ledger.claim(anyString(), anyList(), any(), anyInt())).thenReturn(Collections.singleton(2L));
+
+        // Act
+        ReminderRun run = dispatcher.dispatch(NOW);
+
+        // Assert
+        assertEquals(1, run.getSent());
+        assertEquals(1, run.getSkipped());
+        assertEquals(1, smtp.getReceivedMessages().length);
+        verify(ledger).markSent(anyString(), eq(Collections.singletonList(2L)), any());
+    }
+
+    @Test
+    void dispatch_ShouldRecordFailureWhenMailServerIsUnreachable() {
+        // Arrange
+        JavaMailSenderImpl unreachable = new JavaMailSenderImpl();
+        unreachable.setHost("localhost");
+        unreachable.setPort(1);
+        ReflectionTestUtils.setField(dispatcher, "mailSender", unreachable);
+        when(appointmentRepository.findReminderPage(anyCollection(), any(), any(), any(), any()))
+                .thenReturn(Collections.singletonList(view(1L, "mehmet.demir@example.com", NOW.plusHours(15))));
+        when(ledger.claim(anyString(), anyList(), any(), anyInt())).thenReturn(Collections.singleton(1L));
+
+        // Act
+        ReminderRun run = dispatcher.dispatch(NOW);
+
+        // Assert
+        assertEquals(0, run.getSent());
+        assertEquals(1, run.getFailed());
+        verify(ledger).markFailed(anyString(), argThat(ids -> ids.contains(1L)), anyString());
+        verify(ledger, never()).markSent(anyString(), anyCollection(), any());
+    }
+
+    @Test
+    void compile_ShouldRejectUnknownPlaceholders() {
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> ReminderTemplate.compile("Hello {{nickname}}"));
+    }
+
+    private static ReminderView view(Long id, String email, LocalDateTime date) {
+        boolean first = id % 2 == 1;
+        return new ReminderView() {
+            public Long getId() { return id; }
+            public LocalDateTime getAppointmentDate() { return date; }
+            public String getPatientEmail() { return email; }
+            public String getPatientFirstName() { return "Patient"; }
+            public String getPatientLastName() { return String.valueOf(id); }
+            public String getDoctorFirstName() { return first ? "Ahmet" : "Ayse"; }
+            public String getDoctorLastName() { return first ? "Yilmaz" : "Kaya"; }
+            public String getSpecialization() { return first ? "Kardiyoloji" : "Dahiliye"; }
+        };
+    }
+}
@@ -0,0 +1,83 @@
+package com.smartclinic.services.search;
+
+import com.smartclinic.exceptions.BusinessException;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DiagnosisQueryTest {
+
+    private static final List<String> DIAGNOSES = Arrays.asList(
+            "Hipertansiyon",
+            "Esansiyel hipertansiyon",
+            "Tip 2 Diyabet, \u0130ns\u00fcline ba\u011f\u0131ml\u0131",
+            "Dehidratasyon",
+            "Hipotiroidi");
+
+    @Test
+    void normalize_ShouldFoldCaseAccentsAndPunctuation() {
+        // Act & Assert
+        assertEquals("tip 2 diyabet insuline bagimli", DiagnosisTerms.normalize("Tip 2 Diyabet, \u0130ns\u00fcline ba\u011f\u0131ml\u0131"));
+        assertEquals("", DiagnosisTerms.normalize(" -- "));
+    }
+
+    @Test
+    void parse_ShouldFindSubstringsThroughTheGramsOfTheDiagnosis() {
+        // Act
+        List<String> matches = matching(DiagnosisQuery.parse("TANS\u0130Y"));
+
+        // Assert
+        assertEquals(Arrays.asList("Hipertansiyon", "Esansiyel hipertansiyon"), matches);
+    }
+
+    @Test
+    void parse_WithSeveralWords_ShouldMatchThemInOrder() {
+        // Act
+        List<String> matches = matching(DiagnosisQuery.parse("diyabet insulin"));
+
+        // Assert
+        assertEquals(Arrays.asList("Tip 2 Diyabet, \u0130ns\u00fcline ba\u011f\u0131ml\u0131"), matches);
+    }
+
+    @Test
+    void parse_WithShortTerm_ShouldMatchWordStartsOnly() {
+        // Act
+        DiagnosisQuery query = DiagnosisQuery.parse("hi");
+
+        // Assert
+        assertEquals(Arrays.asList("  h", " hi"), query.getGrams());
+        assertEquals(Arrays.asList("Hipertansiyon", "Esansiyel hipertansiyon", "Hipotiroidi"), matching(query));
+    }
+
+    @Test
+    void score_ShouldRankWholeThenLeadingThenWordThenInnerMatches() {
+        // Arrange
+        DiagnosisQuery query = DiagnosisQuery.parse("hipertansiyon");
+
+        // Act & Assert
+        assertEquals(3, query.score("hipertansiyon"));
+        assertEquals(2, query.score("hipertansiyon evre 1"));
+        assertEquals(1, query.score("esansiyel hipertansiyon"));
+        assertEquals(0, query.score("pulmonerhipertansiyon"));
+    }
+
+    @Test
+    void parse_WithoutLettersOrDigits_ShouldThrowBusinessException() {
+        // Act & Assert
+        assertThrows(BusinessException.class, () -> DiagnosisQuery.parse("%%"));
+    }
+
+    // What the index lookup and the regex check select together
+    private static List<String> matching(DiagnosisQuery query) {
+        return DIAGNOSES.stream()
+                .filter(diagnosis -> {
+                    String terms = DiagnosisTerms.normalize(diagnosis);
+                    return DiagnosisTerms.grams(terms).containsAll(query.getGrams()) && terms.contains(query.getText());
+                })
+                .collect(Collectors.toList());
+    }
+}
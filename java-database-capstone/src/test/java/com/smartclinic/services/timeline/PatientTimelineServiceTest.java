@@ -0,0 +1,162 @@
+package com.smartclinic.services.timeline;
+
+import com.smartclinic.dtos.AppointmentResponse;
+import com.smartclinic.dtos.Cursor;
+import com.smartclinic.dtos.CursorPage;
+import com.smartclinic.dtos.CursorRequest;
+import com.smartclinic.dtos.TimelineEntry;
+import com.smartclinic.exceptions.BusinessException;
+import com.smartclinic.models.mongo.MedicalRecord;
+import com.smartclinic.models.mongo.Prescription;
+import com.smartclinic.models.mysql.Appointment;
+import com.smartclinic.services.AppointmentService;
+import com.smartclinic.services.MedicalRecordService;
+import com.smartclinic.services.PrescriptionService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PatientTimelineServiceTest {
+
+    private static final LocalDateTime MORNING = LocalDateTime.of(2030, 3, 4, 9, 0);
+    private static final String RECORD_ID = "65f000000000000000000001";
+    private static final String PRESCRIPTION_ID = "65f000000000000000000002";
+
+    @Mock
+    private AppointmentService appointmentService;
+
+    @Mock
+    private MedicalRecordService medicalRecordService;
+
+    @Mock
+    private PrescriptionService prescriptionService;
+
+    @InjectMocks
+    private PatientTimelineService patientTimelineService;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(patientTimelineService, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(patientTimelineService, "mysqlThreads", 1);
+        ReflectionTestUtils.setField(patientTimelineService, "mongoThreads", 2);
+        ReflectionTestUtils.setField(patientTimelineService, "queueCapacity", 4);
+        ReflectionTestUtils.setField(patientTimelineService, "timeoutMs", 5000L);
+        patientTimelineService.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        patientTimelineService.stop();
+    }
+
+    @Test
+    void getTimeline_ShouldMergeTheStoresByDateAndTypeAcrossPages() {
+        // Arrange
+        when(appointmentService.getAppointmentsByPatientId(eq(1L), any(CursorRequest.class)))
+                .thenReturn(page(appointment(7L, MORNING), appointment(8L, MORNING.plusDays(2))));
+        when(medicalRecordService.getMedicalRecordsByPatientId(eq(1L), any(CursorRequest.class)))
+                .thenReturn(page(record(RECORD_ID, MORNING)));
+        when(prescriptionService.getPatientPrescriptionsByDate(eq(1L), any(CursorRequest.class)))
+                .thenReturn(page(prescription(PRESCRIPTION_ID, MORNING.minusDays(1))));
+
+        // Act
+        CursorPage<TimelineEntry> first = patientTimelineService.getTimeline(1L, new CursorRequest(null, 2, null));
+
+        // Assert
+        assertEquals(Arrays.asList(TimelineEntry.Type.PRESCRIPTION, TimelineEntry.Type.APPOINTMENT),
+                types(first.getItems()));
+        assertNotNull(first.getNextCursor());
+
+        // The next page seeks every store past the last entry: the 09:00 record sorts after appointment 7
+        patientTimelineService.getTimeline(1L, new CursorRequest(first.getNextCursor(), 2, null));
+        assertEquals(Cursor.encode(MORNING, 7L), secondCursor(appointmentService));
+        assertEquals(Cursor.encode(MORNING, "000000000000000000000000"), secondCursor(medicalRecordService));
+        assertEquals(Cursor.encode(MORNING, "000000000000000000000000"), secondCursor(prescriptionService));
+    }
+
+    @Test
+    void merge_ShouldReportTheLastPageWhenEveryEntryFits() {
+        // Act
+        CursorPage<TimelineEntry> merged = PatientTimelineService.merge(Arrays.asList(
+                page(TimelineEntry.appointment(appointment(2L, MORNING))),
+                page(TimelineEntry.medicalRecord(record(RECORD_ID, MORNING))),
+                new CursorPage<TimelineEntry>(Collections.emptyList(), null, null, null)), 5);
+
+        // Assert
+        assertEquals(Arrays.asList(TimelineEntry.Type.APPOINTMENT, TimelineEntry.Type.MEDICAL_RECORD),
+                types(merged.getItems()));
+        assertNull(merged.getNextCursor());
+    }
+
+    @Test
+    void getTimeline_WithForeignCursor_ShouldThrowBusinessException() {
+        // Act & Assert
+        String cursor = Cursor.encode(MORNING, 42L);
+        assertThrows(BusinessException.class,
+                () -> patientTimelineService.getTimeline(1L, new CursorRequest(cursor, 10, null)));
+        verifyNoInteractions(appointmentService, medicalRecordService, prescriptionService);
+    }
+
+    private static String secondCursor(Object service) {
+        ArgumentCaptor<CursorRequest> page = ArgumentCaptor.forClass(CursorRequest.class);
+        if (service instanceof AppointmentService) {
+            verify((AppointmentService) service, times(2)).getAppointmentsByPatientId(eq(1L), page.capture());
+        } else if (service instanceof MedicalRecordService) {
+            verify((MedicalRecordService) service, times(2)).getMedicalRecordsByPatientId(eq(1L), page.capture());
+        } else {
+            verify((PrescriptionService) service, times(2)).getPatientPrescriptionsByDate(eq(1L), page.capture());
+        }
+        return page.getAllValues().get(1).getCursor();
+    }
+
+    private static List<TimelineEntry.Type> types(List<TimelineEntry> entries) {
+        TimelineEntry.Type[] types = new TimelineEntry.Type[entries.size()];
+        for (int i = 0; i < types.length; i++) {
+            types[i] = entries.get(i).getType();
+        }
+        return Arrays.asList(types);
+    }
+
+    @SafeVarargs
+    private static <T> CursorPage<T> page(T... items) {
+        return new CursorPage<>(Arrays.asList(items), null, null, null);
+    }
+
+    private static AppointmentResponse appointment(Long id, LocalDateTime date) {
+        Appointment appointment = new Appointment();
+        appointment.setId(id);
+        appointment.setAppointmentDate(date);
+        return AppointmentResponse.from(appointment);
+    }
+
+    private static MedicalRecord record(String id, LocalDateTime visitDate) {
+        MedicalRecord record = new MedicalRecord();
+        record.setId(id);
+        record.setVisitDate(visitDate);
+        return record;
+    }
+
+    private static Prescription prescription(String id, LocalDateTime date) {
+        Prescription prescription = new Prescription();
+        prescription.setId(id);
+        prescription.setPrescriptionDate(date);
+        return prescription;
+    }
+}
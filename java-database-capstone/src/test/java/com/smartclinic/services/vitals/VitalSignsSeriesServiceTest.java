@@ -0,0 +1,142 @@
+package com.smartclinic.services.vitals;
+
+import com.smartclinic.dtos.VitalSignsTrend;
+import com.smartclinic.exceptions.BusinessException;
+import com.smartclinic.models.mongo.MedicalRecord;
+import com.smartclinic.models.mongo.VitalSignsBucket;
+import com.smartclinic.repositories.mongo.MongoBackfill;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class VitalSignsSeriesServiceTest {
+
+    private static final long HOUR = 3600_000L;
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private BulkOperations bulkOperations;
+
+    @InjectMocks
+    private VitalSignsSeriesService vitalSignsSeriesService;
+
+    @Test
+    void downsample_ShouldAggregateEachWindowSkippingUnmeasuredValues() {
+        // Arrange
+        VitalSignsBucket bucket = new VitalSignsBucket(1L, LocalDateTime.of(2030, 1, 1, 0, 0));
+        bucket.add("a", 0, sample(120.0, 80.0));
+        bucket.add("b", HOUR, sample(140.0, null));
+        bucket.add("c", 3 * HOUR, sample(null, 70.0));
+        bucket.add("d", 5 * HOUR, sample(200.0, 90.0));
+
+        // Act: two-hour windows over [0, 4h); the sample at 5h is outside the range
+        List<VitalSignsTrend.Window> windows = VitalSignsSeriesService.downsample(Collections.singletonList(bucket),
+                Arrays.asList("bloodPressureSystolic", "heartRate"), new long[] {0, 2 * HOUR}, 4 * HOUR);
+
+        // Assert
+        assertEquals(2, windows.size());
+        VitalSignsTrend.Stats systolic = windows.get(0).getMeasures().get("bloodPressureSystolic");
+        assertEquals(2, windows.get(0).getSamples());
+        assertEquals(120.0, systolic.getMin());
+        assertEquals(140.0, systolic.getMax());
+        assertEquals(130.0, systolic.getAvg());
+        assertEquals(1, windows.get(0).getMeasures().get("heartRate").getCount());
+        assertFalse(windows.get(1).getMeasures().containsKey("bloodPressureSystolic"));
+        assertEquals(70.0, windows.get(1).getMeasures().get("heartRate").getAvg());
+    }
+
+    @Test
+    void remove_ShouldDropTheRecordSampleFromEveryColumn() {
+        // Arrange
+        VitalSignsBucket bucket = new VitalSignsBucket(1L, LocalDateTime.of(2030, 1, 1, 0, 0));
+        bucket.add("a", 0, sample(120.0, 80.0));
+        bucket.add("b", HOUR, sample(140.0, null));
+        bucket.add("c", 2 * HOUR, sample(130.0, 75.0));
+
+        // Act
+        boolean removed = bucket.remove("b");
+
+        // Assert
+        assertTrue(removed);
+        assertEquals(Arrays.asList("a", "c"), bucket.getRecordIds());
+        assertArrayEquals(new long[] {0, 2 * HOUR}, bucket.getTimes());
+        assertArrayEquals(new double[] {120.0, 130.0}, bucket.getValues().get("bloodPressureSystolic"));
+        assertArrayEquals(new double[] {80.0, 75.0}, bucket.getValues().get("heartRate"));
+    }
+
+    @Test
+    void backfill_WhenARecordCannotBeRead_ShouldMarkTheOthersAndLeaveItUnmarked() {
+        // Arrange
+        ReflectionTestUtils.setField(vitalSignsSeriesService, "backfillBatchSize", 10);
+        MongoBackfill mongoBackfill = new MongoBackfill();
+        ReflectionTestUtils.setField(mongoBackfill, "mongoTemplate", mongoTemplate);
+        ReflectionTestUtils.setField(vitalSignsSeriesService, "mongoBackfill", mongoBackfill);
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, MedicalRecord.class, "medical_records"))
+                .thenReturn(bulkOperations);
+        MappingMongoConverter converter = new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, new MongoMappingContext());
+        converter.afterPropertiesSet();
+        when(mongoTemplate.getConverter()).thenReturn(converter);
+        when(mongoTemplate.getCollectionName(MedicalRecord.class)).thenReturn("medical_records");
+        when(mongoTemplate.find(any(Query.class), eq(Document.class), eq("medical_records"))).thenReturn(Arrays.asList(
+                new Document("_id", "r1").append("patient_id", 1L),
+                new Document("_id", "r2").append("patient_id", "not-a-number"),
+                new Document("_id", "r3").append("patient_id", 3L)));
+
+        // Act
+        long recorded = vitalSignsSeriesService.backfill();
+
+        // Assert
+        assertEquals(2, recorded);
+        ArgumentCaptor<Query> marked = ArgumentCaptor.forClass(Query.class);
+        verify(bulkOperations, times(2)).updateOne(marked.capture(), any(Update.class));
+        verify(bulkOperations).execute();
+        assertEquals(new Document("_id", "r1"), marked.getAllValues().get(0).getQueryObject());
+        assertEquals(new Document("_id", "r3"), marked.getAllValues().get(1).getQueryObject());
+    }
+
+    @Test
+    void getTrend_WithUnknownMeasure_ShouldThrowBusinessException() {
+        // Act & Assert
+        assertThrows(BusinessException.class, () -> vitalSignsSeriesService.getTrend(1L, null, null, null,
+                Collections.singletonList("pulse")));
+        verifyNoInteractions(mongoTemplate);
+    }
+
+    private static Map<String, Double> sample(Double systolic, Double heartRate) {
+        Map<String, Double> sample = new HashMap<>();
+        if (systolic != null) {
+            sample.put("bloodPressureSystolic", systolic);
+        }
+        if (heartRate != null) {
+            sample.put("heartRate", heartRate);
+        }
+        return sample;
+    }
+}